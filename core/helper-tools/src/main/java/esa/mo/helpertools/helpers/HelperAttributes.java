@@ -66,6 +66,14 @@ public class HelperAttributes {
   public static String SERIAL_OBJECT_STRING = "SerializedObject"; // Selected the String to
                                                                   // represent a Serialized object
 
+  /**
+   * Set to true to encode the structured values with the compact encoding of
+   * the HelperCodec in serialObject2blobAttribute. The receivers must then be
+   * able to decode it, so the Java serialization stays the default. Both
+   * formats are always decoded.
+   */
+  public static final String PROPERTY_COMPACT_SERIALIZATION = "esa.mo.helpertools.serialization.compact";
+
   /**
    * Converts any MAL Attribute data type to a Double java type
    *
@@ -761,13 +769,24 @@ public class HelperAttributes {
   }
 
   /**
-   * Serializes an object and fits it into a Blob attribute
+   * Serializes an object and fits it into a Blob attribute. The Java
+   * serialization is used, unless the PROPERTY_COMPACT_SERIALIZATION property
+   * is set to true. Then the arrays of primitives, lists, maps and the types
+   * registered in the HelperCodec use its compact encoding.
    *
    * @param obj The object to be serialized
    * @return The Blob with the serialized object inside
    * @throws java.io.IOException When the serialization of the object fails
    */
   public static Blob serialObject2blobAttribute(Serializable obj) throws IOException {
+    if (Boolean.parseBoolean(System.getProperty(PROPERTY_COMPACT_SERIALIZATION))) {
+      byte[] encoded = HelperCodec.encode(obj);
+
+      if (encoded != null) {
+        return new Blob(encoded);
+      }
+    }
+
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     ObjectOutput out = null;
     byte[] serialBytesOut = null;
@@ -794,6 +813,31 @@ public class HelperAttributes {
     return new Blob(serialBytesOut);
   }
 
+  /**
+   * Checks if a Blob holds an object serialized by serialObject2blobAttribute,
+   * without deserializing it.
+   *
+   * @param obj The Blob
+   * @return True if the Blob starts with the header of the compact encoding or
+   * of the Java serialization
+   */
+  public static boolean isSerialObjectBlob(Blob obj) {
+    if (obj == null) {
+      return false;
+    }
+
+    byte[] bytes;
+
+    try {
+      bytes = obj.getValue();
+    } catch (MALException ex) {
+      return false;
+    }
+
+    return HelperCodec.isEncoded(bytes) || (bytes != null && bytes.length > 4
+        && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED);
+  }
+
   /**
    * Tries to deserialize an object inside a Blob
    *
@@ -813,6 +857,10 @@ public class HelperAttributes {
     Object o = null;
 
     try {
+      if (HelperCodec.isEncoded(obj.getValue())) {
+        return HelperCodec.decode(obj.getValue());
+      }
+
       bis = new ByteArrayInputStream(obj.getValue());
       ObjectInput in = null;
       try {
@@ -839,7 +887,9 @@ public class HelperAttributes {
       return obj; // the object could not be Deserialized, so, just deliver the Blob itself
     } finally {
       try {
-        bis.close();
+        if (bis != null) {
+          bis.close();
+        }
       } catch (IOException ex) {
         Logger.getLogger(HelperAttributes.class.getName()).log(Level.SEVERE, null, ex);
         // ignore close exception
@@ -0,0 +1,523 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.helpertools.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact encoding for the structured values that are not MAL Attributes
+ * (arrays of primitives, lists, maps and registered record types), used
+ * instead of the Java serialization for the content of Blobs when the
+ * HelperAttributes.PROPERTY_COMPACT_SERIALIZATION property is set. An encoded
+ * value starts with a 2-byte header followed by a type tag, so a receiver can
+ * check whether a Blob holds an encoded value before decoding it.
+ *
+ * Lists are decoded as ArrayList and maps as LinkedHashMap, in the order of
+ * the encoded entries. Other types can be added by registering a Codec with a
+ * tag from FIRST_USER_TAG to LAST_USER_TAG.
+ */
+public class HelperCodec {
+
+  public static final byte HEADER_0 = (byte) 0xC0;
+  public static final byte HEADER_1 = (byte) 0xDE;
+  public static final int FIRST_USER_TAG = 64;
+  public static final int LAST_USER_TAG = 127;
+
+  private static final int TAG_NULL = 0;
+  private static final int TAG_BOOLEAN = 1;
+  private static final int TAG_BYTE = 2;
+  private static final int TAG_SHORT = 3;
+  private static final int TAG_INT = 4;
+  private static final int TAG_LONG = 5;
+  private static final int TAG_FLOAT = 6;
+  private static final int TAG_DOUBLE = 7;
+  private static final int TAG_CHAR = 8;
+  private static final int TAG_STRING = 9;
+  private static final int TAG_BOOLEAN_ARRAY = 16;
+  private static final int TAG_BYTE_ARRAY = 17;
+  private static final int TAG_SHORT_ARRAY = 18;
+  private static final int TAG_INT_ARRAY = 19;
+  private static final int TAG_LONG_ARRAY = 20;
+  private static final int TAG_FLOAT_ARRAY = 21;
+  private static final int TAG_DOUBLE_ARRAY = 22;
+  private static final int TAG_CHAR_ARRAY = 23;
+  private static final int TAG_STRING_ARRAY = 24;
+  private static final int TAG_LIST = 32;
+  private static final int TAG_MAP = 33;
+
+  private static final Map<Class<?>, Integer> USER_TAGS = new ConcurrentHashMap<>();
+  private static final Map<Integer, Codec<?>> USER_CODECS = new ConcurrentHashMap<>();
+
+  /**
+   * Encodes and decodes the fields of a type registered in the HelperCodec.
+   *
+   * @param <T> The type
+   */
+  public interface Codec<T extends Serializable> {
+
+    void encode(T value, DataOutput out) throws IOException;
+
+    T decode(DataInput in) throws IOException;
+  }
+
+  /**
+   * Registers the codec of a type. The values of exactly this class are then
+   * encoded with it, including inside lists and maps.
+   *
+   * @param <T> The type
+   * @param tag The tag identifying the type in the encoded values
+   * @param type The class of the type
+   * @param codec The codec
+   * @throws IllegalArgumentException If the tag is out of the user range or
+   * already registered for another type
+   */
+  public static synchronized <T extends Serializable> void register(int tag, Class<T> type,
+      Codec<T> codec) throws IllegalArgumentException {
+    if (tag < FIRST_USER_TAG || tag > LAST_USER_TAG) {
+      throw new IllegalArgumentException("The tag must be between " + FIRST_USER_TAG
+          + " and " + LAST_USER_TAG + ".");
+    }
+
+    Integer previous = USER_TAGS.get(type);
+
+    if (USER_CODECS.containsKey(tag) && (previous == null || previous != tag)) {
+      throw new IllegalArgumentException("The tag " + tag + " is already registered.");
+    }
+
+    USER_CODECS.put(tag, codec);
+    USER_TAGS.put(type, tag);
+  }
+
+  /**
+   * Checks if some bytes hold a value encoded by the HelperCodec.
+   *
+   * @param bytes The bytes
+   * @return True if they start with the header of the encoded values
+   */
+  public static boolean isEncoded(byte[] bytes) {
+    return bytes != null && bytes.length > 2 && bytes[0] == HEADER_0 && bytes[1] == HEADER_1;
+  }
+
+  /**
+   * Encodes a structured value. Null, Strings and boxed primitives are not
+   * encoded at the top level because they have a MAL Attribute of their own.
+   *
+   * @param value The value
+   * @return The encoded value or null if the value, or one of its elements, has
+   * no compact encoding
+   */
+  public static byte[] encode(Serializable value) {
+    if (value == null || scalarTag(value) != -1) {
+      return null;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    try {
+      out.writeByte(HEADER_0);
+      out.writeByte(HEADER_1);
+
+      if (!writeValue(value, out)) {
+        return null;
+      }
+
+      out.flush();
+    } catch (IOException ex) {
+      // Not thrown by a ByteArrayOutputStream, only by the codec of a user type
+      return null;
+    }
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a value encoded by the HelperCodec.
+   *
+   * @param bytes The encoded value
+   * @return The value
+   * @throws IOException If the bytes are not a valid encoded value
+   */
+  public static Serializable decode(byte[] bytes) throws IOException {
+    if (!isEncoded(bytes)) {
+      throw new StreamCorruptedException("The bytes do not hold an encoded value.");
+    }
+
+    DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+    Serializable value = readValue(in);
+
+    if (in.available() != 0) {
+      throw new StreamCorruptedException("Unexpected bytes after the encoded value.");
+    }
+
+    return value;
+  }
+
+  private static int scalarTag(Object value) {
+    if (value instanceof Boolean) {
+      return TAG_BOOLEAN;
+    }
+    if (value instanceof Byte) {
+      return TAG_BYTE;
+    }
+    if (value instanceof Short) {
+      return TAG_SHORT;
+    }
+    if (value instanceof Integer) {
+      return TAG_INT;
+    }
+    if (value instanceof Long) {
+      return TAG_LONG;
+    }
+    if (value instanceof Float) {
+      return TAG_FLOAT;
+    }
+    if (value instanceof Double) {
+      return TAG_DOUBLE;
+    }
+    if (value instanceof Character) {
+      return TAG_CHAR;
+    }
+    if (value instanceof String) {
+      return TAG_STRING;
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static boolean writeValue(Object value, DataOutput out) throws IOException {
+    if (value == null) {
+      out.writeByte(TAG_NULL);
+      return true;
+    }
+
+    int tag = scalarTag(value);
+
+    if (tag != -1) {
+      out.writeByte(tag);
+      writeScalar(tag, value, out);
+      return true;
+    }
+
+    if (value.getClass().isArray()) {
+      return writeArray(value, out);
+    }
+
+    Integer userTag = USER_TAGS.get(value.getClass());
+
+    if (userTag != null) {
+      out.writeByte(userTag);
+      ((Codec<Serializable>) USER_CODECS.get(userTag)).encode((Serializable) value, out);
+      return true;
+    }
+
+    if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(TAG_LIST);
+      out.writeInt(list.size());
+
+      for (Object element : list) {
+        if (!writeValue(element, out)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(TAG_MAP);
+      out.writeInt(map.size());
+
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        if (!writeValue(entry.getKey(), out) || !writeValue(entry.getValue(), out)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    return false;
+  }
+
+  private static void writeScalar(int tag, Object value, DataOutput out) throws IOException {
+    switch (tag) {
+      case TAG_BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case TAG_BYTE:
+        out.writeByte((Byte) value);
+        break;
+      case TAG_SHORT:
+        out.writeShort((Short) value);
+        break;
+      case TAG_INT:
+        out.writeInt((Integer) value);
+        break;
+      case TAG_LONG:
+        out.writeLong((Long) value);
+        break;
+      case TAG_FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case TAG_DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case TAG_CHAR:
+        out.writeChar((Character) value);
+        break;
+      default:
+        writeString((String) value, out);
+    }
+  }
+
+  private static boolean writeArray(Object value, DataOutput out) throws IOException {
+    if (value instanceof boolean[]) {
+      boolean[] array = (boolean[]) value;
+      out.writeByte(TAG_BOOLEAN_ARRAY);
+      out.writeInt(array.length);
+      for (boolean element : array) {
+        out.writeBoolean(element);
+      }
+    } else if (value instanceof byte[]) {
+      byte[] array = (byte[]) value;
+      out.writeByte(TAG_BYTE_ARRAY);
+      out.writeInt(array.length);
+      out.write(array);
+    } else if (value instanceof short[]) {
+      short[] array = (short[]) value;
+      out.writeByte(TAG_SHORT_ARRAY);
+      out.writeInt(array.length);
+      for (short element : array) {
+        out.writeShort(element);
+      }
+    } else if (value instanceof int[]) {
+      int[] array = (int[]) value;
+      out.writeByte(TAG_INT_ARRAY);
+      out.writeInt(array.length);
+      for (int element : array) {
+        out.writeInt(element);
+      }
+    } else if (value instanceof long[]) {
+      long[] array = (long[]) value;
+      out.writeByte(TAG_LONG_ARRAY);
+      out.writeInt(array.length);
+      for (long element : array) {
+        out.writeLong(element);
+      }
+    } else if (value instanceof float[]) {
+      float[] array = (float[]) value;
+      out.writeByte(TAG_FLOAT_ARRAY);
+      out.writeInt(array.length);
+      for (float element : array) {
+        out.writeFloat(element);
+      }
+    } else if (value instanceof double[]) {
+      double[] array = (double[]) value;
+      out.writeByte(TAG_DOUBLE_ARRAY);
+      out.writeInt(array.length);
+      for (double element : array) {
+        out.writeDouble(element);
+      }
+    } else if (value instanceof char[]) {
+      char[] array = (char[]) value;
+      out.writeByte(TAG_CHAR_ARRAY);
+      out.writeInt(array.length);
+      for (char element : array) {
+        out.writeChar(element);
+      }
+    } else if (value instanceof String[]) {
+      String[] array = (String[]) value;
+      out.writeByte(TAG_STRING_ARRAY);
+      out.writeInt(array.length);
+      for (String element : array) {
+        if (element == null) {
+          out.writeInt(-1);
+        } else {
+          writeString(element, out);
+        }
+      }
+    } else {
+      return false;
+    }
+
+    return true;
+  }
+
+  private static void writeString(String value, DataOutput out) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static Serializable readValue(DataInputStream in) throws IOException {
+    int tag = in.readUnsignedByte();
+
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_BOOLEAN:
+        return in.readBoolean();
+      case TAG_BYTE:
+        return in.readByte();
+      case TAG_SHORT:
+        return in.readShort();
+      case TAG_INT:
+        return in.readInt();
+      case TAG_LONG:
+        return in.readLong();
+      case TAG_FLOAT:
+        return in.readFloat();
+      case TAG_DOUBLE:
+        return in.readDouble();
+      case TAG_CHAR:
+        return in.readChar();
+      case TAG_STRING:
+        return readString(in, readLength(in, 1));
+      case TAG_BOOLEAN_ARRAY: {
+        boolean[] array = new boolean[readLength(in, 1)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readBoolean();
+        }
+        return array;
+      }
+      case TAG_BYTE_ARRAY: {
+        byte[] array = new byte[readLength(in, 1)];
+        in.readFully(array);
+        return array;
+      }
+      case TAG_SHORT_ARRAY: {
+        short[] array = new short[readLength(in, 2)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readShort();
+        }
+        return array;
+      }
+      case TAG_INT_ARRAY: {
+        int[] array = new int[readLength(in, 4)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readInt();
+        }
+        return array;
+      }
+      case TAG_LONG_ARRAY: {
+        long[] array = new long[readLength(in, 8)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readLong();
+        }
+        return array;
+      }
+      case TAG_FLOAT_ARRAY: {
+        float[] array = new float[readLength(in, 4)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readFloat();
+        }
+        return array;
+      }
+      case TAG_DOUBLE_ARRAY: {
+        double[] array = new double[readLength(in, 8)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readDouble();
+        }
+        return array;
+      }
+      case TAG_CHAR_ARRAY: {
+        char[] array = new char[readLength(in, 2)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readChar();
+        }
+        return array;
+      }
+      case TAG_STRING_ARRAY: {
+        String[] array = new String[readLength(in, 4)];
+        for (int i = 0; i < array.length; i++) {
+          int length = in.readInt();
+          array[i] = (length == -1) ? null : readString(in, checkLength(in, length, 1));
+        }
+        return array;
+      }
+      case TAG_LIST: {
+        int size = readLength(in, 1);
+        ArrayList<Serializable> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      }
+      case TAG_MAP: {
+        int size = readLength(in, 2);
+        LinkedHashMap<Serializable, Serializable> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+          map.put(readValue(in), readValue(in));
+        }
+        return map;
+      }
+      default:
+        Codec<?> codec = USER_CODECS.get(tag);
+
+        if (codec == null) {
+          throw new StreamCorruptedException("No codec is registered for the tag " + tag + ".");
+        }
+
+        return codec.decode(in);
+    }
+  }
+
+  private static int readLength(DataInputStream in, int elementSize) throws IOException {
+    return checkLength(in, in.readInt(), elementSize);
+  }
+
+  /**
+   * Checks a length against the remaining bytes, so that a corrupted length
+   * cannot allocate more than the size of the encoded value.
+   */
+  private static int checkLength(DataInputStream in, int length, int elementSize)
+      throws IOException {
+    if (length < 0 || (long) length * elementSize > in.available()) {
+      throw new StreamCorruptedException("Invalid length: " + length);
+    }
+
+    return length;
+  }
+
+  private static String readString(DataInputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -65,6 +65,8 @@ public class HelperMisc {
   public final static String APP_COPYRIGHT = "helpertools.configurations.provider.app.copyright";
   public final static String APP_DESCRIPTION = "helpertools.configurations.provider.app.description";
   public final static String APP_USER = "helpertools.configurations.provider.app.user";
+  public final static String APP_CPU_LIMIT = "helpertools.configurations.provider.app.cpulimit";
+  public final static String APP_MEMORY_LIMIT = "helpertools.configurations.provider.app.memorylimit";
 
   public static final String PROP_MO_APP_NAME = "helpertools.configurations.MOappName";
   public static final String PROP_DOMAIN = "helpertools.configurations.provider.Domain";
@@ -55,6 +55,12 @@ public class Const
   public static final String ARCHIVE_DROP_TABLE_DEFAULT = "false";
   public static final String ARCHIVE_GENERATE_EVENTS_PROPERTY = "esa.mo.com.impl.provider.ArchiveManager.generateevents";
   public static final String ARCHIVE_GENERATE_EVENTS_DEFAULT = "true";
+  /* Apps store their COM objects in the Archive of the NanoSat MO Supervisor */
+  public static final String ARCHIVE_SHARED_PROPERTY = "esa.mo.nmf.app.archive.shared";
+  public static final String ARCHIVE_SHARED_DEFAULT = "false";
+  /* Apps connect to the Supervisor and create the Archive database in the background */
+  public static final String STAGED_STARTUP_PROPERTY = "esa.mo.nmf.app.startup.staged";
+  public static final String STAGED_STARTUP_DEFAULT = "false";
   public static final String ARCHIVESYNC_CHUNK_SIZE_PROPERTY = "esa.nmf.archive.sync.chunk.size";
   public static final String ARCHIVESYNC_CHUNK_SIZE_DEFAULT = "200";
   public static final String ARCHIVESYNC_OBJECTS_LIMIT_PROPERTY = "esa.nmf.archive.sync.objects.limit";
@@ -112,7 +112,7 @@ public class TaskScheduler
     if(id >= 0 && id < nextId && scheduled.containsKey(id)){
       scheduled.get(id).cancel(true);
       scheduled.remove(id);
-      ids.remove(id);
+      ids.remove(Integer.valueOf(id));
     }
   }
 
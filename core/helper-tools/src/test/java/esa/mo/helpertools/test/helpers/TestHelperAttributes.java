@@ -1,12 +1,22 @@
 package esa.mo.helpertools.test.helpers;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.structures.Blob;
@@ -31,6 +41,7 @@ import org.ccsds.moims.mo.mal.structures.Union;
 import org.junit.Test;
 
 import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperCodec;
 
 public class TestHelperAttributes {
 
@@ -1332,4 +1343,72 @@ public class TestHelperAttributes {
       fail("IOException!");
     }
   }
+
+  @Test
+  public void testBlobAttribute2serialObject3() {
+    // with the property set, structured values use the compact encoding and decode to equal values
+    LinkedHashMap<String, Serializable> ref = new LinkedHashMap<>();
+    ref.put("temperatures", new ArrayList<>(Arrays.asList(21.5, 22.0, null)));
+    ref.put("mode", "nominal");
+    ref.put("counters", new HashMap<>(Collections.singletonMap(1, 42L)));
+    System.setProperty(HelperAttributes.PROPERTY_COMPACT_SERIALIZATION, "true");
+    try {
+      Blob blob = HelperAttributes.serialObject2blobAttribute(ref);
+      assertEquals(HelperCodec.HEADER_0, blob.getValue()[0]);
+      assertTrue(HelperAttributes.isSerialObjectBlob(blob));
+      assertEquals(ref, HelperAttributes.blobAttribute2serialObject(blob));
+
+      int[] array = {1, -2, Integer.MAX_VALUE};
+      assertArrayEquals(array,
+          (int[]) HelperAttributes.blobAttribute2serialObject(HelperAttributes.serialObject2blobAttribute(array)));
+    } catch (IOException | MALException e) {
+      e.printStackTrace();
+      fail("IOException!");
+    } finally {
+      System.clearProperty(HelperAttributes.PROPERTY_COMPACT_SERIALIZATION);
+    }
+  }
+
+  @Test
+  public void testBlobAttribute2serialObject4() {
+    // by default the Java serialization is used, and Blobs of older senders are decoded
+    LinkedHashMap<String, Serializable> ref = new LinkedHashMap<>();
+    ref.put("temperatures", new ArrayList<>(Arrays.asList(21.5, 22.0, null)));
+    ref.put("counters", new long[]{1L, 42L});
+    try {
+      Blob blob = HelperAttributes.serialObject2blobAttribute(ref);
+      assertEquals((byte) 0xAC, blob.getValue()[0]);
+      assertEquals((byte) 0xED, blob.getValue()[1]);
+      assertTrue(HelperAttributes.isSerialObjectBlob(blob));
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+        out.writeObject(ref);
+      }
+      Blob legacy = new Blob(baos.toByteArray());
+
+      for (Blob b : new Blob[]{blob, legacy}) {
+        @SuppressWarnings("unchecked")
+        LinkedHashMap<String, Serializable> decoded =
+            (LinkedHashMap<String, Serializable>) HelperAttributes.blobAttribute2serialObject(b);
+        assertEquals(ref.get("temperatures"), decoded.get("temperatures"));
+        assertArrayEquals((long[]) ref.get("counters"), (long[]) decoded.get("counters"));
+      }
+    } catch (IOException | MALException e) {
+      e.printStackTrace();
+      fail("IOException!");
+    }
+  }
+
+  @Test
+  public void testIsSerialObjectBlob() {
+    try {
+      assertTrue(HelperAttributes.isSerialObjectBlob(HelperAttributes.serialObject2blobAttribute("text")));
+    } catch (IOException e) {
+      e.printStackTrace();
+      fail("IOException!");
+    }
+    assertFalse(HelperAttributes.isSerialObjectBlob(new Blob(new byte[]{100, 10, 10, -1})));
+    assertFalse(HelperAttributes.isSerialObjectBlob(null));
+  }
 }
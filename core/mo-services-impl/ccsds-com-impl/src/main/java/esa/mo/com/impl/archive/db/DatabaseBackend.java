@@ -28,6 +28,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,7 +43,6 @@ import javax.persistence.Persistence;
  */
 public class DatabaseBackend {
     private static final String PERSISTENCE_UNIT_NAME = "ArchivePersistenceUnit";
-    private static final boolean OPTIMIZED_STARTUP = false;
 
     private static final String DRIVER_CLASS_NAME = "org.sqlite.JDBC"; // SQLite JDBC Driver
 
@@ -53,6 +53,8 @@ public class DatabaseBackend {
     private final Semaphore emAvailability =
             new Semaphore(0, true); // true for fairness, because we want FIFO
 
+    private final CountDownLatch connectionAvailability = new CountDownLatch(1);
+
     private final String jdbcDriver;
 
     private final String url;
@@ -65,7 +67,7 @@ public class DatabaseBackend {
 
     private EntityManager em;
 
-    private Connection serverConnection;
+    private volatile Connection serverConnection;
 
     public DatabaseBackend() {
         this.em = null;
@@ -106,20 +108,44 @@ public class DatabaseBackend {
         return emAvailability;
     }
 
+    /**
+     * Returns the database connection. With the staged startup enabled, waits
+     * until the connection attempt made in the background has finished.
+     *
+     * @return The connection, or null if it could not be established.
+     */
     public Connection getConnection() {
+        try {
+            connectionAvailability.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(ArchiveManager.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
         return serverConnection;
     }
 
     /**
-     * Starts the database backend by creates the Entity Manager Factory.
+     * Starts the database backend by creates the Entity Manager Factory. With
+     * the staged startup enabled, the Entity Manager Factory and the database
+     * connection are created in the background and the first transaction waits
+     * for them.
      *
      * @param dbProcessor The transactions processor.
      */
     public void startBackendDatabase(final TransactionsProcessor dbProcessor) {
-        if (OPTIMIZED_STARTUP) {
+        final boolean optimizedStartup = Boolean.parseBoolean(
+                System.getProperty(Const.STAGED_STARTUP_PROPERTY, Const.STAGED_STARTUP_DEFAULT));
+
+        if (optimizedStartup) {
             dbProcessor.submitExternalTask(
                     () -> {
-                        createEMFactory();
+                        try {
+                            createEMFactory();
+                            startDatabaseDriver(this.url, this.user, this.password);
+                        } finally {
+                            connectionAvailability.countDown();
+                        }
                         emAvailability.release();
                         Logger.getLogger(DatabaseBackend.class.getName())
                                 .log(Level.INFO, "The EntityManagerFactory was created.");
@@ -129,9 +155,8 @@ public class DatabaseBackend {
             emAvailability.release();
             Logger.getLogger(DatabaseBackend.class.getName())
                     .log(Level.INFO, "The EntityManagerFactory was created.");
+            startDatabaseDriver(this.url, this.user, this.password);
         }
-
-        startDatabaseDriver(this.url, this.user, this.password);
     }
 
     private void startDatabaseDriver(String url2, String user, String password) {
@@ -176,6 +201,8 @@ public class DatabaseBackend {
                         .log(Level.SEVERE, "Unexpected exception ! " + ex.getMessage(), ex);
                 System.exit(0);
             }
+        } finally {
+            connectionAvailability.countDown();
         }
     }
 
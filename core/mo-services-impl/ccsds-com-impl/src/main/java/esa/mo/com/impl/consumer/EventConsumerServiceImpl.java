@@ -128,7 +128,14 @@ public class EventConsumerServiceImpl extends ConsumerServiceImpl {
         this.eventService = new EventStub(tmConsumer);
     }
 
-    public void addEventReceivedListener(final Subscription subscription, final EventReceivedListener eventReceivedListener) {
+    /**
+     * Registers a listener for the events matching a subscription.
+     *
+     * @param subscription The subscription
+     * @param eventReceivedListener The listener
+     * @return True if the subscription was registered with the provider
+     */
+    public boolean addEventReceivedListener(final Subscription subscription, final EventReceivedListener eventReceivedListener) {
 
         // Make the event adapter to call the eventReceivedListener when there's a new object available
         class EventReceivedAdapter extends EventAdapter {
@@ -181,8 +188,10 @@ public class EventConsumerServiceImpl extends ConsumerServiceImpl {
         try {  // Register with the subscription key provided
             this.getEventStub().monitorEventRegister(subscription, new EventReceivedAdapter());
             subs.add(subscription);
+            return true;
         } catch (MALInteractionException | MALException ex) {
             Logger.getLogger(EventConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
         }
     }
 
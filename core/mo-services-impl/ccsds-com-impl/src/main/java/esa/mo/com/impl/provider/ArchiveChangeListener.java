@@ -0,0 +1,90 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.provider;
+
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.ElementList;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+
+/**
+ * This Interface must be implemented by the components that keep in memory
+ * data derived from objects of the local Archive, in order to be notified when
+ * those objects are stored, updated or deleted.
+ */
+public interface ArchiveChangeListener {
+
+    /**
+     * Notifies that objects of the given type were stored, updated or deleted
+     * in the Archive.
+     *
+     * @param objType The object type of the changed objects
+     * @param domain The domain of the changed objects
+     */
+    void onObjectsChanged(ObjectType objType, IdentifierList domain);
+
+    /**
+     * Notifies that objects were stored in the Archive. By default, calls
+     * onObjectsChanged.
+     *
+     * @param objType The object type of the stored objects
+     * @param domain The domain of the stored objects
+     * @param objIds The object instance ids of the stored objects, or null if
+     * they are not known
+     * @param details The archive details of the stored objects
+     * @param objects The bodies of the stored objects, or null if there are
+     * none
+     */
+    default void onObjectsStored(ObjectType objType, IdentifierList domain, LongList objIds,
+            ArchiveDetailsList details, ElementList objects) {
+        this.onObjectsChanged(objType, domain);
+    }
+
+    /**
+     * Notifies that objects were updated in the Archive. By default, calls
+     * onObjectsChanged.
+     *
+     * @param objType The object type of the updated objects
+     * @param domain The domain of the updated objects
+     * @param details The new archive details of the updated objects
+     * @param objects The new bodies of the updated objects, or null if there
+     * are none
+     */
+    default void onObjectsUpdated(ObjectType objType, IdentifierList domain,
+            ArchiveDetailsList details, ElementList objects) {
+        this.onObjectsChanged(objType, domain);
+    }
+
+    /**
+     * Notifies that objects were deleted from the Archive. By default, calls
+     * onObjectsChanged.
+     *
+     * @param objType The object type of the deleted objects
+     * @param domain The domain of the deleted objects
+     * @param objIds The object instance ids of the deleted objects, or null
+     * if they are not known
+     */
+    default void onObjectsDeleted(ObjectType objType, IdentifierList domain, LongList objIds) {
+        this.onObjectsChanged(objType, domain);
+    }
+
+}
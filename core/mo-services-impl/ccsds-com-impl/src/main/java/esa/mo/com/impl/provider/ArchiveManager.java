@@ -305,10 +305,10 @@ public class ArchiveManager {
         return new SourceLinkContainer(sourceObjectTypeId, sourceDomainId, sourceObjId);
     }
 
-    public void insertEntriesFast(final ObjectType objType, final IdentifierList domain,
+    public LongList insertEntriesFast(final ObjectType objType, final IdentifierList domain,
             final ArchiveDetailsList lArchiveDetails, final ElementList objects, final MALInteraction interaction) {
         // It is quite hard to improve this method...
-        insertEntries(objType, domain, lArchiveDetails, objects, interaction);
+        return insertEntries(objType, domain, lArchiveDetails, objects, interaction);
     }
 
     public synchronized LongList insertEntries(final ObjectType objType, final IdentifierList domain,
@@ -27,6 +27,8 @@ import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperMisc;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
@@ -67,6 +69,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
     private boolean initialiased = false;
     private boolean running = false;
     private final ConnectionProvider connection = new ConnectionProvider();
+    private final List<ArchiveChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * creates the MAL objects, the publisher used to create updates and starts
@@ -91,8 +94,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
             }
         }
 
-        manager.setEventService(eventService);
-        manager.init();
+        this.startArchiveManager(eventService);
 
         // shut down old service transport
         if (null != archiveServiceProvider) {
@@ -114,7 +116,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
                 archiveServiceProvider.close();
             }
 
-            manager.close();
+            this.closeArchiveManager();
 
             connection.closeAll();
             running = false;
@@ -124,10 +126,116 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
         }
     }
 
+    /**
+     * Starts the Archive Manager and its local database. Called by the init
+     * method.
+     *
+     * @param eventService The Event service provider.
+     */
+    protected void startArchiveManager(EventProviderServiceImpl eventService) {
+        manager.setEventService(eventService);
+        manager.init();
+    }
+
+    /**
+     * Stops the Archive Manager and closes its local database. Called by the
+     * close method.
+     */
+    protected void closeArchiveManager() {
+        manager.close();
+    }
+
     public void setEventService(EventProviderServiceImpl eventService) {
         manager.setEventService(eventService);
     }
 
+    /**
+     * Adds a listener to be notified after objects are stored, updated or
+     * deleted through this Archive.
+     *
+     * @param listener The listener
+     */
+    public void addChangeListener(ArchiveChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addChangeListener.
+     *
+     * @param listener The listener
+     */
+    public void removeChangeListener(ArchiveChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners added with addChangeListener that objects were
+     * stored, updated or deleted.
+     *
+     * @param objType The object type of the changed objects
+     * @param domain The domain of the changed objects
+     */
+    protected void notifyChangeListeners(final ObjectType objType, final IdentifierList domain) {
+        this.notifyChangeListeners(listener -> listener.onObjectsChanged(objType, domain));
+    }
+
+    /**
+     * Notifies the listeners added with addChangeListener that objects were
+     * stored.
+     *
+     * @param objType The object type of the stored objects
+     * @param domain The domain of the stored objects
+     * @param objIds The object instance ids of the stored objects, or null if
+     * they are not known
+     * @param details The archive details of the stored objects
+     * @param objects The bodies of the stored objects, or null
+     */
+    protected void notifyObjectsStored(final ObjectType objType, final IdentifierList domain,
+            final LongList objIds, final ArchiveDetailsList details, final ElementList objects) {
+        this.notifyChangeListeners(listener -> listener.onObjectsStored(objType, domain, objIds,
+                details, objects));
+    }
+
+    /**
+     * Notifies the listeners added with addChangeListener that objects were
+     * updated.
+     *
+     * @param objType The object type of the updated objects
+     * @param domain The domain of the updated objects
+     * @param details The new archive details of the updated objects
+     * @param objects The new bodies of the updated objects, or null
+     */
+    protected void notifyObjectsUpdated(final ObjectType objType, final IdentifierList domain,
+            final ArchiveDetailsList details, final ElementList objects) {
+        this.notifyChangeListeners(listener -> listener.onObjectsUpdated(objType, domain, details,
+                objects));
+    }
+
+    /**
+     * Notifies the listeners added with addChangeListener that objects were
+     * deleted.
+     *
+     * @param objType The object type of the deleted objects
+     * @param domain The domain of the deleted objects
+     * @param objIds The object instance ids of the deleted objects, or null if
+     * they are not known
+     */
+    protected void notifyObjectsDeleted(final ObjectType objType, final IdentifierList domain,
+            final LongList objIds) {
+        this.notifyChangeListeners(listener -> listener.onObjectsDeleted(objType, domain, objIds));
+    }
+
+    private void notifyChangeListeners(final Consumer<ArchiveChangeListener> notification) {
+        for (ArchiveChangeListener listener : changeListeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(ArchiveProviderServiceImpl.class.getName()).log(Level.WARNING,
+                        "The Archive change listener failed.", ex);
+            }
+        }
+    }
+
     /**
      * Reset operation
      */
@@ -139,7 +247,8 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
      * This method should only be used by the Archive Sync service. Any other
      * calls should go through the COM Archive interface and not this one.
      *
-     * @return The Archive Manager.
+     * @return The Archive Manager. Null if the Archive is not backed by a local
+     * database.
      */
     public ArchiveManager getArchiveManager() {
         return manager;
@@ -601,10 +710,13 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
             if (returnObjId) { // requirement: 3.4.6.2.1 and 3.4.6.2.14
                 // Execute the store operation (objType, domain, archiveDetails, objs)
                 // requirement: 3.4.6.2.15 (the operation returns the objIds with the same order)
-                return manager.insertEntries(objType, domain, lArchiveDetailsList, lElementList, interaction);
+                final LongList objIds = manager.insertEntries(objType, domain, lArchiveDetailsList, lElementList, interaction);
+                this.notifyObjectsStored(objType, domain, objIds, lArchiveDetailsList, lElementList);
+                return objIds;
             } else {
                 // Cannot be Threaded because is does not lock the access to the db and out of order will happen
-                manager.insertEntriesFast(objType, domain, lArchiveDetailsList, lElementList, interaction); // requirement: 3.4.6.2.15
+                final LongList objIds = manager.insertEntriesFast(objType, domain, lArchiveDetailsList, lElementList, interaction); // requirement: 3.4.6.2.15
+                this.notifyObjectsStored(objType, domain, objIds, lArchiveDetailsList, lElementList);
                 return null;
             }
         }
@@ -670,6 +782,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
 
             // The errors have to be before the update operation to fulfil requirement: 3.4.7.2.5 and 3.4.7.2.8 ("nothing will be updated")
             manager.updateEntries(lObjectType, domain, lArchiveDetailsList, lElementList, interaction); // requirement: 3.4.7.2.6 and 3.4.7.2.7
+            this.notifyObjectsUpdated(lObjectType, domain, lArchiveDetailsList, lElementList);
         }
     }
 
@@ -717,7 +830,9 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
             }
 
             // requirement: 3.4.8.2.4 and 3.4.8.2.7
-            return manager.removeEntries(lObjectType, lIdentifierList, toBeDeleted, interaction); // requirement: 3.4.8.2.8
+            final LongList deleted = manager.removeEntries(lObjectType, lIdentifierList, toBeDeleted, interaction); // requirement: 3.4.8.2.8
+            this.notifyObjectsDeleted(lObjectType, lIdentifierList, deleted);
+            return deleted;
         }
     }
 
@@ -0,0 +1,351 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.provider;
+
+import esa.mo.com.impl.consumer.ArchiveConsumerServiceImpl;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.com.COMHelper;
+import org.ccsds.moims.mo.com.archive.consumer.ArchiveAdapter;
+import org.ccsds.moims.mo.com.archive.consumer.ArchiveStub;
+import org.ccsds.moims.mo.com.archive.provider.CountInteraction;
+import org.ccsds.moims.mo.com.archive.provider.QueryInteraction;
+import org.ccsds.moims.mo.com.archive.provider.RetrieveInteraction;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveQueryList;
+import org.ccsds.moims.mo.com.archive.structures.QueryFilterList;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.MALStandardError;
+import org.ccsds.moims.mo.mal.provider.MALInteraction;
+import org.ccsds.moims.mo.mal.structures.ElementList;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
+
+/**
+ * Archive service Provider without a local database. All the operations are
+ * forwarded to the Archive service of another provider (the shared Archive of
+ * the NanoSat MO Supervisor), so that several apps can share a single database.
+ *
+ * The objects of each app are isolated by prefixing their domain with the name
+ * of the app in the shared Archive. The prefix is removed from the domains
+ * returned by the query operation. A null domain in a query or count selects
+ * all the domains of the app. The other operations reject a null domain with
+ * an INVALID error, as the local Archive does.
+ *
+ * The retrieve, query and count operations return as soon as they are
+ * forwarded, and the responses of the shared Archive are sent back from its
+ * callbacks, so that no provider thread waits for them. The store, update and
+ * delete operations return a result, so they wait for the shared Archive.
+ *
+ * The ArchiveChangeListeners are notified after each store, update or delete
+ * forwarded successfully, with the domain of the app. Only the app writes in
+ * its domains of the shared Archive, so no change is missed.
+ */
+public class SharedArchiveProviderServiceImpl extends ArchiveProviderServiceImpl {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedArchiveProviderServiceImpl.class.getName());
+    private static final Identifier WILDCARD = new Identifier("*");
+
+    private final ArchiveConsumerServiceImpl sharedArchive;
+    private final ArchiveStub archiveStub;
+    private final Identifier appName;
+
+    /**
+     * Constructor.
+     *
+     * @param sharedArchive The consumer of the shared Archive service.
+     * @param appName The name of the app, used to isolate its objects.
+     */
+    public SharedArchiveProviderServiceImpl(final ArchiveConsumerServiceImpl sharedArchive,
+            final String appName) {
+        this.sharedArchive = sharedArchive;
+        this.archiveStub = sharedArchive.getArchiveStub();
+        this.appName = new Identifier(appName);
+    }
+
+    @Override
+    protected void startArchiveManager(EventProviderServiceImpl eventService) {
+        LOGGER.log(Level.INFO, "Using the shared Archive service at: {0}",
+                sharedArchive.getConnectionDetails().getProviderURI());
+    }
+
+    @Override
+    protected void closeArchiveManager() {
+        sharedArchive.close();
+    }
+
+    @Override
+    public void reset() {
+        LOGGER.log(Level.WARNING, "The shared Archive cannot be reset by an app!");
+    }
+
+    /**
+     * The objects are held by the shared Archive.
+     *
+     * @return Null.
+     */
+    @Override
+    public ArchiveManager getArchiveManager() {
+        return null;
+    }
+
+    @Override
+    public void retrieve(final ObjectType inObjectType, final IdentifierList inDomain,
+            final LongList inObjIds, final RetrieveInteraction interaction)
+            throws MALInteractionException, MALException {
+        final IdentifierList domain = this.isolate(inDomain);
+        interaction.sendAcknowledgement();
+
+        archiveStub.asyncRetrieve(inObjectType, domain, inObjIds, new ForwardedResponse() {
+            @Override
+            public void retrieveResponseReceived(MALMessageHeader msgHeader,
+                    ArchiveDetailsList objDetails, ElementList objBodies, Map qosProperties) {
+                try {
+                    interaction.sendResponse(objDetails, objBodies);
+                } catch (MALInteractionException | MALException ex) {
+                    LOGGER.log(Level.SEVERE, "The retrieve response could not be forwarded!", ex);
+                }
+            }
+
+            @Override
+            protected void sendError(MALStandardError error) throws MALInteractionException, MALException {
+                interaction.sendError(error);
+            }
+        });
+    }
+
+    @Override
+    public void query(final Boolean returnObjBody, final ObjectType lObjectType,
+            final ArchiveQueryList lArchiveQueryList, final QueryFilterList queryFilterList,
+            final QueryInteraction interaction) throws MALException, MALInteractionException {
+        interaction.sendAcknowledgement();
+
+        archiveStub.asyncQuery(returnObjBody, lObjectType, this.isolate(lArchiveQueryList),
+                queryFilterList, new ForwardedResponse() {
+            @Override
+            public void queryUpdateReceived(MALMessageHeader msgHeader, ObjectType objType,
+                    IdentifierList domain, ArchiveDetailsList objDetails, ElementList objBodies,
+                    Map qosProperties) {
+                try {
+                    interaction.sendUpdate(objType, strip(domain), objDetails, objBodies);
+                } catch (MALInteractionException | MALException ex) {
+                    LOGGER.log(Level.SEVERE, "The query update could not be forwarded!", ex);
+                }
+            }
+
+            @Override
+            public void queryResponseReceived(MALMessageHeader msgHeader, ObjectType objType,
+                    IdentifierList domain, ArchiveDetailsList objDetails, ElementList objBodies,
+                    Map qosProperties) {
+                try {
+                    interaction.sendResponse(objType, strip(domain), objDetails, objBodies);
+                } catch (MALInteractionException | MALException ex) {
+                    LOGGER.log(Level.SEVERE, "The query response could not be forwarded!", ex);
+                }
+            }
+
+            @Override
+            protected void sendError(MALStandardError error) throws MALInteractionException, MALException {
+                interaction.sendError(error);
+            }
+        });
+    }
+
+    @Override
+    public void count(final ObjectType lObjectType, final ArchiveQueryList lArchiveQueryList,
+            final QueryFilterList queryFilterList, final CountInteraction interaction)
+            throws MALException, MALInteractionException {
+        interaction.sendAcknowledgement();
+
+        archiveStub.asyncCount(lObjectType, this.isolate(lArchiveQueryList), queryFilterList,
+                new ForwardedResponse() {
+            @Override
+            public void countResponseReceived(MALMessageHeader msgHeader, LongList countList,
+                    Map qosProperties) {
+                try {
+                    interaction.sendResponse(countList);
+                } catch (MALInteractionException | MALException ex) {
+                    LOGGER.log(Level.SEVERE, "The count response could not be forwarded!", ex);
+                }
+            }
+
+            @Override
+            protected void sendError(MALStandardError error) throws MALInteractionException, MALException {
+                interaction.sendError(error);
+            }
+        });
+    }
+
+    @Override
+    public LongList store(final Boolean returnObjId, final ObjectType objType,
+            final IdentifierList domain, final ArchiveDetailsList lArchiveDetailsList,
+            final ElementList lElementList, final MALInteraction interaction)
+            throws MALException, MALInteractionException {
+        // The ids are always requested, the listeners need them
+        final LongList objIds = archiveStub.store(true, objType, this.isolate(domain),
+                lArchiveDetailsList, lElementList);
+        this.notifyObjectsStored(objType, domain, objIds, lArchiveDetailsList, lElementList);
+        return Boolean.TRUE.equals(returnObjId) ? objIds : null;
+    }
+
+    @Override
+    public void update(final ObjectType lObjectType, final IdentifierList domain,
+            final ArchiveDetailsList lArchiveDetailsList, final ElementList lElementList,
+            final MALInteraction interaction) throws MALException, MALInteractionException {
+        archiveStub.update(lObjectType, this.isolate(domain), lArchiveDetailsList, lElementList);
+        this.notifyObjectsUpdated(lObjectType, domain, lArchiveDetailsList, lElementList);
+    }
+
+    @Override
+    public LongList delete(final ObjectType lObjectType, final IdentifierList lIdentifierList,
+            final LongList lLongList, final MALInteraction interaction)
+            throws MALException, MALInteractionException {
+        final LongList deleted = archiveStub.delete(lObjectType, this.isolate(lIdentifierList), lLongList);
+        this.notifyObjectsDeleted(lObjectType, lIdentifierList, deleted);
+        return deleted;
+    }
+
+    /**
+     * Converts a domain of the app to the domain in the shared Archive.
+     *
+     * @param domain The domain of the app.
+     * @return The domain in the shared Archive.
+     * @throws MALInteractionException If the domain is null.
+     */
+    private IdentifierList isolate(final IdentifierList domain) throws MALInteractionException {
+        if (domain == null) {
+            throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, null));
+        }
+
+        final IdentifierList isolated = new IdentifierList(domain.size() + 1);
+        isolated.add(appName);
+        isolated.addAll(domain);
+        return isolated;
+    }
+
+    private ArchiveQueryList isolate(final ArchiveQueryList queries) {
+        if (queries == null) {
+            return null;
+        }
+
+        final ArchiveQueryList isolated = new ArchiveQueryList(queries.size());
+
+        for (ArchiveQuery query : queries) {
+            final IdentifierList domain = new IdentifierList();
+            domain.add(appName);
+
+            if (query.getDomain() == null) { // All the domains of the app
+                domain.add(WILDCARD);
+            } else {
+                domain.addAll(query.getDomain());
+            }
+
+            isolated.add(new ArchiveQuery(domain, query.getNetwork(),
+                    query.getProvider(), query.getRelated(), query.getSource(),
+                    query.getStartTime(), query.getEndTime(), query.getSortOrder(),
+                    query.getSortFieldName()));
+        }
+
+        return isolated;
+    }
+
+    /**
+     * Converts a domain in the shared Archive back to the domain of the app.
+     *
+     * @param domain The domain in the shared Archive.
+     * @return The domain of the app.
+     */
+    private IdentifierList strip(final IdentifierList domain) {
+        if (domain == null || domain.isEmpty() || !appName.equals(domain.get(0))) {
+            return domain;
+        }
+
+        final IdentifierList stripped = new IdentifierList(domain.size() - 1);
+        stripped.addAll(domain.subList(1, domain.size()));
+        return stripped;
+    }
+
+    /**
+     * Sends back the errors of a progress operation on the shared Archive.
+     */
+    private abstract static class ForwardedResponse extends ArchiveAdapter {
+
+        protected abstract void sendError(MALStandardError error)
+                throws MALInteractionException, MALException;
+
+        private void fail(MALStandardError error) {
+            try {
+                this.sendError(error);
+            } catch (MALInteractionException | MALException ex) {
+                LOGGER.log(Level.SEVERE, "The error of the shared Archive could not be forwarded!", ex);
+            }
+        }
+
+        @Override
+        public void retrieveAckErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void retrieveResponseErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void queryAckErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void queryUpdateErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void queryResponseErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void countAckErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+
+        @Override
+        public void countResponseErrorReceived(MALMessageHeader msgHeader,
+                MALStandardError error, Map qosProperties) {
+            fail(error);
+        }
+    }
+
+}
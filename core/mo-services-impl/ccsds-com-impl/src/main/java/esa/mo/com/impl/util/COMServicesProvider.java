@@ -44,8 +44,20 @@ public class COMServicesProvider
    * @throws org.ccsds.moims.mo.mal.MALException if the services could not be initialized.
    */
   public void init() throws MALException {
+    this.init(new ArchiveProviderServiceImpl());
+  }
+
+  /**
+   * Initializes all the COM services automatically, with the provided Archive
+   * service. For example, a SharedArchiveProviderServiceImpl to store the
+   * objects in the Archive of another provider.
+   *
+   * @param archive The Archive service provider to be initialized.
+   * @throws org.ccsds.moims.mo.mal.MALException if the services could not be initialized.
+   */
+  public void init(ArchiveProviderServiceImpl archive) throws MALException {
     // Initialize the Archive service
-    archiveService = new ArchiveProviderServiceImpl();
+    archiveService = archive;
     archiveService.init(null);
 
     eventService = new EventProviderServiceImpl();
@@ -79,7 +91,17 @@ public class COMServicesProvider
     return this.archiveSyncService;
   }
 
+  /**
+   * Initializes the Archive Sync service. It requires an Archive service
+   * backed by a local database.
+   *
+   * @throws org.ccsds.moims.mo.mal.MALException if the service could not be initialized.
+   */
   public void initArchiveSync() throws MALException {
+    if (archiveService.getArchiveManager() == null) {
+      throw new MALException("The Archive Sync service requires a local Archive!");
+    }
+
     archiveSyncService = new ArchiveSyncProviderServiceImpl(
         archiveService.getConnection().getConnectionDetails());
     this.archiveSyncService.init(archiveService.getArchiveManager());
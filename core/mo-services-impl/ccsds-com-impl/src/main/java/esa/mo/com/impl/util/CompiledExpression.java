@@ -0,0 +1,324 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.util;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.Enumeration;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.Union;
+
+/**
+ * An expression with a constant right hand side, compiled once into a typed
+ * predicate. The evaluation result is the same as the one of
+ * {@link HelperCOM#evaluateExpression(Element, ExpressionOperator, Attribute)}
+ * but the operator dispatch and the conversion of the right hand side are done
+ * only at compilation time.
+ */
+public abstract class CompiledExpression {
+
+    static final int OP_EQUAL = 0;
+    static final int OP_DIFFER = 1;
+    static final int OP_GREATER = 2;
+    static final int OP_GREATER_OR_EQUAL = 3;
+    static final int OP_LESS = 4;
+    static final int OP_LESS_OR_EQUAL = 5;
+    static final int OP_CONTAINS = 6;
+    static final int OP_ICONTAINS = 7;
+    static final int OP_UNKNOWN = -1;
+
+    /**
+     * Evaluates the expression against the provided left hand side.
+     *
+     * @param leftHandSide The left hand side value of the expression
+     * @return The boolean value of the evaluation. Null if not evaluated.
+     */
+    public abstract Boolean evaluate(Element leftHandSide);
+
+    /**
+     * Compiles an expression with a constant right hand side.
+     *
+     * @param operator The operator of the expression
+     * @param rightHandSide The right hand side value of the expression
+     * @return The compiled expression. Never null.
+     */
+    public static CompiledExpression compile(final ExpressionOperator operator, final Attribute rightHandSide) {
+        final int op = opCode(operator);
+
+        if (op == OP_UNKNOWN || rightHandSide == null || rightHandSide instanceof Blob) {
+            // Rare cases, keep the generic behaviour
+            return new GenericExpression(operator, rightHandSide);
+        }
+
+        Attribute rhs = rightHandSide;
+
+        if (rhs instanceof Enumeration) {
+            rhs = new UInteger(((Enumeration) rhs).getOrdinal());
+        }
+
+        if (HelperMisc.isStringAttribute(rhs)) {
+            final String rhsString = HelperAttributes.attribute2string(rhs);
+            double rhsDouble = Double.NaN;
+
+            if (op >= OP_GREATER && op <= OP_LESS_OR_EQUAL) {
+                try {
+                    rhsDouble = Double.parseDouble(rhsString);
+                } catch (NumberFormatException ex) {
+                    // The generic path fails in the same way as before on every evaluation
+                    return new GenericExpression(operator, rightHandSide);
+                }
+            }
+
+            return new StringExpression(op, rhsString, rhsDouble);
+        }
+
+        final Double rhsDouble = HelperAttributes.attribute2double(rhs);
+
+        if (rhsDouble == null) {
+            return new GenericExpression(operator, rightHandSide);
+        }
+
+        return new NumericExpression(op, rhsDouble);
+    }
+
+    private static int opCode(final ExpressionOperator operator) {
+        if (operator == null) {
+            return OP_UNKNOWN;
+        }
+
+        if (operator.equals(ExpressionOperator.EQUAL)) {
+            return OP_EQUAL;
+        }
+        if (operator.equals(ExpressionOperator.DIFFER)) {
+            return OP_DIFFER;
+        }
+        if (operator.equals(ExpressionOperator.GREATER)) {
+            return OP_GREATER;
+        }
+        if (operator.equals(ExpressionOperator.GREATER_OR_EQUAL)) {
+            return OP_GREATER_OR_EQUAL;
+        }
+        if (operator.equals(ExpressionOperator.LESS)) {
+            return OP_LESS;
+        }
+        if (operator.equals(ExpressionOperator.LESS_OR_EQUAL)) {
+            return OP_LESS_OR_EQUAL;
+        }
+        if (operator.equals(ExpressionOperator.CONTAINS)) {
+            return OP_CONTAINS;
+        }
+        if (operator.equals(ExpressionOperator.ICONTAINS)) {
+            return OP_ICONTAINS;
+        }
+
+        return OP_UNKNOWN;
+    }
+
+    /**
+     * Converts the most common numeric Union values to a primitive double
+     * without going through a boxed value.
+     *
+     * @param value The value
+     * @param fallback The value returned when the conversion is not possible
+     * @return The value as double or fallback
+     */
+    public static double unionToDouble(final Union value, final double fallback) {
+        switch (value.getTypeShortForm()) {
+            case 2: // Boolean
+                return value.getBooleanValue() ? 1 : 0;
+            case 4: // Float
+                return value.getFloatValue();
+            case 5: // Double
+                return value.getDoubleValue();
+            case 7: // Octet
+                return value.getOctetValue();
+            case 9: // Short
+                return value.getShortValue();
+            case 11: // Integer
+                return value.getIntegerValue();
+            case 13: // Long
+                return value.getLongValue();
+            default:
+                return fallback;
+        }
+    }
+
+    /**
+     * Numeric comparison against a constant. Offers a primitive entry point
+     * for callers that already hold the value as a double.
+     */
+    public static final class NumericExpression extends CompiledExpression {
+
+        private final int op;
+        private final double rhs;
+        private final long rhsBits;
+
+        NumericExpression(final int op, final double rhs) {
+            this.op = op;
+            this.rhs = rhs;
+            this.rhsBits = Double.doubleToLongBits(rhs);
+        }
+
+        /**
+         * @return The constant right hand side of the expression
+         */
+        public double getRightHandSide() {
+            return rhs;
+        }
+
+        /**
+         * Evaluates the expression against a primitive value. The CONTAINS and
+         * ICONTAINS operators are not defined for numbers and return false.
+         *
+         * @param lhs The left hand side value
+         * @return The result of the evaluation
+         */
+        public boolean test(final double lhs) {
+            switch (op) {
+                case OP_EQUAL:
+                    return Double.doubleToLongBits(lhs) == rhsBits;
+                case OP_DIFFER:
+                    return Double.doubleToLongBits(lhs) != rhsBits;
+                case OP_GREATER:
+                    return lhs > rhs;
+                case OP_GREATER_OR_EQUAL:
+                    return lhs >= rhs;
+                case OP_LESS:
+                    return lhs < rhs;
+                case OP_LESS_OR_EQUAL:
+                    return lhs <= rhs;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public Boolean evaluate(Element leftHandSide) {
+            if (leftHandSide == null) {
+                return (op == OP_EQUAL) ? Boolean.FALSE : (op == OP_DIFFER) ? Boolean.TRUE : null;
+            }
+
+            if (op == OP_CONTAINS || op == OP_ICONTAINS) {
+                return null;
+            }
+
+            if (leftHandSide instanceof Union) {
+                final Union union = (Union) leftHandSide;
+                final int shortForm = union.getTypeShortForm();
+
+                if (shortForm != 15) { // Everything except String has a direct conversion
+                    return test(unionToDouble(union, Double.NaN));
+                }
+            }
+
+            if (leftHandSide instanceof Enumeration) {
+                return test(((Enumeration) leftHandSide).getOrdinal());
+            }
+
+            final Double lhs = HelperAttributes.attribute2double((Attribute) leftHandSide);
+
+            if (lhs == null) {
+                return (op == OP_EQUAL) ? Boolean.FALSE : (op == OP_DIFFER) ? Boolean.TRUE : null;
+            }
+
+            return test(lhs);
+        }
+    }
+
+    /**
+     * String comparison against a constant. The string forms of the right
+     * hand side are precomputed.
+     */
+    public static final class StringExpression extends CompiledExpression {
+
+        private final int op;
+        private final String rhs;
+        private final String rhsLowerCase;
+        private final double rhsDouble;
+
+        StringExpression(final int op, final String rhs, final double rhsDouble) {
+            this.op = op;
+            this.rhs = rhs;
+            this.rhsLowerCase = rhs.toLowerCase();
+            this.rhsDouble = rhsDouble;
+        }
+
+        @Override
+        public Boolean evaluate(Element leftHandSide) {
+            if (leftHandSide == null) {
+                return (op == OP_EQUAL) ? Boolean.FALSE : (op == OP_DIFFER) ? Boolean.TRUE : null;
+            }
+
+            Element lhsElement = leftHandSide;
+
+            if (lhsElement instanceof Enumeration) {
+                lhsElement = new UInteger(((Enumeration) lhsElement).getOrdinal());
+            }
+
+            final String lhs = HelperAttributes.attribute2string(lhsElement);
+
+            switch (op) {
+                case OP_EQUAL:
+                    return rhs.equals(lhs);
+                case OP_DIFFER:
+                    return !rhs.equals(lhs);
+                case OP_GREATER:
+                    return Double.parseDouble(lhs) > rhsDouble;
+                case OP_GREATER_OR_EQUAL:
+                    return Double.parseDouble(lhs) >= rhsDouble;
+                case OP_LESS:
+                    return Double.parseDouble(lhs) < rhsDouble;
+                case OP_LESS_OR_EQUAL:
+                    return Double.parseDouble(lhs) <= rhsDouble;
+                case OP_CONTAINS:
+                    return lhs.contains(rhs);
+                case OP_ICONTAINS:
+                    return lhs.toLowerCase().contains(rhsLowerCase);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Expressions that cannot be specialised are delegated to the generic
+     * evaluation.
+     */
+    private static final class GenericExpression extends CompiledExpression {
+
+        private final ExpressionOperator operator;
+        private final Attribute rhs;
+
+        GenericExpression(final ExpressionOperator operator, final Attribute rhs) {
+            this.operator = operator;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public Boolean evaluate(Element leftHandSide) {
+            return HelperCOM.evaluateExpression(leftHandSide, operator, rhs);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.reconfigurable.service;
+
+import esa.mo.com.impl.util.HelperCOM;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectDetails;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectSet;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectSetList;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+
+/**
+ * Compact binary form of a configuration, with a content hash.
+ *
+ * A snapshot holds the configuration object sets (domain, object type and
+ * object instance identifiers) in a canonical binary encoding, so that two
+ * configurations with the same content have the same bytes and the same
+ * SHA-256 hash. The hash is used to detect that a configuration is already
+ * active or already stored, and the sets of two snapshots can be compared to
+ * find the object types whose instances changed.
+ *
+ * A snapshot can also be written as an XML document, which is the format of
+ * the files exported and imported by the Configuration service.
+ */
+public final class ConfigurationSnapshot {
+
+    private static final int MAGIC = 0x43464753; // "CFGS"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+
+    private static final String XML_CONFIGURATION = "configuration";
+    private static final String XML_SET = "configObjectSet";
+    private static final String XML_DOMAIN = "domain";
+    private static final String XML_OBJ_TYPE = "objType";
+    private static final String XML_OBJ_INST_IDS = "objInstIds";
+    private static final String XML_ID = "id";
+    private static final String XML_NULL = "null";
+
+    private final byte[] bytes;
+    private final String hash;
+    private final List<ObjectSet> sets;
+
+    /**
+     * One configuration object set of a snapshot.
+     */
+    public static final class ObjectSet {
+
+        private final IdentifierList domain;
+        private final ObjectType objType;
+        private final LongList objInstIds;
+        private final long objTypeKey;
+
+        private ObjectSet(final IdentifierList domain, final ObjectType objType, final LongList objInstIds) {
+            this.domain = domain;
+            this.objType = objType;
+            this.objInstIds = objInstIds;
+            this.objTypeKey = (objType != null) ? HelperCOM.generateSubKey(objType) : 0L;
+        }
+
+        public IdentifierList getDomain() {
+            return this.domain;
+        }
+
+        public ObjectType getObjType() {
+            return this.objType;
+        }
+
+        public LongList getObjInstIds() {
+            return this.objInstIds;
+        }
+    }
+
+    private ConfigurationSnapshot(final byte[] bytes, final List<ObjectSet> sets) {
+        this.bytes = bytes;
+        this.hash = hash(bytes);
+        this.sets = sets;
+    }
+
+    /**
+     * Takes a snapshot of a configuration.
+     *
+     * @param configuration The configuration
+     * @return The snapshot
+     */
+    public static ConfigurationSnapshot of(final ConfigurationObjectDetails configuration) {
+        final List<ObjectSet> sets = new ArrayList<>();
+
+        if (configuration != null && configuration.getConfigObjects() != null) {
+            for (ConfigurationObjectSet set : configuration.getConfigObjects()) {
+                sets.add(new ObjectSet(set.getDomain(), set.getObjType(), set.getObjInstIds()));
+            }
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(sets.size());
+
+            for (ObjectSet set : sets) {
+                writeDomain(out, set.domain);
+                out.writeBoolean(set.objType != null);
+                out.writeLong(set.objTypeKey);
+                writeIds(out, set.objInstIds);
+            }
+        } catch (IOException ex) {
+            // A ByteArrayOutputStream does not throw
+            throw new IllegalStateException(ex);
+        }
+
+        return new ConfigurationSnapshot(bos.toByteArray(), sets);
+    }
+
+    /**
+     * Reads a snapshot from its binary form.
+     *
+     * @param bytes The bytes returned by toByteArray()
+     * @return The snapshot
+     * @throws IOException If the bytes are not a valid snapshot
+     */
+    public static ConfigurationSnapshot fromByteArray(final byte[] bytes) throws IOException {
+        final List<ObjectSet> sets = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                throw new StreamCorruptedException("Not a configuration snapshot");
+            }
+
+            final int count = readLength(in, bytes.length);
+
+            for (int i = 0; i < count; i++) {
+                final IdentifierList domain = readDomain(in, bytes.length);
+                final boolean hasType = in.readBoolean();
+                final long objTypeKey = in.readLong();
+                final ObjectType objType = hasType ? HelperCOM.objectTypeId2objectType(objTypeKey) : null;
+                sets.add(new ObjectSet(domain, objType, readIds(in, bytes.length)));
+            }
+
+            if (in.read() != -1) {
+                throw new StreamCorruptedException("Trailing bytes after the configuration snapshot");
+            }
+        }
+
+        return new ConfigurationSnapshot(bytes.clone(), sets);
+    }
+
+    /**
+     * Reads a snapshot from an XML document written by toXML().
+     *
+     * @param xml The XML document
+     * @return The snapshot
+     * @throws IOException If the document is not a valid configuration
+     */
+    public static ConfigurationSnapshot fromXML(final byte[] xml) throws IOException {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        // The files come from the consumers, do not resolve anything outside of them
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        final ConfigurationObjectSetList sets = new ConfigurationObjectSetList();
+
+        try {
+            final XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+
+            try {
+                reader.nextTag();
+                reader.require(XMLStreamConstants.START_ELEMENT, null, XML_CONFIGURATION);
+
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    reader.require(XMLStreamConstants.START_ELEMENT, null, XML_SET);
+                    sets.add(readSet(reader));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IllegalArgumentException ex) {
+            throw new IOException("Invalid configuration XML document", ex);
+        }
+
+        final ConfigurationObjectDetails configuration = new ConfigurationObjectDetails();
+        configuration.setConfigObjects(sets);
+        return of(configuration);
+    }
+
+    /**
+     * @return The snapshot as an XML document, encoded in UTF-8.
+     */
+    public byte[] toXML() {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        try {
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(bos, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            newLine(writer, 0);
+            writer.writeStartElement(XML_CONFIGURATION);
+
+            for (ObjectSet set : sets) {
+                newLine(writer, 1);
+                writer.writeStartElement(XML_SET);
+
+                if (set.domain != null) {
+                    newLine(writer, 2);
+                    writer.writeStartElement(XML_DOMAIN);
+
+                    for (Identifier id : set.domain) {
+                        newLine(writer, 3);
+
+                        if (id == null || id.getValue() == null) {
+                            writer.writeEmptyElement(XML_ID);
+                            writer.writeAttribute(XML_NULL, "true");
+                        } else {
+                            writer.writeStartElement(XML_ID);
+                            writer.writeCharacters(id.getValue());
+                            writer.writeEndElement();
+                        }
+                    }
+
+                    newLine(writer, 2);
+                    writer.writeEndElement();
+                }
+
+                if (set.objType != null) {
+                    newLine(writer, 2);
+                    writer.writeEmptyElement(XML_OBJ_TYPE);
+                    writer.writeAttribute("area", String.valueOf(set.objType.getArea().getValue()));
+                    writer.writeAttribute("service", String.valueOf(set.objType.getService().getValue()));
+                    writer.writeAttribute("version", String.valueOf(set.objType.getVersion().getValue()));
+                    writer.writeAttribute("number", String.valueOf(set.objType.getNumber().getValue()));
+                }
+
+                if (set.objInstIds != null) {
+                    newLine(writer, 2);
+                    writer.writeStartElement(XML_OBJ_INST_IDS);
+
+                    for (Long id : set.objInstIds) {
+                        newLine(writer, 3);
+                        writer.writeStartElement(XML_ID);
+                        writer.writeCharacters(String.valueOf(id));
+                        writer.writeEndElement();
+                    }
+
+                    newLine(writer, 2);
+                    writer.writeEndElement();
+                }
+
+                newLine(writer, 1);
+                writer.writeEndElement();
+            }
+
+            newLine(writer, 0);
+            writer.writeEndElement();
+            newLine(writer, 0);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException ex) {
+            // A ByteArrayOutputStream does not throw
+            throw new IllegalStateException(ex);
+        }
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * @return The binary form of the snapshot.
+     */
+    public byte[] toByteArray() {
+        return this.bytes.clone();
+    }
+
+    /**
+     * @return The SHA-256 hash of the binary form, in hexadecimal.
+     */
+    public String getHash() {
+        return this.hash;
+    }
+
+    /**
+     * @return The configuration object sets. They must not be modified.
+     */
+    public List<ObjectSet> getSets() {
+        return this.sets;
+    }
+
+    /**
+     * @return A new configuration with the content of the snapshot.
+     */
+    public ConfigurationObjectDetails toConfiguration() {
+        final ConfigurationObjectSetList list = new ConfigurationObjectSetList(sets.size());
+
+        for (ObjectSet set : sets) {
+            final ConfigurationObjectSet confSet = new ConfigurationObjectSet();
+            confSet.setDomain(set.domain);
+            confSet.setObjType(set.objType);
+            confSet.setObjInstIds(set.objInstIds);
+            list.add(confSet);
+        }
+
+        final ConfigurationObjectDetails configuration = new ConfigurationObjectDetails();
+        configuration.setConfigObjects(list);
+        return configuration;
+    }
+
+    /**
+     * Returns the object types whose sets differ between this snapshot and
+     * another one: the sets present in only one of them, and the sets whose
+     * domain or object instance identifiers changed.
+     *
+     * @param other The other snapshot
+     * @return The object types of the changed sets
+     */
+    public List<ObjectType> changedObjectTypes(final ConfigurationSnapshot other) {
+        final List<ObjectType> changed = new ArrayList<>();
+
+        if (this.hash.equals(other.hash)) {
+            return changed;
+        }
+
+        final Map<Long, ObjectSet> others = new HashMap<>();
+
+        for (ObjectSet set : other.sets) {
+            others.put(set.objTypeKey, set);
+        }
+
+        for (ObjectSet set : this.sets) {
+            final ObjectSet otherSet = others.remove(set.objTypeKey);
+
+            if (otherSet == null || !sameContent(set, otherSet)) {
+                changed.add(set.objType);
+            }
+        }
+
+        for (ObjectSet set : others.values()) {
+            changed.add(set.objType);
+        }
+
+        return changed;
+    }
+
+    private static boolean sameContent(final ObjectSet set1, final ObjectSet set2) {
+        final IdentifierList domain1 = (set1.domain != null) ? set1.domain : new IdentifierList();
+        final IdentifierList domain2 = (set2.domain != null) ? set2.domain : new IdentifierList();
+        final LongList ids1 = (set1.objInstIds != null) ? set1.objInstIds : new LongList();
+        final LongList ids2 = (set2.objInstIds != null) ? set2.objInstIds : new LongList();
+        return domain1.equals(domain2) && ids1.equals(ids2);
+    }
+
+    private static ConfigurationObjectSet readSet(final XMLStreamReader reader) throws XMLStreamException {
+        final ConfigurationObjectSet set = new ConfigurationObjectSet();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case XML_DOMAIN:
+                    final IdentifierList domain = new IdentifierList();
+
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        reader.require(XMLStreamConstants.START_ELEMENT, null, XML_ID);
+                        final boolean isNull = "true".equals(reader.getAttributeValue(null, XML_NULL));
+                        final String value = reader.getElementText();
+                        domain.add(isNull ? null : new Identifier(value));
+                    }
+
+                    set.setDomain(domain);
+                    break;
+                case XML_OBJ_TYPE:
+                    set.setObjType(new ObjectType(
+                            new UShort(intAttribute(reader, "area")),
+                            new UShort(intAttribute(reader, "service")),
+                            new UOctet((short) intAttribute(reader, "version")),
+                            new UShort(intAttribute(reader, "number"))));
+                    reader.nextTag();
+                    break;
+                case XML_OBJ_INST_IDS:
+                    final LongList ids = new LongList();
+
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        reader.require(XMLStreamConstants.START_ELEMENT, null, XML_ID);
+                        ids.add(Long.parseLong(reader.getElementText().trim()));
+                    }
+
+                    set.setObjInstIds(ids);
+                    break;
+                default:
+                    throw new XMLStreamException("Unexpected element: " + reader.getLocalName(),
+                            reader.getLocation());
+            }
+        }
+
+        return set;
+    }
+
+    private static int intAttribute(final XMLStreamReader reader, final String name) throws XMLStreamException {
+        final String value = reader.getAttributeValue(null, name);
+
+        if (value == null) {
+            throw new XMLStreamException("Missing attribute: " + name, reader.getLocation());
+        }
+
+        return Integer.parseInt(value.trim());
+    }
+
+    private static void newLine(final XMLStreamWriter writer, final int level) throws XMLStreamException {
+        final StringBuilder indentation = new StringBuilder("\n");
+
+        for (int i = 0; i < level; i++) {
+            indentation.append("    ");
+        }
+
+        writer.writeCharacters(indentation.toString());
+    }
+
+    private static void writeDomain(final DataOutputStream out, final IdentifierList domain) throws IOException {
+        if (domain == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        out.writeInt(domain.size());
+
+        for (Identifier id : domain) {
+            out.writeBoolean(id != null && id.getValue() != null);
+
+            if (id != null && id.getValue() != null) {
+                out.writeUTF(id.getValue());
+            }
+        }
+    }
+
+    private static IdentifierList readDomain(final DataInputStream in, final int max) throws IOException {
+        final int size = in.readInt();
+
+        if (size == NULL_LENGTH) {
+            return null;
+        }
+
+        final IdentifierList domain = new IdentifierList(checkLength(size, max));
+
+        for (int i = 0; i < size; i++) {
+            domain.add(in.readBoolean() ? new Identifier(in.readUTF()) : null);
+        }
+
+        return domain;
+    }
+
+    private static void writeIds(final DataOutputStream out, final LongList ids) throws IOException {
+        if (ids == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        out.writeInt(ids.size());
+
+        for (Long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static LongList readIds(final DataInputStream in, final int max) throws IOException {
+        final int size = in.readInt();
+
+        if (size == NULL_LENGTH) {
+            return null;
+        }
+
+        final LongList ids = new LongList(checkLength(size, max / 8));
+
+        for (int i = 0; i < size; i++) {
+            ids.add(in.readLong());
+        }
+
+        return ids;
+    }
+
+    private static int readLength(final DataInputStream in, final int max) throws IOException {
+        return checkLength(in.readInt(), max);
+    }
+
+    private static int checkLength(final int length, final int max) throws StreamCorruptedException {
+        if (length < 0 || length > max) {
+            throw new StreamCorruptedException("Invalid length in the configuration snapshot: " + length);
+        }
+
+        return length;
+    }
+
+    private static String hash(final byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package esa.nmf.test;
+
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+import esa.mo.com.impl.util.CompiledExpression;
+import esa.mo.com.impl.util.HelperCOM;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the compiled expressions give the same results as the generic
+ * evaluation in HelperCOM.
+ */
+public class CompiledExpressionTest
+{
+
+  private static final ExpressionOperator[] OPERATORS = new ExpressionOperator[]{
+    ExpressionOperator.EQUAL, ExpressionOperator.DIFFER,
+    ExpressionOperator.GREATER, ExpressionOperator.GREATER_OR_EQUAL,
+    ExpressionOperator.LESS, ExpressionOperator.LESS_OR_EQUAL
+  };
+
+  private static void assertSameAsGeneric(Attribute lhs, ExpressionOperator op, Attribute rhs)
+  {
+    Boolean expected = HelperCOM.evaluateExpression(lhs, op, rhs);
+    Boolean actual = CompiledExpression.compile(op, rhs).evaluate(lhs);
+    Assert.assertEquals(lhs + " " + op + " " + rhs, expected, actual);
+  }
+
+  @Test
+  public void testNumeric()
+  {
+    Attribute[] values = new Attribute[]{
+      new Union(5), new Union(5.0), new Union(-3L), new Union(4.5f),
+      new UOctet((short) 5), new UInteger(7), new Union((byte) -2)
+    };
+
+    for (ExpressionOperator op : OPERATORS) {
+      for (Attribute lhs : values) {
+        for (Attribute rhs : values) {
+          assertSameAsGeneric(lhs, op, rhs);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testString()
+  {
+    assertSameAsGeneric(new Union("abc"), ExpressionOperator.EQUAL, new Union("abc"));
+    assertSameAsGeneric(new Union("abc"), ExpressionOperator.DIFFER, new Identifier("abc"));
+    assertSameAsGeneric(new Union("Hello World"), ExpressionOperator.CONTAINS, new Union("World"));
+    assertSameAsGeneric(new Union("Hello World"), ExpressionOperator.ICONTAINS, new Union("world"));
+    assertSameAsGeneric(new Union(12), ExpressionOperator.GREATER, new Union("11.5"));
+    assertSameAsGeneric(new Union("3"), ExpressionOperator.LESS_OR_EQUAL, new Union("3"));
+  }
+
+  @Test
+  public void testNull()
+  {
+    Assert.assertFalse(CompiledExpression.compile(ExpressionOperator.EQUAL, new Union(1)).evaluate(null));
+    Assert.assertTrue(CompiledExpression.compile(ExpressionOperator.DIFFER, new Union(1)).evaluate(null));
+    Assert.assertNull(CompiledExpression.compile(ExpressionOperator.GREATER, new Union(1)).evaluate(null));
+    Assert.assertNull(CompiledExpression.compile(null, new Union(1)).evaluate(new Union(1)));
+  }
+
+  @Test
+  public void testPrimitive()
+  {
+    CompiledExpression compiled = CompiledExpression.compile(ExpressionOperator.LESS_OR_EQUAL, new Union(10));
+    Assert.assertTrue(compiled instanceof CompiledExpression.NumericExpression);
+    Assert.assertTrue(((CompiledExpression.NumericExpression) compiled).test(10.0));
+    Assert.assertFalse(((CompiledExpression.NumericExpression) compiled).test(10.5));
+  }
+}
@@ -0,0 +1,144 @@
+package esa.nmf.test;
+
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+import esa.mo.reconfigurable.service.ConfigurationSnapshot;
+import java.io.IOException;
+import java.util.List;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectDetails;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectSet;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectSetList;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the encoding, hashing and comparison of configuration snapshots.
+ */
+public class ConfigurationSnapshotTest
+{
+
+  private static final ObjectType IDENTITY
+      = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(1));
+  private static final ObjectType DEFINITION
+      = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(2));
+
+  private static ConfigurationObjectDetails configuration(long... defIds)
+  {
+    IdentifierList domain = new IdentifierList();
+    domain.add(new Identifier("esa"));
+    domain.add(new Identifier("NMF_SDK"));
+
+    LongList identityIds = new LongList();
+    LongList definitionIds = new LongList();
+
+    for (int i = 0; i < defIds.length; i++) {
+      identityIds.add((long) (i + 1));
+      definitionIds.add(defIds[i]);
+    }
+
+    ConfigurationObjectSetList sets = new ConfigurationObjectSetList();
+    sets.add(set(IDENTITY, domain, identityIds));
+    sets.add(set(DEFINITION, domain, definitionIds));
+
+    ConfigurationObjectDetails configuration = new ConfigurationObjectDetails();
+    configuration.setConfigObjects(sets);
+    return configuration;
+  }
+
+  private static ConfigurationObjectSet set(ObjectType objType, IdentifierList domain, LongList ids)
+  {
+    ConfigurationObjectSet set = new ConfigurationObjectSet();
+    set.setObjType(objType);
+    set.setDomain(domain);
+    set.setObjInstIds(ids);
+    return set;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.of(configuration(10, 11, 12));
+    ConfigurationSnapshot decoded = ConfigurationSnapshot.fromByteArray(snapshot.toByteArray());
+
+    Assert.assertEquals(snapshot.getHash(), decoded.getHash());
+    Assert.assertEquals(snapshot.getHash(), ConfigurationSnapshot.of(decoded.toConfiguration()).getHash());
+    Assert.assertEquals(IDENTITY, decoded.getSets().get(0).getObjType());
+    Assert.assertEquals(configuration(10, 11, 12).getConfigObjects().get(1).getObjInstIds(),
+        decoded.getSets().get(1).getObjInstIds());
+  }
+
+  @Test
+  public void testChangedObjectTypes()
+  {
+    ConfigurationSnapshot current = ConfigurationSnapshot.of(configuration(10, 11, 12));
+
+    Assert.assertTrue(current.changedObjectTypes(ConfigurationSnapshot.of(configuration(10, 11, 12))).isEmpty());
+
+    List<ObjectType> changed = current.changedObjectTypes(ConfigurationSnapshot.of(configuration(10, 13, 12)));
+    Assert.assertEquals(1, changed.size());
+    Assert.assertEquals(DEFINITION, changed.get(0));
+    Assert.assertNotEquals(current.getHash(), ConfigurationSnapshot.of(configuration(10, 13, 12)).getHash());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptedSnapshot() throws IOException
+  {
+    byte[] bytes = ConfigurationSnapshot.of(configuration(10, 11)).toByteArray();
+    ConfigurationSnapshot.fromByteArray(java.util.Arrays.copyOf(bytes, bytes.length - 3));
+  }
+
+  @Test
+  public void testXMLRoundTrip() throws IOException
+  {
+    ConfigurationObjectDetails configuration = configuration(10, 11, 12);
+    IdentifierList domain = new IdentifierList();
+    domain.add(new Identifier("esa & <NMF>"));
+    domain.add(null);
+    configuration.getConfigObjects().add(set(null, domain, null));
+
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.of(configuration);
+    byte[] xml = snapshot.toXML();
+    String document = new String(xml, java.nio.charset.StandardCharsets.UTF_8);
+    ConfigurationSnapshot decoded = ConfigurationSnapshot.fromXML(xml);
+
+    Assert.assertTrue(document.startsWith("<?xml"));
+    Assert.assertTrue(document.contains("<id>NMF_SDK</id>"));
+    Assert.assertEquals(snapshot.getHash(), decoded.getHash());
+    Assert.assertEquals(3, decoded.getSets().size());
+    Assert.assertEquals(DEFINITION, decoded.getSets().get(1).getObjType());
+    Assert.assertEquals(domain, decoded.getSets().get(2).getDomain());
+    Assert.assertNull(decoded.getSets().get(2).getObjType());
+    Assert.assertNull(decoded.getSets().get(2).getObjInstIds());
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidXML() throws IOException
+  {
+    byte[] xml = ConfigurationSnapshot.of(configuration(10, 11)).toXML();
+    ConfigurationSnapshot.fromXML(java.util.Arrays.copyOf(xml, xml.length / 2));
+  }
+}
@@ -28,14 +28,15 @@ import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionConsumer;
 import esa.mo.helpertools.connections.ConnectionProvider;
-import java.io.FileOutputStream;
+import esa.mo.reconfigurable.service.ConfigurationSnapshot;
+import esa.mo.reconfigurable.service.ReconfigurableService;
 import java.io.IOException;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.net.MalformedURLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
@@ -44,24 +45,31 @@ import org.ccsds.moims.mo.com.event.consumer.EventAdapter;
 import org.ccsds.moims.mo.com.structures.ObjectDetailsList;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.com.structures.ObjectIdList;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
 import org.ccsds.moims.mo.com.structures.ObjectType;
 import org.ccsds.moims.mo.common.CommonHelper;
 import org.ccsds.moims.mo.common.configuration.ConfigurationHelper;
 import org.ccsds.moims.mo.common.configuration.provider.ConfigurationInheritanceSkeleton;
 import org.ccsds.moims.mo.common.configuration.provider.StoreCurrentInteraction;
 import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectDetails;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectDetailsList;
+import org.ccsds.moims.mo.common.configuration.structures.ConfigurationObjectSet;
 import org.ccsds.moims.mo.common.configuration.structures.ConfigurationType;
 import org.ccsds.moims.mo.common.configuration.structures.ServiceProviderKey;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
 import org.ccsds.moims.mo.mal.MALContextFactory;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALHelper;
 import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.MALStandardError;
 import org.ccsds.moims.mo.mal.provider.MALInteraction;
 import org.ccsds.moims.mo.mal.provider.MALProvider;
+import org.ccsds.moims.mo.mal.structures.Blob;
 import org.ccsds.moims.mo.mal.structures.Element;
 import org.ccsds.moims.mo.mal.structures.ElementList;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.Subscription;
 import org.ccsds.moims.mo.mal.structures.UShort;
 import org.ccsds.moims.mo.mal.structures.UpdateHeaderList;
@@ -69,6 +77,12 @@ import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
 
 /**
  * Configuration service Provider.
+ *
+ * The services of the same process can be added with addReconfigurableService.
+ * Their configurations are then activated and stored by direct calls instead
+ * of a loopback through the Event service. A configuration is compared with
+ * the active one by its ConfigurationSnapshot hash, so an activation without
+ * changes reloads nothing.
  */
 public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSkeleton {
 
@@ -84,6 +98,7 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
     private final HashMap<ObjectId, ConfigurationObjectDetails> serviceConfigurations = new HashMap<ObjectId, ConfigurationObjectDetails>();
     private final HashMap<ObjectId, ConfigurationObjectDetails> providerConfigurations = new HashMap<ObjectId, ConfigurationObjectDetails>();
     private final HashMap<ObjectId, ConfigurationObjectDetails> compositeConfigurations = new HashMap<ObjectId, ConfigurationObjectDetails>();
+    private final List<ReconfigurableService> localServices = new CopyOnWriteArrayList<ReconfigurableService>();
 
     /**
      * creates the MAL objects, the publisher used to create updates and starts
@@ -145,6 +160,25 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
         }
     }
 
+    /**
+     * Adds a service of this process, whose configurations will be activated
+     * and stored directly.
+     *
+     * @param service The service
+     */
+    public void addReconfigurableService(ReconfigurableService service) {
+        localServices.add(service);
+    }
+
+    /**
+     * Removes a service added with addReconfigurableService.
+     *
+     * @param service The service
+     */
+    public void removeReconfigurableService(ReconfigurableService service) {
+        localServices.remove(service);
+    }
+
     @Override
     public void activate(ObjectId configObjId, MALInteraction interaction) throws MALInteractionException, MALException {
         ObjectIdList objBodies = new ObjectIdList();
@@ -162,6 +196,10 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
                 source,
                 interaction);
 
+        if (this.activateLocally(configObjId)) {
+            return; // The service is in this process, no need for the Activation event
+        }
+
         try {
             // Send Activation event
             this.comServices.getEventService().publishEvent(interaction, objId,
@@ -190,6 +228,7 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
 
         if (this.comServices.getEventService() == null) {  // If there is no event service then we can't really do anything...
             interaction.sendError(null);
+            return;
         }
 
         Long related = null;
@@ -204,6 +243,20 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
                 source,
                 interaction.getInteraction());
 
+        final ReconfigurableService localService = (service != null) ? this.findLocalService(service.getServiceKey()) : null;
+
+        if (localService != null) { // Direct path, no need for the Store event
+            ObjectId stored = this.storeConfiguration(localService.getCurrentConfiguration(),
+                    objId, source, interaction.getInteraction());
+
+            if (stored != null) {
+                interaction.sendResponse(stored);
+            } else {
+                interaction.sendError(null);
+            }
+            return;
+        }
+
         // Create the Adapter which will wait for the callback of the service
         try {  // Consumer of Events for the configurations
             EventConsumerServiceImpl eventServiceConsumer = new EventConsumerServiceImpl(comServices.getEventService().getConnectionProvider().getConnectionDetails());
@@ -248,71 +301,41 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
 
         // Configuration COM object
         ArchivePersistenceObject comObject = HelperArchive.getArchiveCOMObject(comServices.getArchiveService(), confObjId.getType(), confObjId.getKey().getDomain(), confObjId.getKey().getInstId());
-        Element objBody = (Element) comObject.getObject();
 
-        FileOutputStream fos;
-        try {
-            // Create the file
-            java.io.File file = new java.io.File("temporary_file.xml");
-            fos = new FileOutputStream(file);
-/*
-            esa.mo.mal.encoder.xml.XMLElementOutputStream xmlEOS = new esa.mo.mal.encoder.xml.XMLElementOutputStream(fos);
-            xmlEOS.setIndentation(true);
-
-            // Write the object in the xml file
-            xmlEOS.writeCOMObject(comObject.getDomain().toString(), comObject.getObjectType().toString(), comObject.getObjectId().toString(), 
-                    comObject.getArchiveDetails().getDetails().getRelated(), comObject.getArchiveDetails().getDetails().getSource(), 
-                    comObject.getArchiveDetails().getNetwork(), comObject.getArchiveDetails().getTimestamp(), 
-                    comObject.getArchiveDetails().getProvider(), comObject.getObject());
-
-            xmlEOS.writeCOMObject(comObject.getDomain().toString(), comObject.getObjectType().toString(), comObject.getObjectId().toString(), 
-                    comObject.getArchiveDetails().getDetails().getRelated(), comObject.getArchiveDetails().getDetails().getSource(), 
-                    comObject.getArchiveDetails().getNetwork(), comObject.getArchiveDetails().getTimestamp(), 
-                    comObject.getArchiveDetails().getProvider(), comObject.getObject());
-            
-//            xmlEOS.writeElement(objBody, null);
-            
-//            ( (ConfigurationObjectDetails) objBody).getConfigObjects().get(0).getDomain().add(new Identifier("César"));
-//            xmlEOS.writeElement(objBody, null);
-            xmlEOS.flush();
-            xmlEOS.close();
-*/
-            // Create a static method in the Helper Tools to cconvert rom a Java file to a MAL File and vice versa
-            org.ccsds.moims.mo.mal.structures.File xmlFile = new org.ccsds.moims.mo.mal.structures.File();
-//            xmlFile.setContent((Blob) HelperAttributes.javaType2Attribute(Files.readAllBytes(file.toPath())));
-            xmlFile.setName(new Identifier("bbgbgbdg"));
-
-            return xmlFile;
+        if (comObject == null) {
+            throw new MALInteractionException(new MALStandardError(MALHelper.UNKNOWN_ERROR_NUMBER, null));
+        }
 
-        } catch (IOException ex) {
-            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+        if (!(comObject.getObject() instanceof ConfigurationObjectDetails)) {
+            throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, null));
         }
 
-        return null;
+        ConfigurationSnapshot snapshot = ConfigurationSnapshot.of((ConfigurationObjectDetails) comObject.getObject());
+        org.ccsds.moims.mo.mal.structures.File file = new org.ccsds.moims.mo.mal.structures.File();
+        file.setName(new Identifier("configuration_" + confObjId.getKey().getInstId() + ".xml"));
+        file.setContent(new Blob(snapshot.toXML()));
+
+        return file;
     }
 
     @Override
     public ObjectId importXML(org.ccsds.moims.mo.mal.structures.File xmlFile, 
             MALInteraction interaction) throws MALInteractionException, MALException {
-        FileInputStream fis;
-        
-        try {
-            // Create the file
-            java.io.File file = new java.io.File("temporary_file.xml");
-            fis = new FileInputStream(file);
-/*
-            esa.mo.mal.encoder.xml.XMLElementInputStream xmlEIS = new esa.mo.mal.encoder.xml.XMLElementInputStream(fis);
-            // Dcode the object from the xml file
-            ConfigurationObjectDetails decodedElement1 = (ConfigurationObjectDetails) xmlEIS.readElement(new ConfigurationObjectDetails(), null);
-            ConfigurationObjectDetails decodedElement2 = (ConfigurationObjectDetails) xmlEIS.readElement(new ConfigurationObjectDetails(), null);
-*/
-//            ConfigurationObjectDetails decodedElement = (ConfigurationObjectDetails) xmlEIS.readElement(new ConfigurationObjectDetails(), null);
+        if (xmlFile == null || xmlFile.getContent() == null) {
+            throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, null));
+        }
 
+        ConfigurationSnapshot snapshot;
+
+        try {
+            snapshot = ConfigurationSnapshot.fromXML(xmlFile.getContent().getValue());
         } catch (IOException ex) {
-            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.WARNING, 
+                    "The file is not a configuration XML file.", ex);
+            throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, null));
         }
 
-        return null;
+        return this.storeConfiguration(snapshot.toConfiguration(), null, null, interaction);
     }
 
     @Override
@@ -360,6 +383,140 @@ public class ConfigurationProviderServiceImpl extends ConfigurationInheritanceSk
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
+    /**
+     * Reloads a configuration directly in the service of this process it
+     * belongs to. The service is not reloaded if the configuration is already
+     * the active one.
+     *
+     * @param configObjId The configuration
+     * @return True if the configuration belongs to a service of this process
+     */
+    private boolean activateLocally(ObjectId configObjId) {
+        if (localServices.isEmpty() || configObjId == null || configObjId.getKey() == null) {
+            return false;
+        }
+
+        Element body = HelperArchive.getObjectBodyFromArchive(comServices.getArchiveService(), 
+                configObjId.getType(), configObjId.getKey().getDomain(), configObjId.getKey().getInstId());
+
+        if (!(body instanceof ConfigurationObjectDetails)) {
+            return false;
+        }
+
+        ConfigurationObjectDetails target = (ConfigurationObjectDetails) body;
+        ReconfigurableService localService = this.findLocalService(configObjId.getType(), target);
+
+        if (localService == null) {
+            return false;
+        }
+
+        ConfigurationSnapshot targetSnapshot = ConfigurationSnapshot.of(target);
+        List<ObjectType> changed = targetSnapshot.changedObjectTypes(
+                ConfigurationSnapshot.of(localService.getCurrentConfiguration()));
+
+        if (changed.isEmpty()) {
+            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.FINE, 
+                    "The configuration {0} is already active in the {1} service.", 
+                    new Object[]{targetSnapshot.getHash(), localService.getCOMService().getName()});
+            return true;
+        }
+
+        Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.FINE, 
+                "Activating the configuration {0} in the {1} service. Changed object types: {2}", 
+                new Object[]{targetSnapshot.getHash(), localService.getCOMService().getName(), changed});
+
+        if (!localService.reloadConfiguration(target)) {
+            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.WARNING, 
+                    "The {0} service could not reload the configuration {1}.", 
+                    new Object[]{localService.getCOMService().getName(), targetSnapshot.getHash()});
+        }
+
+        return true;
+    }
+
+    /**
+     * Stores a configuration in the Archive.
+     *
+     * @param configuration The configuration
+     * @param related The related field
+     * @param source The source field
+     * @param interaction The interaction
+     * @return The ConfigurationObjects object. Null if it could not be stored.
+     */
+    private ObjectId storeConfiguration(ConfigurationObjectDetails configuration, Long related, 
+            ObjectId source, MALInteraction interaction) {
+        ConfigurationObjectDetailsList bodies = new ConfigurationObjectDetailsList();
+        bodies.add(configuration);
+
+        try {
+            LongList objIds = comServices.getArchiveService().store(
+                    true,
+                    ConfigurationHelper.CONFIGURATIONOBJECTS_OBJECT_TYPE,
+                    ConfigurationProviderSingleton.getDomain(),
+                    HelperArchive.generateArchiveDetailsList(related, source, interaction),
+                    bodies,
+                    null);
+
+            return new ObjectId(ConfigurationHelper.CONFIGURATIONOBJECTS_OBJECT_TYPE,
+                    new ObjectKey(ConfigurationProviderSingleton.getDomain(), objIds.get(0)));
+        } catch (MALException | MALInteractionException ex) {
+            Logger.getLogger(ConfigurationProviderServiceImpl.class.getName()).log(Level.SEVERE, 
+                    "The configuration could not be stored.", ex);
+            return null;
+        }
+    }
+
+    private ReconfigurableService findLocalService(ServiceKey key) {
+        if (key == null) {
+            return null;
+        }
+
+        for (ReconfigurableService localService : localServices) {
+            COMService comService = localService.getCOMService();
+
+            if (comService.getArea().getNumber().equals(key.getArea())
+                    && comService.getNumber().equals(key.getService())) {
+                return localService;
+            }
+        }
+
+        return null;
+    }
+
+    private ReconfigurableService findLocalService(ObjectType configType, ConfigurationObjectDetails configuration) {
+        for (ReconfigurableService localService : localServices) {
+            COMService comService = localService.getCOMService();
+
+            // Same rule as the ConfigurationEventAdapter
+            if (configType.getArea().equals(comService.getArea().getNumber())
+                    && configType.getNumber().equals(comService.getNumber())) {
+                return localService;
+            }
+
+            // Or all the object sets are of the service
+            boolean ofService = configuration.getConfigObjects() != null
+                    && !configuration.getConfigObjects().isEmpty();
+
+            if (ofService) {
+                for (ConfigurationObjectSet set : configuration.getConfigObjects()) {
+                    ObjectType objType = set.getObjType();
+
+                    if (objType == null || !objType.getArea().equals(comService.getArea().getNumber())
+                            || !objType.getService().equals(comService.getNumber())) {
+                        ofService = false;
+                        break;
+                    }
+                }
+            }
+
+            if (ofService) {
+                return localService;
+            }
+        }
+
+        return null;
+    }
+
     public class EventConsumerConfigurationCallbackAdapter extends EventAdapter {
 
         private final Long originalObjId;
@@ -24,7 +24,6 @@ import esa.mo.com.impl.provider.ArchiveManager;
 import esa.mo.com.impl.provider.ArchivePersistenceObject;
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.com.impl.util.HelperArchive;
-import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.connections.ServicesConnectionDetails;
@@ -36,12 +35,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
-import org.ccsds.moims.mo.com.structures.ObjectKey;
 import org.ccsds.moims.mo.common.CommonHelper;
 import org.ccsds.moims.mo.common.directory.DirectoryHelper;
 import org.ccsds.moims.mo.common.directory.body.PublishProviderResponse;
@@ -50,7 +49,6 @@ import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
 import org.ccsds.moims.mo.common.directory.structures.AddressDetailsList;
 import org.ccsds.moims.mo.common.directory.structures.ProviderDetails;
 import org.ccsds.moims.mo.common.directory.structures.ProviderDetailsList;
-import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
 import org.ccsds.moims.mo.common.directory.structures.PublishDetails;
 import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
@@ -93,7 +91,10 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
   protected final Map<Long, PublishDetails> providersAvailable
       = new ConcurrentHashMap<>();
   protected final Object MUTEX = new Object();
+  private final Map<Long, Long> capabilitiesObjIds = new ConcurrentHashMap<>();
+  private volatile ProvidersIndex index = ProvidersIndex.EMPTY;
   private COMServicesProvider comServices;
+  private final List<ProviderPublishedListener> publishedListeners = new CopyOnWriteArrayList<>();
 
   private static AddressDetails getServiceAddressDetails(final SingleConnectionDetails conn)
   {
@@ -216,6 +217,19 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
     return this.connection;
   }
 
+  /**
+   * Looks up the published providers that match a filter.
+   *
+   * The service key and the required capabilities select the services of each
+   * provider. A service matches the required capabilities if it supports all
+   * of them, where a null list of supported capabilities means all of them.
+   * When the filter selects services, i.e. a field of the service key is not
+   * zero or capabilities are required, a provider without any matching service
+   * is left out. Otherwise every provider matching the name, domain and session
+   * is returned with all its services, even if it has none. Before the
+   * providers index, the required capabilities were not checked at all and the
+   * providers without a matching service were returned with an empty list.
+   */
   @Override
   public ProviderSummaryList lookupProvider(final ServiceFilter filter,
       final MALInteraction interaction) throws MALInteractionException, MALException
@@ -235,151 +249,8 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
       }
     }
 
-    final HashMap<Long, PublishDetails> list;
-
-    synchronized (MUTEX) {
-      list = new HashMap<>(providersAvailable);
-    }
-
-    LongList keys = new LongList();
-    keys.addAll(list.keySet());
-
-    // Initialize the final Provider Summary List
-    ProviderSummaryList outputList = new ProviderSummaryList();
-
-    // Filter...
-    for (int i = 0; i < keys.size(); i++) { // Filter through all providers
-      PublishDetails provider = list.get(keys.get(i));
-      ProviderSummary providerOutput = new ProviderSummary();
-
-      //Check service provider name
-      if (!filter.getServiceProviderName().toString().equals("*")) { // If not a wildcard...
-        if (!provider.getProviderName().toString().equals(filter.getServiceProviderName().toString())) {
-          continue;
-        }
-      }
-
-      if (HelperCOM.domainContainsWildcard(filter.getDomain())) {  // Does it contain a wildcard in the filter?
-        // Compare each object one by one...
-
-        if (!HelperCOM.domainMatchesWildcardDomain(provider.getDomain(), inputDomain)) {
-          continue;
-        }
-
-      } else if (!inputDomain.equals(provider.getDomain())) {
-        continue;
-      }
-
-      // Check session type
-      if (filter.getSessionType() != null) {
-        if (!provider.getSessionType().equals(filter.getSessionType())) {
-          continue;
-        }
-      }
-
-      // Check session name
-      if (!filter.getSessionName().toString().equals("*")) {
-        if (!CHAR_S2G.equals(filter.getSessionName().toString())) {
-          if (provider.getSourceSessionName() != null
-              && !provider.getSourceSessionName().toString().equals(
-                  filter.getSessionName().toString())) {
-            continue;
-          }
-        }
-      }
-
-      // Set the Provider Details structure
-      ProviderDetails outProvDetails = new ProviderDetails();
-      outProvDetails.setProviderAddresses(provider.getProviderDetails().getProviderAddresses());
-
-      ServiceCapabilityList outCap = new ServiceCapabilityList();
-
-      // Check each service
-      for (int j = 0; j < provider.getProviderDetails().getServiceCapabilities().size(); j++) { // Go through all the services
-        ServiceCapability serviceCapability
-            = provider.getProviderDetails().getServiceCapabilities().get(j);
-
-        // Check service key - area field
-        if (filter.getServiceKey().getArea().getValue() != 0) {
-          if (!serviceCapability.getServiceKey().getArea().equals(filter.getServiceKey().getArea())) {
-            continue;
-          }
-        }
-
-        // Check service key - service field
-        if (filter.getServiceKey().getService().getValue() != 0) {
-          if (!serviceCapability.getServiceKey().getService().equals(
-              filter.getServiceKey().getService())) {
-            continue;
-          }
-        }
-
-        // Check service key - version field
-        if (filter.getServiceKey().getVersion().getValue() != 0) {
-          if (!serviceCapability.getServiceKey().getVersion().equals(
-              filter.getServiceKey().getVersion())) {
-            continue;
-          }
-        }
-
-        // Check service capabilities
-        if (!filter.getRequiredCapabilities().isEmpty()) { // Not empty...
-          boolean capExists = false;
-
-          for (UInteger cap : filter.getRequiredCapabilities()) {
-            // cycle all the ones available in the provider
-            for (UInteger proCap : filter.getRequiredCapabilities()) {
-              if (cap.equals(proCap)) {
-                capExists = true;
-                break;
-              }
-            }
-          }
-
-          if (!capExists) { // If the capability we want does not exist, then get out...
-            continue;
-          }
-        }
-
-        ServiceCapability newServiceCapability = new ServiceCapability(
-            serviceCapability.getServiceKey(),
-            serviceCapability.getSupportedCapabilities(),
-            serviceCapability.getServiceProperties(),
-            new AddressDetailsList()
-        );
-
-        // This is a workaround to save bandwidth on the downlink! It is not part of the standard
-        if (CHAR_S2G.equals(filter.getSessionName().toString())) {
-          // We assume that we use malspp on the downlink
-          for (int k = 0; k < serviceCapability.getServiceAddresses().size(); k++) {
-            AddressDetails address = serviceCapability.getServiceAddresses().get(k);
-
-            if (address.getServiceURI().toString().startsWith("malspp")) {
-              newServiceCapability.getServiceAddresses().add(address);
-            }
-          }
-        } else {
-          newServiceCapability.getServiceAddresses().addAll(serviceCapability.getServiceAddresses());
-        }
-
-        // Add the service to the list of matching services
-        outCap.add(newServiceCapability);
-      }
-
-      // It passed all the tests!
-      final ObjectKey objKey = new ObjectKey(provider.getDomain(), keys.get(i));
-      providerOutput.setProviderKey(objKey);
-      providerOutput.setProviderName(provider.getProviderName());
-
-      outProvDetails.setServiceCapabilities(outCap);
-      providerOutput.setProviderDetails(outProvDetails);
-
-      outputList.add(providerOutput);
-    }
-
-    // Errors
-    // The operation does not return any errors.
-    return outputList;  // requirement: 3.4.9.2.d
+    // Lock-free: the index is immutable and replaced on publish and withdraw
+    return this.index.lookup(filter);  // requirement: 3.4.9.2.d
   }
 
   @Override
@@ -451,8 +322,8 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
       capabilities.add(newProviderDetails.getProviderDetails());
 
       // Store in the Archive the ProviderCapabilities COM object
-      comServices.getArchiveService().store(
-          false,
+      final LongList returnedCapabilitiesObjIds = comServices.getArchiveService().store(
+          true,
           DirectoryHelper.PROVIDERCAPABILITIES_OBJECT_TYPE,
           ConfigurationProviderSingleton.getDomain(),
           archDetails1,
@@ -460,14 +331,47 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
           null
       );
 
+      if (returnedCapabilitiesObjIds != null && !returnedCapabilitiesObjIds.isEmpty()) {
+        capabilitiesObjIds.put(servProvObjId, returnedCapabilitiesObjIds.get(0));
+      }
+
       this.providersAvailable.put(servProvObjId, newProviderDetails);
+      this.index = new ProvidersIndex(providersAvailable);
       response.setBodyElement0(servProvObjId);
       response.setBodyElement1(null); // All capabilities (does null really mean that?)
     }
 
+    for (ProviderPublishedListener listener : publishedListeners) {
+      try {
+        listener.onProviderPublished(newProviderDetails);
+      } catch (RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "The provider published listener failed.", ex);
+      }
+    }
+
     return response;
   }
 
+  /**
+   * Adds a listener to be notified whenever a provider is published.
+   *
+   * @param listener The listener
+   */
+  public void addProviderPublishedListener(ProviderPublishedListener listener)
+  {
+    publishedListeners.add(listener);
+  }
+
+  /**
+   * Removes a listener added with addProviderPublishedListener.
+   *
+   * @param listener The listener
+   */
+  public void removeProviderPublishedListener(ProviderPublishedListener listener)
+  {
+    publishedListeners.remove(listener);
+  }
+
   @Override
   public void withdrawProvider(Long providerObjectKey, MALInteraction interaction) throws
       MALInteractionException, MALException
@@ -479,6 +383,25 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
 
       ArchiveManager manager = comServices.getArchiveService().getArchiveManager();
       IdentifierList domain = ConfigurationProviderSingleton.getDomain();
+      Long capabilityObjId = capabilitiesObjIds.remove(providerObjectKey);
+
+      if (manager == null) { // The Archive is not local, use its interface
+        LongList objIds = new LongList();
+        objIds.add(providerObjectKey);
+        comServices.getArchiveService().delete(DirectoryHelper.SERVICEPROVIDER_OBJECT_TYPE,
+            domain, objIds, null);
+
+        if (capabilityObjId != null) {
+          objIds.set(0, capabilityObjId);
+          comServices.getArchiveService().delete(DirectoryHelper.PROVIDERCAPABILITIES_OBJECT_TYPE,
+              domain, objIds, null);
+        }
+
+        this.providersAvailable.remove(providerObjectKey);
+        this.index = new ProvidersIndex(providersAvailable);
+        return;
+      }
+
       ArchiveQuery query = new ArchiveQuery(domain, null, null,
                                             providerObjectKey, null, null,
                                             null, null, null);
@@ -495,6 +418,7 @@ public class DirectoryProviderServiceImpl extends DirectoryInheritanceSkeleton
                             capabilityIds, null);
 
       this.providersAvailable.remove(providerObjectKey); // Remove the provider...
+      this.index = new ProvidersIndex(providersAvailable);
     }
   }
 
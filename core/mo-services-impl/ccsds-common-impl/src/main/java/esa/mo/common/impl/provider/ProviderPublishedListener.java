@@ -0,0 +1,39 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.provider;
+
+import org.ccsds.moims.mo.common.directory.structures.PublishDetails;
+
+/**
+ * This Interface must be implemented by the components that need to know
+ * when a provider becomes available on the local Directory service.
+ */
+public interface ProviderPublishedListener
+{
+
+  /**
+   * Notifies that a provider was published on the Directory service.
+   *
+   * @param details The details of the published provider
+   */
+  void onProviderPublished(PublishDetails details);
+
+}
@@ -0,0 +1,400 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.provider;
+
+import esa.mo.com.impl.util.HelperCOM;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetailsList;
+import org.ccsds.moims.mo.common.directory.structures.ProviderDetails;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
+import org.ccsds.moims.mo.common.directory.structures.PublishDetails;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapabilityList;
+import org.ccsds.moims.mo.common.directory.structures.ServiceFilter;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UIntegerList;
+
+/**
+ * Immutable inverted index of the providers published in the Directory
+ * service. It maps the provider name, the domain, the service key and the
+ * supported capabilities to the keys of the providers, so that a lookup only
+ * visits the providers that can match its filter.
+ *
+ * A new index is built on every publish and withdraw, and swapped in by the
+ * Directory service. Lookups read it without taking any lock. The matching
+ * rules of a lookup are described on DirectoryProviderServiceImpl.lookupProvider.
+ */
+final class ProvidersIndex
+{
+
+  static final ProvidersIndex EMPTY = new ProvidersIndex(
+      Collections.<Long, PublishDetails>emptyMap());
+
+  private final Map<Long, PublishDetails> providers;
+  private final Map<String, List<Long>> byName = new HashMap<>();
+  private final Map<List<String>, List<Long>> byDomain = new HashMap<>();
+  private final Map<Integer, List<Long>> byArea = new HashMap<>();
+  private final Map<Long, List<Long>> byServiceKey = new HashMap<>();
+  private final Map<Long, List<Long>> byCapability = new HashMap<>();
+  private final List<Long> allCapabilities = new ArrayList<>();
+
+  /**
+   * Builds the index of a set of providers.
+   *
+   * @param available The providers, by the object instance identifier of their
+   * ServiceProvider COM object
+   */
+  ProvidersIndex(final Map<Long, PublishDetails> available)
+  {
+    this.providers = Collections.unmodifiableMap(new TreeMap<>(available));
+
+    for (Map.Entry<Long, PublishDetails> entry : providers.entrySet()) {
+      final Long key = entry.getKey();
+      final PublishDetails provider = entry.getValue();
+
+      add(byName, provider.getProviderName().getValue(), key);
+      add(byDomain, domainKey(provider.getDomain()), key);
+
+      boolean supportsAll = false;
+
+      for (ServiceCapability capability
+          : provider.getProviderDetails().getServiceCapabilities()) {
+        final ServiceKey serviceKey = capability.getServiceKey();
+        add(byArea, serviceKey.getArea().getValue(), key);
+        add(byServiceKey, serviceKey(serviceKey), key);
+
+        if (capability.getSupportedCapabilities() == null) {
+          supportsAll = true;
+        } else {
+          for (UInteger cap : capability.getSupportedCapabilities()) {
+            add(byCapability, cap.getValue(), key);
+          }
+        }
+      }
+
+      if (supportsAll) {
+        allCapabilities.add(key);
+      }
+    }
+  }
+
+  /**
+   * @return The indexed providers
+   */
+  Map<Long, PublishDetails> getProviders()
+  {
+    return providers;
+  }
+
+  /**
+   * Selects the smallest set of providers that can match a lookup. The
+   * returned providers must still be checked against the complete filter.
+   *
+   * @param name The provider name, or null for the wildcard
+   * @param domain The domain, or null if it contains a wildcard
+   * @param key The service key, where a zero field is a wildcard
+   * @param requiredCapabilities The required capabilities, or null if empty
+   * @return The keys of the candidate providers
+   */
+  Collection<Long> candidates(final String name, final IdentifierList domain,
+      final ServiceKey key, final List<UInteger> requiredCapabilities)
+  {
+    Collection<Long> selected = providers.keySet();
+
+    if (name != null) {
+      selected = smallest(selected, byName.get(name));
+    }
+
+    if (domain != null) {
+      selected = smallest(selected, byDomain.get(domainKey(domain)));
+    }
+
+    final int area = key.getArea().getValue();
+
+    if (area != 0) {
+      if (key.getService().getValue() != 0 && key.getVersion().getValue() != 0) {
+        selected = smallest(selected, byServiceKey.get(serviceKey(key)));
+      } else {
+        selected = smallest(selected, byArea.get(area));
+      }
+    }
+
+    if (requiredCapabilities != null) {
+      for (UInteger cap : requiredCapabilities) {
+        final List<Long> withCap = byCapability.get(cap.getValue());
+        final int size = allCapabilities.size() + ((withCap == null) ? 0 : withCap.size());
+
+        if (size < selected.size()) {
+          // A provider can list the capability and also have a service with all of them
+          final Set<Long> union = new TreeSet<>(allCapabilities);
+
+          if (withCap != null) {
+            union.addAll(withCap);
+          }
+
+          selected = union;
+        }
+      }
+    }
+
+    return selected;
+  }
+
+  /**
+   * Looks up the providers matching a filter. Only the candidates selected by
+   * the index are checked against the complete filter.
+   *
+   * @param filter The filter of the lookup
+   * @return The matching providers, with their matching services
+   */
+  ProviderSummaryList lookup(final ServiceFilter filter)
+  {
+    return filter(providers, candidates(filter), filter);
+  }
+
+  /**
+   * Selects the providers that can match the filter of a lookup.
+   *
+   * @param filter The filter of the lookup
+   * @return The keys of the candidate providers
+   */
+  Collection<Long> candidates(final ServiceFilter filter)
+  {
+    final UIntegerList requiredCaps = filter.getRequiredCapabilities();
+
+    return candidates(
+        filter.getServiceProviderName().toString().equals("*")
+        ? null : filter.getServiceProviderName().getValue(),
+        HelperCOM.domainContainsWildcard(filter.getDomain()) ? null : filter.getDomain(),
+        filter.getServiceKey(),
+        requiredCaps.isEmpty() ? null : requiredCaps);
+  }
+
+  /**
+   * Checks providers against the complete filter of a lookup.
+   *
+   * @param list The published providers
+   * @param keys The keys of the providers to check
+   * @param filter The filter of the lookup
+   * @return The matching providers, with their matching services
+   */
+  static ProviderSummaryList filter(final Map<Long, PublishDetails> list,
+      final Collection<Long> keys, final ServiceFilter filter)
+  {
+    final IdentifierList inputDomain = filter.getDomain();
+    final boolean anyName = filter.getServiceProviderName().toString().equals("*");
+    final boolean wildcardDomain = HelperCOM.domainContainsWildcard(inputDomain);
+    final ServiceKey serviceKey = filter.getServiceKey();
+    final UIntegerList requiredCaps = filter.getRequiredCapabilities();
+    final boolean selectsServices = serviceKey.getArea().getValue() != 0
+        || serviceKey.getService().getValue() != 0
+        || serviceKey.getVersion().getValue() != 0
+        || !requiredCaps.isEmpty();
+
+    // Initialize the final Provider Summary List
+    ProviderSummaryList outputList = new ProviderSummaryList();
+
+    // Filter...
+    for (Long key : keys) { // Filter through the candidate providers
+      PublishDetails provider = list.get(key);
+      ProviderSummary providerOutput = new ProviderSummary();
+
+      //Check service provider name
+      if (!anyName) { // If not a wildcard...
+        if (!provider.getProviderName().toString().equals(filter.getServiceProviderName().toString())) {
+          continue;
+        }
+      }
+
+      if (wildcardDomain) {  // Does it contain a wildcard in the filter?
+        // Compare each object one by one...
+
+        if (!HelperCOM.domainMatchesWildcardDomain(provider.getDomain(), inputDomain)) {
+          continue;
+        }
+
+      } else if (!inputDomain.equals(provider.getDomain())) {
+        continue;
+      }
+
+      // Check session type
+      if (filter.getSessionType() != null) {
+        if (!provider.getSessionType().equals(filter.getSessionType())) {
+          continue;
+        }
+      }
+
+      // Check session name
+      if (!filter.getSessionName().toString().equals("*")) {
+        if (!DirectoryProviderServiceImpl.CHAR_S2G.equals(filter.getSessionName().toString())) {
+          if (provider.getSourceSessionName() != null
+              && !provider.getSourceSessionName().toString().equals(
+                  filter.getSessionName().toString())) {
+            continue;
+          }
+        }
+      }
+
+      // Set the Provider Details structure
+      ProviderDetails outProvDetails = new ProviderDetails();
+      outProvDetails.setProviderAddresses(provider.getProviderDetails().getProviderAddresses());
+
+      ServiceCapabilityList outCap = new ServiceCapabilityList();
+
+      // Check each service
+      for (int j = 0; j < provider.getProviderDetails().getServiceCapabilities().size(); j++) { // Go through all the services
+        ServiceCapability serviceCapability
+            = provider.getProviderDetails().getServiceCapabilities().get(j);
+
+        // Check service key - area field
+        if (serviceKey.getArea().getValue() != 0) {
+          if (!serviceCapability.getServiceKey().getArea().equals(serviceKey.getArea())) {
+            continue;
+          }
+        }
+
+        // Check service key - service field
+        if (serviceKey.getService().getValue() != 0) {
+          if (!serviceCapability.getServiceKey().getService().equals(
+              serviceKey.getService())) {
+            continue;
+          }
+        }
+
+        // Check service key - version field
+        if (serviceKey.getVersion().getValue() != 0) {
+          if (!serviceCapability.getServiceKey().getVersion().equals(
+              serviceKey.getVersion())) {
+            continue;
+          }
+        }
+
+        // Check service capabilities
+        if (!requiredCaps.isEmpty()) { // Not empty...
+          UIntegerList supportedCaps = serviceCapability.getSupportedCapabilities();
+
+          // "If NULL then all capabilities supported."
+          if (supportedCaps != null && !supportedCaps.containsAll(requiredCaps)) {
+            continue;
+          }
+        }
+
+        ServiceCapability newServiceCapability = new ServiceCapability(
+            serviceCapability.getServiceKey(),
+            serviceCapability.getSupportedCapabilities(),
+            serviceCapability.getServiceProperties(),
+            new AddressDetailsList()
+        );
+
+        // This is a workaround to save bandwidth on the downlink! It is not part of the standard
+        if (DirectoryProviderServiceImpl.CHAR_S2G.equals(filter.getSessionName().toString())) {
+          // We assume that we use malspp on the downlink
+          for (int k = 0; k < serviceCapability.getServiceAddresses().size(); k++) {
+            AddressDetails address = serviceCapability.getServiceAddresses().get(k);
+
+            if (address.getServiceURI().toString().startsWith("malspp")) {
+              newServiceCapability.getServiceAddresses().add(address);
+            }
+          }
+        } else {
+          newServiceCapability.getServiceAddresses().addAll(serviceCapability.getServiceAddresses());
+        }
+
+        // Add the service to the list of matching services
+        outCap.add(newServiceCapability);
+      }
+
+      // A provider without any of the selected services does not match
+      if (selectsServices && outCap.isEmpty()) {
+        continue;
+      }
+
+      // It passed all the tests!
+      final ObjectKey objKey = new ObjectKey(provider.getDomain(), key);
+      providerOutput.setProviderKey(objKey);
+      providerOutput.setProviderName(provider.getProviderName());
+
+      outProvDetails.setServiceCapabilities(outCap);
+      providerOutput.setProviderDetails(outProvDetails);
+
+      outputList.add(providerOutput);
+    }
+
+    return outputList;
+  }
+
+  private static Collection<Long> smallest(final Collection<Long> current,
+      final List<Long> other)
+  {
+    if (other == null) {
+      return Collections.emptyList();
+    }
+
+    return (other.size() < current.size()) ? other : current;
+  }
+
+  private static <K> void add(final Map<K, List<Long>> index, final K indexKey, final Long key)
+  {
+    List<Long> keys = index.get(indexKey);
+
+    if (keys == null) {
+      keys = new ArrayList<>(1);
+      index.put(indexKey, keys);
+    }
+
+    // A provider can have several services with the same key parts
+    if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(key)) {
+      keys.add(key);
+    }
+  }
+
+  private static List<String> domainKey(final IdentifierList domain)
+  {
+    final List<String> parts = new ArrayList<>(domain.size());
+
+    for (Identifier part : domain) {
+      parts.add((part == null) ? null : part.getValue());
+    }
+
+    return parts;
+  }
+
+  private static long serviceKey(final ServiceKey key)
+  {
+    return ((long) key.getArea().getValue() << 24)
+        | ((long) key.getService().getValue() << 8)
+        | key.getVersion().getValue();
+  }
+}
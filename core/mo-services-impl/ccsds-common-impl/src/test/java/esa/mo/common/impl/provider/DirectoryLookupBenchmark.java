@@ -0,0 +1,203 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.provider;
+
+import esa.mo.com.impl.util.HelperCOM;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetailsList;
+import org.ccsds.moims.mo.common.directory.structures.ProviderDetails;
+import org.ccsds.moims.mo.common.directory.structures.PublishDetails;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapabilityList;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.NamedValueList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+
+/**
+ * Benchmark of the provider lookup of the Directory service with hundreds of
+ * published providers. Compares the former copy of all the providers under the
+ * lock followed by a full scan against the candidates of the ProvidersIndex.
+ *
+ * Not run by the test suite. Usage:
+ * java esa.mo.common.impl.provider.DirectoryLookupBenchmark [providers] [iterations]
+ */
+public class DirectoryLookupBenchmark
+{
+
+  private static final int[][] SERVICES = {
+    {2, 1, 1}, {2, 2, 1}, {2, 3, 1}, // COM: Event, Archive, Activity Tracking
+    {3, 1, 1}, {3, 4, 1}, // Common: Directory, Configuration
+    {4, 1, 1}, {4, 2, 1}, {4, 3, 1}, {4, 4, 1}, {4, 6, 1} // M&C
+  };
+
+  private static final Object MUTEX = new Object();
+
+  private static IdentifierList domain(String... parts)
+  {
+    IdentifierList domain = new IdentifierList(parts.length);
+    for (String part : parts) {
+      domain.add(new Identifier(part));
+    }
+    return domain;
+  }
+
+  private static ServiceKey key(int area, int service, int version)
+  {
+    return new ServiceKey(new UShort(area), new UShort(service), new UOctet((short) version));
+  }
+
+  private static PublishDetails provider(int i)
+  {
+    ServiceCapabilityList capabilities = new ServiceCapabilityList();
+    for (int[] service : SERVICES) {
+      capabilities.add(new ServiceCapability(key(service[0], service[1], service[2]), null,
+          new NamedValueList(), new AddressDetailsList()));
+    }
+
+    ProviderDetails details = new ProviderDetails();
+    details.setServiceCapabilities(capabilities);
+    details.setProviderAddresses(new AddressDetailsList());
+
+    PublishDetails provider = new PublishDetails();
+    provider.setProviderName(new Identifier("App: app-" + i));
+    provider.setDomain(domain("esa", "NMF_SDK", "sat" + (i % 8)));
+    provider.setProviderDetails(details);
+    return provider;
+  }
+
+  /**
+   * The provider and service checks of the lookup operation.
+   */
+  private static int match(PublishDetails provider, String name, IdentifierList domain,
+      ServiceKey key)
+  {
+    if (name != null && !provider.getProviderName().getValue().equals(name)) {
+      return 0;
+    }
+    if (HelperCOM.domainContainsWildcard(domain)) {
+      if (!HelperCOM.domainMatchesWildcardDomain(provider.getDomain(), domain)) {
+        return 0;
+      }
+    } else if (!domain.equals(provider.getDomain())) {
+      return 0;
+    }
+
+    int services = 0;
+    for (ServiceCapability capability : provider.getProviderDetails().getServiceCapabilities()) {
+      ServiceKey serviceKey = capability.getServiceKey();
+      if ((key.getArea().getValue() == 0 || key.getArea().equals(serviceKey.getArea()))
+          && (key.getService().getValue() == 0 || key.getService().equals(serviceKey.getService()))
+          && (key.getVersion().getValue() == 0 || key.getVersion().equals(serviceKey.getVersion()))) {
+        services++;
+      }
+    }
+    return services;
+  }
+
+  private static int scan(Map<Long, PublishDetails> providers, String name,
+      IdentifierList domain, ServiceKey key)
+  {
+    final HashMap<Long, PublishDetails> list;
+    synchronized (MUTEX) {
+      list = new HashMap<>(providers);
+    }
+    int found = 0;
+    for (PublishDetails provider : list.values()) {
+      found += match(provider, name, domain, key);
+    }
+    return found;
+  }
+
+  private static int indexed(ProvidersIndex index, String name, IdentifierList domain,
+      ServiceKey key)
+  {
+    Map<Long, PublishDetails> list = index.getProviders();
+    Collection<Long> candidates = index.candidates(name,
+        HelperCOM.domainContainsWildcard(domain) ? null : domain, key, null);
+    int found = 0;
+    for (Long candidate : candidates) {
+      found += match(list.get(candidate), name, domain, key);
+    }
+    return found;
+  }
+
+  public static void main(String[] args)
+  {
+    final int count = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+    final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+
+    Map<Long, PublishDetails> providers = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      providers.put((long) i + 1, provider(i));
+    }
+
+    long start = System.nanoTime();
+    ProvidersIndex index = new ProvidersIndex(providers);
+    double buildUs = (System.nanoTime() - start) / 1000.0;
+
+    // The lookups of the consumers: a provider by name and a service in one domain
+    String name = "App: app-" + (count / 2);
+    IdentifierList any = domain("*");
+    IdentifierList sat = domain("esa", "NMF_SDK", "sat3");
+    ServiceKey anyKey = key(0, 0, 0);
+    ServiceKey parameter = key(4, 2, 1);
+
+    int expected = scan(providers, name, any, anyKey) + scan(providers, null, sat, parameter);
+    int result = indexed(index, name, any, anyKey) + indexed(index, null, sat, parameter);
+    if (expected != result) {
+      throw new IllegalStateException("The index returned " + result + " services instead of "
+          + expected);
+    }
+
+    // Warm up both paths before measuring
+    for (int i = 0; i < iterations / 5; i++) {
+      scan(providers, name, any, anyKey);
+      scan(providers, null, sat, parameter);
+      indexed(index, name, any, anyKey);
+      indexed(index, null, sat, parameter);
+    }
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      scan(providers, name, any, anyKey);
+      scan(providers, null, sat, parameter);
+    }
+    double scanUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      indexed(index, name, any, anyKey);
+      indexed(index, null, sat, parameter);
+    }
+    double indexUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+    System.out.printf("%,d providers with %d services, %,d iterations of 2 lookups%n",
+        count, SERVICES.length, iterations);
+    System.out.printf("index build    : %8.1f us%n", buildUs);
+    System.out.printf("copy and scan  : %8.2f us/iteration%n", scanUs);
+    System.out.printf("indexed lookup : %8.2f us/iteration (x%.1f)%n", indexUs, scanUs / indexUs);
+  }
+}
@@ -0,0 +1,191 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetailsList;
+import org.ccsds.moims.mo.common.directory.structures.ProviderDetails;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
+import org.ccsds.moims.mo.common.directory.structures.PublishDetails;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapabilityList;
+import org.ccsds.moims.mo.common.directory.structures.ServiceFilter;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.NamedValueList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UIntegerList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.junit.Test;
+
+/**
+ * Checks the lookups of the Directory service both through the candidates of
+ * the index and through the linear scan of all the providers.
+ */
+public class ProvidersIndexTest
+{
+
+  private static final Map<Long, PublishDetails> PROVIDERS = new HashMap<>();
+
+  static {
+    // Parameter service supporting the capabilities 1 and 2, Directory service supporting all
+    PROVIDERS.put(1L, provider("App: a", domain("esa", "sat1"),
+        service(key(4, 2, 1), caps(1, 2)), service(key(3, 1, 1), null)));
+    PROVIDERS.put(2L, provider("App: b", domain("esa", "sat2"),
+        service(key(4, 2, 1), caps(1))));
+    // A provider without any service
+    PROVIDERS.put(3L, provider("App: c", domain("esa", "sat1")));
+  }
+
+  private static IdentifierList domain(String... parts)
+  {
+    IdentifierList domain = new IdentifierList();
+    for (String part : parts) {
+      domain.add(new Identifier(part));
+    }
+    return domain;
+  }
+
+  private static ServiceKey key(int area, int service, int version)
+  {
+    return new ServiceKey(new UShort(area), new UShort(service), new UOctet((short) version));
+  }
+
+  private static UIntegerList caps(long... values)
+  {
+    UIntegerList caps = new UIntegerList();
+    for (long value : values) {
+      caps.add(new UInteger(value));
+    }
+    return caps;
+  }
+
+  private static ServiceCapability service(ServiceKey key, UIntegerList caps)
+  {
+    return new ServiceCapability(key, caps, new NamedValueList(), new AddressDetailsList());
+  }
+
+  private static PublishDetails provider(String name, IdentifierList domain,
+      ServiceCapability... services)
+  {
+    ServiceCapabilityList capabilities = new ServiceCapabilityList();
+    for (ServiceCapability service : services) {
+      capabilities.add(service);
+    }
+
+    ProviderDetails details = new ProviderDetails();
+    details.setServiceCapabilities(capabilities);
+    details.setProviderAddresses(new AddressDetailsList());
+
+    PublishDetails provider = new PublishDetails();
+    provider.setProviderName(new Identifier(name));
+    provider.setDomain(domain);
+    provider.setProviderDetails(details);
+    return provider;
+  }
+
+  private static ServiceFilter filter(String name, IdentifierList domain, ServiceKey key,
+      UIntegerList caps)
+  {
+    return new ServiceFilter(new Identifier(name), domain, new Identifier("*"), null,
+        new Identifier("*"), key, caps);
+  }
+
+  /**
+   * @return The number of services returned for each provider key
+   */
+  private static Map<Long, Integer> summary(ProviderSummaryList providers)
+  {
+    Map<Long, Integer> summary = new TreeMap<>();
+    for (ProviderSummary provider : providers) {
+      summary.put(provider.getProviderKey().getInstId(),
+          provider.getProviderDetails().getServiceCapabilities().size());
+    }
+    return summary;
+  }
+
+  /**
+   * Runs a lookup with the index and with the linear scan, and checks that
+   * both return the expected providers and number of services.
+   */
+  private static void assertLookup(ServiceFilter filter, long... expected)
+  {
+    Map<Long, Integer> expectedSummary = new TreeMap<>();
+    for (int i = 0; i < expected.length; i += 2) {
+      expectedSummary.put(expected[i], (int) expected[i + 1]);
+    }
+
+    ProvidersIndex index = new ProvidersIndex(PROVIDERS);
+    assertEquals("index", expectedSummary, summary(index.lookup(filter)));
+    assertEquals("linear", expectedSummary, summary(ProvidersIndex.filter(
+        index.getProviders(), index.getProviders().keySet(), filter)));
+  }
+
+  @Test
+  public void testWildcard()
+  {
+    // Every provider, with all its services, even the one without any
+    assertLookup(filter("*", domain("*"), key(0, 0, 0), caps()), 1, 2, 2, 1, 3, 0);
+    assertLookup(filter("*", domain("esa", "*"), key(0, 0, 0), caps()), 1, 2, 2, 1, 3, 0);
+    assertLookup(filter("App: b", domain("*"), key(0, 0, 0), caps()), 2, 1);
+    assertLookup(filter("*", domain("esa", "sat1"), key(0, 0, 0), caps()), 1, 2, 3, 0);
+  }
+
+  @Test
+  public void testAreaAndService()
+  {
+    assertLookup(filter("*", domain("*"), key(4, 0, 0), caps()), 1, 1, 2, 1);
+    assertLookup(filter("*", domain("*"), key(4, 2, 0), caps()), 1, 1, 2, 1);
+    assertLookup(filter("*", domain("*"), key(4, 2, 1), caps()), 1, 1, 2, 1);
+    assertLookup(filter("*", domain("esa", "sat2"), key(4, 2, 1), caps()), 2, 1);
+    assertLookup(filter("*", domain("*"), key(3, 1, 1), caps()), 1, 1);
+    assertLookup(filter("*", domain("*"), key(4, 3, 1), caps()));
+    // Only the service field set
+    assertLookup(filter("*", domain("*"), key(0, 1, 0), caps()), 1, 1);
+  }
+
+  @Test
+  public void testCapabilities()
+  {
+    // A service must support all the required capabilities, null supports all of them
+    assertLookup(filter("*", domain("*"), key(0, 0, 0), caps(1)), 1, 2, 2, 1);
+    assertLookup(filter("*", domain("*"), key(0, 0, 0), caps(1, 2)), 1, 2);
+    assertLookup(filter("*", domain("*"), key(4, 2, 1), caps(2)), 1, 1);
+    assertLookup(filter("*", domain("*"), key(0, 0, 0), caps(7)), 1, 1);
+    assertLookup(filter("*", domain("esa", "sat2"), key(0, 0, 0), caps(2)));
+  }
+
+  @Test
+  public void testEmptyServices()
+  {
+    // Selecting services leaves out the providers without any matching one
+    assertLookup(filter("App: c", domain("*"), key(0, 0, 0), caps()), 3, 0);
+    assertLookup(filter("App: c", domain("*"), key(4, 0, 0), caps()));
+    assertLookup(filter("App: c", domain("*"), key(0, 0, 0), caps(1)));
+  }
+}
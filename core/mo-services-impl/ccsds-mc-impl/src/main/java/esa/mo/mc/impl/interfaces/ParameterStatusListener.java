@@ -24,6 +24,7 @@ import java.io.IOException;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
@@ -69,6 +70,26 @@ public interface ParameterStatusListener
     throw new UnsupportedOperationException("Not supported yet.");
   }
 
+  /**
+   * Called by the NMF core when the values of several parameters are needed at once, for example
+   * to sample the parameters of an aggregation.
+   *
+   * The default implementation calls onGetValue for each parameter. Applications able to acquire
+   * several values in one request should override it.
+   *
+   * @param parameterIDs the IDs of the parameters
+   * @return The values, in the same order as the IDs
+   * @throws java.io.IOException if the parameter values could not be acquired
+   */
+  default Attribute[] onGetValues(LongList parameterIDs) throws IOException
+  {
+    Attribute[] values = new Attribute[parameterIDs.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = onGetValue(parameterIDs.get(i));
+    }
+    return values;
+  }
+
   /**
    * The user must implement this interface in order to set a collection of parameter values to a
    * set variables in the application logic.
@@ -21,7 +21,6 @@
 package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.util.COMServicesProvider;
-import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.mc.impl.interfaces.ActionInvocationListener;
@@ -524,22 +523,16 @@ public class ActionProviderServiceImpl extends ActionInheritanceSkeleton impleme
         }
 
         // ok, we're good to go...
-        // Load the Parameter Definitions from this configuration...
+        // Load the Definitions from this configuration, reusing the unchanged ones...
         ConfigurationObjectSet confSetDefs = (confSet0.getObjType().equals(ActionHelper.ACTIONDEFINITION_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        ActionDefinitionDetailsList pDefs = (ActionDefinitionDetailsList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                ActionHelper.ACTIONDEFINITION_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetDefs.getObjInstIds());
+        ActionDefinitionDetailsList pDefs = (ActionDefinitionDetailsList) manager.getDefinitionsForReconfiguration(
+                ActionHelper.ACTIONDEFINITION_OBJECT_TYPE, confSetDefs.getObjInstIds(), new ActionDefinitionDetailsList());
 
         ConfigurationObjectSet confSetIdents = (confSet0.getObjType().equals(ActionHelper.ACTIONIDENTITY_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        IdentifierList idents = (IdentifierList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                ActionHelper.ACTIONIDENTITY_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetIdents.getObjInstIds());
+        IdentifierList idents = manager.getNamesForReconfiguration(
+                ActionHelper.ACTIONIDENTITY_OBJECT_TYPE, confSetIdents.getObjInstIds());
 
         manager.reconfigureDefinitions(confSetIdents.getObjInstIds(), idents,
                 confSetDefs.getObjInstIds(), pDefs);   // Reconfigures the Manager
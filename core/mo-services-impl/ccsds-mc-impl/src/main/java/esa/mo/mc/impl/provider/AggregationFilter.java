@@ -0,0 +1,193 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import java.util.Objects;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterSet;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterValueList;
+import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdFilter;
+import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdType;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+
+/**
+ * The report filter of a parameter set, with the threshold converted to a
+ * primitive. A parameter value is reduced to a kind and a number once, so
+ * that the filters of all the parameter sets sampled in the same tick are
+ * evaluated on primitives.
+ *
+ * Two values are only compared if they have the same kind: both valid with a
+ * converted value, both valid without a converted value, or both INVALID_RAW
+ * without a converted value (requirement: 3.7.2.6). Any other combination
+ * does not trigger the filter.
+ */
+final class AggregationFilter {
+
+    static final byte KIND_NONE = 0; // Not comparable
+    static final byte KIND_CONVERTED = 1; // Valid, compared on the converted value
+    static final byte KIND_RAW_VALID = 2; // Valid, compared on the raw value
+    static final byte KIND_RAW_INVALID = 3; // INVALID_RAW, compared on the raw value
+    static final byte KIND_TEXT = 4; // Flag added to the kind when the compared value is not a number
+
+    private static final byte ALWAYS = 0;
+    private static final byte NEVER = 1;
+    private static final byte DELTA = 2;
+    private static final byte PERCENTAGE = 3;
+
+    private static final AggregationFilter ALWAYS_TRIGGERED = new AggregationFilter(ALWAYS, 0);
+
+    private final byte type;
+    private final double threshold;
+
+    private AggregationFilter(byte type, double threshold) {
+        this.type = type;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param parameterSet The parameter set
+     * @return The filter of the parameter set. A parameter set without filter
+     * or with more than one parameter is always triggered (requirement:
+     * 3.7.3.m and 4.7.5).
+     */
+    static AggregationFilter compile(AggregationParameterSet parameterSet) {
+        final ThresholdFilter filter = parameterSet.getReportFilter();
+
+        if (filter == null || parameterSet.getParameters().size() != 1) {
+            return ALWAYS_TRIGGERED;
+        }
+
+        final Double thresholdValue = (filter.getThresholdValue() == null) ? null
+                : HelperAttributes.attribute2double(filter.getThresholdValue());
+
+        if (thresholdValue == null) {
+            return new AggregationFilter(NEVER, 0);
+        }
+        if (filter.getThresholdType() == ThresholdType.DELTA) { // requirement: 3.7.3.l
+            return new AggregationFilter(DELTA, thresholdValue);
+        }
+        if (filter.getThresholdType() == ThresholdType.PERCENTAGE) { // requirement: 3.7.3.l
+            return new AggregationFilter(PERCENTAGE, thresholdValue);
+        }
+
+        return new AggregationFilter(NEVER, 0);
+    }
+
+    /**
+     * @return True if the filter needs the values of the parameter to be
+     * evaluated
+     */
+    boolean hasThreshold() {
+        return this.type == DELTA || this.type == PERCENTAGE;
+    }
+
+    /**
+     * @param value The parameter value
+     * @return The kind of the value
+     */
+    static byte kindOf(ParameterValue value) {
+        if (value == null || value.getValidityState() == null) {
+            return KIND_NONE;
+        }
+
+        final short validity = value.getValidityState().getValue();
+        final byte kind;
+
+        if (validity == 0) {
+            kind = (value.getConvertedValue() != null) ? KIND_CONVERTED : KIND_RAW_VALID;
+        } else if (validity == 2 && value.getConvertedValue() == null) {
+            kind = KIND_RAW_INVALID;
+        } else {
+            return KIND_NONE;
+        }
+
+        return (toNumber(comparedValue(value, kind)) != null) ? kind : (byte) (kind | KIND_TEXT);
+    }
+
+    /**
+     * @param value The parameter value
+     * @param kind The kind of the value
+     * @return The compared value as a number, NaN if it is not a number
+     */
+    static double numberOf(ParameterValue value, byte kind) {
+        if (kind == KIND_NONE || (kind & KIND_TEXT) != 0) {
+            return Double.NaN;
+        }
+
+        return toNumber(comparedValue(value, kind));
+    }
+
+    private static Attribute comparedValue(ParameterValue value, byte kind) {
+        return ((kind & ~KIND_TEXT) == KIND_CONVERTED) ? value.getConvertedValue() : value.getRawValue();
+    }
+
+    private static Double toNumber(Attribute attribute) {
+        return (attribute == null) ? null : HelperAttributes.attribute2double(attribute);
+    }
+
+    /**
+     * Evaluates the filter for a new sample of the parameter set, against
+     * the current value held by the buffer.
+     *
+     * @param buffer The sample buffer of the aggregation
+     * @param index The index of the parameter set
+     * @param kind The kind of the new sample
+     * @param number The new sample as a number
+     * @param samples The new samples of the parameter set
+     * @return True if the filter is triggered
+     */
+    boolean isTriggered(AggregationSampleBuffer buffer, int index, byte kind, double number,
+            AggregationParameterValueList samples) {
+        if (this.type == ALWAYS) {
+            return true;
+        }
+        if (this.type == NEVER || kind == KIND_NONE || kind != buffer.getReferenceKind(index)) {
+            return false;
+        }
+        if ((kind & KIND_TEXT) != 0) {
+            // Not measurable against a threshold, any change triggers the filter
+            final AggregationParameterValueList current = buffer.getCurrent(index);
+            final ParameterValue previous = current.get(0).getValue();
+            final ParameterValue next = samples.get(0).getValue();
+            return !Objects.equals(comparedValue(previous, kind), comparedValue(next, kind));
+        }
+
+        return this.isTriggered(buffer.getReferenceValue(index), number);
+    }
+
+    /**
+     * @param previous The previous value
+     * @param current The current value
+     * @return True if the change between the values exceeds the threshold
+     */
+    boolean isTriggered(double previous, double current) {
+        if (this.type == DELTA) { // requirement: 3.7.3.l
+            return Math.abs(previous - current) > this.threshold;
+        }
+        if (this.type == PERCENTAGE) { // requirement: 3.7.3.l
+            return Math.abs(previous - current) / previous * 100 > this.threshold;
+        }
+
+        return this.type == ALWAYS;
+    }
+
+}
@@ -25,21 +25,18 @@ import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.helpertools.helpers.HelperTime;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
-import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Duration;
 import org.ccsds.moims.mo.mal.structures.FineTime;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
 import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.Time;
-import org.ccsds.moims.mo.mal.structures.TimeList;
 import org.ccsds.moims.mo.mal.structures.UOctet;
 import org.ccsds.moims.mo.mal.structures.URI;
 import org.ccsds.moims.mo.mc.aggregation.AggregationHelper;
@@ -54,10 +51,9 @@ import org.ccsds.moims.mo.mc.aggregation.structures.AggregationSetValueList;
 import org.ccsds.moims.mo.mc.aggregation.structures.AggregationValue;
 import org.ccsds.moims.mo.mc.aggregation.structures.AggregationValueList;
 import org.ccsds.moims.mo.mc.aggregation.structures.GenerationMode;
-import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdFilter;
-import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdType;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValueList;
 import org.ccsds.moims.mo.mc.parameter.structures.ValidityState;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
 
@@ -67,11 +63,7 @@ import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
  */
 public final class AggregationManager extends MCManager {
 
-    private final HashMap<Long, Boolean> isFilterTriggered; // IdentityId, Boolean Value that determines if the filter was triggered
-    private final HashMap<Long, AggregationValue> periodicAggregationValuesLast; // IdentityId, Aggregation Value List per definition
-    private final HashMap<Long, AggregationValue> periodicAggregationValuesCurrent; // IdentityId, Aggregation Value List per definition
-    private final HashMap<Long, TimeList> latestSampleTimeList; // IdentityId, Time of the first sample of each ParameterSetValue
-    private final HashMap<Long, ArrayList<Integer>> sampleCountList; //IdentityId, Amount of samples per parameterSetValue
+    private final ConcurrentHashMap<Long, AggregationSampleBuffer> sampleBuffers; // IdentityId, samples and sampling state of each parameter set
 
     private long uniqueObjIdIdentity; // Unique objId Identity (different for every Identity)
     private Long uniqueObjIdDef; // Unique objId Definition (different for every Definition)
@@ -82,11 +74,7 @@ public final class AggregationManager extends MCManager {
         super(comServices);
         this.parameterManager = parameterManager;
 
-        this.isFilterTriggered = new HashMap<>();
-        this.periodicAggregationValuesLast = new HashMap<>();
-        this.periodicAggregationValuesCurrent = new HashMap<>();
-        this.latestSampleTimeList = new HashMap<>();
-        this.sampleCountList = new HashMap<>();
+        this.sampleBuffers = new ConcurrentHashMap<>();
 
         if (super.getArchiveService() == null) {  // No Archive?
             this.uniqueObjIdIdentity = 0L; // The zeroth value will not be used (reserved for the wildcard)
@@ -108,45 +96,27 @@ public final class AggregationManager extends MCManager {
      */
     protected void createAggregationValuesList(LongList identityIdList) {
         for (Long identityId : identityIdList) {
-            periodicAggregationValuesLast.put(identityId, new AggregationValue());
-            periodicAggregationValuesCurrent.put(identityId, new AggregationValue());
-            isFilterTriggered.put(identityId, false);
-            //initialize timList with the amount of parameterSets
-            //final int parameterSetsCount = getAggregationDefinition(identityId).getParameterSets().size();
-            latestSampleTimeList.put(identityId, new TimeList());
-            sampleCountList.put(identityId, new ArrayList<>());
-
             this.populateAggregationValues(identityId);
         }
     }
 
     /**
-     * resets periodicAggregationValuesLast, periodicAggregationValuesCurrent,
-     * sampleCounter, latestSampleTimeList and the filterTriggered-variables.
+     * resets the last and current values, the sample counters, the latest
+     * sample times and the filterTriggered-variable of the aggregation.
      * this method will be called after an aggregation-definition was updated.
      *
      * @param identityId The identity Id.
      */
     public void populateAggregationValues(final Long identityId) {
-        AggregationSetValueList aggregationSetValueListLast = new AggregationSetValueList();
-        AggregationSetValueList aggregationSetValueListCurrent = new AggregationSetValueList();
         AggregationDefinitionDetails definition = this.getAggregationDefinition(identityId);
         final int paramSetSize = definition.getParameterSets().size();
-        //reset the latest sample-time and the sample-counter
-        if (paramSetSize != 0) {
-            latestSampleTimeList.get(identityId).clear();
-            sampleCountList.get(identityId).clear();
-        }
         //init the latest sample-time and the sample-counter, filtertriggered and latest and current aggregation-values
-        for (int j = 0; j < paramSetSize; j++) {
-            latestSampleTimeList.get(identityId).add(j, null);
-            aggregationSetValueListLast.add(j, new AggregationSetValue());
-            aggregationSetValueListCurrent.add(j, new AggregationSetValue());
-            sampleCountList.get(identityId).add(j, 0);
+        final AggregationSampleBuffer buffer = sampleBuffers.get(identityId);
+        if (buffer == null) {
+            sampleBuffers.put(identityId, new AggregationSampleBuffer(paramSetSize));
+        } else {
+            buffer.reset(paramSetSize);
         }
-        periodicAggregationValuesLast.get(identityId).setParameterSetValues(aggregationSetValueListLast);
-        periodicAggregationValuesCurrent.get(identityId).setParameterSetValues(aggregationSetValueListCurrent);
-        this.setFilterTriggered(identityId, false);  // Reset the filter state
     }
 
     /**
@@ -158,22 +128,12 @@ public final class AggregationManager extends MCManager {
      * @return true if it was successful, false if identity not found
      */
     public Boolean resetAggregationSampleHelperVariables(Long identityId) {
-        if (!this.existsIdentity(identityId)) {
+        final AggregationSampleBuffer buffer = sampleBuffers.get(identityId);
+        if (!this.existsIdentity(identityId) || buffer == null) {
             return false;
         }
-        AggregationDefinitionDetails definition = this.getAggregationDefinition(identityId);
-        final int paramSetSize = definition.getParameterSets().size();
-        //reset the latest sample-time and the sample-counter
-        if (paramSetSize != 0) {
-            latestSampleTimeList.get(identityId).clear();
-            sampleCountList.get(identityId).clear();
-        }
-        //init the latest sample-time and the sample-counter
-        for (int j = 0; j < paramSetSize; j++) {
-            latestSampleTimeList.get(identityId).add(j, null);
-            sampleCountList.get(identityId).add(j, 0);
-        }
-        this.setFilterTriggered(identityId, false);  // Reset the filter state
+        //reset the latest sample-time, the sample-counter and the filter state
+        buffer.resetSampleCounters();
         return true;
     }
 
@@ -184,11 +144,7 @@ public final class AggregationManager extends MCManager {
      * @param identityId The identity Id.
      */
     public void removeAggregationValues(Long identityId) {
-        periodicAggregationValuesLast.remove(identityId);
-        periodicAggregationValuesCurrent.remove(identityId);
-        latestSampleTimeList.remove(identityId);
-        isFilterTriggered.remove(identityId);
-        sampleCountList.remove(identityId);
+        sampleBuffers.remove(identityId);
     }
 
     public Long storeAndGenerateAValobjId(AggregationValue aVal, Long related, ObjectId source, URI uri, FineTime timestamp) {
@@ -226,6 +182,14 @@ public final class AggregationManager extends MCManager {
 
     }
 
+    /**
+     * @param paramIdentityId the identity id of a parameter
+     * @return the id of the active definition of the parameter
+     */
+    Long getParameterDefinitionId(Long paramIdentityId) {
+        return parameterManager.getDefinitionId(paramIdentityId);
+    }
+
     /**
      *
      * @param paramIdentityId the identity id of the parameter to be sampled
@@ -235,7 +199,7 @@ public final class AggregationManager extends MCManager {
      * will be expired.
      * @return ParameterValue of the parameter, or an empty ParameterValue with INVALID state if parameter cannot be retrieved
      */
-    private ParameterValue sampleParameter(Long paramIdentityId, boolean aggrExpired) {
+    ParameterValue sampleParameter(Long paramIdentityId, boolean aggrExpired) {
         try {
             return parameterManager.getParameterValue(paramIdentityId, aggrExpired);
         } catch (MALInteractionException ex) {
@@ -243,6 +207,29 @@ public final class AggregationManager extends MCManager {
         }
     }
 
+    /**
+     * Samples several parameters, acquiring their values from the application
+     * in one call.
+     *
+     * @param paramIdentityIds the identity ids of the parameters to be sampled
+     * @param aggrExpired should be set to true, if the aggregation that is
+     * sampling the parameters, is periodic and the update hasnt been received in
+     * the aggregation-period. if true, the validity-state of the new parameters
+     * will be expired.
+     * @return ParameterValues of the parameters, in the same order as the ids.
+     * An empty ParameterValue with INVALID state if a parameter cannot be retrieved
+     */
+    ParameterValueList sampleParameterValues(LongList paramIdentityIds, boolean aggrExpired) {
+        final ParameterValueList paramValues = parameterManager.getParameterValues(paramIdentityIds, aggrExpired);
+        for (int i = 0; i < paramValues.size(); i++) {
+            if (paramValues.get(i) == null) {
+                paramValues.set(i, new ParameterValue(new UOctet((short)ValidityState.INVALID_RAW_NUM_VALUE.getValue()), null, null));
+            }
+        }
+
+        return paramValues;
+    }
+
     /**
      * This method is created for the field:
      * AggregationDefinitionDetails.sendDefinitions. If
@@ -258,37 +245,16 @@ public final class AggregationManager extends MCManager {
      * @return
      */
     private AggregationParameterValueList sampleParameters(LongList paramIdentityIds, boolean aggrExpired, boolean sendDefinitions) {
+        final ParameterValueList paramValues = sampleParameterValues(paramIdentityIds, aggrExpired);
         AggregationParameterValueList aggrPValList = new AggregationParameterValueList();
-        for (Long identityId : paramIdentityIds) {
-            final Long paramDefId = sendDefinitions ? parameterManager.getDefinitionId(identityId) : null;
-            final ParameterValue paramValue = sampleParameter(identityId, aggrExpired);
-            aggrPValList.add(new AggregationParameterValue(paramValue, paramDefId));
+        for (int i = 0; i < paramIdentityIds.size(); i++) {
+            final Long paramDefId = sendDefinitions ? parameterManager.getDefinitionId(paramIdentityIds.get(i)) : null;
+            aggrPValList.add(new AggregationParameterValue(paramValues.get(i), paramDefId));
         }
 
         return aggrPValList;
     }
 
-    private Boolean triggeredFilter(Attribute previousValue, Attribute currentValue, ThresholdFilter filter) {
-        if (filter == null) {
-            return false;  // If there's no filter, then it will never be ignored! 
-        }
-        final Double previousValueDouble = Double.parseDouble(previousValue.toString());
-        final Double currentValueDouble = Double.parseDouble(currentValue.toString());
-        final double thresholdValue = Double.parseDouble(filter.getThresholdValue().toString());
-
-        if (filter.getThresholdType() == ThresholdType.DELTA) // requirement: 3.7.3.l
-        {
-            return (Math.abs(previousValueDouble - currentValueDouble) > thresholdValue);
-        }
-
-        if (filter.getThresholdType() == ThresholdType.PERCENTAGE) // requirement: 3.7.3.l
-        {
-            return (Math.abs(previousValueDouble - currentValueDouble) / previousValueDouble * 100 > thresholdValue);
-        }
-
-        return false;
-    }
-
     /**
      * creates a new ParmeterSample and saves it to the internal list. No filter
      * will be checked.
@@ -332,7 +298,7 @@ public final class AggregationManager extends MCManager {
                     aggrDef.getParameterSets().get(indexOfparameterSet), newAggrParameterValueSamples);
         }
         //increment the number of samples for this ParameterSet
-        this.sampleCountList.get(identityId).set(indexOfparameterSet, this.sampleCountList.get(identityId).get(indexOfparameterSet) + 1);
+        sampleBuffers.get(identityId).countSample(indexOfparameterSet);
         this.setParameterSamplesInternally(identityId, indexOfparameterSet, newAggrParameterValueSamples);
     }
 
@@ -365,41 +331,76 @@ public final class AggregationManager extends MCManager {
     public void sampleAndFilterParam(Long identityId, int indexOfparameterSet, boolean aggrExpired, AggregationParameterValueList newParameterValueSamples) {
         final AggregationDefinitionDetails aggrDef = this.getAggregationDefinition(identityId);
         final AggregationParameterSet aggrParamSet = aggrDef.getParameterSets().get(indexOfparameterSet);
-        // Add another sample on the AggregationValue that will be returned later:
-        final AggregationParameterValueList currentUpdateValues = this.getCurrentUpdateValue(identityId, indexOfparameterSet);
         if (newParameterValueSamples == null) {
             //not using the aggrExpired value here but the "false" value, is because the actual 
             //check for expired value will be done a bit furhter down this code. Ther ParameterService 
             //should still hold the "interface" to manually check for the expired value
             newParameterValueSamples = this.sampleParameters(aggrParamSet.getParameters(), false, aggrDef.getSendDefinitions());
         }
-        //increment the number of samples for this ParameterSet
-        this.sampleCountList.get(identityId).set(indexOfparameterSet, this.sampleCountList.get(identityId).get(indexOfparameterSet) + 1);
 
 //        //check for expired values if the aggregation-period was expired
         if (aggrExpired) {
             newParameterValueSamples = checkForExpiredValues(identityId, indexOfparameterSet, aggrParamSet, newParameterValueSamples);
         }
+        final AggregationSampleBuffer buffer = sampleBuffers.get(identityId);
+        boolean filterIsTriggered = false;
+        if (aggrDef.getFilterEnabled() && buffer.getCurrent(indexOfparameterSet) != null) {
+            final ParameterValue sample = (newParameterValueSamples.size() == 1 && newParameterValueSamples.get(0) != null)
+                    ? newParameterValueSamples.get(0).getValue() : null;
+            final byte kind = AggregationFilter.kindOf(sample);
+            filterIsTriggered = AggregationFilter.compile(aggrParamSet).isTriggered(buffer, indexOfparameterSet,
+                    kind, AggregationFilter.numberOf(sample, kind), newParameterValueSamples);
+        }
+        this.filterSample(identityId, aggrDef, indexOfparameterSet, newParameterValueSamples, filterIsTriggered);
+    }
+
+    /**
+     * saves the newParameterValueSamples in the internal list if the filter
+     * was triggered or if no filter is enabled. This method doesnt publish the
+     * new values.
+     *
+     * @param identityId The identity Id.
+     * @param aggrDef the definition of the aggregation
+     * @param indexOfparameterSet the index in the aggregation to set the
+     * newParameterValueSamples at
+     * @param newParameterValueSamples the newParameterValueSamples to be set
+     * @param filterIsTriggered the result of the filter of the parameterSet
+     * for the newParameterValueSamples
+     */
+    void filterSample(Long identityId, AggregationDefinitionDetails aggrDef, int indexOfparameterSet,
+            AggregationParameterValueList newParameterValueSamples, boolean filterIsTriggered) {
+        final AggregationSampleBuffer buffer = sampleBuffers.get(identityId);
+        //increment the number of samples for this ParameterSet
+        buffer.countSample(indexOfparameterSet);
+
         //no samples saved yet
-        if (currentUpdateValues == null) {
+        if (buffer.getCurrent(indexOfparameterSet) == null) {
             //first sample, set internally and trigger filter
             this.setParameterSamplesInternally(identityId, indexOfparameterSet, newParameterValueSamples);
-            this.setFilterTriggered(identityId, true);
+            buffer.setFilterTriggered(true);
             return;
         }
         //requirement: 3.7.3.k
         if (aggrDef.getFilterEnabled()) {
-            boolean filterIsTriggered = this.checkFilterIsTriggered(aggrParamSet, currentUpdateValues, newParameterValueSamples);
             if (filterIsTriggered) {
                 this.setParameterSamplesInternally(identityId, indexOfparameterSet, newParameterValueSamples);
-                this.setFilterTriggered(identityId, filterIsTriggered);
+                buffer.setFilterTriggered(true);
             }
         } else {
             this.setParameterSamplesInternally(identityId, indexOfparameterSet, newParameterValueSamples);
-            this.setFilterTriggered(identityId, false);
+            buffer.setFilterTriggered(false);
         }
     }
 
+    /**
+     * @param identityId The identity Id.
+     * @return the samples and sampling state of the aggregation, null if it
+     * does not exist
+     */
+    AggregationSampleBuffer getSampleBuffer(Long identityId) {
+        return sampleBuffers.get(identityId);
+    }
+
     /**
      * if the aggregation periodic expired, the parameters is periodic and the
      * value didnt change then the parameter that will be saved must be of the
@@ -413,7 +414,7 @@ public final class AggregationManager extends MCManager {
      */
     private AggregationParameterValueList checkForExpiredValues(Long identityId, int indexOfparameterSet,
             AggregationParameterSet aggrParamSet, AggregationParameterValueList newParameterValueSamples) {
-        final AggregationParameterValueList currentParamValues = this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues();
+        final AggregationParameterValueList currentParamValues = this.getCurrentUpdateValue(identityId, indexOfparameterSet);
         //requirement: 3.3.3.i (ParameterService-requirement)
         //if sendUnchanged is true: replace validity-state with an EXPIRED state
         //todo: try to let the ParameterService set the EXPIRED state and not the AggregationService
@@ -539,18 +540,17 @@ public final class AggregationManager extends MCManager {
                 && sampleInterval.getValue() != 0
                 && sampleInterval.getValue() < updateInterval.getValue()) {
             //calculate the intervals
+            final AggregationSampleBuffer buffer = sampleBuffers.get(identityId);
             Time currentTime = HelperTime.getTimestampMillis();
-//            Time AggTimeStamp = new Time(currentTime.getValue() - (long) updateInterval.getValue() * 1000);
-//            Time firstSampleTime = new Time(this.latestSampleTimeList.get(identityId).get(indexParameterSet).getValue());
             Time previousSetTimeStamp;
             if (indexParameterSet == 0) { //if its the first Set, the reference-time is the start of this aggregation-update
                 previousSetTimeStamp = new Time(currentTime.getValue() - (long) (updateInterval.getValue() * 1000));
             } else { //otherwise its the time of the last value of the previous set
-                previousSetTimeStamp = new Time(this.latestSampleTimeList.get(identityId).get(indexParameterSet - 1).getValue());
+                previousSetTimeStamp = buffer.getLatestSampleTime(indexParameterSet - 1);
             }
 
-            Time firstSampleTime = new Time(this.latestSampleTimeList.get(identityId).get(indexParameterSet).getValue()
-                    - (long) (sampleInterval.getValue() * 1000) * sampleCountList.get(identityId).get(indexParameterSet));
+            Time firstSampleTime = new Time(buffer.getLatestSampleTime(indexParameterSet).getValue()
+                    - (long) (sampleInterval.getValue() * 1000) * buffer.getSampleCount(indexParameterSet));
 
             // Delta-TIme =  firstSampleTime(Setx) - (firstSampleTime(Setx-1) + y*sampleInterval) | y = amount of updates.
             Duration deltaTime = new Duration(((float) (firstSampleTime.getValue() - previousSetTimeStamp.getValue())) / 1000);
@@ -597,7 +597,7 @@ public final class AggregationManager extends MCManager {
             Long identityId, int indexParameterSet, AggregationParameterValueList currentParamValues) { //requirement: 3.7.3.m
         AggregationParameterValueList retParamValues = new AggregationParameterValueList();
         if (currentParamValues == null) {
-            currentParamValues = this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexParameterSet).getValues();
+            currentParamValues = this.getCurrentUpdateValue(identityId, indexParameterSet);
         }
         final AggregationParameterValueList lastParamValues = getLastUpdateValue(identityId, indexParameterSet);
         if (!aggrDef.getSendUnchanged() && lastParamValues != null) {
@@ -615,61 +615,6 @@ public final class AggregationManager extends MCManager {
         return retParamValues;
     }
 
-    /**
-     * checks if the filter is triggered, comparing the previous and
-     * currentvalues.
-     *
-     * @param aggregationDefinition
-     * @param aggregationParameterSet
-     * @param previousUpdateValue
-     * @param currentParameterValue
-     * @return if the filter is triggered, because the values of the parameters
-     * have changed more than a given threshold. Also returns true, if there is
-     * no periodic filter or it contains more than one parameter.
-     */
-    private boolean checkFilterIsTriggered(final AggregationParameterSet aggregationParameterSet,
-            final AggregationParameterValueList previousUpdateValue, final AggregationParameterValueList currentParameterValue) {
-        // Filter Comparison Process
-        if (aggregationParameterSet.getReportFilter() == null
-                || aggregationParameterSet.getParameters().size() != 1) { // requirement: 3.7.3.m (and 4.7.5: periodicFilter comment) 
-            //let the update being published
-            return true;
-        }
-
-        // In theory all the list should be null with the exception of the Parameter Value we want
-        // because size = 1 and the remaining Parameter Values inside get the null state
-        // So we can crawl the list until we find the first non-null element and compare it with the previousParameterValue
-        for (int i = 0; i < currentParameterValue.size(); i++) {
-            ParameterValue current = currentParameterValue.get(i).getValue();
-            ParameterValue previous = previousUpdateValue.get(i).getValue();
-
-            if (current != null && previous != null) {
-                // Compare the values:
-                if ((current.getValidityState().getValue() == 0 && previous.getValidityState().getValue() == 0)
-                        || // Are the parameters valid?
-                        (current.getValidityState().getValue() == 2 && previous.getValidityState().getValue() == 2)) { // 2 stands for the INVALID_RAW state
-
-                    boolean filterisTriggered = false;
-                    if (current.getValidityState().getValue() == 0 && previous.getValidityState().getValue() == 0
-                            && current.getConvertedValue() != null && previous.getConvertedValue() != null) // requirement: 3.7.2.6
-                    {
-                        filterisTriggered = this.triggeredFilter(previous.getConvertedValue(), current.getConvertedValue(), aggregationParameterSet.getReportFilter());
-                    }
-
-                    if (current.getConvertedValue() == null && previous.getConvertedValue() == null) // requirement: 3.7.2.6
-                    {
-                        filterisTriggered = this.triggeredFilter(previous.getRawValue(), current.getRawValue(), aggregationParameterSet.getReportFilter());
-                    }
-
-                    return filterisTriggered;
-                }
-
-                break;
-            }
-        }
-        return false;
-    }
-
     /**
      * sets the value if the filter was triggered or not.
      *
@@ -678,14 +623,13 @@ public final class AggregationManager extends MCManager {
      * @return if a filter existed before
      */
     public Boolean setFilterTriggered(Long identityId, Boolean bool) {
-//        this.isFilterTriggered.replace(objId, bool);
-        boolean existed = (this.isFilterTriggered.remove(identityId) != null);
+        final AggregationSampleBuffer buffer = this.sampleBuffers.get(identityId);
 
-        if (existed) {
-            this.isFilterTriggered.put(identityId, bool);
+        if (buffer != null) {
+            buffer.setFilterTriggered(bool);
         }
 
-        return existed;
+        return (buffer != null);
     }
 
     /**
@@ -695,7 +639,8 @@ public final class AggregationManager extends MCManager {
      * @return
      */
     public Boolean isFilterTriggered(Long identityId) {
-        return this.isFilterTriggered.get(identityId);
+        final AggregationSampleBuffer buffer = this.sampleBuffers.get(identityId);
+        return (buffer != null) ? buffer.isFilterTriggered() : null;
     }
 
     /**
@@ -707,18 +652,8 @@ public final class AggregationManager extends MCManager {
      * @return
      */
     private AggregationParameterValueList getLastUpdateValue(Long identityId, int indexOfparameterSet) {
-        if (this.periodicAggregationValuesLast.get(identityId).getParameterSetValues() == null) // It was never sampled before?
-        {
-            return null;
-        }
-
-        if (this.periodicAggregationValuesLast.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues() == null) // It was never sampled before?
-        {
-            return null;
-        }
-
-        return this.periodicAggregationValuesLast.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues();
-
+        // Null if it was never sampled before
+        return this.sampleBuffers.get(identityId).getLast(indexOfparameterSet);
     }
 
     /**
@@ -729,18 +664,8 @@ public final class AggregationManager extends MCManager {
      * @return
      */
     private AggregationParameterValueList getCurrentUpdateValue(Long identityId, int indexOfparameterSet) {
-        if (this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues() == null) // It was never sampled before?
-        {
-            return null;
-        }
-
-        if (this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues() == null) // It was never sampled before?
-        {
-            return null;
-        }
-
-        return this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues();
-
+        // Null if it was never sampled before
+        return this.sampleBuffers.get(identityId).getCurrent(indexOfparameterSet);
     }
 
     /**
@@ -755,15 +680,9 @@ public final class AggregationManager extends MCManager {
      * @return
      */
     private AggregationParameterValueList setParameterSamplesInternally(Long identityId, int indexOfparameterSet, AggregationParameterValueList newParamSample) {
-
-        final AggregationParameterValueList currentParamValues = this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexOfparameterSet).getValues();
-        this.periodicAggregationValuesLast.get(identityId).getParameterSetValues().get(indexOfparameterSet).setValues(currentParamValues);
-
-        //set the new ones to the current ones
-        this.periodicAggregationValuesCurrent.get(identityId).getParameterSetValues().get(indexOfparameterSet).setValues(newParamSample);
-        //sets the timestamp of the latest value of the set. needed for the calculation of the delta-time
-        this.latestSampleTimeList.get(identityId).set(indexOfparameterSet, HelperTime.getTimestampMillis());
-
+        //the current ones become the last ones, and the timestamp of the latest value of the set
+        //is kept for the calculation of the delta-time
+        this.sampleBuffers.get(identityId).store(indexOfparameterSet, newParamSample, System.currentTimeMillis());
         return newParamSample;
     }
 
@@ -875,9 +794,7 @@ public final class AggregationManager extends MCManager {
             return false;
         }
 
-        periodicAggregationValuesLast.remove(identityId);
-        periodicAggregationValuesCurrent.remove(identityId);
-        latestSampleTimeList.remove(identityId);
+        sampleBuffers.remove(identityId);
 
         return true;
     }
@@ -21,7 +21,6 @@
 package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.util.COMServicesProvider;
-import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
@@ -81,6 +80,8 @@ import org.ccsds.moims.mo.mc.aggregation.AggregationHelper;
 import org.ccsds.moims.mo.mc.aggregation.provider.AggregationInheritanceSkeleton;
 import org.ccsds.moims.mo.mc.aggregation.provider.MonitorValuePublisher;
 import org.ccsds.moims.mo.mc.aggregation.structures.*;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValueList;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePairList;
 
@@ -929,11 +930,18 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
         }
     }
 
+    /**
+     * this manager publishes the periodic updates of the aggregations and the
+     * updates of the filtered aggregations whose filter-timeout expired. The
+     * updateInterval and filterTimeout deadlines of all the aggregations are
+     * tasks of one scheduler.
+     */
     private class PeriodicReportingManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> updateTimerList; // updateInterval Timers list
-        private HashMap<Long, TaskScheduler> filterTimeoutTimerList; // filterTimeout Timers list
-        private boolean active = false; // Flag that determines if the Manager is on or off
+        private final TaskScheduler timer = new TaskScheduler(2); // Shared by the update and the filter-timeout tasks
+        private final HashMap<Long, Integer> updateTimerList; // identityId -> updateInterval task
+        private final HashMap<Long, Integer> filterTimeoutTimerList; // identityId -> filterTimeout task
+        private volatile boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicReportingManager() {
             updateTimerList = new HashMap<>();
@@ -957,7 +965,7 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
             this.start(); // set active flag to true
         }
 
-        public void refresh(Long identityId) {
+        public synchronized void refresh(Long identityId) {
             // get Aggregation Definition
             AggregationDefinitionDetails aDef = manager.getAggregationDefinition(identityId);
 
@@ -1004,8 +1012,6 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
         private void addPeriodicReporting(Long identityId) {
             //requirement: 3.7.9.2.12
             publishImmediatePeriodicUpdate(identityId);
-            TaskScheduler timer = new TaskScheduler(1);
-            updateTimerList.put(identityId, timer);
 
             final AggregationDefinitionDetails aggrDef = manager.getAggregationDefinition(identityId);
             this.startUpdatesTimer(identityId, aggrDef.getReportInterval());  // requirement 3.7.3.c
@@ -1021,8 +1027,6 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
             final AggregationDefinitionDetails aggrDef = manager.getAggregationDefinition(identityId);
             // Is the filter enabled? If so, do we have a filter Timeout set?
 //            if (aggrDef.getFilterEnabled() && aggrDef.getFilteredTimeout().getValue() != 0) { // requirement 3.7.2.12
-            TaskScheduler timer2 = new TaskScheduler(1);
-            filterTimeoutTimerList.put(identityId, timer2);
             this.startFilterTimeoutTimer(identityId, aggrDef.getFilteredTimeout());
 //            } else {
 //                filterTimeoutTimerList.put(identityId, null);
@@ -1031,79 +1035,98 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
         }
 
         private void removePeriodicReporting(Long objId) {
-            this.stopUpdatesTimer(objId);
-            updateTimerList.remove(objId);
+            synchronized (timer) {
+                this.stopUpdatesTimer(objId);
+                updateTimerList.remove(objId);
+            }
         }
 
         private void removeFilteredTimeoutReporting(Long identityId) {
-            this.stopFilterTimeoutTimer(identityId);
-            filterTimeoutTimerList.remove(identityId);
+            synchronized (timer) {
+                this.stopFilterTimeoutTimer(identityId);
+                filterTimeoutTimerList.remove(identityId);
+            }
         }
 
         private void startUpdatesTimer(final Long identityId, final Duration interval) {
-            // the time is being converted to milliseconds by multiplying by 1000
-            updateTimerList.get(identityId).scheduleTask(new Thread(() -> {  // requirement: 3.7.3.c
-                if (active) {
-                    AggregationDefinitionDetails def = manager.getAggregationDefinition(identityId);
-                    checkSampleIntervalAndSampleParam(identityId, true);
-
-                    // To prevent race conditions with the other timer
-                    synchronized (lock) {
-                        if (!def.getFilterEnabled()) { // The Filter is not enabled? // requirement: 3.7.2.a.a,
-                            publishPeriodicAggregationUpdate(identityId,
-                                    manager.getAggregationValue(identityId, GenerationMode.PERIODIC)); //requirement: 3.7.3.h
-                            manager.resetAggregationSampleHelperVariables(identityId);
-                        } else {  // requirement: 3.7.2.a.c,
-                            if (manager.isFilterTriggered(identityId)) { // The Filter is on and triggered? requirement: 3.7.2.6
+            synchronized (timer) {
+                // the time is being converted to milliseconds by multiplying by 1000
+                updateTimerList.put(identityId, timer.scheduleTask(new Thread(() -> {  // requirement: 3.7.3.c
+                    if (active) {
+                        AggregationDefinitionDetails def = manager.getAggregationDefinition(identityId);
+                        checkSampleIntervalAndSampleParam(identityId, true);
+
+                        // To prevent race conditions with the other timer
+                        synchronized (lock) {
+                            if (!def.getFilterEnabled()) { // The Filter is not enabled? // requirement: 3.7.2.a.a,
                                 publishPeriodicAggregationUpdate(identityId,
                                         manager.getAggregationValue(identityId, GenerationMode.PERIODIC)); //requirement: 3.7.3.h
                                 manager.resetAggregationSampleHelperVariables(identityId);
-                                resetFilterTimeoutTimer(identityId);        // Reset the timer
+                            } else {  // requirement: 3.7.2.a.c,
+                                if (manager.isFilterTriggered(identityId)) { // The Filter is on and triggered? requirement: 3.7.2.6
+                                    publishPeriodicAggregationUpdate(identityId,
+                                            manager.getAggregationValue(identityId, GenerationMode.PERIODIC)); //requirement: 3.7.3.h
+                                    manager.resetAggregationSampleHelperVariables(identityId);
+                                    resetFilterTimeoutTimer(identityId);        // Reset the timer
+                                }
                             }
                         }
                     }
-                }
-            }), (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000),
-            TimeUnit.MILLISECONDS, true); // requirement: 3.7.3.g
+                }), (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000),
+                TimeUnit.MILLISECONDS, true)); // requirement: 3.7.3.g
+            }
         }
 
         private void stopUpdatesTimer(final Long objId) {
-            updateTimerList.get(objId).stopLast();
+            synchronized (timer) {
+                final Integer taskId = updateTimerList.get(objId);
+                if (taskId != null) {
+                    timer.stopTask(taskId);
+                }
+            }
         }
 
         private void resetFilterTimeoutTimer(Long objId) {
-            if (!updateTimerList.containsKey(objId)) {
-                return;  // Get out if it didn't find the objId
-            }
-            if (filterTimeoutTimerList.get(objId) == null) {
-                return;  // Get out if the timer was not set
+            // Not synchronized on the manager: it is called by the update task while holding the service lock
+            synchronized (timer) {
+                if (!updateTimerList.containsKey(objId)) {
+                    return;  // Get out if it didn't find the objId
+                }
+                if (filterTimeoutTimerList.get(objId) == null) {
+                    return;  // Get out if the timer was not set
+                }
+                this.stopFilterTimeoutTimer(objId);
+                this.startFilterTimeoutTimer(objId, manager.getAggregationDefinition(objId).getFilteredTimeout());
             }
-            this.stopFilterTimeoutTimer(objId);
-            // Should be unnecessary since the TaskScheduler does not need to be re-initialized to start the timer again.
-            //TaskScheduler timer2 = new TaskScheduler(1);
-            //filterTimeoutTimerList.put(objId, timer2);
-            this.startFilterTimeoutTimer(objId, manager.getAggregationDefinition(objId).getFilteredTimeout());
         }
 
         private void startFilterTimeoutTimer(final Long identityId, final Duration interval) {
-            // the time is being converted to milliseconds by multiplying by 1000
-            filterTimeoutTimerList.get(identityId).scheduleTask(new Thread(() -> {  // requirement: 3.7.2.a.c, 3.7.3.n
-                if (active) {
-                    manager.setFilterTriggered(identityId, true);
-                    //get the new samples and update the aggregation in the internal list
-                    for (int index = 0; index < manager.getAggregationDefinition(identityId).getParameterSets().size(); index++) {
-                        manager.sampleParam(identityId, index);
+            synchronized (timer) {
+                // the time is being converted to milliseconds by multiplying by 1000
+                filterTimeoutTimerList.put(identityId, timer.scheduleTask(new Thread(() -> {  // requirement: 3.7.2.a.c, 3.7.3.n
+                    if (active) {
+                        // To prevent race conditions with the other timers
+                        synchronized (lock) {
+                            manager.setFilterTriggered(identityId, true);
+                            //get the new samples and update the aggregation in the internal list
+                            for (int index = 0; index < manager.getAggregationDefinition(identityId).getParameterSets().size(); index++) {
+                                manager.sampleParam(identityId, index);
+                            }
+                            //publish the values in the internal list
+                            publishPeriodicAggregationUpdate(identityId, manager.getAggregationValue(identityId, GenerationMode.FILTERED_TIMEOUT));
+                            manager.resetAggregationSampleHelperVariables(identityId);
+                        }
                     }
-                    //publish the values in the internal list
-                    publishPeriodicAggregationUpdate(identityId, manager.getAggregationValue(identityId, GenerationMode.FILTERED_TIMEOUT));
-                    manager.resetAggregationSampleHelperVariables(identityId);
-                }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true);
+                }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true));
+            }
         }
 
         private void stopFilterTimeoutTimer(final Long objId) {
-            if (filterTimeoutTimerList.get(objId) != null) { // Does it exist?
-                filterTimeoutTimerList.get(objId).stopLast();
+            synchronized (timer) {
+                final Integer taskId = filterTimeoutTimerList.get(objId);
+                if (taskId != null) { // Does it exist?
+                    timer.stopTask(taskId);
+                }
             }
         }
 
@@ -1119,20 +1142,19 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
      * update-value when the updateInterval or filter-timeout-interval is
      * expired.
      *
-     * Hasnt been tested yet!
+     * The parameter sets with the same sampleInterval are sampled together by
+     * one SamplingGroup: a parameter used by several of them is sampled only
+     * once per tick, and its value is handed to each parameter set.
      *
      */
     private class PeriodicSamplingManager { // requirement: 3.7.2.1a
 
-        private List<TaskScheduler> sampleTimerList; // Timer List. One timer for each parameterSet of each aggregation that needs to be sampled
-        private LongList aggregationObjIdList; // ids of the aggregations whiches parameterSet started the timer above. first index here belongs to the first timer abode. 
-        private List<Integer> parameterSetIndexList; // index of the parameter set in the aggregation above, that belongs to the timer. first index here belngs to the first  aggregation id above and belongs to the first timer above.
-        private boolean active = false; // Flag that determines if the Manager is on or off
+        private final TaskScheduler timer = new TaskScheduler(1); // Shared by all the groups
+        private final HashMap<Long, List<SamplingGroup>> groupsOfAggregation = new HashMap<>(); // identityId -> groups sampling its parameterSets
+        private final HashMap<Long, SamplingGroup> groups = new HashMap<>(); // sampleInterval in ms -> group
+        private volatile boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicSamplingManager() {
-            sampleTimerList = new ArrayList<>();
-            aggregationObjIdList = new LongList();
-            parameterSetIndexList = new ArrayList<>();
         }
 
         public void refreshAll() {
@@ -1152,10 +1174,8 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
             this.start(); // set active flag to true
         }
 
-        public void refresh(Long identityId) {
-            final int index = aggregationObjIdList.indexOf(identityId);
-
-            if (index != -1) { // Does it exist in the PeriodicSamplingManager?
+        public synchronized void refresh(Long identityId) {
+            if (groupsOfAggregation.containsKey(identityId)) { // Does it exist in the PeriodicSamplingManager?
                 this.removePeriodicSampling(identityId);
             }
 
@@ -1183,10 +1203,11 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                 return; // Periodic Sampling shall not occur if the generation is not enabled at the definition level
             }
             final int parameterSetsTotal = aggrDef.getParameterSets().size();
-            int index = sampleTimerList.size();
+            final List<SamplingGroup> joined = new ArrayList<>();
 
             for (int indexOfParameterSet = 0; indexOfParameterSet < parameterSetsTotal; indexOfParameterSet++) {
-                Duration sampleInterval = aggrDef.getParameterSets().get(indexOfParameterSet).getSampleInterval();
+                final AggregationParameterSet parameterSet = aggrDef.getParameterSets().get(indexOfParameterSet);
+                Duration sampleInterval = parameterSet.getSampleInterval();
 
                 //means ad hoc value, dont add to sample timer
                 if (sampleInterval.getValue() > aggrDef.getReportInterval().getValue()) {
@@ -1194,44 +1215,210 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                 }
                 // Add to the Periodic Sampling Manager only if there's a sampleInterval selected for the parameterSet
                 if (sampleInterval.getValue() != 0) {
-                    aggregationObjIdList.add(index, identityId);
-                    parameterSetIndexList.add(index, indexOfParameterSet);
-                    TaskScheduler timer = new TaskScheduler(1);  // Take care of adding a new timer
-                    sampleTimerList.add(index, timer);
-                    startTimer(index, sampleInterval);
-                    index++;
+                    // the time has to be converted to milliseconds by multiplying by 1000
+                    final long intervalMs = Math.round(sampleInterval.getValue() * 1000);
+                    SamplingGroup group = groups.get(intervalMs);
+
+                    if (group == null) { // First parameterSet with this interval, the first tick samples it right away
+                        group = new SamplingGroup();
+                        groups.put(intervalMs, group);
+                        group.add(identityId, indexOfParameterSet, parameterSet, aggrDef.getSendDefinitions());
+                        group.taskId = timer.scheduleTask(new Thread(group::tick), 0, intervalMs,
+                                TimeUnit.MILLISECONDS, true); // requirement: 3.7.2.11
+                    } else {
+                        group.add(identityId, indexOfParameterSet, parameterSet, aggrDef.getSendDefinitions());
+                        // Take the first sample of the added parameterSet right away, as for a new group
+                        synchronized (lock) {
+                            manager.sampleAndFilterParam(identityId, indexOfParameterSet);
+                        }
+                    }
+
+                    if (!joined.contains(group)) {
+                        joined.add(group);
+                    }
                 }
             }
+
+            groupsOfAggregation.put(identityId, joined);
         }
 
-        private void removePeriodicSampling(Long objId) {
-            for (int index = aggregationObjIdList.indexOf(objId); index != -1; index = aggregationObjIdList.indexOf(objId)) {
-                this.stopTimer(index);
-                aggregationObjIdList.remove(index);
-                sampleTimerList.remove(index);
-                parameterSetIndexList.remove(index);
+        private void removePeriodicSampling(Long identityId) {
+            final List<SamplingGroup> joined = groupsOfAggregation.remove(identityId);
+
+            for (SamplingGroup group : joined) {
+                if (group.remove(identityId)) { // Was it the last one of the group?
+                    timer.stopTask(group.taskId);
+                    groups.values().remove(group);
+                }
             }
         }
 
-        private void startTimer(final int index, Duration interval) {  // requirement: 3.7.2.11
-            final Long identityId = aggregationObjIdList.get(index);
-            final int indexOfparameterSet = parameterSetIndexList.get(index);
+    }
+
+    /**
+     * The parameterSets sharing the same sampleInterval.
+     */
+    private class SamplingGroup {
+
+        private final LongList aggregationIds = new LongList(); // identityId of each member
+        private final List<Integer> parameterSetIndexes = new ArrayList<>(); // index of the parameterSet of each member
+        private final List<LongList> parameterSetParameters = new ArrayList<>(); // parameters of each member
+        private final List<Boolean> sendDefinitions = new ArrayList<>(); // sendDefinitions of each member
+        private final List<AggregationFilter> filters = new ArrayList<>(); // report filter of each member
+        private int taskId;
+
+        // Sampling tables, rebuilt when the members change
+        private boolean dirty = true;
+        private LongList parameters; // Distinct parameters of the group, one slot each
+        private ParameterValue[] samples; // Latest sample of each slot
+        private Long[] definitionIds; // Definition of each slot, only if requested by a member
+        private boolean needsDefinitionIds;
+        private byte[] kinds; // Filter kind of the latest sample of each slot
+        private double[] numbers; // Latest sample of each slot as a number
+        private boolean needsFilterValues;
+        private Long[] members;
+        private int[] memberSets;
+        private boolean[] memberSendDefinitions;
+        private int[][] memberSlots; // Slot of each parameter of each member
+        private AggregationFilter[] memberFilters;
+        private AggregationParameterValueList[] memberValues; // New samples of each member
+        private boolean[] triggered; // Filter result of each member
+
+        private synchronized void add(Long identityId, int indexOfParameterSet, AggregationParameterSet parameterSet, boolean sendDefs) {
+            aggregationIds.add(identityId);
+            parameterSetIndexes.add(indexOfParameterSet);
+            parameterSetParameters.add(parameterSet.getParameters());
+            sendDefinitions.add(sendDefs);
+            filters.add(AggregationFilter.compile(parameterSet));
+            dirty = true;
+        }
 
-            sampleTimerList.get(index).scheduleTask(new Thread(() -> {
-                if (active) {
-                    // To prevent race conditions with the other timer
-                    synchronized (lock) {
-                        //create the new paraemtersamples and set them if filter triggered or not enabled
-                        manager.sampleAndFilterParam(identityId, indexOfparameterSet);
+        /**
+         * @return True if the group is empty after the removal
+         */
+        private synchronized boolean remove(Long identityId) {
+            for (int i = aggregationIds.indexOf(identityId); i != -1; i = aggregationIds.indexOf(identityId)) {
+                aggregationIds.remove(i);
+                parameterSetIndexes.remove(i);
+                parameterSetParameters.remove(i);
+                sendDefinitions.remove(i);
+                filters.remove(i);
+            }
+            dirty = true;
+            return aggregationIds.isEmpty();
+        }
+
+        private void rebuild() {
+            final int n = aggregationIds.size();
+            final HashMap<Long, Integer> slotOfParameter = new HashMap<>();
+            final LongList distinct = new LongList();
+            members = aggregationIds.toArray(new Long[n]);
+            memberSets = new int[n];
+            memberSendDefinitions = new boolean[n];
+            memberSlots = new int[n][];
+            memberFilters = filters.toArray(new AggregationFilter[n]);
+            memberValues = new AggregationParameterValueList[n];
+            triggered = new boolean[n];
+            needsDefinitionIds = false;
+            needsFilterValues = false;
+
+            for (int i = 0; i < n; i++) {
+                final LongList params = parameterSetParameters.get(i);
+                memberSets[i] = parameterSetIndexes.get(i);
+                memberSendDefinitions[i] = sendDefinitions.get(i);
+                memberSlots[i] = new int[params.size()];
+                needsDefinitionIds |= memberSendDefinitions[i];
+                needsFilterValues |= memberFilters[i].hasThreshold();
+
+                for (int k = 0; k < params.size(); k++) {
+                    Integer slot = slotOfParameter.get(params.get(k));
+                    if (slot == null) {
+                        slot = distinct.size();
+                        slotOfParameter.put(params.get(k), slot);
+                        distinct.add(params.get(k));
                     }
+                    memberSlots[i][k] = slot;
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // the time has to be converted to milliseconds by multiplying by 1000
-        }
+            }
 
-        private void stopTimer(int index) {
-            sampleTimerList.get(index).stopLast();
+            parameters = distinct;
+            samples = new ParameterValue[parameters.size()];
+            definitionIds = new Long[parameters.size()];
+            kinds = new byte[parameters.size()];
+            numbers = new double[parameters.size()];
+            dirty = false;
         }
 
+        private synchronized void tick() {
+            if (!periodicSamplingManager.active) {
+                return;
+            }
+
+            if (dirty) {
+                this.rebuild();
+            }
+
+            // Sample each parameter of the group once, in one call to the application
+            final ParameterValueList sampled = manager.sampleParameterValues(parameters, false);
+            for (int slot = 0; slot < parameters.size(); slot++) {
+                samples[slot] = sampled.get(slot);
+                if (needsDefinitionIds) {
+                    definitionIds[slot] = manager.getParameterDefinitionId(parameters.get(slot));
+                }
+                if (needsFilterValues) {
+                    kinds[slot] = AggregationFilter.kindOf(samples[slot]);
+                    numbers[slot] = AggregationFilter.numberOf(samples[slot], kinds[slot]);
+                }
+            }
+
+            // To prevent race conditions with the other timer
+            synchronized (lock) {
+                // Filter stage: the report filters of all the members are evaluated together, on the
+                // primitive values of the samples and of the current values of the aggregations
+                for (int i = 0; i < members.length; i++) {
+                    final int[] slots = memberSlots[i];
+                    final AggregationParameterValueList values = new AggregationParameterValueList(slots.length);
+
+                    for (int slot : slots) {
+                        //If sendDefinition is TRUE reports will include the ParameterDefinition object instance
+                        //identifier in the AggregationParameterValue, if FALSE it will be set to NULL.
+                        values.add(new AggregationParameterValue(samples[slot],
+                                memberSendDefinitions[i] ? definitionIds[slot] : null));
+                    }
+
+                    memberValues[i] = values;
+                    triggered[i] = false;
+                    final AggregationDefinitionDetails def = manager.getAggregationDefinition(members[i]);
+                    final AggregationSampleBuffer buffer = manager.getSampleBuffer(members[i]);
+
+                    if (def != null && buffer != null && def.getFilterEnabled()
+                            && memberSets[i] < buffer.size() && buffer.getCurrent(memberSets[i]) != null) {
+                        final int slot = (slots.length == 1) ? slots[0] : -1;
+                        triggered[i] = memberFilters[i].isTriggered(buffer, memberSets[i],
+                                (slot != -1) ? kinds[slot] : AggregationFilter.KIND_NONE,
+                                (slot != -1) ? numbers[slot] : Double.NaN, values);
+                    }
+                }
+
+                for (int i = 0; i < members.length; i++) {
+                    final AggregationDefinitionDetails def = manager.getAggregationDefinition(members[i]);
+
+                    if (def == null) { // The aggregation is being removed
+                        continue;
+                    }
+
+                    try {
+                        //set the new paraemtersamples if filter triggered or not enabled
+                        manager.filterSample(members[i], def, memberSets[i], memberValues[i], triggered[i]);
+                    } catch (RuntimeException ex) { // e.g. the aggregation is being updated, keep sampling the others
+                        Logger.getLogger(AggregationProviderServiceImpl.class.getName()).log(Level.FINE,
+                                "The parameterSet " + memberSets[i] + " of the aggregation " + members[i]
+                                + " could not be sampled.", ex);
+                    }
+                    memberValues[i] = null;
+                }
+            }
+        }
     }
 
     @Override
@@ -1279,22 +1466,16 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
         }
 
         // ok, we're good to go...
-        // Load the Parameter Definitions from this configuration...
+        // Load the Definitions from this configuration, reusing the unchanged ones...
         ConfigurationObjectSet confSetDefs = (confSet0.getObjType().equals(AggregationHelper.AGGREGATIONDEFINITION_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        AggregationDefinitionDetailsList pDefs = (AggregationDefinitionDetailsList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                AggregationHelper.AGGREGATIONDEFINITION_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetDefs.getObjInstIds());
+        AggregationDefinitionDetailsList pDefs = (AggregationDefinitionDetailsList) manager.getDefinitionsForReconfiguration(
+                AggregationHelper.AGGREGATIONDEFINITION_OBJECT_TYPE, confSetDefs.getObjInstIds(), new AggregationDefinitionDetailsList());
 
         ConfigurationObjectSet confSetIdents = (confSet0.getObjType().equals(AggregationHelper.AGGREGATIONIDENTITY_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        IdentifierList idents = (IdentifierList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                AggregationHelper.AGGREGATIONIDENTITY_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetIdents.getObjInstIds());
+        IdentifierList idents = manager.getNamesForReconfiguration(
+                AggregationHelper.AGGREGATIONIDENTITY_OBJECT_TYPE, confSetIdents.getObjInstIds());
 
         periodicReportingManager.pause();
         periodicSamplingManager.pause();
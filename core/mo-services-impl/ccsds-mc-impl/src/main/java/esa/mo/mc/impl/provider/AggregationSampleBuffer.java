@@ -0,0 +1,153 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterValueList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+
+/**
+ * The sampling state of one aggregation, with one slot per parameter set: the
+ * current and previous samples, the time of the latest sample and the number
+ * of samples taken since the last update was published. The current value of
+ * the parameter sets with a single parameter is also kept as a primitive, for
+ * the evaluation of the report filters.
+ *
+ * The buffer is not thread-safe. It is accessed by the sampling and reporting
+ * timers of the Aggregation service while holding the service lock.
+ */
+final class AggregationSampleBuffer {
+
+    /**
+     * Value of the latest sample time of a parameter set that was not sampled
+     * since the last reset.
+     */
+    static final long NO_SAMPLE = Long.MIN_VALUE;
+
+    private AggregationParameterValueList[] current;
+    private AggregationParameterValueList[] last;
+    private long[] latestSampleTimes;
+    private int[] sampleCounts;
+    private byte[] referenceKinds; // AggregationFilter kind of the current value
+    private double[] referenceValues; // Current value as a number
+    private boolean filterTriggered;
+
+    AggregationSampleBuffer(int parameterSets) {
+        this.reset(parameterSets);
+    }
+
+    /**
+     * Drops all the samples and resizes the buffer. Called when the
+     * definition of the aggregation changed.
+     *
+     * @param parameterSets The number of parameter sets of the aggregation
+     */
+    void reset(int parameterSets) {
+        this.current = new AggregationParameterValueList[parameterSets];
+        this.last = new AggregationParameterValueList[parameterSets];
+        this.latestSampleTimes = new long[parameterSets];
+        this.sampleCounts = new int[parameterSets];
+        this.referenceKinds = new byte[parameterSets];
+        this.referenceValues = new double[parameterSets];
+        this.resetSampleCounters();
+    }
+
+    /**
+     * Resets the sample times, the sample counters and the filter state, but
+     * keeps the values. Called after an update was published.
+     */
+    void resetSampleCounters() {
+        for (int i = 0; i < this.latestSampleTimes.length; i++) {
+            this.latestSampleTimes[i] = NO_SAMPLE;
+            this.sampleCounts[i] = 0;
+        }
+        this.filterTriggered = false;
+    }
+
+    int size() {
+        return this.current.length;
+    }
+
+    AggregationParameterValueList getCurrent(int index) {
+        return this.current[index];
+    }
+
+    AggregationParameterValueList getLast(int index) {
+        return this.last[index];
+    }
+
+    /**
+     * Stores new samples as the current values of a parameter set. The
+     * previous current values become the last values.
+     *
+     * @param index The index of the parameter set
+     * @param values The new samples
+     * @param timestamp The sampling time in milliseconds
+     */
+    void store(int index, AggregationParameterValueList values, long timestamp) {
+        this.last[index] = this.current[index];
+        this.current[index] = values;
+        this.latestSampleTimes[index] = timestamp;
+
+        if (values != null && values.size() == 1 && values.get(0) != null) {
+            final ParameterValue value = values.get(0).getValue();
+            this.referenceKinds[index] = AggregationFilter.kindOf(value);
+            this.referenceValues[index] = AggregationFilter.numberOf(value, this.referenceKinds[index]);
+        } else {
+            this.referenceKinds[index] = AggregationFilter.KIND_NONE;
+        }
+    }
+
+    byte getReferenceKind(int index) {
+        return this.referenceKinds[index];
+    }
+
+    double getReferenceValue(int index) {
+        return this.referenceValues[index];
+    }
+
+    void countSample(int index) {
+        this.sampleCounts[index]++;
+    }
+
+    int getSampleCount(int index) {
+        return this.sampleCounts[index];
+    }
+
+    /**
+     * @param index The index of the parameter set
+     * @return The time of the latest sample, null if not sampled since the
+     * last reset
+     */
+    Time getLatestSampleTime(int index) {
+        final long time = this.latestSampleTimes[index];
+        return (time == NO_SAMPLE) ? null : new Time(time);
+    }
+
+    boolean isFilterTriggered() {
+        return this.filterTriggered;
+    }
+
+    void setFilterTriggered(boolean filterTriggered) {
+        this.filterTriggered = filterTriggered;
+    }
+
+}
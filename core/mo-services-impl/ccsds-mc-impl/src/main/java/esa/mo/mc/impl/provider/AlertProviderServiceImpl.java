@@ -22,7 +22,6 @@ package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.provider.EventProviderServiceImpl;
 import esa.mo.com.impl.util.COMServicesProvider;
-import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import java.io.IOException;
@@ -638,22 +637,16 @@ public class AlertProviderServiceImpl extends AlertInheritanceSkeleton implement
         }
 
         // ok, we're good to go...
-        // Load the Parameter Definitions from this configuration...
+        // Load the Definitions from this configuration, reusing the unchanged ones...
         ConfigurationObjectSet confSetDefs = (confSet0.getObjType().equals(AlertHelper.ALERTDEFINITION_OBJECT_TYPE)) ? confSet0 : confSet1;
         
-        AlertDefinitionDetailsList pDefs = (AlertDefinitionDetailsList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                AlertHelper.ALERTDEFINITION_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetDefs.getObjInstIds());
+        AlertDefinitionDetailsList pDefs = (AlertDefinitionDetailsList) manager.getDefinitionsForReconfiguration(
+                AlertHelper.ALERTDEFINITION_OBJECT_TYPE, confSetDefs.getObjInstIds(), new AlertDefinitionDetailsList());
 
         ConfigurationObjectSet confSetIdents = (confSet0.getObjType().equals(AlertHelper.ALERTIDENTITY_OBJECT_TYPE)) ? confSet0 : confSet1;
         
-        IdentifierList idents = (IdentifierList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                AlertHelper.ALERTIDENTITY_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetIdents.getObjInstIds());
+        IdentifierList idents = manager.getNamesForReconfiguration(
+                AlertHelper.ALERTIDENTITY_OBJECT_TYPE, confSetIdents.getObjInstIds());
         
             manager.reconfigureDefinitions(confSetIdents.getObjInstIds(), idents, 
                     confSetDefs.getObjInstIds(), pDefs);   // Reconfigures the Manager
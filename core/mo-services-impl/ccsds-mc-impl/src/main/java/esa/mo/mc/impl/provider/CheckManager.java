@@ -29,6 +29,7 @@ import esa.mo.helpertools.helpers.HelperMisc;
 import esa.mo.mc.impl.provider.check.CheckLinkEvaluationManager;
 import esa.mo.mc.impl.provider.check.CheckLinkEvaluation;
 import esa.mo.mc.impl.provider.check.EvaluationResult;
+import esa.mo.mc.impl.provider.check.LimitCheckTable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -76,6 +77,8 @@ import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
  */
 public final class CheckManager extends CheckLinksManager {
 
+    private static final Logger LOGGER = Logger.getLogger(CheckManager.class.getName());
+
     private Long uniqueObjIdIdentity;
     private Long uniqueObjIdActDef;
     private Long uniqueObjIdLink;
@@ -649,21 +652,48 @@ public final class CheckManager extends CheckLinksManager {
      */
     public void executeCheck(Long checkLinkId, final ParameterValue newParamValue,
             boolean triggered, boolean maxReportingIntervalExpired, ObjectId source) {
-        Logger.getLogger(CheckManager.class.getName()).log(Level.INFO,
-                "Executing check for CheckLink with Id {0} that references to: "
-                + "Check-Identity with id: {1} and Parameter-Identity with id: {2}. "
-                + "The ParamValue is: {3}",
-                new Object[]{checkLinkId, getCheckLinkLinks(checkLinkId).getRelated(),
-                    getCheckLinkLinks(checkLinkId).getSource() == null ? "null"
-                    : getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId(), newParamValue});
-        if (!super.getCheckLinkDetails(super.getCheckLinkDefId(checkLinkId)).getCheckEnabled()) {
+        this.executeCheck(checkLinkId, newParamValue, triggered, maxReportingIntervalExpired,
+                source, getActualCheckDefinitionFromCheckLinks(checkLinkId), LimitCheckTable.NOT_EVALUATED);
+    }
+
+    /**
+     * Executes a check for which the check definition was already resolved
+     * and, for Limit-Checks, possibly already evaluated by a batch of checks.
+     * Only state transitions are saved and published.
+     *
+     * @param checkLinkId id of the checkLink
+     * @param newParamValue ParameterValue to be checked
+     * @param triggered true, if check was triggered by the
+     * triggerCheck-Operation.
+     * @param maxReportingIntervalExpired true if the executeCheck was initiated
+     * because the maxReportingInterval is expired
+     * @param source source that caused the check to be executed
+     * @param checkDef the actual check definition of the checkLink
+     * @param limitResult the result of a LimitCheckTable or
+     * LimitCheckTable.NOT_EVALUATED
+     */
+    public void executeCheck(Long checkLinkId, final ParameterValue newParamValue,
+            boolean triggered, boolean maxReportingIntervalExpired, ObjectId source,
+            CheckDefinitionDetails checkDef, byte limitResult) {
+        final ObjectDetails checkLinkLinks = getCheckLinkLinks(checkLinkId);
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE,
+                    "Executing check for CheckLink with Id {0} that references to: "
+                    + "Check-Identity with id: {1} and Parameter-Identity with id: {2}. "
+                    + "The ParamValue is: {3}",
+                    new Object[]{checkLinkId, checkLinkLinks.getRelated(),
+                        checkLinkLinks.getSource() == null ? "null"
+                        : checkLinkLinks.getSource().getKey().getInstId(), newParamValue});
+        }
+        final CheckLinkDetails checkLinkDetails = super.getCheckLinkDetails(super.getCheckLinkDefId(checkLinkId));
+        if (!checkLinkDetails.getCheckEnabled()) {
             return;
         }
         //evalutate new result
         final EvaluationResult evalResult = checkLinkEvalManager.evaluateCheckResult(checkLinkId,
-                newParamValue, triggered, getActualCheckDefinitionFromCheckLinks(checkLinkId),
-                super.getCheckLinkDetails(super.getCheckLinkDefId(checkLinkId)),
-                getCheckLinkLinks(checkLinkId), checkServiceEnabled);
+                newParamValue, triggered, checkDef, checkLinkDetails,
+                checkLinkLinks, checkServiceEnabled, limitResult);
         //publish if necessary
         if (!maxReportingIntervalExpired) {
             //3.5.3.p
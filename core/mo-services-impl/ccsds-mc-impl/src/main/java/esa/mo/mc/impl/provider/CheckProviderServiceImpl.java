@@ -26,6 +26,7 @@ import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.misc.TaskScheduler;
 import esa.mo.mc.impl.provider.check.CheckLinkMonitorManager;
+import esa.mo.mc.impl.provider.check.LimitCheckTable;
 import esa.mo.mc.impl.provider.check.ParameterMonitoringManager;
 import esa.mo.mc.impl.util.GroupRetrieval;
 import esa.mo.mc.impl.util.MCServicesConsumer;
@@ -76,6 +77,7 @@ import org.ccsds.moims.mo.mc.check.structures.CheckResultSummaryList;
 import org.ccsds.moims.mo.mc.check.structures.CheckTypedInstance;
 import org.ccsds.moims.mo.mc.check.structures.CheckTypedInstanceList;
 import org.ccsds.moims.mo.mc.check.structures.CompoundCheckDefinition;
+import org.ccsds.moims.mo.mc.check.structures.LimitCheckDefinition;
 import org.ccsds.moims.mo.mc.parameter.ParameterHelper;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
@@ -947,14 +949,22 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
         return checkLinkSummaries;
     }
 
+    /**
+     * Runs the periodic checks. The check links are grouped by their check
+     * interval and each group is evaluated as one batch per tick: every
+     * referenced parameter is sampled once, the Limit-Checks of the group are
+     * evaluated together from primitive arrays and only the resulting state
+     * transitions are saved and published. All the groups share a single
+     * timer thread.
+     */
     private class PeriodicCheckingManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> sampleTimerList; // Timers list
-        private boolean active = false; // Flag that determines if the Manager is on or off
+        private final TaskScheduler timer = new TaskScheduler(1); // Shared by all the groups
+        private final HashMap<Long, CheckGroup> groupOfCheckLink = new HashMap<>(); // checkLinkId -> group
+        private final HashMap<Long, CheckGroup> groups = new HashMap<>(); // interval in ms -> group
+        private volatile boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicCheckingManager() {
-            sampleTimerList = new HashMap<>();
-
         }
 
         public void refreshAll() {
@@ -974,8 +984,8 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
             this.start(); // set active flag to true
         }
 
-        public void refresh(Long checkLinkId) {
-            if (sampleTimerList.containsKey(checkLinkId)) { // Does it exist in the PeriodicCheckingManager?
+        public synchronized void refresh(Long checkLinkId) {
+            if (groupOfCheckLink.containsKey(checkLinkId)) { // Does it exist in the PeriodicCheckingManager?
                 this.removePeriodicChecking(checkLinkId);
             }
             final CheckLinkDetails checkLink = manager.getCheckLinkDetails(manager.getCheckLinkDefId(checkLinkId));
@@ -999,49 +1009,174 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
         }
 
         private void addPeriodicChecking(Long checkLinkId, Duration checkInterval) {
-            try {
-                final ObjectId paramId = manager.getCheckLinkLinks(checkLinkId).getSource();
-                //todo: the source link should be the ObjectId-of the parameterValue somehow
-                manager.executeCheck(checkLinkId,
-                        paramId == null ? null : parameterManager.getParameterValue(paramId.getKey().getInstId()),
-                        false, false, null);
-            } catch (MALInteractionException ex) {
-                Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+            // the time has to be converted to milliseconds by multiplying by 1000
+            final long intervalMs = Math.round(checkInterval.getValue() * 1000);
+            CheckGroup group = groups.get(intervalMs);
+
+            if (group == null) { // First check with this interval, the first tick runs it right away
+                group = new CheckGroup();
+                groups.put(intervalMs, group);
+                group.add(checkLinkId);
+                group.taskId = timer.scheduleTask(new Thread(group::tick), 0, intervalMs,
+                        TimeUnit.MILLISECONDS, true); // requirement: 3.5.3.j, 3.6.2.g
+            } else {
+                group.add(checkLinkId);
+                // Run the first check of the added checkLink right away, as for a new group
+                try {
+                    final ObjectId paramId = manager.getCheckLinkLinks(checkLinkId).getSource();
+                    //todo: the source link should be the ObjectId-of the parameterValue somehow
+                    manager.executeCheck(checkLinkId,
+                            paramId == null ? null : parameterManager.getParameterValue(paramId.getKey().getInstId()),
+                            false, false, null);
+                } catch (MALInteractionException ex) {
+                    Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+                }
             }
 
-            // Add to the Periodic Sampling Manager 
-            TaskScheduler timer = new TaskScheduler(1);  // Take care of adding a new timer
-            sampleTimerList.put(checkLinkId, timer);
-            startTimer(checkLinkId, checkInterval);// requirement: 3.5.3.j
+            groupOfCheckLink.put(checkLinkId, group);
         }
 
         private void removePeriodicChecking(Long objId) {
-            this.stopTimer(objId);
-            sampleTimerList.remove(objId);
+            final CheckGroup group = groupOfCheckLink.remove(objId);
+
+            if (group != null && group.remove(objId)) { // Was it the last one of the group?
+                timer.stopTask(group.taskId);
+                groups.values().remove(group);
+            }
         }
 
-        private void startTimer(final Long checkLinkId, Duration interval) {  // requirement: 3.7.2.11
+    }
 
-            // the time has to be converted to milliseconds by multiplying by 1000
-            sampleTimerList.get(checkLinkId).scheduleTask(new Thread(() -> { // Periodic Checking
-                if (active) {
-                    try {
-                        final ObjectId paramId = manager.getCheckLinkLinks(checkLinkId).getSource();
-                        //todo: the source link should be the ObjectId-of the parameterValue
-                        manager.executeCheck(checkLinkId,
-                                paramId == null ? null : parameterManager.getParameterValue(manager.getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId()),
-                                false, false, null);
-                    } catch (MALInteractionException ex) {
-                        Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * The check links sharing the same check interval.
+     */
+    private class CheckGroup {
+
+        private final LongList checkLinkIds = new LongList();
+        private int taskId;
+
+        // Evaluation tables, rebuilt when the members change
+        private boolean dirty = true;
+        private Long[] members = new Long[0];
+        private boolean[] execute;
+        private CheckDefinitionDetails[] definitions;
+        private ParameterValue[] sampledValues;
+        private LimitCheckTable limits;
+        private double[] values;
+        private boolean[] present;
+        private byte[] results;
+
+        private synchronized void add(Long checkLinkId) {
+            checkLinkIds.add(checkLinkId);
+            dirty = true;
+        }
+
+        /**
+         * @return True if the group is empty after the removal
+         */
+        private synchronized boolean remove(Long checkLinkId) {
+            checkLinkIds.remove(checkLinkId);
+            dirty = true;
+            return checkLinkIds.isEmpty();
+        }
+
+        private void rebuild() {
+            final int n = checkLinkIds.size();
+            members = checkLinkIds.toArray(new Long[n]);
+            execute = new boolean[n];
+            definitions = new CheckDefinitionDetails[n];
+            sampledValues = new ParameterValue[n];
+            limits = new LimitCheckTable(n);
+            values = new double[n];
+            present = new boolean[n];
+            results = new byte[n];
+
+            for (int i = 0; i < n; i++) {
+                limits.add(null);
+            }
+
+            dirty = false;
+        }
+
+        private synchronized void tick() {
+            if (!periodicCheckingManager.active) {
+                return;
+            }
+
+            if (dirty) {
+                this.rebuild();
+            }
+
+            final int n = members.length;
+            final HashMap<Long, ParameterValue> sampled = new HashMap<>(); // Each parameter is sampled once per tick
+
+            // Sample and resolve the definitions
+            for (int i = 0; i < n; i++) {
+                final Long checkLinkId = members[i];
+                final ObjectDetails links = manager.getCheckLinkLinks(checkLinkId);
+                sampledValues[i] = null;
+                present[i] = false;
+                execute[i] = false;
+
+                if (links == null) {
+                    continue;
+                }
+
+                final CheckDefinitionDetails checkDef = manager.getActualCheckDefinitionFromCheckLinks(checkLinkId);
+                definitions[i] = checkDef;
+
+                final ObjectId paramId = links.getSource();
+
+                if (paramId != null) {
+                    final Long paramIdentityId = paramId.getKey().getInstId();
+                    ParameterValue pVal = sampled.get(paramIdentityId);
+
+                    if (pVal == null) {
+                        try {
+                            pVal = parameterManager.getParameterValue(paramIdentityId);
+                            sampled.put(paramIdentityId, pVal);
+                        } catch (MALInteractionException ex) {
+                            Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+                            continue;
+                        }
                     }
+
+                    sampledValues[i] = pVal;
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // requirement: 3.6.2.g
-        }
 
-        private void stopTimer(Long objId) {
-            sampleTimerList.get(objId).stopLast();
-        }
+                execute[i] = true;
 
+                if (checkDef instanceof LimitCheckDefinition) {
+                    if (limits.getDefinition(i) != checkDef) { // New or updated definition
+                        limits.set(i, (LimitCheckDefinition) checkDef);
+                    }
+
+                    final ParameterValue pVal = sampledValues[i];
+
+                    if (pVal != null && limits.isBatchable(i)) {
+                        final CheckLinkDetails details = manager.getCheckLinkDetails(manager.getCheckLinkDefId(checkLinkId));
+                        LimitCheckTable.loadValue(details.getUseConverted()
+                                ? pVal.getConvertedValue() : pVal.getRawValue(), present, values, i);
+                    }
+                } else if (limits.getDefinition(i) != null) {
+                    limits.set(i, null);
+                }
+            }
+
+            // Evaluate all the Limit-Checks of the group at once
+            limits.evaluate(values, present, results);
+
+            // Update the states and publish the transitions
+            for (int i = 0; i < n; i++) {
+                if (!execute[i]) {
+                    continue;
+                }
+
+                //todo: the source link should be the ObjectId-of the parameterValue
+                manager.executeCheck(members[i], sampledValues[i], false, false, null,
+                        definitions[i], results[i]);
+            }
+        }
     }
 
     private class PeriodicReportingMaxManager { // requirement: 3.7.2.1a
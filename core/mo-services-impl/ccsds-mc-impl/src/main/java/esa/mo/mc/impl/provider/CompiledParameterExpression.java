@@ -0,0 +1,94 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.com.impl.util.CompiledExpression;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
+import org.ccsds.moims.mo.mc.structures.ParameterExpression;
+
+/**
+ * A ParameterExpression compiled by the ParameterManager. The referenced
+ * parameter is resolved once to its identity, name and definition, and the
+ * comparison is compiled into a typed predicate.
+ *
+ * Instances are only valid for the definitions that existed at compilation
+ * time, the ParameterManager discards them whenever the definitions change.
+ */
+public final class CompiledParameterExpression {
+
+    private final Long parameterId;
+    private final Identifier name;
+    private final ParameterDefinitionDetails definition;
+    private final boolean useConverted;
+    private final CompiledExpression predicate;
+
+    CompiledParameterExpression(final ParameterExpression expression, final Identifier name,
+            final ParameterDefinitionDetails definition) {
+        this.parameterId = expression.getParameterId().getInstId();
+        this.name = name;
+        this.definition = definition;
+        this.useConverted = expression.getUseConverted();
+        this.predicate = CompiledExpression.compile(expression.getOperator(), expression.getValue());
+    }
+
+    /**
+     * @return The identity id of the referenced parameter
+     */
+    public Long getParameterId() {
+        return this.parameterId;
+    }
+
+    /**
+     * @return The name of the referenced parameter. Null if it does not exist.
+     */
+    public Identifier getName() {
+        return this.name;
+    }
+
+    /**
+     * @return The definition of the referenced parameter. Null if it does not
+     * exist.
+     */
+    public ParameterDefinitionDetails getDefinition() {
+        return this.definition;
+    }
+
+    /**
+     * @return True if the expression is evaluated against the converted value
+     */
+    public boolean getUseConverted() {
+        return this.useConverted;
+    }
+
+    /**
+     * Evaluates the expression against the provided parameter value.
+     *
+     * @param value The raw or converted value of the parameter, depending on
+     * {@link #getUseConverted()}
+     * @return The boolean value of the evaluation. Null if not evaluated.
+     */
+    public Boolean evaluate(final Attribute value) {
+        return this.predicate.evaluate(value);
+    }
+
+}
@@ -68,10 +68,14 @@ public class ConversionServiceImpl extends ConversionInheritanceSkeleton {
     /**
      *
      * @param archiveService
+     * @param manager The Parameter manager used to evaluate the conversion
+     * conditions
      * @throws org.ccsds.moims.mo.mal.MALException
      */
-    protected synchronized void init(ArchiveProviderServiceImpl archiveService) throws MALException {
+    protected synchronized void init(ArchiveProviderServiceImpl archiveService,
+            ParameterManager manager) throws MALException {
         this.archiveService = archiveService;
+        this.manager = manager;
 
         if (!initialiased) {
             if (MALContextFactory.lookupArea(MALHelper.MAL_AREA_NAME, MALHelper.MAL_AREA_VERSION) == null) {
@@ -128,10 +132,11 @@ public class ConversionServiceImpl extends ConversionInheritanceSkeleton {
         if (expression == null) {
             return true;  // No test is required
         }
-        ParameterValue parameterValue = manager.getParameterValue(expression.getParameterId().getInstId());
-        Attribute param = expression.getUseConverted() ? parameterValue.getConvertedValue() : parameterValue.getRawValue();
+        final CompiledParameterExpression compiled = manager.compileParameterExpression(expression);
+        ParameterValue parameterValue = manager.getParameterValue(compiled.getParameterId());
+        Attribute param = compiled.getUseConverted() ? parameterValue.getConvertedValue() : parameterValue.getRawValue();
 
-        return HelperCOM.evaluateExpression(param, expression.getOperator(), expression.getValue());
+        return compiled.evaluate(param);
     }
 
     /* Not used...
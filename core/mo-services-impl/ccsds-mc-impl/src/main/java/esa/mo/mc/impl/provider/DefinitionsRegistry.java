@@ -0,0 +1,275 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
+
+/**
+ * Registry of the identities of an MC service and their active definitions.
+ *
+ * Every identity is stored as one immutable entry (name, identity id,
+ * definition id and definition body) that is indexed by identity id, by name
+ * and by definition id. The three indexes form one immutable snapshot that is
+ * published through a single volatile field. Reads never take a lock and all
+ * the lookups done on one snapshot agree with each other. Edits are
+ * serialised between themselves, copy the current snapshot, apply the change
+ * and publish the copy, so a reader sees either the previous or the new
+ * state, never a mix of both. Edits are rare compared to lookups.
+ */
+public final class DefinitionsRegistry {
+
+    /**
+     * One identity and its active definition.
+     */
+    public static final class Entry {
+
+        private final Identifier name;
+        private final Long identityId;
+        private final Long defId;
+        private final Element definition;
+
+        Entry(final Identifier name, final Long identityId, final Long defId, final Element definition) {
+            this.name = name;
+            this.identityId = identityId;
+            this.defId = defId;
+            this.definition = definition;
+        }
+
+        public Identifier getName() {
+            return this.name;
+        }
+
+        public Long getIdentityId() {
+            return this.identityId;
+        }
+
+        public Long getDefinitionId() {
+            return this.defId;
+        }
+
+        public Element getDefinition() {
+            return this.definition;
+        }
+
+        /**
+         * @return A new pair of identity and definition ids. Modifying it does
+         * not change the entry.
+         */
+        public ObjectInstancePair getPair() {
+            return new ObjectInstancePair(this.identityId, this.defId);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the three indexes.
+     */
+    private static final class Index {
+
+        private final Map<Long, Entry> byIdentity;
+        private final Map<Identifier, Entry> byName;
+        private final Map<Long, Entry> byDefId;
+
+        private Index(final Map<Long, Entry> byIdentity, final Map<Identifier, Entry> byName,
+                final Map<Long, Entry> byDefId) {
+            this.byIdentity = Collections.unmodifiableMap(byIdentity);
+            this.byName = Collections.unmodifiableMap(byName);
+            this.byDefId = Collections.unmodifiableMap(byDefId);
+        }
+    }
+
+    /**
+     * Builds the next snapshot, starting from a copy of a previous one.
+     */
+    private static final class Builder {
+
+        private final HashMap<Long, Entry> byIdentity;
+        private final HashMap<Identifier, Entry> byName;
+        private final HashMap<Long, Entry> byDefId;
+
+        private Builder() {
+            this.byIdentity = new HashMap<>();
+            this.byName = new HashMap<>();
+            this.byDefId = new HashMap<>();
+        }
+
+        private Builder(final Index from) {
+            this.byIdentity = new HashMap<>(from.byIdentity);
+            this.byName = new HashMap<>(from.byName);
+            this.byDefId = new HashMap<>(from.byDefId);
+        }
+
+        private void put(final Entry entry) {
+            this.byDefId.put(entry.getDefinitionId(), entry);
+            this.byName.put(entry.getName(), entry);
+            this.byIdentity.put(entry.getIdentityId(), entry);
+        }
+
+        private Index build() {
+            return new Index(this.byIdentity, this.byName, this.byDefId);
+        }
+    }
+
+    private volatile Index index = new Builder().build();
+
+    /**
+     * @param identityId The object instance identifier of the identity
+     * @return The entry of the identity. Null if not found.
+     */
+    public Entry getByIdentity(final Long identityId) {
+        return (identityId == null) ? null : this.index.byIdentity.get(identityId);
+    }
+
+    /**
+     * @param name The name of the identity
+     * @return The entry of the identity. Null if not found.
+     */
+    public Entry getByName(final Identifier name) {
+        return (name == null) ? null : this.index.byName.get(name);
+    }
+
+    /**
+     * @param defId The object instance identifier of the definition
+     * @return The entry holding the definition. Null if not found.
+     */
+    public Entry getByDefinitionId(final Long defId) {
+        return (defId == null) ? null : this.index.byDefId.get(defId);
+    }
+
+    /**
+     * @return A snapshot of all the entries
+     */
+    public List<Entry> listEntries() {
+        return new ArrayList<>(this.index.byName.values());
+    }
+
+    /**
+     * @return A snapshot of all the identity ids
+     */
+    public List<Long> listIdentityIds() {
+        return new ArrayList<>(this.index.byIdentity.keySet());
+    }
+
+    /**
+     * @return A snapshot of all the definition ids
+     */
+    public List<Long> listDefinitionIds() {
+        return new ArrayList<>(this.index.byDefId.keySet());
+    }
+
+    /**
+     * Adds an identity and its definition.
+     *
+     * @param name The name of the identity
+     * @param identityId The object instance identifier of the identity
+     * @param defId The object instance identifier of the definition
+     * @param definition The definition body
+     */
+    public synchronized void add(final Identifier name, final Long identityId,
+            final Long defId, final Element definition) {
+        final Builder next = new Builder(this.index);
+        next.put(new Entry(name, identityId, defId, definition));
+        this.index = next.build();
+    }
+
+    /**
+     * Replaces the definition of an existing identity.
+     *
+     * @param identityId The object instance identifier of the identity
+     * @param newDefId The object instance identifier of the new definition
+     * @param newDefinition The new definition body
+     * @return True if successful. False if the identity does not exist.
+     */
+    public synchronized boolean update(final Long identityId, final Long newDefId,
+            final Element newDefinition) {
+        final Index current = this.index;
+        final Entry old = current.byIdentity.get(identityId);
+
+        if (old == null || current.byName.get(old.getName()) == null) {
+            return false;
+        }
+
+        final Builder next = new Builder(current);
+
+        if (!old.getDefinitionId().equals(newDefId)) {
+            next.byDefId.remove(old.getDefinitionId(), old);
+        }
+
+        next.put(new Entry(old.getName(), identityId, newDefId, newDefinition));
+        this.index = next.build();
+        return true;
+    }
+
+    /**
+     * Removes an identity and its definition.
+     *
+     * @param identityId The object instance identifier of the identity
+     * @return True if successful. False if the identity does not exist.
+     */
+    public synchronized boolean remove(final Long identityId) {
+        final Index current = this.index;
+        final Entry entry = current.byIdentity.get(identityId);
+
+        if (entry == null) {
+            return false;
+        }
+
+        final Entry named = current.byName.get(entry.getName());
+
+        if (named == null || named.getDefinitionId() == null) {
+            return false;
+        }
+
+        final Builder next = new Builder(current);
+        next.byDefId.remove(named.getDefinitionId());
+        next.byName.remove(entry.getName());
+        next.byIdentity.remove(identityId);
+        this.index = next.build();
+        return true;
+    }
+
+    /**
+     * Replaces all the identities and definitions at once. Readers see either
+     * the old or the new set.
+     *
+     * @param identityIds The identity ids
+     * @param names The names of the identities
+     * @param defIds The definition ids
+     * @param definitions The definition bodies
+     */
+    public synchronized void replaceAll(final List<Long> identityIds, final List<Identifier> names,
+            final List<Long> defIds, final List<? extends Element> definitions) {
+        final Builder fresh = new Builder();
+
+        for (int i = 0; i < identityIds.size(); i++) {
+            fresh.put(new Entry(names.get(i), identityIds.get(i), defIds.get(i), definitions.get(i)));
+        }
+
+        this.index = fresh.build();
+    }
+
+}
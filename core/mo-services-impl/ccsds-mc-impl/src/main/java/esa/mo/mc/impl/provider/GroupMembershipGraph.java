@@ -0,0 +1,504 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.com.impl.provider.ArchiveChangeListener;
+import esa.mo.com.impl.provider.ArchivePersistenceObject;
+import esa.mo.com.impl.provider.ArchiveProviderServiceImpl;
+import esa.mo.com.impl.util.HelperArchive;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.ElementList;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mc.group.GroupHelper;
+import org.ccsds.moims.mo.mc.group.structures.GroupDetails;
+
+/**
+ * In-memory graph of the group definitions stored in an Archive.
+ *
+ * The group definitions of a domain are read from the Archive with a single
+ * retrieve and indexed by definition id and by group identity id (latest
+ * definition, the one with the latest timestamp and then the highest id).
+ * The group definitions stored, updated or deleted afterwards in the Archive
+ * are applied to the index without reading it again. The flattened
+ * transitive closure of a group, that is the groups reachable from it and the
+ * instances they contain, is computed once and then kept until the latest
+ * definition of one of these groups changes. Cycles between groups are
+ * detected and reported, each group of a cycle contributing its instances
+ * only once.
+ *
+ * One graph is shared by all the services using the same Archive.
+ */
+final class GroupMembershipGraph implements ArchiveChangeListener {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupMembershipGraph.class.getName());
+    private static final Map<ArchiveProviderServiceImpl, GroupMembershipGraph> GRAPHS = new WeakHashMap<>();
+
+    /**
+     * The flattened content of a group.
+     */
+    static final class Closure {
+
+        private final List<Long> groups;
+        private final LongList ids;
+        private final List<ObjectType> objectTypes;
+
+        private Closure(final List<Long> groups, final LongList ids, final List<ObjectType> objectTypes) {
+            this.groups = groups;
+            this.ids = ids;
+            this.objectTypes = objectTypes;
+        }
+
+        /**
+         * @return The group identity ids reachable from the group, the group
+         * itself first. It must not be modified.
+         */
+        List<Long> getGroups() {
+            return this.groups;
+        }
+
+        /**
+         * @return The ids of the non-group instances of all the reachable
+         * groups. It must not be modified.
+         */
+        LongList getIds() {
+            return this.ids;
+        }
+
+        /**
+         * @return The object type of each id. It must not be modified.
+         */
+        List<ObjectType> getObjectTypes() {
+            return this.objectTypes;
+        }
+    }
+
+    private static final class DomainGroups {
+
+        private final Map<Long, GroupDetails> definitions = new HashMap<>();
+        private final Map<Long, Long> identities = new HashMap<>(); // Definition id -> identity id
+        private final Map<Long, Long> timestamps = new HashMap<>(); // Definition id -> timestamp
+        private final Map<Long, Long> latestDefinitions = new HashMap<>();
+        private final Map<Long, Closure> closures = new HashMap<>();
+        private final Set<Long> reportedCycles = new HashSet<>();
+
+        private GroupDetails getLatest(final Long groupIdentityId) {
+            final Long defId = latestDefinitions.get(groupIdentityId);
+            return (defId != null) ? definitions.get(defId) : null;
+        }
+
+        private boolean isLater(final Long defId, final Long otherDefId) {
+            final long timestamp = timestamps.get(defId);
+            final long otherTimestamp = timestamps.get(otherDefId);
+            return timestamp > otherTimestamp || (timestamp == otherTimestamp && defId > otherDefId);
+        }
+
+        /**
+         * Adds or replaces a group definition, without selecting the latest
+         * definitions.
+         *
+         * @return The identity ids of the groups whose definitions changed
+         */
+        private Set<Long> put(final Long defId, final ArchiveDetails details,
+                final GroupDetails group) {
+            final Long identityId = details.getDetails().getRelated();
+            final Long previousIdentityId = identities.put(defId, identityId);
+            definitions.put(defId, group);
+            timestamps.put(defId, details.getTimestamp().getValue());
+
+            final Set<Long> changed = new HashSet<>();
+            changed.add(identityId);
+
+            if (previousIdentityId != null) {
+                changed.add(previousIdentityId);
+            }
+
+            return changed;
+        }
+
+        /**
+         * Removes a group definition, without selecting the latest
+         * definitions.
+         *
+         * @return The identity id of its group or null if it did not exist
+         */
+        private Long remove(final Long defId) {
+            definitions.remove(defId);
+            timestamps.remove(defId);
+            return identities.remove(defId);
+        }
+
+        /**
+         * Selects again the latest definitions of the changed groups and drops
+         * the closures that reach them.
+         */
+        private void refresh(final Collection<Long> changed) {
+            for (Long identityId : changed) {
+                Long latest = null;
+
+                for (Map.Entry<Long, Long> entry : identities.entrySet()) {
+                    if (identityId.equals(entry.getValue())
+                            && (latest == null || this.isLater(entry.getKey(), latest))) {
+                        latest = entry.getKey();
+                    }
+                }
+
+                if (latest != null) {
+                    latestDefinitions.put(identityId, latest);
+                } else {
+                    latestDefinitions.remove(identityId);
+                }
+            }
+
+            closures.values().removeIf(closure -> !Collections.disjoint(closure.getGroups(), changed));
+            reportedCycles.removeAll(changed);
+        }
+    }
+
+    private final ArchiveProviderServiceImpl archiveService;
+    private final ConcurrentHashMap<IdentifierList, DomainGroups> domains = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    private GroupMembershipGraph(final ArchiveProviderServiceImpl archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    /**
+     * Returns the graph of the group definitions stored in the given Archive.
+     *
+     * @param archiveService The Archive
+     * @return The graph
+     */
+    static GroupMembershipGraph forArchive(final ArchiveProviderServiceImpl archiveService) {
+        synchronized (GRAPHS) {
+            GroupMembershipGraph graph = GRAPHS.get(archiveService);
+
+            if (graph == null) {
+                graph = new GroupMembershipGraph(archiveService);
+                archiveService.addChangeListener(graph);
+                GRAPHS.put(archiveService, graph);
+            }
+
+            return graph;
+        }
+    }
+
+    @Override
+    public void onObjectsChanged(final ObjectType objType, final IdentifierList domain) {
+        if (GroupHelper.GROUPDEFINITION_OBJECT_TYPE.equals(objType)) {
+            version.incrementAndGet();
+            domains.remove(domain);
+        }
+    }
+
+    @Override
+    public void onObjectsStored(final ObjectType objType, final IdentifierList domain,
+            final LongList objIds, final ArchiveDetailsList details, final ElementList objects) {
+        this.apply(objType, domain, objIds, details, objects);
+    }
+
+    @Override
+    public void onObjectsUpdated(final ObjectType objType, final IdentifierList domain,
+            final ArchiveDetailsList details, final ElementList objects) {
+        LongList objIds = null;
+
+        if (details != null) {
+            objIds = new LongList(details.size());
+
+            for (ArchiveDetails archiveDetails : details) {
+                objIds.add(archiveDetails.getInstId());
+            }
+        }
+
+        this.apply(objType, domain, objIds, details, objects);
+    }
+
+    @Override
+    public void onObjectsDeleted(final ObjectType objType, final IdentifierList domain,
+            final LongList objIds) {
+        if (!GroupHelper.GROUPDEFINITION_OBJECT_TYPE.equals(objType)) {
+            return;
+        }
+
+        if (objIds == null) {
+            this.onObjectsChanged(objType, domain);
+            return;
+        }
+
+        version.incrementAndGet();
+        final DomainGroups groups = domains.get(domain);
+
+        if (groups == null) {
+            return;
+        }
+
+        synchronized (groups) {
+            final Set<Long> changed = new HashSet<>();
+
+            for (Long defId : objIds) {
+                final Long identityId = groups.remove(defId);
+
+                if (identityId != null) {
+                    changed.add(identityId);
+                }
+            }
+
+            groups.refresh(changed);
+        }
+    }
+
+    private void apply(final ObjectType objType, final IdentifierList domain,
+            final LongList objIds, final ArchiveDetailsList details, final ElementList objects) {
+        if (!GroupHelper.GROUPDEFINITION_OBJECT_TYPE.equals(objType)) {
+            return;
+        }
+
+        if (!isComplete(objIds, details, objects)) {
+            this.onObjectsChanged(objType, domain);
+            return;
+        }
+
+        version.incrementAndGet();
+        final DomainGroups groups = domains.get(domain);
+
+        if (groups == null) {
+            return; // It is read on the next lookup
+        }
+
+        synchronized (groups) {
+            final Set<Long> changed = new HashSet<>();
+
+            for (int i = 0; i < details.size(); i++) {
+                changed.addAll(groups.put(objIds.get(i), details.get(i), (GroupDetails) objects.get(i)));
+            }
+
+            groups.refresh(changed);
+        }
+    }
+
+    private static boolean isComplete(final LongList objIds, final ArchiveDetailsList details,
+            final ElementList objects) {
+        if (objIds == null || details == null || objects == null
+                || objIds.size() != details.size() || objects.size() != details.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < details.size(); i++) {
+            final ArchiveDetails archiveDetails = details.get(i);
+
+            if (objIds.get(i) == null || archiveDetails == null || archiveDetails.getDetails() == null
+                    || archiveDetails.getTimestamp() == null
+                    || !(objects.get(i) instanceof GroupDetails)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param domain The domain
+     * @param groupIdentityId The id of the group identity
+     * @return The id of its latest group definition or null if there is none
+     */
+    Long getLatestDefinitionId(final IdentifierList domain, final Long groupIdentityId) {
+        final DomainGroups groups = this.getDomain(domain);
+
+        synchronized (groups) {
+            return groups.latestDefinitions.get(groupIdentityId);
+        }
+    }
+
+    /**
+     * @param domain The domain
+     * @param groupIdentityId The id of the group identity
+     * @return The details of its latest group definition or null if there is
+     * none. They must not be modified.
+     */
+    GroupDetails getLatestDetails(final IdentifierList domain, final Long groupIdentityId) {
+        final DomainGroups groups = this.getDomain(domain);
+
+        synchronized (groups) {
+            return groups.getLatest(groupIdentityId);
+        }
+    }
+
+    /**
+     * @param domain The domain
+     * @param groupDefId The id of the group definition
+     * @return Its details or null if it does not exist. They must not be
+     * modified.
+     */
+    GroupDetails getDetails(final IdentifierList domain, final Long groupDefId) {
+        final DomainGroups groups = this.getDomain(domain);
+
+        synchronized (groups) {
+            return groups.definitions.get(groupDefId);
+        }
+    }
+
+    /**
+     * Returns the flattened content of the latest definition of a group.
+     *
+     * @param domain The domain
+     * @param groupIdentityId The id of the group identity
+     * @return The closure or null if the group does not exist
+     */
+    Closure getClosure(final IdentifierList domain, final Long groupIdentityId) {
+        final DomainGroups groups = this.getDomain(domain);
+
+        synchronized (groups) {
+            if (!groups.latestDefinitions.containsKey(groupIdentityId)) {
+                return null;
+            }
+
+            Closure closure = groups.closures.get(groupIdentityId);
+
+            if (closure == null) {
+                closure = computeClosure(domain, groups, groupIdentityId);
+                groups.closures.put(groupIdentityId, closure);
+            }
+
+            return closure;
+        }
+    }
+
+    private DomainGroups getDomain(final IdentifierList domain) {
+        DomainGroups groups = domains.get(domain);
+
+        if (groups != null) {
+            return groups;
+        }
+
+        // Read outside of any lock: the Archive notifies its changes while
+        // holding its own lock
+        final long readVersion = version.get();
+        groups = this.readDomain(domain);
+
+        if (version.get() == readVersion) {
+            final IdentifierList key = new IdentifierList();
+            key.addAll(domain);
+            final DomainGroups previous = domains.putIfAbsent(key, groups);
+
+            if (previous != null) {
+                return previous;
+            }
+
+            if (version.get() != readVersion) {
+                // Changed before it could be found to apply the change
+                domains.remove(key, groups);
+            }
+        }
+
+        return groups; // Changed meanwhile, do not keep it
+    }
+
+    private DomainGroups readDomain(final IdentifierList domain) {
+        final DomainGroups groups = new DomainGroups();
+        final LongList allIds = new LongList();
+        allIds.add(0L);
+        final List<ArchivePersistenceObject> objs = HelperArchive.getArchiveCOMObjectList(archiveService,
+                GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, allIds);
+
+        if (objs == null) {
+            return groups;
+        }
+
+        for (ArchivePersistenceObject obj : objs) {
+            final ArchiveDetails details = obj.getArchiveDetails();
+            final Long defId = details.getInstId();
+            final Long identityId = details.getDetails().getRelated();
+            groups.put(defId, details, (GroupDetails) obj.getObject());
+
+            final Long latest = groups.latestDefinitions.get(identityId);
+
+            if (latest == null || groups.isLater(defId, latest)) {
+                groups.latestDefinitions.put(identityId, defId);
+            }
+        }
+
+        return groups;
+    }
+
+    private Closure computeClosure(final IdentifierList domain, final DomainGroups groups,
+            final Long groupIdentityId) {
+        final Set<Long> reachable = new LinkedHashSet<>();
+        this.visit(domain, groups, groupIdentityId, reachable, new HashSet<Long>());
+
+        final LongList ids = new LongList();
+        final List<ObjectType> objectTypes = new ArrayList<>();
+
+        for (Long groupId : reachable) {
+            final GroupDetails group = groups.getLatest(groupId);
+
+            if (group != null && !GroupHelper.GROUPIDENTITY_OBJECT_TYPE.equals(group.getObjectType())) {
+                for (Long id : group.getInstanceIds()) {
+                    ids.add(id);
+                    objectTypes.add(group.getObjectType());
+                }
+            }
+        }
+
+        return new Closure(new ArrayList<>(reachable), ids, objectTypes);
+    }
+
+    private void visit(final IdentifierList domain, final DomainGroups groups, final Long groupId,
+            final Set<Long> reachable, final Set<Long> path) {
+        reachable.add(groupId);
+        final GroupDetails group = groups.getLatest(groupId);
+
+        if (group == null || !GroupHelper.GROUPIDENTITY_OBJECT_TYPE.equals(group.getObjectType())) {
+            return;
+        }
+
+        path.add(groupId);
+
+        for (Long nestedId : group.getInstanceIds()) {
+            if (path.contains(nestedId)) {
+                if (groups.reportedCycles.add(nestedId)) {
+                    LOGGER.log(Level.WARNING, "The group (identity id: {0}) of the domain {1} "
+                            + "contains itself through group {2}.",
+                            new Object[]{nestedId, domain, groupId});
+                }
+            } else if (!reachable.contains(nestedId)) {
+                this.visit(domain, groups, nestedId, reachable, path);
+            }
+        }
+
+        path.remove(groupId);
+    }
+}
@@ -21,10 +21,8 @@
 package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.provider.ArchiveProviderServiceImpl;
-import esa.mo.com.impl.util.HelperArchive;
+import java.util.List;
 import org.ccsds.moims.mo.com.COMHelper;
-import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
-import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
 import org.ccsds.moims.mo.com.structures.ObjectType;
 import org.ccsds.moims.mo.mal.MALContextFactory;
 import org.ccsds.moims.mo.mal.MALException;
@@ -76,7 +74,10 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
     }
 
     /**
-     * TODO: make the method more efficient, by querying the archive
+     * Returns the id of the latest group-definition referencing the given
+     * group-identity. The group-definitions are looked up in the in-memory
+     * graph of the archive, which is read once per domain and refreshed when
+     * group-definitions change.
      *
      * @param domain
      * @param groupIdentityId
@@ -86,36 +87,8 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
         if (archiveService == null) { // If there's no archive...
             return null;
         }
-        //get the latest group-definition, referencing the group-identity
-        LongList groupDefIds = new LongList();
-        groupDefIds.add(0L);
-        final ArchiveDetailsList groupDetailsList = HelperArchive.getArchiveDetailsListFromArchive(archiveService, 
-                GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, groupDefIds);
-        ArchiveDetailsList groupDefsReferencingGroupIdentity = new ArchiveDetailsList();
-        //get ALL group-definitions, referencing the current group-identity
-        for (ArchiveDetails groupDefDetails : groupDetailsList) {
-            if (groupIdentityId.equals(groupDefDetails.getDetails().getRelated())) {
-                groupDefsReferencingGroupIdentity.add(groupDefDetails);
-            }
-        }
-        //any groupDefs found?
-        if (groupDefsReferencingGroupIdentity.isEmpty()) {
-            return null;
-        }
-
-        //get the LATEST group-definition
-        long latestTimestamp = 0;
-        int latestDefIndex = 0;
-        for (int i = 0; i < groupDefsReferencingGroupIdentity.size(); i++) {
-            ArchiveDetails groupDefDetails = groupDefsReferencingGroupIdentity.get(i);
-            if (groupDefDetails.getTimestamp().getValue() > latestTimestamp) {
-                latestDefIndex = i;
-                latestTimestamp = groupDefDetails.getTimestamp().getValue();
-            }
-        }
 
-        //return the latest group-definitions id
-        return groupDefsReferencingGroupIdentity.get(latestDefIndex).getInstId();
+        return GroupMembershipGraph.forArchive(archiveService).getLatestDefinitionId(domain, groupIdentityId);
     }
 
     /**
@@ -132,14 +105,8 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
             return null;
         }
 
-        Long latestGroupDefId = retrieveLatestGroupDefinitionIdForIdentityFromArchive(domain, groupIdentityId);
-        if (latestGroupDefId == null) {
-            return null;
-        }
-        //get the group-definitions-body
         //requirement: 3.9.4.g instances of a group will be referenced by the id of the GroupDefinition-object
-        return (GroupDetails) HelperArchive.getObjectBodyFromArchive(archiveService, 
-                GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, latestGroupDefId);
+        return GroupMembershipGraph.forArchive(archiveService).getLatestDetails(domain, groupIdentityId);
     }
 
     /**
@@ -155,10 +122,8 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
             return null;
         }
 
-        //get the group-definitions-body
         //requirement: 3.9.4.g instances of a group will be referenced by the id of the GroupDefinition-object
-        return (GroupDetails) HelperArchive.getObjectBodyFromArchive(archiveService, 
-                GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, groupDefId);
+        return GroupMembershipGraph.forArchive(archiveService).getDetails(domain, groupDefId);
     }
 
     /**
@@ -176,10 +141,35 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
     protected IdObjectTypeList getGroupObjectIdsFromGroup(Long groupIdentityId, GroupDetails group, LongList previousGroupInstances) {
         //dont check the parent group later again
         previousGroupInstances.add(groupIdentityId);
+
+        if (archiveService != null && group != null
+                && group.getObjectType().equals(GroupHelper.GROUPIDENTITY_OBJECT_TYPE)) {
+            // Use the flattened closure, unless one of the groups to be ignored is nested in this one
+            final GroupMembershipGraph.Closure closure = GroupMembershipGraph.forArchive(archiveService)
+                    .getClosure(group.getDomain(), groupIdentityId);
+
+            if (closure != null && !containsAny(previousGroupInstances, closure.getGroups(), groupIdentityId)) {
+                IdObjectTypeList idObjectTypeList = new IdObjectTypeList();
+                for (int i = 0; i < closure.getIds().size(); i++) {
+                    idObjectTypeList.add(new IdObjectType(closure.getIds().get(i), closure.getObjectTypes().get(i)));
+                }
+                return idObjectTypeList;
+            }
+        }
+
         //get all referenced instances
         return getGroupObjectIdsFromGroupRecursive(group, previousGroupInstances);
     }
 
+    private static boolean containsAny(LongList previousGroupInstances, List<Long> groups, Long self) {
+        for (Long groupId : groups) {
+            if (!groupId.equals(self) && previousGroupInstances.contains(groupId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private IdObjectTypeList getGroupObjectIdsFromGroupRecursive(GroupDetails group, LongList previousGroupInstances) {
         if (archiveService == null || group == null) { // If there's no archive...
             return null;
@@ -206,7 +196,10 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
                     // Retrieve the groups group-ids from the archive
                     // requirement: 3.9.4.h
                     GroupDetails nextGroupInstance = retrieveGroupDetailsFromArchive(group.getDomain(), groupInstance);
-                    idObjectTypeList.addAll(this.getGroupObjectIdsFromGroupRecursive(nextGroupInstance, newPreviousGroupInstances));
+                    IdObjectTypeList nextIdObjectTypes = this.getGroupObjectIdsFromGroupRecursive(nextGroupInstance, newPreviousGroupInstances);
+                    if (nextIdObjectTypes != null) {
+                        idObjectTypeList.addAll(nextIdObjectTypes);
+                    }
                 }
             }
             return idObjectTypeList;
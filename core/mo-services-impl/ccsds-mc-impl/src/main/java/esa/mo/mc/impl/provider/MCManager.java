@@ -28,6 +28,7 @@ import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.mc.impl.util.GroupRetrieval;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.logging.Level;
@@ -57,9 +58,8 @@ import org.ccsds.moims.mo.mc.structures.ObjectInstancePairList;
 public abstract class MCManager {
 
     //An Identity always has exactly one active Definition. Never 0 and never > 1.
-    private final HashMap<Long, Identifier> identitiesToNamesMap;
-    private final HashMap<Identifier, ObjectInstancePair> namesToPairsMap;
-    private final HashMap<Long, Element> objIdToDefMap;
+    //Lock-free for readers, see DefinitionsRegistry
+    private final DefinitionsRegistry definitions;
 
     // Maps all existing Identity objects names that exists in the archive to their ID
     // Identity objects type for which names are stored depends on the implementation class (ParameterIdentity, ActionIdentity...)
@@ -73,9 +73,7 @@ public abstract class MCManager {
 
     protected MCManager(COMServicesProvider comServices) {
 
-        this.identitiesToNamesMap = new HashMap<>();
-        this.namesToPairsMap = new HashMap<>();
-        this.objIdToDefMap = new HashMap<>();
+        this.definitions = new DefinitionsRegistry();
         this.storedNamesToIdMap = null;
 
         if (comServices != null) {
@@ -120,8 +118,8 @@ public abstract class MCManager {
      * @param identityId The object instance identifier of the identity
      * @return True if exists. False otherwise.
      */
-    protected synchronized boolean existsIdentity(Long identityId) {
-        return this.identitiesToNamesMap.containsKey(identityId);
+    protected boolean existsIdentity(Long identityId) {
+        return this.definitions.getByIdentity(identityId) != null;
     }
 
     /**
@@ -130,8 +128,8 @@ public abstract class MCManager {
      * @param objId The object instance identifier.
      * @return True if exists. False otherwise.
      */
-    public synchronized boolean existsDef(final Long objId) {
-        return this.objIdToDefMap.containsKey(objId);
+    public boolean existsDef(final Long objId) {
+        return this.definitions.getByDefinitionId(objId) != null;
     }
 
     /**
@@ -141,11 +139,9 @@ public abstract class MCManager {
      * @return The object instance identifier of the identity. Null if not
      * found.
      */
-    public synchronized Long getIdentity(Identifier name) {
-        // Todo: This one can go slow... BUT, the publishing of Alerts has to change 
-        // to use the getIdentityDefinition() and check for null, like it is done for parameters
-        final ObjectInstancePair pair = this.namesToPairsMap.get(name);
-        return (pair != null) ? pair.getObjIdentityInstanceId() : null;
+    public Long getIdentity(Identifier name) {
+        final DefinitionsRegistry.Entry entry = this.definitions.getByName(name);
+        return (entry != null) ? entry.getIdentityId() : null;
     }
 
     /**
@@ -156,8 +152,9 @@ public abstract class MCManager {
      * @return The object instance identifier of the identity. Null if not
      * found.
      */
-    public synchronized ObjectInstancePair getIdentityDefinition(Identifier name) {
-        return this.namesToPairsMap.get(name);
+    public ObjectInstancePair getIdentityDefinition(Identifier name) {
+        final DefinitionsRegistry.Entry entry = this.definitions.getByName(name);
+        return (entry != null) ? entry.getPair() : null;
     }
 
     /**
@@ -166,17 +163,10 @@ public abstract class MCManager {
      * @param identityId the id of the identity you want the details from
      * @return the definition-details. Or Null if not found.
      */
-    public synchronized Element getDefinition(Long identityId) {
+    public Element getDefinition(Long identityId) {
         // This must be fast!
-
-        // Needs further optimization...
-        final Identifier name = this.identitiesToNamesMap.get(identityId);
-
-        if (name == null) {
-            return null;
-        }
-
-        return this.objIdToDefMap.get(this.namesToPairsMap.get(name).getObjDefInstanceId());
+        final DefinitionsRegistry.Entry entry = this.definitions.getByIdentity(identityId);
+        return (entry != null) ? entry.getDefinition() : null;
     }
 
     /**
@@ -185,8 +175,9 @@ public abstract class MCManager {
      * @param objId the id of the identity you want the details from
      * @return the definition-details. Or Null if not found.
      */
-    public synchronized Element getDefinitionFromObjId(Long objId) {
-        return this.objIdToDefMap.get(objId);
+    public Element getDefinitionFromObjId(Long objId) {
+        final DefinitionsRegistry.Entry entry = this.definitions.getByDefinitionId(objId);
+        return (entry != null) ? entry.getDefinition() : null;
     }
 
     /**
@@ -196,14 +187,9 @@ public abstract class MCManager {
      * @param identityId the id of the identity you want the details from
      * @return the definition-details. Or Null if not found.
      */
-    public synchronized Long getDefinitionId(Long identityId) {
-        final Identifier name = this.identitiesToNamesMap.get(identityId);
-
-        if (name == null) {
-            return null;
-        }
-
-        return this.namesToPairsMap.get(name).getObjDefInstanceId();
+    public Long getDefinitionId(Long identityId) {
+        final DefinitionsRegistry.Entry entry = this.definitions.getByIdentity(identityId);
+        return (entry != null) ? entry.getDefinitionId() : null;
     }
 
     /**
@@ -212,10 +198,9 @@ public abstract class MCManager {
      * @param identityId the id of the definitions identity
      * @return the name-field of the definitions identity
      */
-    public synchronized Identifier getName(Long identityId) {
-        // Todo: Make it fast!
-
-        return this.identitiesToNamesMap.get(identityId);
+    public Identifier getName(Long identityId) {
+        final DefinitionsRegistry.Entry entry = this.definitions.getByIdentity(identityId);
+        return (entry != null) ? entry.getName() : null;
     }
 
     /**
@@ -223,9 +208,11 @@ public abstract class MCManager {
      *
      * @return The object instance identifiers of the identities.
      */
-    public synchronized ObjectInstancePairList listAllIdentityDefinitions() {
+    public ObjectInstancePairList listAllIdentityDefinitions() {
         ObjectInstancePairList list = new ObjectInstancePairList();
-        list.addAll(this.namesToPairsMap.values());
+        for (DefinitionsRegistry.Entry entry : this.definitions.listEntries()) {
+            list.add(entry.getPair());
+        }
         return list;
     }
 
@@ -234,9 +221,9 @@ public abstract class MCManager {
      *
      * @return The object instance identifiers of the identities.
      */
-    public synchronized LongList listAllIdentities() {
+    public LongList listAllIdentities() {
         LongList list = new LongList();
-        list.addAll(this.identitiesToNamesMap.keySet());
+        list.addAll(this.definitions.listIdentityIds());
         return list;
     }
 
@@ -245,9 +232,9 @@ public abstract class MCManager {
      *
      * @return The object instance identifiers of the identities.
      */
-    public synchronized LongList listAllDefinitions() {
+    public LongList listAllDefinitions() {
         LongList list = new LongList();
-        list.addAll(this.objIdToDefMap.keySet());
+        list.addAll(this.definitions.listDefinitionIds());
         return list;
     }
 
@@ -261,10 +248,9 @@ public abstract class MCManager {
      */
     protected synchronized Boolean addIdentityDefinition(final Identifier name,
             final ObjectInstancePair pair, final Element defDetails) {
-        this.identitiesToNamesMap.put(pair.getObjIdentityInstanceId(), name);
-        this.namesToPairsMap.put(name, pair);
-        this.objIdToDefMap.put(pair.getObjDefInstanceId(), defDetails);
+        this.definitions.add(name, pair.getObjIdentityInstanceId(), pair.getObjDefInstanceId(), defDetails);
         this.storedNamesToIdMap.put(name, pair.getObjIdentityInstanceId());
+        this.onDefinitionsChanged();
         return true;
     }
 
@@ -277,25 +263,12 @@ public abstract class MCManager {
      * @return True if successful. False if the object instance identifier does
      * not exist in the manager, in this case, the definition is not added.
      */
-    protected synchronized boolean updateDef(Long identityId, Long newDefId, Element newDefDetails) {
-        final Identifier name = this.identitiesToNamesMap.get(identityId);
-
-        if (name == null) {
-            return false;
-        }
-
-        final ObjectInstancePair pair = this.namesToPairsMap.get(name);
-
-        if (pair == null) {
+    protected boolean updateDef(Long identityId, Long newDefId, Element newDefDetails) {
+        if (!this.definitions.update(identityId, newDefId, newDefDetails)) {
             return false;
         }
 
-        // We are good! Remove the previous definition and add the new one...
-        this.objIdToDefMap.remove(pair.getObjDefInstanceId());
-        this.objIdToDefMap.put(newDefId, newDefDetails);
-
-        // Update the pair
-        pair.setObjDefInstanceId(newDefId);
+        this.onDefinitionsChanged();
 
         return true;
     }
@@ -307,23 +280,12 @@ public abstract class MCManager {
      * @return True if successful. False if the object instance identifier does
      * not exist in the manager.
      */
-    protected synchronized boolean deleteIdentity(final Long identityId) {
-        final Identifier name = this.identitiesToNamesMap.get(identityId);
-
-        if (name == null) {
-            return false;
-        }
-
-        final Long objId = this.namesToPairsMap.get(name).getObjDefInstanceId();
-
-        if (objId == null) {
+    protected boolean deleteIdentity(final Long identityId) {
+        if (!this.definitions.remove(identityId)) {
             return false;
         }
 
-        // Remove them all...
-        this.objIdToDefMap.remove(objId);
-        this.namesToPairsMap.remove(name);
-        this.identitiesToNamesMap.remove(identityId);
+        this.onDefinitionsChanged();
 
         return true;
     }
@@ -334,13 +296,13 @@ public abstract class MCManager {
      * @return The definitions set and the corresponding object instance
      * identifiers.
      */
-    public synchronized ConfigurationObjectSetList getCurrentConfiguration() {
+    public ConfigurationObjectSetList getCurrentConfiguration() {
         LongList idObjIds = new LongList();
         LongList defObjIds = new LongList();
 
-        for (ObjectInstancePair pair : this.namesToPairsMap.values()) {
-            idObjIds.add(pair.getObjIdentityInstanceId());
-            defObjIds.add(pair.getObjDefInstanceId());
+        for (DefinitionsRegistry.Entry entry : this.definitions.listEntries()) {
+            idObjIds.add(entry.getIdentityId());
+            defObjIds.add(entry.getDefinitionId());
         }
 
         ConfigurationObjectSet idents = new ConfigurationObjectSet();
@@ -370,7 +332,7 @@ public abstract class MCManager {
      * @return True if the configuration was successfully changed. False
      * otherwise.
      */
-    public synchronized Boolean reconfigureDefinitions(final LongList identityIds,
+    public Boolean reconfigureDefinitions(final LongList identityIds,
             final IdentifierList names, final LongList defIds, final ElementList definitions) {
         if (identityIds == null || names == null || defIds == null || definitions == null) {
             return false;
@@ -380,17 +342,115 @@ public abstract class MCManager {
             return false;
         }
 
-        this.identitiesToNamesMap.clear();
-        this.namesToPairsMap.clear();
-        this.objIdToDefMap.clear();
+        final List<Element> defs = new ArrayList<>(definitions.size());
+        for (Object definition : definitions) {
+            defs.add((Element) definition);
+        }
+        this.definitions.replaceAll(identityIds, names, defIds, defs);
+
+        this.onDefinitionsChanged();
+        return true;
+    }
+
+    /**
+     * Returns the object bodies of the definitions of a configuration to be
+     * reloaded. The definitions already held by the manager are reused, so only
+     * the ones that changed are retrieved from the Archive, in a single request.
+     *
+     * @param defType The object type of the definitions
+     * @param defIds The definitionsIds of the configuration
+     * @param bodies An empty list of the definitions type, filled and returned
+     * @return The object bodies in the order of defIds. Null if one of them
+     * could not be retrieved.
+     */
+    @SuppressWarnings("unchecked")
+    public ElementList getDefinitionsForReconfiguration(final ObjectType defType,
+            final LongList defIds, final ElementList bodies) {
+        final Element[] held = new Element[defIds.size()];
+        final LongList missingIds = new LongList();
+
+        for (int i = 0; i < defIds.size(); i++) {
+            final DefinitionsRegistry.Entry entry = this.definitions.getByDefinitionId(defIds.get(i));
+
+            if (entry != null) {
+                held[i] = entry.getDefinition();
+            } else {
+                missingIds.add(defIds.get(i));
+            }
+        }
+
+        ElementList retrieved = null;
+
+        if (!missingIds.isEmpty()) {
+            retrieved = HelperArchive.getObjectBodyListFromArchive(archiveService, defType,
+                    ConfigurationProviderSingleton.getDomain(), missingIds);
+
+            if (retrieved == null || retrieved.size() != missingIds.size()) {
+                return null;
+            }
+        }
+
+        int next = 0;
+
+        for (Element definition : held) {
+            bodies.add((definition != null) ? definition : retrieved.get(next++));
+        }
+
+        return bodies;
+    }
+
+    /**
+     * Returns the names of the identities of a configuration to be reloaded.
+     * The names of the identities already held by the manager are reused, so
+     * only the other ones are retrieved from the Archive, in a single request.
+     *
+     * @param identityType The object type of the identities
+     * @param identityIds The identityIds of the configuration
+     * @return The names in the order of identityIds. Null if one of them could
+     * not be retrieved.
+     */
+    public IdentifierList getNamesForReconfiguration(final ObjectType identityType,
+            final LongList identityIds) {
+        final Identifier[] held = new Identifier[identityIds.size()];
+        final LongList missingIds = new LongList();
 
         for (int i = 0; i < identityIds.size(); i++) {
-            this.identitiesToNamesMap.put(identityIds.get(i), names.get(i));
-            this.namesToPairsMap.put(names.get(i), new ObjectInstancePair(identityIds.get(i), defIds.get(i)));
-            this.objIdToDefMap.put(defIds.get(i), (Element) definitions.get(i));
+            final DefinitionsRegistry.Entry entry = this.definitions.getByIdentity(identityIds.get(i));
+
+            if (entry != null) {
+                held[i] = entry.getName();
+            } else {
+                missingIds.add(identityIds.get(i));
+            }
         }
 
-        return true;
+        IdentifierList retrieved = null;
+
+        if (!missingIds.isEmpty()) {
+            retrieved = (IdentifierList) HelperArchive.getObjectBodyListFromArchive(archiveService,
+                    identityType, ConfigurationProviderSingleton.getDomain(), missingIds);
+
+            if (retrieved == null || retrieved.size() != missingIds.size()) {
+                return null;
+            }
+        }
+
+        final IdentifierList names = new IdentifierList(identityIds.size());
+        int next = 0;
+
+        for (Identifier name : held) {
+            names.add((name != null) ? name : retrieved.get(next++));
+        }
+
+        return names;
+    }
+
+    /**
+     * Called after the identities or definitions held by the manager were
+     * added, updated, removed or reconfigured. Managers that keep data derived
+     * from the definitions shall discard it here.
+     */
+    protected void onDefinitionsChanged() {
     }
 
     /**
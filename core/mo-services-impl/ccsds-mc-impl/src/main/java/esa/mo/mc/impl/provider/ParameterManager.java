@@ -22,12 +22,12 @@ package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.com.impl.util.HelperArchive;
-import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.mc.impl.interfaces.ParameterStatusListener;
 import esa.mo.reconfigurable.service.PersistLatestServiceConfigurationAdapter;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
@@ -71,6 +71,23 @@ public class ParameterManager extends MCManager
 
     private final ParameterStatusListener parametersMonitoring;
 
+    /**
+     * True if the listener relies on the identity-id based onGetValue, resolved once instead of on every call
+     */
+    private final boolean getValueByIdentityId;
+
+    /**
+     * Maximum number of compiled ParameterExpressions kept in the cache
+     */
+    private static final int MAX_COMPILED_EXPRESSIONS = 1024;
+
+    /**
+     * The compiled ParameterExpressions, shared by all the services that use this manager. Replaced as a whole when
+     * the definitions change and cleared when it reaches MAX_COMPILED_EXPRESSIONS.
+     */
+    private volatile ConcurrentHashMap<ParameterExpression, CompiledParameterExpression> compiledExpressions =
+            new ConcurrentHashMap<>();
+
     private Long uniqueObjIdIdentity;
 
     private Long uniqueObjIdDef; // Counter (different for every Definition)
@@ -94,6 +111,7 @@ public class ParameterManager extends MCManager
         }
 
         this.parametersMonitoring = parametersMonitoring;
+        this.getValueByIdentityId = usesIdentityIdGetter(parametersMonitoring);
 
         if (super.getArchiveService() == null)
         {  // No Archive?
@@ -108,7 +126,7 @@ public class ParameterManager extends MCManager
             // Initialize the Conversion service
             try
             {
-                this.conversionService.init(super.getArchiveService());
+                this.conversionService.init(super.getArchiveService(), this);
             }
             catch (MALException ex)
             {
@@ -287,22 +305,85 @@ public class ParameterManager extends MCManager
      */
     protected ParameterValueList getParameterValues(LongList identityIds, boolean aggrExpired)
     {
+        final Attribute[] rawValues = getRawValues(identityIds);
         ParameterValueList pValList = new ParameterValueList();
-        for (Long identityId : identityIds)
+        for (int i = 0; i < identityIds.size(); i++)
         {
-            try
+            final Long identityId = identityIds.get(i);
+
+            if (rawValues == null)
             {
-                pValList.add(getParameterValue(identityId, aggrExpired));
+                try
+                {
+                    pValList.add(getParameterValue(identityId, aggrExpired));
+                }
+                catch (MALInteractionException ex)
+                {
+                    pValList.add(null);
+                }
             }
-            catch (MALInteractionException ex)
-            {
+            else if (!this.existsIdentity(identityId))
+            {  // The Parameter does not exist
                 pValList.add(null);
             }
+            else
+            {
+                pValList.add(generateNewParameterValue(rawValues[i],
+                        this.getParameterDefinition(identityId), aggrExpired));
+            }
         }
 
         return pValList;
     }
 
+    /**
+     * Gets the current raw values of the parameters with the given identity-ids from the application in one call.
+     *
+     * @param identityIds the identity-ids of the parameters
+     * @return the raw values, in the same order as the identity-ids. Null if the values have to be acquired one by
+     * one, which is the case for a single parameter, for the name based listeners, or if the call failed.
+     */
+    private Attribute[] getRawValues(LongList identityIds)
+    {
+        if (parametersMonitoring == null || !getValueByIdentityId || identityIds.size() < 2)
+        {
+            return null;
+        }
+
+        final LongList existingIds = new LongList();
+        for (Long identityId : identityIds)
+        {
+            if (this.existsIdentity(identityId))
+            {
+                existingIds.add(identityId);
+            }
+        }
+
+        final Attribute[] existingValues;
+        try
+        {
+            existingValues = parametersMonitoring.onGetValues(existingIds);
+        }
+        catch (IOException ex)
+        {
+            // Acquire them one by one, so that a single failure only invalidates its own parameter
+            Logger.getLogger(ParameterManager.class.getName()).log(Level.FINE,
+                    "The parameter values could not be acquired in one call", ex);
+            return null;
+        }
+
+        final Attribute[] rawValues = new Attribute[identityIds.size()];
+        for (int i = 0, j = 0; i < rawValues.length; i++)
+        {
+            if (j < existingIds.size() && identityIds.get(i).equals(existingIds.get(j)))
+            {
+                rawValues[i] = existingValues[j++];
+            }
+        }
+
+        return rawValues;
+    }
+
     /**
      * Gets the current value of the parameter with the given identity-id
      *
@@ -416,35 +497,95 @@ public class ParameterManager extends MCManager
         }
 
         //TODO: contains the expression defintion or identity-id? -> issue #132, #179
-        final Long paramIdentityId = expression.getParameterId().getInstId();
-        ParameterDefinitionDetails pDef = this.getParameterDefinition(paramIdentityId);
+        final CompiledParameterExpression compiled = this.compileParameterExpression(expression);
+        final ParameterDefinitionDetails pDef = compiled.getDefinition();
         Attribute value;
         try
         {
-
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                    .getDeclaringClass();
-            if (cla == ParameterStatusListener.class)
+            if (getValueByIdentityId)
             {
-                value = parametersMonitoring.onGetValue(paramIdentityId);
+                value = parametersMonitoring.onGetValue(compiled.getParameterId());
             }
             else
             {
-                value = parametersMonitoring.onGetValue(super.getName(paramIdentityId), pDef.getRawType());
+                value = parametersMonitoring.onGetValue(compiled.getName(), pDef.getRawType());
             }
         }
-        catch (IOException | NoSuchMethodException | SecurityException ex)
+        catch (IOException ex)
         {
             Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
             return false;
         }
 
-        if (expression.getUseConverted())
+        if (compiled.getUseConverted())
         { // Is the validity checking for the converted or for the raw value?
             value = conversionService.generateConvertedValue(value, pDef.getConversion());
         }
 
-        return HelperCOM.evaluateExpression(value, expression.getOperator(), expression.getValue());
+        return compiled.evaluate(value);
+    }
+
+    /**
+     * Compiles the given parameterExpression. The compiled form is cached until the definitions change, so repeated
+     * calls with an equal expression usually return the same object.
+     *
+     * @param expression the parameterExpression to be compiled
+     * @return the compiled expression
+     */
+    public CompiledParameterExpression compileParameterExpression(ParameterExpression expression)
+    {
+        final ConcurrentHashMap<ParameterExpression, CompiledParameterExpression> cache = this.compiledExpressions;
+        CompiledParameterExpression compiled = cache.get(expression);
+
+        if (compiled == null)
+        {
+            final Long identityId = expression.getParameterId().getInstId();
+            compiled = new CompiledParameterExpression(expression, super.getName(identityId),
+                                                       this.getParameterDefinition(identityId));
+
+            if (cache.size() >= MAX_COMPILED_EXPRESSIONS)
+            {
+                // Expressions from requests can be unbounded, start over rather than growing forever
+                cache.clear();
+            }
+
+            // If the definitions changed in the meantime, the entry only lands in the discarded map
+            cache.put(expression, compiled);
+        }
+
+        return compiled;
+    }
+
+    @Override
+    protected void onDefinitionsChanged()
+    {
+        // The referenced parameters might have been resolved to a definition that no longer exists
+        this.compiledExpressions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks if the listener implements the identity-id based onGetValue instead of the deprecated name based one.
+     *
+     * @param listener the parameter listener
+     * @return true if the identity-id based method shall be used
+     */
+    private static boolean usesIdentityIdGetter(ParameterStatusListener listener)
+    {
+        if (listener == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            return listener.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
+                    .getDeclaringClass() == ParameterStatusListener.class;
+        }
+        catch (NoSuchMethodException | SecurityException ex)
+        {
+            Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
+        }
     }
 
     /**
@@ -985,18 +1126,9 @@ public class ParameterManager extends MCManager
         {
             return null;
         }
-        try
-        {
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                    .getDeclaringClass();
-            if (cla == ParameterStatusListener.class)
-            {
-                return parametersMonitoring.onGetValue(identityId);
-            }
-        }
-        catch (NoSuchMethodException | SecurityException ex)
+        if (getValueByIdentityId)
         {
-            Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
+            return parametersMonitoring.onGetValue(identityId);
         }
         return parametersMonitoring.onGetValue(this.getName(identityId), pDef.getRawType());
 
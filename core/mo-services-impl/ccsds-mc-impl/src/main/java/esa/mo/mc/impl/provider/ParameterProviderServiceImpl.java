@@ -22,7 +22,6 @@ package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.consumer.EventConsumerServiceImpl;
 import esa.mo.com.impl.provider.ArchiveSyncProviderServiceImpl;
-import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
@@ -707,22 +706,16 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
         }
 
         // ok, we're good to go...
-        // Load the Parameter Definitions from this configuration...
+        // Load the Definitions from this configuration, reusing the unchanged ones...
         ConfigurationObjectSet confSetDefs = (confSet0.getObjType().equals(ParameterHelper.PARAMETERDEFINITION_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        ParameterDefinitionDetailsList pDefs = (ParameterDefinitionDetailsList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                ParameterHelper.PARAMETERDEFINITION_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetDefs.getObjInstIds());
+        ParameterDefinitionDetailsList pDefs = (ParameterDefinitionDetailsList) manager.getDefinitionsForReconfiguration(
+                ParameterHelper.PARAMETERDEFINITION_OBJECT_TYPE, confSetDefs.getObjInstIds(), new ParameterDefinitionDetailsList());
 
         ConfigurationObjectSet confSetIdents = (confSet0.getObjType().equals(ParameterHelper.PARAMETERIDENTITY_OBJECT_TYPE)) ? confSet0 : confSet1;
 
-        IdentifierList idents = (IdentifierList) HelperArchive.getObjectBodyListFromArchive(
-                manager.getArchiveService(),
-                ParameterHelper.PARAMETERIDENTITY_OBJECT_TYPE,
-                ConfigurationProviderSingleton.getDomain(),
-                confSetIdents.getObjInstIds());
+        IdentifierList idents = manager.getNamesForReconfiguration(
+                ParameterHelper.PARAMETERIDENTITY_OBJECT_TYPE, confSetIdents.getObjInstIds());
 
         periodicReportingManager.pause();
         
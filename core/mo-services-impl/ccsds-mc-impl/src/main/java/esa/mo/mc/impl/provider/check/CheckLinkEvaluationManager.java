@@ -98,6 +98,25 @@ public class CheckLinkEvaluationManager {
      * the consecutive nominal/violation samples havent been reached yet
      */
     public EvaluationResult evaluateCheckResult(final Long checkLinkId, final ParameterValue parValue, boolean triggered, CheckDefinitionDetails checkDefDetails, CheckLinkDetails details, ObjectDetails checkLinkLink, boolean checkServiceGloballyEnabled) {
+        return evaluateCheckResult(checkLinkId, parValue, triggered, checkDefDetails, details, checkLinkLink, checkServiceGloballyEnabled, LimitCheckTable.NOT_EVALUATED);
+    }
+
+    /**
+     * Same as the other evaluateCheckResult, but for a Limit Check whose
+     * evaluation was already done by a {@link LimitCheckTable}.
+     *
+     * @param checkLinkId
+     * @param parValue
+     * @param triggered
+     * @param checkDefDetails
+     * @param details
+     * @param checkLinkLink
+     * @param checkServiceGloballyEnabled
+     * @param limitResult the result of the LimitCheckTable for the checked
+     * value, or LimitCheckTable.NOT_EVALUATED to evaluate the check here
+     * @return the checkState of the check
+     */
+    public EvaluationResult evaluateCheckResult(final Long checkLinkId, final ParameterValue parValue, boolean triggered, CheckDefinitionDetails checkDefDetails, CheckLinkDetails details, ObjectDetails checkLinkLink, boolean checkServiceGloballyEnabled, byte limitResult) {
         EvaluationResult evaluationResult = new EvaluationResult();
         evaluationResult.setEvaluationTime(new Time(System.currentTimeMillis()));
 //requirement: 3.5.3.o
@@ -135,7 +154,12 @@ public class CheckLinkEvaluationManager {
         }
         try {
             //Evaluate Check
-            evaluationResult = this.evaluateCheckResult(checkLinkId, checkDefDetails, value, evaluationResult);
+            if (limitResult != LimitCheckTable.NOT_EVALUATED && checkDefDetails instanceof LimitCheckDefinition) {
+                evaluationResult.setCheckedValue(value);
+                evaluationResult.setEvaluationResult(LimitCheckTable.toEvaluationResult(limitResult));
+            } else {
+                evaluationResult = this.evaluateCheckResult(checkLinkId, checkDefDetails, value, evaluationResult);
+            }
 
             return getCheckStateOK(triggered, evaluationResult, checkLinkId, checkDefDetails);
 
@@ -0,0 +1,272 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider.check;
+
+import esa.mo.com.impl.util.CompiledExpression;
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Enumeration;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.check.structures.LimitCheckDefinition;
+
+/**
+ * Table of limit checks with their thresholds held in primitive arrays, so
+ * that all the limit checks of one checking cycle can be evaluated in a single
+ * loop without boxing. Each slot of the table corresponds to one check link.
+ *
+ * Only limit checks with numeric limits are stored. The other ones are marked
+ * as not batchable and must be evaluated with
+ * {@link CheckEvaluation#evaluateLimitCheck}.
+ *
+ * The table is not thread-safe, it is meant to be owned by one checking cycle.
+ */
+public class LimitCheckTable {
+
+    /**
+     * The check was not evaluated by the table.
+     */
+    public static final byte NOT_EVALUATED = -1;
+    /**
+     * The value is within the limits.
+     */
+    public static final byte IN_LIMITS = 0;
+    /**
+     * The value violates the upper limit.
+     */
+    public static final byte ABOVE_UPPER = 1;
+    /**
+     * The value violates the lower limit.
+     */
+    public static final byte BELOW_LOWER = 2;
+
+    private LimitCheckDefinition[] definitions;
+    private boolean[] batchable;
+    private boolean[] hasUpper;
+    private boolean[] hasLower;
+    private boolean[] violateInRange;
+    private double[] upper;
+    private double[] lower;
+    private int size;
+
+    public LimitCheckTable(int capacity) {
+        this.allocate(Math.max(capacity, 1));
+        this.size = 0;
+    }
+
+    private void allocate(int capacity) {
+        this.definitions = copy(this.definitions, new LimitCheckDefinition[capacity]);
+        this.batchable = copy(this.batchable, new boolean[capacity]);
+        this.hasUpper = copy(this.hasUpper, new boolean[capacity]);
+        this.hasLower = copy(this.hasLower, new boolean[capacity]);
+        this.violateInRange = copy(this.violateInRange, new boolean[capacity]);
+        this.upper = copy(this.upper, new double[capacity]);
+        this.lower = copy(this.lower, new double[capacity]);
+    }
+
+    private <T> T copy(T from, T to) {
+        if (from != null) {
+            System.arraycopy(from, 0, to, 0, this.size);
+        }
+        return to;
+    }
+
+    /**
+     * @return The number of slots in the table
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all the slots of the table.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.definitions[i] = null;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Appends a limit check to the table.
+     *
+     * @param definition The limit check definition, or null for a slot that
+     * holds no limit check
+     * @return The slot of the check
+     */
+    public int add(LimitCheckDefinition definition) {
+        if (this.size == this.definitions.length) {
+            this.allocate(this.size * 2);
+        }
+
+        final int slot = this.size++;
+        this.set(slot, definition);
+        return slot;
+    }
+
+    /**
+     * @param slot The slot
+     * @return The definition stored in the slot
+     */
+    public LimitCheckDefinition getDefinition(int slot) {
+        return this.definitions[slot];
+    }
+
+    /**
+     * @param slot The slot
+     * @return True if the check of the slot is evaluated by the table
+     */
+    public boolean isBatchable(int slot) {
+        return this.batchable[slot];
+    }
+
+    /**
+     * Sets the definition of a slot. Must be called again whenever the
+     * definition of the check changes.
+     *
+     * @param slot The slot
+     * @param definition The limit check definition
+     * @return True if the check can be evaluated by the table
+     */
+    public boolean set(int slot, LimitCheckDefinition definition) {
+        this.definitions[slot] = definition;
+        this.batchable[slot] = false;
+
+        if (definition == null) {
+            return false;
+        }
+
+        final Double upperLimit = numericLimit(definition.getUpperLimit());
+        final Double lowerLimit = numericLimit(definition.getLowerLimit());
+
+        if ((definition.getUpperLimit() != null && upperLimit == null)
+                || (definition.getLowerLimit() != null && lowerLimit == null)) {
+            return false; // Non-numeric limits use the generic evaluation
+        }
+
+        this.hasUpper[slot] = (upperLimit != null);
+        this.hasLower[slot] = (lowerLimit != null);
+        this.upper[slot] = (upperLimit != null) ? upperLimit : 0;
+        this.lower[slot] = (lowerLimit != null) ? lowerLimit : 0;
+        this.violateInRange[slot] = definition.getViolateInRange();
+        this.batchable[slot] = true;
+        return true;
+    }
+
+    /**
+     * Converts a limit to a double if it is compared numerically by
+     * HelperCOM.evaluateExpression.
+     *
+     * @param limit The limit
+     * @return The limit as double. Null if the limit is null or not numeric.
+     */
+    private static Double numericLimit(Attribute limit) {
+        if (limit == null || limit instanceof Blob || limit instanceof Enumeration
+                || HelperMisc.isStringAttribute(limit)) {
+            return null;
+        }
+
+        return HelperAttributes.attribute2double(limit);
+    }
+
+    /**
+     * Converts a checked value to a double for the numeric evaluation.
+     *
+     * @param value The raw or converted parameter value
+     * @param present Output array where false is stored if the value cannot be
+     * evaluated by the table
+     * @param values Output array for the value
+     * @param slot The slot to be written
+     */
+    public static void loadValue(Attribute value, boolean[] present, double[] values, int slot) {
+        if (value instanceof Union && ((Union) value).getTypeShortForm() != 15) {
+            values[slot] = CompiledExpression.unionToDouble((Union) value, Double.NaN);
+            present[slot] = true;
+            return;
+        }
+
+        if (value == null || value instanceof Blob || value instanceof Enumeration) {
+            present[slot] = false;
+            return;
+        }
+
+        final Double converted = HelperAttributes.attribute2double(value);
+        present[slot] = (converted != null);
+        values[slot] = (converted != null) ? converted : 0;
+    }
+
+    /**
+     * Evaluates all the batchable checks of the table. The result is the same
+     * as the one of {@link CheckEvaluation#evaluateLimitCheck}.
+     *
+     * @param values The checked value of each slot
+     * @param present False for the slots without a numeric value
+     * @param results Output array with one of IN_LIMITS, ABOVE_UPPER,
+     * BELOW_LOWER or NOT_EVALUATED per slot
+     */
+    public void evaluate(double[] values, boolean[] present, byte[] results) {
+        final int n = this.size;
+
+        for (int i = 0; i < n; i++) {
+            if (!this.batchable[i] || !present[i]) {
+                results[i] = NOT_EVALUATED;
+                continue;
+            }
+
+            final double v = values[i];
+            byte result = IN_LIMITS;
+
+            if (this.hasUpper[i] && !(v <= this.upper[i])) {
+                result = ABOVE_UPPER;
+            }
+            if (this.hasLower[i] && !(v >= this.lower[i])) {
+                result = BELOW_LOWER;
+            }
+            if (this.violateInRange[i]) {
+                // requirement: 3.5.3.dd
+                result = (result == IN_LIMITS) ? ABOVE_UPPER : IN_LIMITS;
+            }
+
+            results[i] = result;
+        }
+    }
+
+    /**
+     * Converts a result of the table to the representation used by
+     * EvaluationResult.
+     *
+     * @param result The result of the table
+     * @return null if the check passed, true if the upper limit is violated,
+     * false if the lower limit is violated
+     */
+    public static Boolean toEvaluationResult(byte result) {
+        if (result == ABOVE_UPPER) {
+            return true;
+        }
+        if (result == BELOW_LOWER) {
+            return false;
+        }
+        return null;
+    }
+
+}
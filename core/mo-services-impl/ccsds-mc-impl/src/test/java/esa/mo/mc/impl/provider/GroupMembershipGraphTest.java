@@ -0,0 +1,256 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.com.impl.provider.ArchiveProviderServiceImpl;
+import java.util.Arrays;
+import org.ccsds.moims.mo.com.archive.provider.RetrieveInteraction;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
+import org.ccsds.moims.mo.com.structures.ObjectDetails;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.structures.FineTime;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mc.group.GroupHelper;
+import org.ccsds.moims.mo.mc.group.structures.GroupDetails;
+import org.ccsds.moims.mo.mc.group.structures.GroupDetailsList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupMembershipGraphTest {
+
+    private static final ObjectType PARAMETER_IDENTITY
+            = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(1));
+    private static final ObjectType ACTION_IDENTITY
+            = new ObjectType(new UShort(4), new UShort(1), new UOctet((short) 1), new UShort(1));
+
+    /**
+     * Archive holding the group definitions in memory. The retrieve of all the
+     * group definitions is answered synchronously.
+     */
+    private static final class GroupArchive extends ArchiveProviderServiceImpl {
+
+        private final ArchiveDetailsList details = new ArchiveDetailsList();
+        private final GroupDetailsList groups = new GroupDetailsList();
+        private int retrieves = 0;
+
+        /**
+         * Stores the group definition, or updates it if its id already exists.
+         */
+        void storeGroup(final long defId, final long identityId, final long timestamp,
+                final ObjectType objectType, final IdentifierList domain, final Long... instanceIds) {
+            GroupDetails group = new GroupDetails();
+            group.setDescription("Group " + identityId);
+            group.setObjectType(objectType);
+            group.setDomain(domain);
+            group.setInstanceIds(new LongList());
+            group.getInstanceIds().addAll(Arrays.asList(instanceIds));
+
+            ArchiveDetails archiveDetails = new ArchiveDetails(defId, new ObjectDetails(identityId, null),
+                    null, new FineTime(timestamp), null);
+            int index = this.indexOf(defId);
+
+            if (index < 0) {
+                details.add(archiveDetails);
+                groups.add(group);
+            } else {
+                details.set(index, archiveDetails);
+                groups.set(index, group);
+            }
+
+            ArchiveDetailsList changedDetails = new ArchiveDetailsList();
+            changedDetails.add(archiveDetails);
+            GroupDetailsList changedGroups = new GroupDetailsList();
+            changedGroups.add(group);
+
+            if (index < 0) {
+                LongList objIds = new LongList();
+                objIds.add(defId);
+                this.notifyObjectsStored(GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, objIds,
+                        changedDetails, changedGroups);
+            } else {
+                this.notifyObjectsUpdated(GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain,
+                        changedDetails, changedGroups);
+            }
+        }
+
+        void deleteGroup(final long defId, final IdentifierList domain) {
+            int index = this.indexOf(defId);
+            details.remove(index);
+            groups.remove(index);
+
+            LongList objIds = new LongList();
+            objIds.add(defId);
+            this.notifyObjectsDeleted(GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, objIds);
+        }
+
+        private int indexOf(final long defId) {
+            for (int i = 0; i < details.size(); i++) {
+                if (details.get(i).getInstId() == defId) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        public void retrieve(final ObjectType inObjectType, final IdentifierList inDomain,
+                final LongList inObjIds, final RetrieveInteraction interaction)
+                throws MALInteractionException, MALException {
+            retrieves++;
+            interaction.sendResponse(details, groups);
+        }
+    }
+
+    private static IdentifierList domain() {
+        IdentifierList domain = new IdentifierList();
+        domain.add(new Identifier("esa"));
+        domain.add(new Identifier("test"));
+        return domain;
+    }
+
+    @Test
+    public void testTransitiveClosure() {
+        GroupArchive archive = new GroupArchive();
+        IdentifierList domain = domain();
+        // A (1) contains the groups B (2) and C (3), B contains the group D (4)
+        archive.storeGroup(11L, 1L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 2L, 3L);
+        archive.storeGroup(12L, 2L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 4L);
+        archive.storeGroup(13L, 3L, 100L, PARAMETER_IDENTITY, domain, 30L, 31L);
+        archive.storeGroup(14L, 4L, 100L, ACTION_IDENTITY, domain, 40L);
+
+        GroupMembershipGraph graph = GroupMembershipGraph.forArchive(archive);
+        GroupMembershipGraph.Closure closure = graph.getClosure(domain, 1L);
+
+        Assert.assertEquals(Arrays.asList(1L, 2L, 4L, 3L), closure.getGroups());
+        Assert.assertEquals(Arrays.asList(40L, 30L, 31L), closure.getIds());
+        Assert.assertEquals(Arrays.asList(ACTION_IDENTITY, PARAMETER_IDENTITY, PARAMETER_IDENTITY),
+                closure.getObjectTypes());
+
+        // The closure of a nested group only covers what is reachable from it
+        GroupMembershipGraph.Closure nested = graph.getClosure(domain, 2L);
+        Assert.assertEquals(Arrays.asList(2L, 4L), nested.getGroups());
+        Assert.assertEquals(Arrays.asList(40L), nested.getIds());
+
+        Assert.assertNull(graph.getClosure(domain, 99L));
+        Assert.assertEquals(1, archive.retrieves);
+    }
+
+    @Test
+    public void testLatestDefinitionIsUsed() {
+        GroupArchive archive = new GroupArchive();
+        IdentifierList domain = domain();
+        archive.storeGroup(21L, 1L, 100L, PARAMETER_IDENTITY, domain, 1L);
+        archive.storeGroup(22L, 1L, 200L, PARAMETER_IDENTITY, domain, 2L, 3L);
+
+        GroupMembershipGraph graph = GroupMembershipGraph.forArchive(archive);
+
+        Assert.assertEquals(Long.valueOf(22L), graph.getLatestDefinitionId(domain, 1L));
+        Assert.assertEquals(Arrays.asList(1L), graph.getDetails(domain, 21L).getInstanceIds());
+        Assert.assertEquals(Arrays.asList(2L, 3L), graph.getClosure(domain, 1L).getIds());
+    }
+
+    @Test
+    public void testCycleIsDetected() {
+        GroupArchive archive = new GroupArchive();
+        IdentifierList domain = domain();
+        // A (1) contains B (2) which contains A again and C (3)
+        archive.storeGroup(31L, 1L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 2L);
+        archive.storeGroup(32L, 2L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 1L, 3L, 3L);
+        archive.storeGroup(33L, 3L, 100L, PARAMETER_IDENTITY, domain, 7L);
+
+        GroupMembershipGraph graph = GroupMembershipGraph.forArchive(archive);
+
+        GroupMembershipGraph.Closure closure = graph.getClosure(domain, 1L);
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), closure.getGroups());
+        Assert.assertEquals(Arrays.asList(7L), closure.getIds());
+
+        closure = graph.getClosure(domain, 2L);
+        Assert.assertEquals(Arrays.asList(2L, 1L, 3L), closure.getGroups());
+        Assert.assertEquals(Arrays.asList(7L), closure.getIds());
+
+        // A group containing itself directly
+        archive.storeGroup(34L, 4L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 4L);
+        closure = graph.getClosure(domain, 4L);
+        Assert.assertEquals(Arrays.asList(4L), closure.getGroups());
+        Assert.assertTrue(closure.getIds().isEmpty());
+    }
+
+    @Test
+    public void testChangesAreAppliedIncrementally() {
+        GroupArchive archive = new GroupArchive();
+        IdentifierList domain = domain();
+        // A (1) contains B (2), C (3) is not reachable from A
+        archive.storeGroup(41L, 1L, 100L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 2L);
+        archive.storeGroup(42L, 2L, 100L, PARAMETER_IDENTITY, domain, 5L);
+        archive.storeGroup(43L, 3L, 100L, PARAMETER_IDENTITY, domain, 8L);
+
+        GroupMembershipGraph graph = GroupMembershipGraph.forArchive(archive);
+        Assert.assertSame(graph, GroupMembershipGraph.forArchive(archive));
+        Assert.assertEquals(Arrays.asList(5L), graph.getClosure(domain, 1L).getIds());
+        Assert.assertEquals(Arrays.asList(5L), graph.getClosure(domain, 1L).getIds());
+        GroupMembershipGraph.Closure unaffected = graph.getClosure(domain, 3L);
+        Assert.assertEquals(1, archive.retrieves);
+
+        // A new definition of B is stored: only the closures reaching B change
+        archive.storeGroup(44L, 2L, 200L, PARAMETER_IDENTITY, domain, 5L, 6L);
+        Assert.assertEquals(Long.valueOf(44L), graph.getLatestDefinitionId(domain, 2L));
+        Assert.assertEquals(Arrays.asList(5L, 6L), graph.getClosure(domain, 1L).getIds());
+        Assert.assertSame(unaffected, graph.getClosure(domain, 3L));
+
+        // An older definition of B does not replace the latest one
+        archive.storeGroup(45L, 2L, 150L, PARAMETER_IDENTITY, domain, 9L);
+        Assert.assertEquals(Arrays.asList(5L, 6L), graph.getClosure(domain, 1L).getIds());
+
+        // The latest definition of B is updated and then deleted
+        archive.storeGroup(44L, 2L, 200L, PARAMETER_IDENTITY, domain, 7L);
+        Assert.assertEquals(Arrays.asList(7L), graph.getClosure(domain, 1L).getIds());
+        archive.deleteGroup(44L, domain);
+        Assert.assertEquals(Long.valueOf(45L), graph.getLatestDefinitionId(domain, 2L));
+        Assert.assertEquals(Arrays.asList(9L), graph.getClosure(domain, 1L).getIds());
+        Assert.assertNull(graph.getDetails(domain, 44L));
+
+        // A group that did not exist yet becomes reachable
+        archive.storeGroup(46L, 1L, 300L, GroupHelper.GROUPIDENTITY_OBJECT_TYPE, domain, 2L, 4L);
+        Assert.assertEquals(Arrays.asList(9L), graph.getClosure(domain, 1L).getIds());
+        archive.storeGroup(47L, 4L, 100L, PARAMETER_IDENTITY, domain, 10L);
+        Assert.assertEquals(Arrays.asList(9L, 10L), graph.getClosure(domain, 1L).getIds());
+        Assert.assertSame(unaffected, graph.getClosure(domain, 3L));
+        Assert.assertEquals(1, archive.retrieves);
+
+        // Changes of other object types are ignored
+        graph.onObjectsChanged(PARAMETER_IDENTITY, domain);
+        graph.getClosure(domain, 1L);
+        Assert.assertEquals(1, archive.retrieves);
+
+        // Changes without the objects make the domain be read again
+        graph.onObjectsChanged(GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain);
+        Assert.assertEquals(Arrays.asList(9L, 10L), graph.getClosure(domain, 1L).getIds());
+        Assert.assertEquals(2, archive.retrieves);
+    }
+}
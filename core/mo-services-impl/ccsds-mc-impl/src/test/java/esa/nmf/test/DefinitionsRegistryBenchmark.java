@@ -0,0 +1,229 @@
+package esa.nmf.test;
+
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+import esa.mo.mc.impl.provider.DefinitionsRegistry;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
+
+/**
+ * Contention benchmark of the MC definitions lookups. Compares the former
+ * layout of MCManager (three HashMaps guarded by the manager's monitor)
+ * against the DefinitionsRegistry, with several reader threads resolving
+ * names and definitions while one thread keeps updating definitions.
+ *
+ * Not run by the test suite. Usage:
+ * java esa.nmf.test.DefinitionsRegistryBenchmark [readers] [identities] [seconds]
+ */
+public class DefinitionsRegistryBenchmark
+{
+
+  private interface Registry
+  {
+
+    Element getDefinition(Long identityId);
+
+    Identifier getName(Long identityId);
+
+    Long getIdentity(Identifier name);
+
+    void update(Long identityId, Long newDefId, Element def);
+  }
+
+  /**
+   * The lookups as they were done by MCManager before.
+   */
+  private static class SynchronizedRegistry implements Registry
+  {
+
+    private final HashMap<Long, Identifier> identitiesToNamesMap = new HashMap<>();
+    private final HashMap<Identifier, ObjectInstancePair> namesToPairsMap = new HashMap<>();
+    private final HashMap<Long, Element> objIdToDefMap = new HashMap<>();
+
+    synchronized void add(Identifier name, Long identityId, Long defId, Element def)
+    {
+      identitiesToNamesMap.put(identityId, name);
+      namesToPairsMap.put(name, new ObjectInstancePair(identityId, defId));
+      objIdToDefMap.put(defId, def);
+    }
+
+    @Override
+    public synchronized Element getDefinition(Long identityId)
+    {
+      final Identifier name = identitiesToNamesMap.get(identityId);
+      return (name == null) ? null : objIdToDefMap.get(namesToPairsMap.get(name).getObjDefInstanceId());
+    }
+
+    @Override
+    public synchronized Identifier getName(Long identityId)
+    {
+      return identitiesToNamesMap.get(identityId);
+    }
+
+    @Override
+    public synchronized Long getIdentity(Identifier name)
+    {
+      final ObjectInstancePair pair = namesToPairsMap.get(name);
+      return (pair != null) ? pair.getObjIdentityInstanceId() : null;
+    }
+
+    @Override
+    public synchronized void update(Long identityId, Long newDefId, Element def)
+    {
+      final ObjectInstancePair pair = namesToPairsMap.get(identitiesToNamesMap.get(identityId));
+      objIdToDefMap.remove(pair.getObjDefInstanceId());
+      objIdToDefMap.put(newDefId, def);
+      pair.setObjDefInstanceId(newDefId);
+    }
+  }
+
+  private static class LockFreeRegistry implements Registry
+  {
+
+    private final DefinitionsRegistry registry = new DefinitionsRegistry();
+
+    @Override
+    public Element getDefinition(Long identityId)
+    {
+      final DefinitionsRegistry.Entry entry = registry.getByIdentity(identityId);
+      return (entry != null) ? entry.getDefinition() : null;
+    }
+
+    @Override
+    public Identifier getName(Long identityId)
+    {
+      final DefinitionsRegistry.Entry entry = registry.getByIdentity(identityId);
+      return (entry != null) ? entry.getName() : null;
+    }
+
+    @Override
+    public Long getIdentity(Identifier name)
+    {
+      final DefinitionsRegistry.Entry entry = registry.getByName(name);
+      return (entry != null) ? entry.getIdentityId() : null;
+    }
+
+    @Override
+    public void update(Long identityId, Long newDefId, Element def)
+    {
+      registry.update(identityId, newDefId, def);
+    }
+  }
+
+  private static double run(final Registry registry, final Identifier[] names,
+      final int readers, final long durationMs) throws InterruptedException
+  {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final LongAdder reads = new LongAdder();
+    final CountDownLatch start = new CountDownLatch(1);
+    final Thread[] threads = new Thread[readers + 1];
+
+    for (int t = 0; t < readers; t++) {
+      final int seed = t;
+      threads[t] = new Thread(() -> {
+        long local = 0;
+        int i = seed;
+        try {
+          start.await();
+        } catch (InterruptedException ex) {
+          return;
+        }
+        while (running.get()) {
+          final Long identityId = (long) (i % names.length) + 1;
+          registry.getDefinition(identityId);
+          registry.getName(identityId);
+          registry.getIdentity(names[i % names.length]);
+          local += 3;
+          i += 7;
+        }
+        reads.add(local);
+      });
+    }
+
+    // A single writer, as definition edits are rare compared to lookups
+    threads[readers] = new Thread(() -> {
+      long defId = names.length + 1;
+      try {
+        start.await();
+      } catch (InterruptedException ex) {
+        return;
+      }
+      while (running.get()) {
+        final long identityId = (defId % names.length) + 1;
+        registry.update(identityId, defId, new Identifier("def" + defId));
+        defId++;
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException ex) {
+          return;
+        }
+      }
+    });
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+
+    start.countDown();
+    Thread.sleep(durationMs);
+    running.set(false);
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    return reads.sum() * 1000.0 / durationMs;
+  }
+
+  public static void main(String[] args) throws InterruptedException
+  {
+    final int readers = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    final int identities = (args.length > 1) ? Integer.parseInt(args[1]) : 5000;
+    final long durationMs = ((args.length > 2) ? Long.parseLong(args[2]) : 5) * 1000;
+
+    final Identifier[] names = new Identifier[identities];
+    final SynchronizedRegistry synced = new SynchronizedRegistry();
+    final LockFreeRegistry lockFree = new LockFreeRegistry();
+
+    for (int i = 0; i < identities; i++) {
+      names[i] = new Identifier("param" + i);
+      final Long id = (long) i + 1;
+      synced.add(names[i], id, id, new Identifier("def" + i));
+      lockFree.registry.add(names[i], id, id, new Identifier("def" + i));
+    }
+
+    // Warm up both paths before measuring
+    run(synced, names, readers, durationMs / 5);
+    run(lockFree, names, readers, durationMs / 5);
+
+    final double syncedRate = run(synced, names, readers, durationMs);
+    final double lockFreeRate = run(lockFree, names, readers, durationMs);
+
+    System.out.printf("%d readers, %d identities, %d s per run%n", readers, identities, durationMs / 1000);
+    System.out.printf("synchronized HashMaps : %,15.0f lookups/s%n", syncedRate);
+    System.out.printf("DefinitionsRegistry   : %,15.0f lookups/s (x%.1f)%n", lockFreeRate, lockFreeRate / syncedRate);
+  }
+}
@@ -0,0 +1,103 @@
+package esa.nmf.test;
+
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+import esa.mo.mc.impl.provider.check.CheckEvaluation;
+import esa.mo.mc.impl.provider.check.EvaluationResult;
+import esa.mo.mc.impl.provider.check.LimitCheckTable;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.check.structures.LimitCheckDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the batch evaluation of Limit-Checks gives the same results as
+ * CheckEvaluation.evaluateLimitCheck.
+ */
+public class LimitCheckTableTest
+{
+
+  private static LimitCheckDefinition limit(Attribute lower, Attribute upper, boolean violateInRange)
+  {
+    LimitCheckDefinition def = new LimitCheckDefinition();
+    def.setLowerLimit(lower);
+    def.setUpperLimit(upper);
+    def.setViolateInRange(violateInRange);
+    return def;
+  }
+
+  @Test
+  public void testSameAsCheckEvaluation()
+  {
+    LimitCheckDefinition[] defs = new LimitCheckDefinition[]{
+      limit(new Union(0), new Union(10), false),
+      limit(new Union(0), new Union(10), true),
+      limit(null, new Union(5.5), false),
+      limit(new Union(-3L), null, false),
+      limit(new Union(2.0f), new Union(8.0f), true)
+    };
+    Attribute[] values = new Attribute[]{
+      new Union(-5), new Union(0), new Union(5), new Union(10), new Union(11.5),
+      new Union(Double.NaN), new Union("7")
+    };
+
+    LimitCheckTable table = new LimitCheckTable(1); // Also exercises the growth of the table
+    for (LimitCheckDefinition def : defs) {
+      Assert.assertTrue(table.isBatchable(table.add(def)));
+    }
+
+    double[] numbers = new double[defs.length];
+    boolean[] present = new boolean[defs.length];
+    byte[] results = new byte[defs.length];
+
+    for (Attribute value : values) {
+      for (int i = 0; i < defs.length; i++) {
+        LimitCheckTable.loadValue(value, present, numbers, i);
+      }
+      table.evaluate(numbers, present, results);
+
+      for (int i = 0; i < defs.length; i++) {
+        Boolean expected = CheckEvaluation.evaluateLimitCheck(defs[i], value, new EvaluationResult())
+            .getEvaluationResult();
+        Assert.assertEquals("value " + value + " check " + i, expected,
+            LimitCheckTable.toEvaluationResult(results[i]));
+      }
+    }
+  }
+
+  @Test
+  public void testNotBatchable()
+  {
+    LimitCheckTable table = new LimitCheckTable(2);
+    int stringLimit = table.add(limit(new Union("a"), null, false));
+    int empty = table.add(null);
+    Assert.assertFalse(table.isBatchable(stringLimit));
+    Assert.assertFalse(table.isBatchable(empty));
+
+    double[] numbers = new double[2];
+    boolean[] present = new boolean[]{true, true};
+    byte[] results = new byte[2];
+    table.evaluate(numbers, present, results);
+    Assert.assertEquals(LimitCheckTable.NOT_EVALUATED, results[stringLimit]);
+    Assert.assertEquals(LimitCheckTable.NOT_EVALUATED, results[empty]);
+  }
+}
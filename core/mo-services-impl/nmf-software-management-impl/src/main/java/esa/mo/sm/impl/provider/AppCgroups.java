@@ -0,0 +1,201 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperMisc;
+import esa.mo.sm.impl.util.OSValidator;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies CPU and memory limits to the apps with cgroups (v2), so that the
+ * payload apps cannot starve the platform services.
+ *
+ * It is enabled by setting the property
+ * esa.mo.sm.impl.provider.appslauncher.cgroup.dir to a cgroup delegated to
+ * the supervisor (e.g. /sys/fs/cgroup/nmf), in which a child cgroup is
+ * created for each app. The limits are read from the provider.properties of
+ * the app (helpertools.configurations.provider.app.cpulimit and memorylimit)
+ * and default to the properties
+ * esa.mo.sm.impl.provider.appslauncher.cgroup.cpu and cgroup.memory. The CPU
+ * limit is in percent of one CPU and the memory limit in bytes, with an
+ * optional K, M or G suffix.
+ *
+ * The launcher shell moves itself to the cgroup before executing the start
+ * command, so that all the processes of the app are limited from the start.
+ * If the move fails, the shell prints an error and exits with the code 126
+ * instead of starting the app without its limits.
+ */
+final class AppCgroups
+{
+
+  static final String PROPERTY_DIR = "esa.mo.sm.impl.provider.appslauncher.cgroup.dir";
+  static final String PROPERTY_CPU = "esa.mo.sm.impl.provider.appslauncher.cgroup.cpu";
+  static final String PROPERTY_MEMORY = "esa.mo.sm.impl.provider.appslauncher.cgroup.memory";
+  private static final Logger LOGGER = Logger.getLogger(AppCgroups.class.getName());
+  private static final long CPU_PERIOD = 100000; // microseconds
+  static final int MOVE_FAILED_EXIT_CODE = 126;
+
+  private final File root;
+  private boolean controllersEnabled = false;
+
+  AppCgroups()
+  {
+    this((System.getProperty(PROPERTY_DIR) == null || new OSValidator().isWindows()) ? null
+        : new File(System.getProperty(PROPERTY_DIR)));
+  }
+
+  AppCgroups(final File root)
+  {
+    this.root = root;
+  }
+
+  /**
+   * Prepares the cgroup of an app and wraps its start command to run in it.
+   *
+   * @param appName   The name of the app.
+   * @param appFolder The folder of the app.
+   * @param command   The start command.
+   * @return The wrapped command, or the same command if the app has no
+   * limits or they could not be applied.
+   */
+  String[] wrap(final String appName, final File appFolder, final String[] command)
+  {
+    if (root == null) {
+      return command;
+    }
+
+    final Properties props = new Properties();
+    final File propsFile = new File(appFolder, HelperMisc.PROVIDER_PROPERTIES_FILE);
+
+    if (propsFile.isFile()) {
+      try (FileInputStream in = new FileInputStream(propsFile)) {
+        props.load(in);
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "The limits of the app could not be read: " + appName, ex);
+      }
+    }
+
+    final String cpu = props.getProperty(HelperMisc.APP_CPU_LIMIT,
+        System.getProperty(PROPERTY_CPU));
+    final String memory = props.getProperty(HelperMisc.APP_MEMORY_LIMIT,
+        System.getProperty(PROPERTY_MEMORY));
+
+    if (cpu == null && memory == null) {
+      return command;
+    }
+
+    final File group = new File(root, appName);
+
+    try {
+      enableControllers();
+
+      if (!group.isDirectory() && !group.mkdir()) {
+        throw new IOException("The cgroup could not be created: " + group);
+      }
+
+      write(group, "cpu.max", (cpu == null) ? "max " + CPU_PERIOD : parseCpu(cpu));
+      write(group, "memory.max", (memory == null) ? "max" : parseMemory(memory));
+    } catch (IOException | IllegalArgumentException ex) {
+      LOGGER.log(Level.WARNING, "The limits of the app " + appName
+          + " could not be applied, it is launched without them.", ex);
+      return command;
+    }
+
+    LOGGER.log(Level.INFO,
+        "Launching the app {0} in the cgroup {1} with the limits cpu: {2}%, memory: {3}",
+        new Object[]{appName, group, (cpu == null) ? "-" : cpu, (memory == null) ? "-" : memory});
+
+    // The command is passed as the arguments of the shell, so it is not quoted again
+    final String procs = new File(group, "cgroup.procs").getAbsolutePath().replace("'", "'\\''");
+    final String[] wrapped = new String[command.length + 3];
+    wrapped[0] = "/bin/sh";
+    wrapped[1] = "-c";
+    wrapped[2] = "echo $$ > '" + procs + "' || { echo 'The app could not be moved to its cgroup.' >&2; "
+        + "exit " + MOVE_FAILED_EXIT_CODE + "; }; exec \"$0\" \"$@\"";
+    System.arraycopy(command, 0, wrapped, 3, command.length);
+    return wrapped;
+  }
+
+  /**
+   * Enables the controllers for the cgroups of the apps. It may already be
+   * done by the system, so a failure only shows up when writing the limits.
+   */
+  private synchronized void enableControllers()
+  {
+    if (!controllersEnabled) {
+      try {
+        write(root, "cgroup.subtree_control", "+cpu +memory");
+        controllersEnabled = true;
+      } catch (IOException ex) {
+        LOGGER.log(Level.FINE, "The cgroup controllers could not be enabled.", ex);
+      }
+    }
+  }
+
+  /**
+   * Converts a CPU limit to the content of cpu.max.
+   *
+   * @param cpu The limit in percent of one CPU.
+   * @return The quota and the period in microseconds.
+   */
+  static String parseCpu(final String cpu)
+  {
+    final double percent = Double.parseDouble(cpu.trim());
+    final long quota = (long) (percent * CPU_PERIOD / 100);
+
+    if (Double.isNaN(percent) || Double.isInfinite(percent) || quota <= 0) {
+      throw new IllegalArgumentException("Invalid CPU limit: " + cpu);
+    }
+
+    return quota + " " + CPU_PERIOD;
+  }
+
+  /**
+   * Checks a memory limit for memory.max.
+   *
+   * @param memory The limit in bytes, with an optional K, M or G suffix.
+   * @return The limit, in upper case.
+   */
+  static String parseMemory(final String memory)
+  {
+    final String value = memory.trim().toUpperCase(Locale.ENGLISH);
+
+    if (!value.matches("[0-9]+[KMG]?")) {
+      throw new IllegalArgumentException("Invalid memory limit: " + memory);
+    }
+
+    return value;
+  }
+
+  private static void write(final File group, final String file, final String value)
+      throws IOException
+  {
+    Files.write(new File(group, file).toPath(), value.getBytes(StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,814 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.sm.impl.util.OSValidator;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shortens the start of the apps by sharing a class-data archive (AppCDS) of
+ * the NMF framework jars between their JVMs, and measures the time from the
+ * launch of each app until it is published on the Directory service.
+ *
+ * The first launch of each app records the classes that it loads in its
+ * folder. After that, the supervisor merges the recorded lists and dumps the
+ * archive in the background for the jars of the libs folder next to the apps
+ * folder, which are the first entries of the classpath of the apps. The
+ * archive is dumped again when the jars or the java command change, or when
+ * new lists were recorded. A failed dump is not attempted again for the same
+ * jars and java command before a delay that doubles with each failure. The
+ * apps are launched with -Xshare:auto, so an archive that does not match falls
+ * back to the normal class loading.
+ *
+ * The java command is resolved and the archive is checked on a background
+ * thread, after the start of the supervisor and after each launch. A launch
+ * only uses the result of the previous check and never waits for it, so the
+ * first launches after the start may go without the archive.
+ *
+ * The archive is dumped with, and the options are only given to, the java
+ * command of the start scripts of the apps (JAVA_CMD=java, found on the PATH)
+ * and only if it is Java 11 or later. It is disabled with the property
+ * esa.mo.sm.impl.provider.appslauncher.cds=false and the archive is stored in
+ * the folder esa.mo.sm.impl.provider.appslauncher.cds.dir (default: the cds
+ * folder next to the apps folder).
+ */
+final class AppLaunchAccelerator
+{
+
+  static final String PROPERTY_ENABLED = "esa.mo.sm.impl.provider.appslauncher.cds";
+  static final String PROPERTY_DIR = "esa.mo.sm.impl.provider.appslauncher.cds.dir";
+  static final int MIN_JAVA_VERSION = 11;
+  static final int REGRESSION_FACTOR = 2;
+  static final int REGRESSION_MIN_LAUNCHES = 3;
+  private static final Logger LOGGER = Logger.getLogger(AppLaunchAccelerator.class.getName());
+  private static final String JAVA_CMD = "java"; // The same as in the start scripts of the apps
+  private static final String CLASSLIST_FILE = ".nmf.classlist";
+  private static final String ARCHIVE_FILE = "nmf-framework.jsa";
+  private static final String FINGERPRINT_ENDING = ".fingerprint";
+  private static final String FAILED_ENDING = ".failed";
+  private static final int DUMP_TIMEOUT = 10; // minutes
+  private static final int PROBE_TIMEOUT = 30; // seconds
+  private static final long BACKOFF_MIN = TimeUnit.MINUTES.toMillis(10);
+  private static final long BACKOFF_MAX = TimeUnit.DAYS.toMillis(1);
+
+  private final File appsFolder;
+  private final File libsFolder;
+  private final File cdsFolder;
+  private final File archive;
+  private final boolean enabled;
+  private final AtomicBoolean dumping = new AtomicBoolean(false);
+  private final Map<String, Launch> launches = new ConcurrentHashMap<>();
+  private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+  private final AtomicBoolean refreshing = new AtomicBoolean(false);
+  private ExecutorService executor = null;
+  private JavaCommand javaCommand = null; // Only used by the background thread
+  private boolean javaCommandReported = false;
+  private volatile JavaCommand usableJava = null; // As of the last check
+  private volatile boolean archiveValid = false; // As of the last check or dump
+
+  AppLaunchAccelerator(final File appsFolder)
+  {
+    this.appsFolder = appsFolder;
+    final File home = appsFolder.getAbsoluteFile().toPath().normalize().getParent().toFile();
+    // The same folder as the NMF_LIB of the start scripts of the apps
+    this.libsFolder = new File(home, "libs");
+    final String dir = System.getProperty(PROPERTY_DIR);
+    this.cdsFolder = (dir != null) ? new File(dir) : new File(home, "cds");
+    this.archive = new File(cdsFolder, ARCHIVE_FILE);
+
+    boolean enable = Boolean.parseBoolean(System.getProperty(PROPERTY_ENABLED, "true"));
+
+    if (enable && !libsFolder.isDirectory()) {
+      LOGGER.log(Level.INFO, "The class-data archive for the apps is disabled. "
+          + "The libs folder was not found: {0}", libsFolder);
+      enable = false;
+    }
+
+    if (enable && !cdsFolder.isDirectory() && !cdsFolder.mkdirs()) {
+      LOGGER.log(Level.WARNING, "The class-data archive for the apps is disabled. "
+          + "The folder could not be created: {0}", cdsFolder);
+      enable = false;
+    }
+
+    this.enabled = enable;
+
+    if (enabled) {
+      executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AppLaunchAccelerator");
+        thread.setDaemon(true);
+        return thread;
+      });
+      refresh();
+    }
+  }
+
+  /**
+   * Returns the JVM options to launch an app with. It also records the
+   * launch in order to measure the time until the app is ready.
+   *
+   * @param appName The name of the app.
+   * @param appFolder The folder of the app.
+   * @param start The System.nanoTime() at which the launch began.
+   * @return The options, or an empty String if there are none.
+   */
+  String launched(final String appName, final File appFolder, final long start)
+  {
+    final StringBuilder options = new StringBuilder();
+    boolean accelerated = false;
+    final JavaCommand java = enabled ? usableJava : null;
+
+    if (java != null) {
+      final File classList = new File(appFolder, CLASSLIST_FILE);
+
+      if (!classList.exists()) {
+        options.append("-XX:DumpLoadedClassList=").append(classList.getAbsolutePath());
+      }
+
+      if (archiveValid) {
+        options.append(options.length() == 0 ? "" : " ");
+        options.append("-XX:SharedArchiveFile=").append(archive.getAbsolutePath());
+        options.append(" -Xshare:auto");
+        accelerated = true;
+      }
+    }
+
+    if (enabled) { // For the next launches
+      refresh();
+    }
+
+    launches.put(appName, new Launch(start, accelerated));
+    return options.toString();
+  }
+
+  /**
+   * Notifies that an app is ready, i.e. published on the Directory service.
+   *
+   * @param appName The name of the app.
+   */
+  void ready(final String appName)
+  {
+    final Launch launch = launches.remove(appName);
+
+    if (launch == null) {
+      return; // Not launched by this supervisor
+    }
+
+    final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launch.start);
+    final Statistics stats = statistics.computeIfAbsent(appName, name -> new Statistics());
+    final long average;
+    final int count;
+    final boolean regression;
+
+    synchronized (stats) {
+      average = stats.getAverage();
+      count = stats.getCount();
+      regression = stats.add(latency);
+    }
+
+    LOGGER.log(Level.INFO, "The app {0} was ready {1} ms after its launch "
+        + "(class-data archive: {2}, previous average: {3} ms over {4} launches)",
+        new Object[]{appName, latency, launch.accelerated ? "yes" : "no", average, count});
+
+    if (regression) {
+      LOGGER.log(Level.WARNING, "The launch of the app {0} took {1} ms, "
+          + "more than {2} times its average of {3} ms!",
+          new Object[]{appName, latency, REGRESSION_FACTOR, average});
+    }
+  }
+
+  /**
+   * Notifies that an app stopped before it was ready.
+   *
+   * @param appName The name of the app.
+   */
+  void stopped(final String appName)
+  {
+    launches.remove(appName);
+  }
+
+  /**
+   * @param appName The name of the app.
+   * @return The launch statistics of the app, or null if it was never ready.
+   */
+  Statistics getStatistics(final String appName)
+  {
+    return statistics.get(appName);
+  }
+
+  /**
+   * Resolves the java command and checks the archive on the background
+   * thread, unless a check is already pending.
+   */
+  private void refresh()
+  {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+
+    executor.execute(() -> {
+      try {
+        final JavaCommand java = this.javaCommand();
+        archiveValid = (java != null) && maintainArchive(java);
+        usableJava = java;
+      } finally {
+        refreshing.set(false);
+      }
+    });
+  }
+
+  /**
+   * Returns the java command of the start scripts, if it supports the
+   * class-data archive. It is probed again when the resolved binary changes.
+   *
+   * @return The java command, or null if none can be used.
+   */
+  private synchronized JavaCommand javaCommand()
+  {
+    final File binary = resolveJavaCommand();
+
+    if (binary == null) {
+      if (!javaCommandReported) {
+        LOGGER.log(Level.INFO, "The class-data archive for the apps is not used. "
+            + "The {0} command was not found on the PATH.", JAVA_CMD);
+        javaCommandReported = true;
+      }
+      javaCommand = null;
+      return null;
+    }
+
+    if (javaCommand == null || !javaCommand.isSameBinary(binary)) {
+      javaCommand = JavaCommand.probe(binary);
+      javaCommandReported = false;
+    }
+
+    if (javaCommand != null && javaCommand.getVersion() < MIN_JAVA_VERSION
+        && !javaCommandReported) {
+      LOGGER.log(Level.INFO, "The class-data archive for the apps requires Java {0} or "
+          + "later. The {1} command is Java {2}.",
+          new Object[]{MIN_JAVA_VERSION, binary, javaCommand.getVersion()});
+      javaCommandReported = true;
+    }
+
+    return (javaCommand != null && javaCommand.getVersion() >= MIN_JAVA_VERSION) ? javaCommand
+        : null;
+  }
+
+  /**
+   * Checks if the archive can be used and schedules a new dump if it is
+   * outdated, unless a dump for the same fingerprint failed recently.
+   *
+   * @param java The java command of the apps.
+   * @return True if the archive matches the current jars and java command.
+   */
+  private boolean maintainArchive(final JavaCommand java)
+  {
+    final String fingerprint = fingerprint(java, libsFolder);
+    final File fingerprintFile = new File(cdsFolder, ARCHIVE_FILE + FINGERPRINT_ENDING);
+    boolean valid = false;
+
+    try {
+      valid = fingerprint != null && archive.isFile() && fingerprintFile.isFile()
+          && fingerprint.equals(new String(Files.readAllBytes(fingerprintFile.toPath()),
+              StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      LOGGER.log(Level.FINE, "The fingerprint of the archive could not be read.", ex);
+    }
+
+    if (fingerprint != null && (!valid || newClassLists(archive.lastModified()))
+        && !isBackingOff(fingerprint, System.currentTimeMillis())
+        && dumping.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        try {
+          dump(java, fingerprint, fingerprintFile);
+        } finally {
+          dumping.set(false);
+        }
+      });
+    }
+
+    return valid;
+  }
+
+  /**
+   * Records a failed dump for a fingerprint. The number of consecutive
+   * failures sets the delay until the next attempt.
+   *
+   * @param fingerprint The fingerprint of the jars and java command.
+   */
+  void recordFailedDump(final String fingerprint)
+  {
+    final File failedFile = new File(cdsFolder, ARCHIVE_FILE + FAILED_ENDING);
+    final int failures = failedDumps(fingerprint) + 1;
+
+    try {
+      Files.write(failedFile.toPath(), (fingerprint + "\n" + failures + "\n")
+          .getBytes(StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      LOGGER.log(Level.FINE, "The failed dump could not be recorded.", ex);
+    }
+
+    LOGGER.log(Level.WARNING, "The class-data archive for the apps will not be generated "
+        + "again before {0} minutes.", TimeUnit.MILLISECONDS.toMinutes(backoffDelay(failures)));
+  }
+
+  /**
+   * Checks if the dump for a fingerprint failed and the delay until the next
+   * attempt did not elapse yet.
+   *
+   * @param fingerprint The fingerprint of the jars and java command.
+   * @param now The current time in milliseconds.
+   * @return True if the dump must not be attempted.
+   */
+  boolean isBackingOff(final String fingerprint, final long now)
+  {
+    final int failures = failedDumps(fingerprint);
+    final File failedFile = new File(cdsFolder, ARCHIVE_FILE + FAILED_ENDING);
+    return failures > 0 && now - failedFile.lastModified() < backoffDelay(failures);
+  }
+
+  /**
+   * @param fingerprint The fingerprint of the jars and java command.
+   * @return The number of consecutive failed dumps for the fingerprint.
+   */
+  private int failedDumps(final String fingerprint)
+  {
+    final File failedFile = new File(cdsFolder, ARCHIVE_FILE + FAILED_ENDING);
+
+    if (!failedFile.isFile()) {
+      return 0;
+    }
+
+    try {
+      final List<String> lines = Files.readAllLines(failedFile.toPath(), StandardCharsets.UTF_8);
+      return (lines.size() == 2 && lines.get(0).equals(fingerprint))
+          ? Integer.parseInt(lines.get(1)) : 0;
+    } catch (IOException | NumberFormatException ex) {
+      LOGGER.log(Level.FINE, "The failed dumps could not be read.", ex);
+      return 0;
+    }
+  }
+
+  /**
+   * @param failures The number of consecutive failed dumps.
+   * @return The delay until the next attempt, doubling with each failure.
+   */
+  static long backoffDelay(final int failures)
+  {
+    final int shift = Math.min(Math.max(failures - 1, 0), 16);
+    return Math.min(BACKOFF_MIN << shift, BACKOFF_MAX);
+  }
+
+  private List<File> classLists()
+  {
+    final List<File> lists = new ArrayList<>();
+    final File[] folders = appsFolder.listFiles(File::isDirectory);
+
+    if (folders != null) {
+      Arrays.sort(folders);
+
+      for (File folder : folders) {
+        File list = new File(folder, CLASSLIST_FILE);
+
+        if (list.isFile()) {
+          lists.add(list);
+        }
+      }
+    }
+
+    return lists;
+  }
+
+  private boolean newClassLists(final long since)
+  {
+    for (File list : classLists()) {
+      if (list.lastModified() > since) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Merges the class lists recorded by the apps. Only the plain class names
+   * are kept: the entries of custom class loaders, lambda proxies, comments
+   * and the ids of newer JDKs are left out.
+   *
+   * @param lists The class lists.
+   * @return The class names, in the order of their first appearance.
+   * @throws IOException if a list could not be read.
+   */
+  static Set<String> mergeClassLists(final List<File> lists) throws IOException
+  {
+    final Set<String> classes = new LinkedHashSet<>();
+
+    for (File list : lists) {
+      for (String line : Files.readAllLines(list.toPath(), StandardCharsets.UTF_8)) {
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("@")
+            || line.contains(" source: ")) {
+          continue;
+        }
+
+        int space = line.indexOf(' ');
+        classes.add((space == -1) ? line : line.substring(0, space));
+      }
+    }
+
+    return classes;
+  }
+
+  private void dump(final JavaCommand java, final String fingerprint, final File fingerprintFile)
+  {
+    final List<File> lists = classLists();
+
+    if (lists.isEmpty()) {
+      return; // The apps did not record their classes yet
+    }
+
+    final long start = System.currentTimeMillis();
+    final File mergedList = new File(cdsFolder, "nmf.classlist");
+    final File tempArchive = new File(cdsFolder, ARCHIVE_FILE + ".tmp");
+    final File dumpLog = new File(cdsFolder, "dump.log");
+    boolean failed = true;
+
+    try {
+      final Set<String> classes = mergeClassLists(lists);
+      Files.write(mergedList.toPath(), classes, StandardCharsets.UTF_8);
+
+      final ProcessBuilder pb = new ProcessBuilder(
+          java.getBinary().getAbsolutePath(),
+          "-Xshare:dump",
+          "-XX:SharedClassListFile=" + mergedList.getAbsolutePath(),
+          "-XX:SharedArchiveFile=" + tempArchive.getAbsolutePath(),
+          "-cp", libsFolder.getAbsolutePath() + File.separator + "*");
+      pb.redirectErrorStream(true);
+      pb.redirectOutput(dumpLog);
+      final Process process = pb.start();
+
+      if (!process.waitFor(DUMP_TIMEOUT, TimeUnit.MINUTES)) {
+        process.destroyForcibly();
+        LOGGER.log(Level.WARNING, "The class-data archive for the apps timed out.");
+        return;
+      }
+
+      if (process.exitValue() != 0 || !tempArchive.isFile()) {
+        LOGGER.log(Level.WARNING, "The class-data archive for the apps could not be "
+            + "generated. See: {0}", dumpLog);
+        return;
+      }
+
+      // The apps may run as different users
+      tempArchive.setReadable(true, false);
+
+      try {
+        Files.move(tempArchive.toPath(), archive.toPath(),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tempArchive.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      Files.write(fingerprintFile.toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+      Files.deleteIfExists(new File(cdsFolder, ARCHIVE_FILE + FAILED_ENDING).toPath());
+      archiveValid = true;
+      failed = false;
+      LOGGER.log(Level.INFO, "The class-data archive for the apps was generated with {0} "
+          + "classes from {1} apps in {2} ms: {3}", new Object[]{classes.size(), lists.size(),
+            System.currentTimeMillis() - start, archive});
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "The class-data archive for the apps could not be generated.",
+          ex);
+    } catch (InterruptedException ex) {
+      failed = false; // Closing, not a failure of the dump
+      Thread.currentThread().interrupt();
+    } finally {
+      if (failed) {
+        recordFailedDump(fingerprint);
+      }
+
+      if (tempArchive.exists() && !tempArchive.delete()) {
+        LOGGER.log(Level.FINE, "The file could not be deleted: {0}", tempArchive);
+      }
+    }
+  }
+
+  /**
+   * The archive is only valid for the same java command and the same jars.
+   *
+   * @param java The java command of the apps.
+   * @param libsFolder The folder of the jars.
+   * @return The fingerprint, or null if the libs folder could not be read.
+   */
+  static String fingerprint(final JavaCommand java, final File libsFolder)
+  {
+    final File[] jars = libsFolder.listFiles((folder, name) -> name.toLowerCase().endsWith(".jar"));
+
+    if (jars == null) {
+      return null;
+    }
+
+    Arrays.sort(jars);
+    final StringBuilder str = new StringBuilder();
+    str.append(java.getBinary().getAbsolutePath()).append(':').append(java.getSize());
+    str.append(':').append(java.getLastModified()).append('\n');
+    str.append(java.getVersionOutput()).append('\n');
+
+    for (File jar : jars) {
+      str.append(jar.getName()).append(':').append(jar.length()).append(':');
+      str.append(jar.lastModified()).append('\n');
+    }
+
+    try {
+      final byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+          str.toString().getBytes(StandardCharsets.UTF_8));
+      final StringBuilder hex = new StringBuilder();
+
+      for (byte b : hash) {
+        hex.append(String.format("%02x", b));
+      }
+
+      return hex.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      return str.toString();
+    }
+  }
+
+  /**
+   * Resolves the java command of the start scripts of the apps as the shell
+   * that launches them finds it, that is with an empty environment.
+   *
+   * @return The binary, with its links resolved, or null if it was not found.
+   */
+  static File resolveJavaCommand()
+  {
+    if (new OSValidator().isWindows()) {
+      return findOnPath(JAVA_CMD + ".exe", System.getenv("PATH"));
+    }
+
+    try {
+      final ProcessBuilder pb = new ProcessBuilder("/bin/sh", "-c", "command -v " + JAVA_CMD);
+      pb.environment().clear();
+      final String path = run(pb).trim();
+
+      if (!path.isEmpty() && new File(path).isAbsolute()) {
+        return new File(path).toPath().toRealPath().toFile();
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.FINE, "The java command could not be resolved by the shell.", ex);
+    }
+
+    return findOnPath(JAVA_CMD, System.getenv("PATH"));
+  }
+
+  private static File findOnPath(final String command, final String path)
+  {
+    if (path == null) {
+      return null;
+    }
+
+    for (String dir : path.split(File.pathSeparator)) {
+      final File file = new File(dir, command);
+
+      if (!dir.isEmpty() && file.isFile() && file.canExecute()) {
+        try {
+          return file.toPath().toRealPath().toFile();
+        } catch (IOException ex) {
+          return file.getAbsoluteFile();
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Runs a short command and returns its output.
+   *
+   * @param pb The command.
+   * @return The output, standard error included.
+   * @throws IOException if the command could not be run, timed out or failed.
+   */
+  private static String run(final ProcessBuilder pb) throws IOException
+  {
+    pb.redirectErrorStream(true);
+    final Process process = pb.start();
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    try (InputStream in = process.getInputStream()) {
+      final byte[] buffer = new byte[1024];
+      int read;
+
+      while ((read = in.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+
+      if (!process.waitFor(PROBE_TIMEOUT, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        throw new IOException("Timed out: " + pb.command());
+      }
+    } catch (InterruptedException ex) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted: " + pb.command(), ex);
+    }
+
+    if (process.exitValue() != 0) {
+      throw new IOException("Exit code " + process.exitValue() + ": " + pb.command());
+    }
+
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses the output of java -version.
+   *
+   * @param versionOutput The output.
+   * @return The feature version (8 for 1.8), or 0 if it could not be parsed.
+   */
+  static int parseJavaVersion(final String versionOutput)
+  {
+    final int begin = versionOutput.indexOf('"');
+    final int end = versionOutput.indexOf('"', begin + 1);
+
+    if (begin == -1 || end == -1) {
+      return 0;
+    }
+
+    String version = versionOutput.substring(begin + 1, end);
+
+    if (version.startsWith("1.")) {
+      version = version.substring(2);
+    }
+
+    int i = 0;
+
+    while (i < version.length() && Character.isDigit(version.charAt(i))) {
+      i++;
+    }
+
+    return (i == 0) ? 0 : Integer.parseInt(version.substring(0, i));
+  }
+
+  /**
+   * The java command of the apps, as probed.
+   */
+  static final class JavaCommand
+  {
+
+    private final File binary;
+    private final long size;
+    private final long lastModified;
+    private final String versionOutput;
+    private final int version;
+
+    JavaCommand(final File binary, final long size, final long lastModified,
+        final String versionOutput)
+    {
+      this.binary = binary;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.versionOutput = versionOutput;
+      this.version = parseJavaVersion(versionOutput);
+    }
+
+    /**
+     * Runs java -version with a binary.
+     *
+     * @param binary The binary.
+     * @return The java command, or null if it could not be run.
+     */
+    static JavaCommand probe(final File binary)
+    {
+      try {
+        final String output = run(new ProcessBuilder(binary.getAbsolutePath(), "-version"));
+        return new JavaCommand(binary, binary.length(), binary.lastModified(), output.trim());
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "The java command of the apps could not be probed: "
+            + binary, ex);
+        return null;
+      }
+    }
+
+    boolean isSameBinary(final File file)
+    {
+      return binary.equals(file) && size == file.length()
+          && lastModified == file.lastModified();
+    }
+
+    File getBinary()
+    {
+      return binary;
+    }
+
+    long getSize()
+    {
+      return size;
+    }
+
+    long getLastModified()
+    {
+      return lastModified;
+    }
+
+    String getVersionOutput()
+    {
+      return versionOutput;
+    }
+
+    int getVersion()
+    {
+      return version;
+    }
+  }
+
+  private static final class Launch
+  {
+
+    private final long start;
+    private final boolean accelerated;
+
+    private Launch(final long start, final boolean accelerated)
+    {
+      this.start = start;
+      this.accelerated = accelerated;
+    }
+  }
+
+  /**
+   * The launch-to-ready latencies of an app.
+   */
+  static final class Statistics
+  {
+
+    private int count = 0;
+    private long total = 0;
+
+    /**
+     * Adds the latency of a launch.
+     *
+     * @param latency The latency in milliseconds.
+     * @return True if it is a regression: more than REGRESSION_FACTOR times
+     * the average of at least REGRESSION_MIN_LAUNCHES previous launches.
+     */
+    synchronized boolean add(final long latency)
+    {
+      final boolean regression = count >= REGRESSION_MIN_LAUNCHES
+          && latency > REGRESSION_FACTOR * this.getAverage();
+      count++;
+      total += latency;
+      return regression;
+    }
+
+    synchronized int getCount()
+    {
+      return count;
+    }
+
+    /**
+     * @return The average latency in milliseconds, or 0 if there is none.
+     */
+    synchronized long getAverage()
+    {
+      return (count == 0) ? 0 : total / count;
+    }
+  }
+}
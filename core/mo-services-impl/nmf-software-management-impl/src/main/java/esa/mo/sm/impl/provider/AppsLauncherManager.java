@@ -33,7 +33,7 @@ import esa.mo.helpertools.helpers.HelperMisc;
 import esa.mo.helpertools.misc.Const;
 import esa.mo.sm.impl.util.OSValidator;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
@@ -91,6 +91,11 @@ public class AppsLauncherManager extends DefinitionsManager
   private File appsFolderPath;
   private final HashMap<Long, ProcessExecutionHandler> handlers
       = new HashMap<>();
+  private final AppsRegistry registry;
+  private final AppLaunchAccelerator accelerator;
+  private final ProcessAccounting accounting = new ProcessAccounting();
+  private final AppCgroups cgroups = new AppCgroups();
+  private volatile long syncedGeneration = -1;
 
   private AtomicLong uniqueObjIdDef; // Counter
 
@@ -108,6 +113,9 @@ public class AppsLauncherManager extends DefinitionsManager
       appsFolderPath = new File(DEFAULT_APPS_FOLDER_PATH);
     }
 
+    registry = new AppsRegistry(appsFolderPath);
+    accelerator = new AppLaunchAccelerator(appsFolderPath);
+
     if (MALContextFactory.lookupArea(SoftwareManagementHelper.SOFTWAREMANAGEMENT_AREA_NAME,
                                      SoftwareManagementHelper.SOFTWAREMANAGEMENT_AREA_VERSION) != null &&
                     MALContextFactory.lookupArea(SoftwareManagementHelper.SOFTWAREMANAGEMENT_AREA_NAME,
@@ -281,35 +289,37 @@ public class AppsLauncherManager extends DefinitionsManager
     return this.deleteDef(objId);
   }
 
+  @Override
+  public synchronized Boolean reconfigureDefinitions(LongList objIds, ElementList definitions)
+  {
+    syncedGeneration = -1; // The definitions must be compared again with the apps folder
+    return super.reconfigureDefinitions(objIds, definitions);
+  }
+
   protected boolean refreshAvailableAppsList(final URI providerURI)
   {
-    // Go to all the "apps folder" and check if there are new folders
-    // get all the files from a directory
-    File[] fList = appsFolderPath.listFiles();
+    // Bring the index of the "apps folder" up to date
+    final long generation;
 
-    if (fList == null) {
+    try {
+      generation = registry.refresh();
+    } catch (FileNotFoundException ex) {
       LOGGER.log(Level.SEVERE, "The directory could not be found: {0} (full path: {1})", 
               new Object[]{appsFolderPath.toString(), appsFolderPath.getAbsolutePath()});
 
       return false;
     }
 
-    boolean anyChanges = false;
-    AppDetailsList apps = new AppDetailsList();
-
-    for (File folder : fList) { // Roll all the apps inside the apps folder
-      if (folder.isDirectory()) {
-        File propsFile = new File(folder, HelperMisc.PROVIDER_PROPERTIES_FILE);
-        if (propsFile.exists() && !propsFile.isDirectory()) {
-          AppDetails app = this.readAppDescriptor(folder.getName(), propsFile);
-          apps.add(app);
-        }
-      }
+    if (generation == syncedGeneration) {
+      return false; // Nothing changed on the apps folder since the last time
     }
 
+    boolean anyChanges = false;
+    boolean synced = true;
+
     // Compare with the defs list!
     // Are there any differences?
-    for (AppDetails singleApp : apps) {
+    for (AppDetails singleApp : registry.getApps()) {
       final Long id = super.list(singleApp.getName());
       AppDetails previousAppDetails = this.get(id);
 
@@ -320,7 +330,9 @@ public class AppsLauncherManager extends DefinitionsManager
 
         // Either is the first time running or it is a newly installed app!
         ObjectId source = null;
-        this.addApp(singleApp, source, providerURI);
+        if (this.addApp(singleApp, source, providerURI) == null) {
+          synced = false; // Try again on the next refresh
+        }
         anyChanges = true;
         continue; // Check the next one...
       }
@@ -346,25 +358,10 @@ public class AppsLauncherManager extends DefinitionsManager
     // Also needs to check if we removed a folder!
     final LongList ids = this.listAll();
     final AppDetailsList localApps = this.getAll();
-    for (int i = 0; i < ids.size(); i++) { // Roll all the apps inside the apps folder
+    for (int i = 0; i < ids.size(); i++) { // Roll all the apps known to the manager
       AppDetails localApp = localApps.get(i);
-      boolean appStillIntact = false;
-      for (File folder : fList) { // Roll all the apps inside the apps folder
-        if (folder.isDirectory()) {
-          if (folder.getName().equals(localApp.getName().getValue())) {
-            for (File file : folder.listFiles()) { // Roll all the files inside each app folder
-              // Check if the folder contains the provider properties
-              if (HelperMisc.PROVIDER_PROPERTIES_FILE.equals(file.getName())) {
-                // All Good!
-                appStillIntact = true;
-                break;
-              }
-            }
-          }
-        }
-      }
 
-      if (!appStillIntact) {
+      if (!registry.contains(localApp.getName().getValue())) {
         LOGGER.log(Level.INFO,
             "The app has been removed: {0}", localApp.getName().getValue());
 
@@ -373,6 +370,10 @@ public class AppsLauncherManager extends DefinitionsManager
       }
     }
 
+    if (synced) {
+      syncedGeneration = generation;
+    }
+
     return anyChanges;
   }
 
@@ -417,7 +418,12 @@ public class AppsLauncherManager extends DefinitionsManager
       }
       StringBuilder envString = new StringBuilder();
       for (String envVar : env) {
-        envString.append(envVar);
+        // Quote the values, as they can contain spaces (e.g. JAVA_OPTS)
+        int separator = envVar.indexOf('=');
+        envString.append(envVar, 0, separator + 1);
+        envString.append('\'');
+        envString.append(envVar.substring(separator + 1).replace("'", "'\\''"));
+        envString.append('\'');
         envString.append(" ");
       }
 
@@ -469,6 +475,7 @@ public class AppsLauncherManager extends DefinitionsManager
   protected void startAppProcess(final ProcessExecutionHandler handler,
       final MALInteraction interaction, final String directoryServiceURI) throws IOException
   {
+    final long launchStart = System.nanoTime(); // The latency includes the preparation below
     // get it from the list of available apps
     AppDetails app = (AppDetails) this.getDef(handler.getObjId());
 
@@ -477,10 +484,16 @@ public class AppsLauncherManager extends DefinitionsManager
         = new File(appsFolderPath + File.separator + app.getName().getValue());
     Map<String, String> env = new HashMap<>();
     assembleAppLauncherEnvironment(directoryServiceURI, env);
-    final String[] appLauncherCommand = assembleAppStartCommand(appFolder.getAbsolutePath(),
-        app.getName().getValue(),
-        app.getRunAs(),
-        EnvironmentUtils.toStrings(env));
+    final String launchOptions = accelerator.launched(app.getName().getValue(), appFolder,
+        launchStart);
+    if (!launchOptions.isEmpty()) {
+      env.put("JAVA_OPTS", env.get("JAVA_OPTS") + " " + launchOptions);
+    }
+    final String[] appLauncherCommand = cgroups.wrap(app.getName().getValue(), appFolder,
+        assembleAppStartCommand(appFolder.getAbsolutePath(),
+            app.getName().getValue(),
+            app.getRunAs(),
+            EnvironmentUtils.toStrings(env)));
 
     final ProcessBuilder pb = new ProcessBuilder(appLauncherCommand);
     pb.environment().clear();
@@ -495,6 +508,14 @@ public class AppsLauncherManager extends DefinitionsManager
     final Process proc = pb.start();
     handler.monitorProcess(proc);
     handlers.put(handler.getObjId(), handler);
+
+    if (accounting.isAvailable()) {
+      try {
+        accounting.track(app.getName().getValue(), ProcessExecutionHandler.getProcessPid(proc));
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "The resources of the app will not be accounted.", ex);
+      }
+    }
     this.setRunning(handler.getObjId(), true, interaction); // Update the Archive
   }
 
@@ -693,10 +714,33 @@ public class AppsLauncherManager extends DefinitionsManager
 
   public void setRunning(Long appInstId, boolean running, MALInteraction interaction)
   {
+    if (!running) {
+      accelerator.stopped(this.get(appInstId).getName().getValue());
+      accounting.untrack(this.get(appInstId).getName().getValue());
+    }
     this.get(appInstId).setRunning(running);
     this.update(appInstId, this.get(appInstId), interaction); // Update the Archive
   }
 
+  /**
+   * Notifies that an app published itself on the Directory service, which
+   * concludes its launch.
+   *
+   * @param appName The name of the app
+   */
+  public void appReady(final String appName)
+  {
+    accelerator.ready(appName);
+  }
+
+  /**
+   * @return The accounting of the resources used by the running apps.
+   */
+  public ProcessAccounting getProcessAccounting()
+  {
+    return accounting;
+  }
+
   public static SingleConnectionDetails getSingleConnectionDetailsFromProviderSummaryList(
       ProviderSummaryList providersList) throws IOException
   {
@@ -758,41 +802,4 @@ public class AppsLauncherManager extends DefinitionsManager
     return previousAppDetails.getRunning().booleanValue() != single_app.getRunning().booleanValue();
   }
 
-  private AppDetails readAppDescriptor(final String appName, final File propertiesFile)
-  {
-    final AppDetails app = new AppDetails();
-    app.setName(new Identifier(appName)); // Use the name of the folder
-
-    try (FileInputStream inputStream = new FileInputStream(propertiesFile)){
-      final Properties props = new Properties();
-      props.load(inputStream);
-      app.setExtraInfo(HelperMisc.PROVIDER_PROPERTIES_FILE);
-
-      final String category = (props.getProperty(HelperMisc.APP_CATEGORY) != null) ? props.
-          getProperty(HelperMisc.APP_CATEGORY) : "-";
-      final String version = (props.getProperty(HelperMisc.APP_VERSION) != null) ? props.
-          getProperty(HelperMisc.APP_VERSION) : "-";
-      final String copyright = (props.getProperty(HelperMisc.APP_COPYRIGHT) != null) ? props.
-          getProperty(HelperMisc.APP_COPYRIGHT) : "-";
-      final String description = (props.getProperty(HelperMisc.APP_DESCRIPTION) != null) ? props.
-          getProperty(HelperMisc.APP_DESCRIPTION) : "-";
-      final String user = (props.getProperty(HelperMisc.APP_USER) != null) ? props.getProperty(
-          HelperMisc.APP_USER)
-          : null; // Since the user change is only implemented on linux this dependency is fine
-
-      app.setCategory(new Identifier(category));
-      app.setVersion(version);
-      app.setCopyright(copyright);
-      app.setDescription(description);
-      app.setRunAs(user);
-
-      app.setRunAtStartup(false); // This is not supported in this implementation
-      app.setRunning(false); // Default values
-    } catch (IOException ex) {
-      LOGGER.log(Level.SEVERE, null, ex);
-    }
-
-    return app;
-  }
-
 }
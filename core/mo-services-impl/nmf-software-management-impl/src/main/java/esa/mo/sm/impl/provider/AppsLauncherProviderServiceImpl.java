@@ -148,6 +148,14 @@ public class AppsLauncherProviderServiceImpl extends AppsLauncherInheritanceSkel
     this.comServices = comServices;
     this.directoryService = directoryService;
     manager = new AppsLauncherManager(comServices);
+    if (directoryService != null) {
+      directoryService.addProviderPublishedListener(details -> {
+        String name = details.getProviderName().getValue();
+        if (name.startsWith(PROVIDER_PREFIX_NAME)) {
+          manager.appReady(name.substring(PROVIDER_PREFIX_NAME.length()));
+        }
+      });
+    }
     appsLauncherServiceProvider = connection.startService(
         AppsLauncherHelper.APPSLAUNCHER_SERVICE_NAME.toString(),
         AppsLauncherHelper.APPSLAUNCHER_SERVICE, this);
@@ -162,6 +170,13 @@ public class AppsLauncherProviderServiceImpl extends AppsLauncherInheritanceSkel
     return this.connection;
   }
 
+  /**
+   * @return The accounting of the resources used by the running apps.
+   */
+  public ProcessAccounting getProcessAccounting() {
+    return manager.getProcessAccounting();
+  }
+
   /**
    * Set the common quota object used by ArchiveSync service and AppsLauncherService. The quota gets
    * freed by ArchiveSync after synchronizing STDOUT/STDERR entries.
@@ -0,0 +1,342 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperMisc;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.softwaremanagement.appslauncher.structures.AppDetails;
+
+/**
+ * In-memory index of the apps installed in the apps folder. The folder is
+ * scanned once and then only the apps that changed are read again. The
+ * changes are picked up from a WatchService that is drained on every refresh,
+ * so no thread is needed. A descriptor named by an event is always read
+ * again, as its modification time and size may not have changed (e.g. when it
+ * is rewritten within the resolution of the file system). If watching is not available, or disabled with the
+ * property esa.mo.sm.impl.provider.appslauncher.watch=false, the apps folder
+ * and the provider.properties of each app are checked for a different
+ * modification time instead.
+ */
+final class AppsRegistry
+{
+
+  static final String PROPERTY_WATCH = "esa.mo.sm.impl.provider.appslauncher.watch";
+  private static final Logger LOGGER = Logger.getLogger(AppsRegistry.class.getName());
+
+  private final File appsFolder;
+  private final TreeMap<String, App> apps = new TreeMap<>();
+  private final Map<WatchKey, String> keys = new HashMap<>(); // null for the apps folder
+  private final Set<String> watchedApps = new HashSet<>();
+  private WatchService watcher = null;
+  private boolean indexed = false;
+  private long folderModified = -1;
+  private long generation = 0;
+
+  AppsRegistry(final File appsFolder)
+  {
+    this.appsFolder = appsFolder;
+
+    if (Boolean.parseBoolean(System.getProperty(PROPERTY_WATCH, "true"))) {
+      try {
+        watcher = FileSystems.getDefault().newWatchService();
+      } catch (IOException | UnsupportedOperationException ex) {
+        LOGGER.log(Level.INFO,
+            "The apps folder cannot be watched. Using the modification times instead.", ex);
+      }
+    }
+  }
+
+  /**
+   * Brings the index up to date with the apps folder.
+   *
+   * @return The generation of the index. It changes whenever an app is
+   * added, removed or its descriptor changes.
+   * @throws FileNotFoundException if the apps folder does not exist.
+   */
+  synchronized long refresh() throws FileNotFoundException
+  {
+    if (!indexed) {
+      scan();
+    } else if (watcher != null) {
+      drainEvents();
+    } else if (appsFolder.lastModified() != folderModified) {
+      scan();
+    } else {
+      for (String name : new ArrayList<>(apps.keySet())) {
+        reload(name, false);
+      }
+    }
+
+    return generation;
+  }
+
+  /**
+   * Returns copies of the descriptors of the indexed apps.
+   *
+   * @return The apps, sorted by name.
+   */
+  synchronized List<AppDetails> getApps()
+  {
+    final List<AppDetails> list = new ArrayList<>(apps.size());
+
+    for (App app : apps.values()) {
+      list.add(copy(app.details));
+    }
+
+    return list;
+  }
+
+  synchronized boolean contains(final String name)
+  {
+    return apps.containsKey(name);
+  }
+
+  private void drainEvents() throws FileNotFoundException
+  {
+    final Set<String> dirty = new HashSet<>();
+    final Set<String> changed = new HashSet<>(); // Descriptor or folder named by an event
+    boolean rescan = false;
+    WatchKey key;
+
+    while ((key = watcher.poll()) != null) {
+      final String app = keys.get(key);
+
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          rescan = true;
+        } else if (app == null) {
+          changed.add(((Path) event.context()).toString());
+        } else if (HelperMisc.PROVIDER_PROPERTIES_FILE.equals(event.context().toString())) {
+          changed.add(app);
+        } else {
+          dirty.add(app); // E.g. the logs of the app, checked with the modification time
+        }
+      }
+
+      if (!key.reset()) {
+        keys.remove(key);
+
+        if (app == null) {
+          rescan = true; // The apps folder itself is gone
+        } else {
+          watchedApps.remove(app);
+        }
+      }
+    }
+
+    if (rescan) {
+      scan();
+      return;
+    }
+
+    for (String name : changed) {
+      reload(name, true);
+    }
+
+    dirty.removeAll(changed);
+
+    for (String name : dirty) {
+      reload(name, false);
+    }
+  }
+
+  private void scan() throws FileNotFoundException
+  {
+    if (watcher != null && !keys.containsValue(null)) {
+      watch(appsFolder, null);
+    }
+
+    final long modified = appsFolder.lastModified();
+    final File[] folders = appsFolder.listFiles();
+
+    if (folders == null) {
+      indexed = false;
+      throw new FileNotFoundException(appsFolder.getAbsolutePath());
+    }
+
+    final Set<String> names = new HashSet<>();
+
+    for (File folder : folders) {
+      if (folder.isDirectory()) {
+        names.add(folder.getName());
+        reload(folder.getName(), false);
+      }
+    }
+
+    for (String name : new ArrayList<>(apps.keySet())) {
+      if (!names.contains(name)) {
+        apps.remove(name);
+        generation++;
+      }
+    }
+
+    folderModified = modified;
+    indexed = true;
+  }
+
+  /**
+   * Reads the descriptor of an app again if its provider.properties changed.
+   *
+   * @param name The name of the app.
+   * @param force True to read it even if its modification time and size did
+   * not change.
+   */
+  private void reload(final String name, final boolean force)
+  {
+    final File folder = new File(appsFolder, name);
+    final File propsFile = new File(folder, HelperMisc.PROVIDER_PROPERTIES_FILE);
+
+    if (watcher != null && !watchedApps.contains(name) && folder.isDirectory()) {
+      watch(folder, name);
+    }
+
+    if (!propsFile.isFile()) {
+      if (apps.remove(name) != null) {
+        generation++;
+      }
+      return;
+    }
+
+    final App previous = apps.get(name);
+    final long modified = propsFile.lastModified();
+    final long length = propsFile.length();
+
+    if (!force && previous != null && previous.modified == modified
+        && previous.length == length) {
+      return; // Unchanged, e.g. only the logs of the app were written
+    }
+
+    final AppDetails details = readAppDescriptor(name, propsFile);
+    apps.put(name, new App(details, modified, length));
+
+    if (previous == null || !previous.details.equals(details)) {
+      generation++;
+    }
+  }
+
+  private void watch(final File folder, final String name)
+  {
+    try {
+      WatchKey key = folder.toPath().register(watcher,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      keys.put(key, name);
+
+      if (name != null) {
+        watchedApps.add(name);
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "The folder could not be watched: {0}", folder);
+    }
+  }
+
+  private static AppDetails readAppDescriptor(final String appName, final File propertiesFile)
+  {
+    final AppDetails app = new AppDetails();
+    app.setName(new Identifier(appName)); // Use the name of the folder
+
+    try (FileInputStream inputStream = new FileInputStream(propertiesFile)){
+      final Properties props = new Properties();
+      props.load(inputStream);
+      app.setExtraInfo(HelperMisc.PROVIDER_PROPERTIES_FILE);
+
+      final String category = (props.getProperty(HelperMisc.APP_CATEGORY) != null) ? props.
+          getProperty(HelperMisc.APP_CATEGORY) : "-";
+      final String version = (props.getProperty(HelperMisc.APP_VERSION) != null) ? props.
+          getProperty(HelperMisc.APP_VERSION) : "-";
+      final String copyright = (props.getProperty(HelperMisc.APP_COPYRIGHT) != null) ? props.
+          getProperty(HelperMisc.APP_COPYRIGHT) : "-";
+      final String description = (props.getProperty(HelperMisc.APP_DESCRIPTION) != null) ? props.
+          getProperty(HelperMisc.APP_DESCRIPTION) : "-";
+      final String user = (props.getProperty(HelperMisc.APP_USER) != null) ? props.getProperty(
+          HelperMisc.APP_USER)
+          : null; // Since the user change is only implemented on linux this dependency is fine
+
+      app.setCategory(new Identifier(category));
+      app.setVersion(version);
+      app.setCopyright(copyright);
+      app.setDescription(description);
+      app.setRunAs(user);
+
+      app.setRunAtStartup(false); // This is not supported in this implementation
+      app.setRunning(false); // Default values
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, null, ex);
+    }
+
+    return app;
+  }
+
+  /**
+   * The definitions of the manager are updated in place (e.g. the running
+   * flag), so they must not share the instances of the index.
+   */
+  private static AppDetails copy(final AppDetails details)
+  {
+    final AppDetails app = new AppDetails();
+    app.setName(details.getName());
+    app.setExtraInfo(details.getExtraInfo());
+    app.setCategory(details.getCategory());
+    app.setVersion(details.getVersion());
+    app.setCopyright(details.getCopyright());
+    app.setDescription(details.getDescription());
+    app.setRunAs(details.getRunAs());
+    app.setRunAtStartup(details.getRunAtStartup());
+    app.setRunning(details.getRunning());
+    return app;
+  }
+
+  private static final class App
+  {
+
+    private final AppDetails details;
+    private final long modified;
+    private final long length;
+
+    private App(final AppDetails details, final long modified, final long length)
+    {
+      this.details = details;
+      this.modified = modified;
+      this.length = length;
+    }
+  }
+}
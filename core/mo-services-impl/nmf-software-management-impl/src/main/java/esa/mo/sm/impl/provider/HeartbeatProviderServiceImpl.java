@@ -55,10 +55,25 @@ import org.ccsds.moims.mo.softwaremanagement.heartbeat.provider.HeartbeatInherit
 
 /**
  * Heartbeat service Provider.
+ *
+ * The beats are published with an adaptive interval: it starts at the base
+ * period and grows by half at every beat up to the maximum period while
+ * everything is healthy. A failed publish or the exit of a supervised process
+ * publishes a beat right away and restarts from the base period. If the retry
+ * fails too, the next attempts follow the base period. The getPeriod operation
+ * returns the current interval.
+ *
+ * The periods are set in milliseconds with the properties
+ * esa.mo.sm.impl.provider.heartbeat.period (default 10000) and
+ * esa.mo.sm.impl.provider.heartbeat.maxperiod (default 6 times the base
+ * period). Setting the maximum to the base period keeps the interval fixed.
  */
 public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
 {
 
+  static final String PROPERTY_PERIOD = "esa.mo.sm.impl.provider.heartbeat.period";
+  static final String PROPERTY_MAX_PERIOD = "esa.mo.sm.impl.provider.heartbeat.maxperiod";
+  static final int MAX_PERIOD_FACTOR = 6;
   private static final Logger LOGGER
       = Logger.getLogger(HeartbeatProviderServiceImpl.class.getName());
   private MALProvider heartbeatServiceProvider;
@@ -69,7 +84,15 @@ public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
   private boolean running = false;
   private final ConnectionProvider connection = new ConnectionProvider();
   private Timer timer;
-  protected long period = 10000; // 10 seconds
+  private TimerTask nextBeat;
+  private long interval; // The current interval, guarded by the lock
+  private boolean retrying = false; // Guarded by the lock
+  protected long period = Long.getLong(PROPERTY_PERIOD, 10000); // 10 seconds
+  protected long maxPeriod = Long.getLong(PROPERTY_MAX_PERIOD, MAX_PERIOD_FACTOR * period);
+  private final ProcessOutputCollector.ExitListener exitListener = (objId, exitCode) -> {
+    LOGGER.log(Level.FINE, "The process (objId: {0}) exited, beating now.", objId);
+    livenessChanged();
+  };
 
   /**
    * Creates the MAL objects, the publisher used to create updates and starts the publishing thread
@@ -112,22 +135,98 @@ public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
         HeartbeatHelper.HEARTBEAT_SERVICE_NAME.toString(),
         HeartbeatHelper.HEARTBEAT_SERVICE, true, this);
 
-    running = true;
     initialiased = true;
     LOGGER.info("Heartbeat service READY");
 
-    // Start the timer to publish the heartbeat
-    timer = new Timer("HeartbeatThread");
-    timer.schedule(new TimerTask()
+    startBeating();
+    ProcessOutputCollector.addExitListener(exitListener);
+  }
+
+  /**
+   * Starts the timer to publish the heartbeat, from the base period.
+   */
+  void startBeating()
+  {
+    synchronized (lock) {
+      if (timer != null) {
+        timer.cancel();
+      }
+
+      running = true;
+      timer = new Timer("HeartbeatThread");
+      interval = period;
+      retrying = false;
+      scheduleBeat(interval);
+    }
+  }
+
+  /**
+   * Publishes a beat right away and restarts the adaptive interval from the
+   * base period, so that the consumers get a finer view of the provider
+   * while something is changing.
+   */
+  public void livenessChanged()
+  {
+    synchronized (lock) {
+      if (running && timer != null) {
+        interval = period;
+        scheduleBeat(0);
+      }
+    }
+  }
+
+  private void scheduleBeat(final long delay)
+  {
+    if (nextBeat != null) {
+      nextBeat.cancel();
+    }
+
+    nextBeat = new TimerTask()
     {
       @Override
       public void run()
       {
         if (running) {
-          publishHeartbeat();
+          beat(this);
         }
       }
-    }, period, period);
+    };
+    timer.schedule(nextBeat, delay);
+  }
+
+  private void beat(final TimerTask task)
+  {
+    final boolean published = publishHeartbeat();
+
+    synchronized (lock) {
+      // A beat queued meanwhile by livenessChanged() is kept as the next one
+      if (!running || nextBeat != task) {
+        return;
+      }
+
+      if (published) {
+        retrying = false;
+        interval = Math.min(interval + interval / 2, Math.max(period, maxPeriod));
+        scheduleBeat(interval);
+      } else {
+        // Retry right away once, then follow the base period until it recovers
+        interval = period;
+        scheduleBeat(retrying ? interval : 0);
+        retrying = true;
+      }
+    }
+  }
+
+  /**
+   * Returns the current interval between two beats.
+   *
+   * @return The interval in milliseconds.
+   */
+  long getInterval()
+  {
+    synchronized (lock) {
+      return interval;
+    }
   }
 
   /**
@@ -135,20 +234,29 @@ public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
    */
   public void close()
   {
+    ProcessOutputCollector.removeExitListener(exitListener);
+
+    synchronized (lock) {
+      running = false;
+
+      if (timer != null) {
+        timer.cancel();
+      }
+    }
+
     try {
       if (null != heartbeatServiceProvider) {
         heartbeatServiceProvider.close();
       }
 
       connection.closeAll();
-      running = false;
     } catch (MALException ex) {
       LOGGER.log(Level.WARNING,
           "Exception during close down of the provider {0}", ex);
     }
   }
 
-  private void publishHeartbeat()
+  boolean publishHeartbeat()
   {
     try {
       synchronized (lock) {
@@ -171,8 +279,10 @@ public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
       );
 
       publisher.publish(hdrlst);
+      return true;
     } catch (IllegalArgumentException | MALException | MALInteractionException ex) {
       LOGGER.log(Level.WARNING, "Exception during publishing process on the provider", ex);
+      return false;
     }
   }
 
@@ -180,7 +290,9 @@ public class HeartbeatProviderServiceImpl extends HeartbeatInheritanceSkeleton
   public Duration getPeriod(MALInteraction interaction) throws MALInteractionException, MALException
   {
     // Convert to seconds and return the value
-    return new Duration(period / 1000);
+    synchronized (lock) {
+      return new Duration((interval == 0 ? period : interval) / 1000.0);
+    }
   }
 
   public static final class PublishInteractionListener implements MALPublishInteractionListener
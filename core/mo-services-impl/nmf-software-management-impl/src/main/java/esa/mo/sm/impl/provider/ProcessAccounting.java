@@ -0,0 +1,403 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.misc.TaskScheduler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accounts the resources used by the launched apps. Every period, the
+ * process tree of each app (the launcher shell and all its descendants) is
+ * read from /proc/[pid]/stat, status and io, and the totals are kept as the
+ * last Usage of the app.
+ *
+ * The period is set in milliseconds with the property
+ * esa.mo.sm.impl.provider.appslauncher.accounting.period (default 5000, 0
+ * disables the accounting). It is only available on Linux.
+ */
+public class ProcessAccounting
+{
+
+  static final String PROPERTY_PERIOD = "esa.mo.sm.impl.provider.appslauncher.accounting.period";
+  private static final Logger LOGGER = Logger.getLogger(ProcessAccounting.class.getName());
+  private static final int CLOCK_TICKS = 100; // USER_HZ, the unit of the times in /proc
+
+  private final File procRoot;
+  private final long period;
+  private final boolean available;
+  private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private TaskScheduler timer = null;
+
+  /**
+   * Listener notified when an app starts being accounted.
+   */
+  public interface Listener
+  {
+
+    /**
+     * Called from the thread that launched the app.
+     *
+     * @param appName The name of the app.
+     */
+    void appTracked(String appName);
+  }
+
+  /**
+   * The resources used by the process tree of an app at the last sample.
+   */
+  public static final class Usage
+  {
+
+    private final float cpu;
+    private final long rss;
+    private final int threads;
+    private final int processes;
+    private final long readBytes;
+    private final long writeBytes;
+
+    Usage(final float cpu, final long rss, final int threads, final int processes,
+        final long readBytes, final long writeBytes)
+    {
+      this.cpu = cpu;
+      this.rss = rss;
+      this.threads = threads;
+      this.processes = processes;
+      this.readBytes = readBytes;
+      this.writeBytes = writeBytes;
+    }
+
+    /**
+     * @return The CPU usage since the previous sample, in percent of one CPU.
+     */
+    public float getCpu()
+    {
+      return cpu;
+    }
+
+    /**
+     * @return The resident set size in kB.
+     */
+    public long getRss()
+    {
+      return rss;
+    }
+
+    public int getThreads()
+    {
+      return threads;
+    }
+
+    public int getProcesses()
+    {
+      return processes;
+    }
+
+    /**
+     * @return The bytes read from the storage by the live processes.
+     */
+    public long getReadBytes()
+    {
+      return readBytes;
+    }
+
+    /**
+     * @return The bytes written to the storage by the live processes.
+     */
+    public long getWriteBytes()
+    {
+      return writeBytes;
+    }
+  }
+
+  public ProcessAccounting()
+  {
+    this(new File("/proc"), Long.getLong(PROPERTY_PERIOD, 5000));
+  }
+
+  ProcessAccounting(final File procRoot, final long period)
+  {
+    this.procRoot = procRoot;
+    this.period = period;
+    this.available = period > 0 && new File(procRoot, "self").isDirectory();
+  }
+
+  /**
+   * @return True if the resources of the apps are accounted.
+   */
+  public boolean isAvailable()
+  {
+    return available;
+  }
+
+  public void addListener(final Listener listener)
+  {
+    listeners.add(listener);
+  }
+
+  public void removeListener(final Listener listener)
+  {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts accounting the process tree of an app.
+   *
+   * @param appName The name of the app.
+   * @param pid     The PID of the launched process.
+   */
+  void track(final String appName, final long pid)
+  {
+    if (!available) {
+      return;
+    }
+
+    synchronized (this) {
+      if (timer == null) {
+        timer = new TaskScheduler(1, true);
+        timer.scheduleTask(new SampleTask(), period, period, TimeUnit.MILLISECONDS, false);
+      }
+    }
+
+    tracked.put(appName, new Tracked(pid));
+
+    for (Listener listener : listeners) {
+      try {
+        listener.appTracked(appName);
+      } catch (RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "The accounting listener failed.", ex);
+      }
+    }
+  }
+
+  void untrack(final String appName)
+  {
+    tracked.remove(appName);
+  }
+
+  /**
+   * @param appName The name of the app.
+   * @return The last usage of the app, or null if it is not running or was
+   * not sampled yet.
+   */
+  public Usage getUsage(final String appName)
+  {
+    final Tracked t = tracked.get(appName);
+    return (t == null) ? null : t.usage;
+  }
+
+  /**
+   * @return The last usage of the running apps, by name.
+   */
+  public Map<String, Usage> getUsages()
+  {
+    final Map<String, Usage> usages = new HashMap<>();
+
+    for (Map.Entry<String, Tracked> entry : tracked.entrySet()) {
+      if (entry.getValue().usage != null) {
+        usages.put(entry.getKey(), entry.getValue().usage);
+      }
+    }
+
+    return usages;
+  }
+
+  /**
+   * Samples all the tracked apps. The stat file of every process is read
+   * once to find the descendants of the apps.
+   */
+  void sample()
+  {
+    if (tracked.isEmpty()) {
+      return;
+    }
+
+    final Map<Long, Stat> stats = new HashMap<>();
+    final Map<Long, List<Long>> children = new HashMap<>();
+    final File[] entries = procRoot.listFiles();
+
+    if (entries == null) {
+      return;
+    }
+
+    for (File entry : entries) {
+      final Stat stat = readStat(entry);
+
+      if (stat != null) {
+        stats.put(stat.pid, stat);
+        children.computeIfAbsent(stat.ppid, k -> new ArrayList<>()).add(stat.pid);
+      }
+    }
+
+    final long now = System.nanoTime();
+
+    for (Tracked t : tracked.values()) {
+      if (!stats.containsKey(t.pid)) {
+        continue; // Exited, the last usage is kept until the app is untracked
+      }
+
+      long ticks = 0;
+      long rss = 0;
+      long readBytes = 0;
+      long writeBytes = 0;
+      int threads = 0;
+      int processes = 0;
+      final Deque<Long> pending = new ArrayDeque<>();
+      pending.add(t.pid);
+
+      while (!pending.isEmpty()) {
+        final Long pid = pending.poll();
+        final Stat stat = stats.get(pid);
+
+        if (stat == null) {
+          continue;
+        }
+
+        ticks += stat.ticks;
+        threads += stat.threads;
+        processes++;
+        rss += readField(pid, "status", "VmRSS:");
+        readBytes += readField(pid, "io", "read_bytes:");
+        writeBytes += readField(pid, "io", "write_bytes:");
+        pending.addAll(children.getOrDefault(pid, Collections.<Long>emptyList()));
+      }
+
+      float cpu = 0;
+
+      if (t.lastSample != 0) {
+        final double seconds = (now - t.lastSample) / 1e9;
+        cpu = (float) (Math.max(ticks - t.lastTicks, 0) * 100.0 / CLOCK_TICKS / seconds);
+      }
+
+      t.lastSample = now;
+      t.lastTicks = ticks;
+      t.usage = new Usage(cpu, rss, threads, processes, readBytes, writeBytes);
+    }
+  }
+
+  /**
+   * Parses the fields after the command name, which can contain spaces and
+   * parentheses. The times include the children that were waited for, so
+   * that the total of a tree does not drop when a process exits.
+   */
+  private static Stat readStat(final File folder)
+  {
+    final String name = folder.getName();
+
+    if (name.isEmpty() || !Character.isDigit(name.charAt(0))) {
+      return null;
+    }
+
+    try {
+      final String content = new String(Files.readAllBytes(new File(folder, "stat").toPath()),
+          StandardCharsets.US_ASCII);
+      final String[] fields = content.substring(content.lastIndexOf(')') + 2).trim().split(" ");
+      final long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+          + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+      return new Stat(Long.parseLong(name), Long.parseLong(fields[1]), ticks,
+          Integer.parseInt(fields[17]));
+    } catch (IOException | RuntimeException ex) {
+      return null; // Exited meanwhile, or not a process
+    }
+  }
+
+  /**
+   * Reads the first number of a line of a file of a process.
+   *
+   * @return The number, or 0 if the file cannot be read (e.g. io for the
+   * processes of other users).
+   */
+  private long readField(final Long pid, final String file, final String key)
+  {
+    try {
+      for (String line : Files.readAllLines(
+          new File(new File(procRoot, pid.toString()), file).toPath(), StandardCharsets.US_ASCII)) {
+        if (line.startsWith(key)) {
+          return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOGGER.log(Level.FINEST, "The {0} of {1} could not be read.", new Object[]{file, pid});
+    }
+
+    return 0;
+  }
+
+  private static final class Stat
+  {
+
+    private final long pid;
+    private final long ppid;
+    private final long ticks;
+    private final int threads;
+
+    private Stat(final long pid, final long ppid, final long ticks, final int threads)
+    {
+      this.pid = pid;
+      this.ppid = ppid;
+      this.ticks = ticks;
+      this.threads = threads;
+    }
+  }
+
+  private static final class Tracked
+  {
+
+    private final long pid;
+    private long lastSample = 0; // Only used by the sample thread
+    private long lastTicks = 0;
+    private volatile Usage usage = null;
+
+    private Tracked(final long pid)
+    {
+      this.pid = pid;
+    }
+  }
+
+  private class SampleTask extends Thread
+  {
+
+    @Override
+    public void run()
+    {
+      try {
+        sample();
+      } catch (RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "The resources of the apps could not be sampled.", ex);
+      }
+    }
+  }
+}
@@ -20,16 +20,13 @@
  */
 package esa.mo.sm.impl.provider;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.util.concurrent.TimeUnit;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import esa.mo.helpertools.misc.TaskScheduler;
-
 public class ProcessExecutionHandler
 {
 
@@ -61,11 +58,7 @@ public class ProcessExecutionHandler
     void processStopped(Long objId, int exitCode);
   }
 
-    private final TaskScheduler timer = new TaskScheduler(1);
-  private static final int PERIOD_PUB = 2 * 1000; // Publish every 2 seconds
   private final Long objId;
-  private Thread stdoutReader;
-  private Thread stderrReader;
   private Thread shutdownHook;
   private Process process = null;
   private Callbacks cb = null;
@@ -89,9 +82,9 @@ public class ProcessExecutionHandler
 
   public void close()
   {
-    timer.stopLast();
     process.destroyForcibly();
     removeShutdownHook();
+    ProcessOutputCollector.getInstance().release(this);
   }
 
   public void installShutdownHook()
@@ -111,12 +104,29 @@ public class ProcessExecutionHandler
     }
   }
 
+  /**
+   * Returns the native PID of a process: with the Process.pid() method on
+   * Java 9 or later, or from the field of the UNIXProcess class on Java 8.
+   *
+   * @param p The process.
+   * @return The PID.
+   * @throws IOException If the PID cannot be resolved.
+   */
   public static synchronized long getProcessPid(Process p) throws IOException
   {
     long pid;
 
     try {
-      if (p.getClass().getName().equals("java.lang.UNIXProcess")) {
+      Method pidMethod = null;
+      try {
+        pidMethod = Process.class.getMethod("pid");
+      } catch (NoSuchMethodException ex) {
+        // Java 8
+      }
+
+      if (pidMethod != null) {
+        pid = (Long) pidMethod.invoke(p);
+      } else if (p.getClass().getName().equals("java.lang.UNIXProcess")) {
         Field f = p.getClass().getDeclaredField("pid");
         f.setAccessible(true);
         pid = f.getLong(p);
@@ -125,7 +135,7 @@ public class ProcessExecutionHandler
         throw new IOException("Trying to resolve PID on an unsupported platform");
       }
     } catch (IllegalAccessException | IllegalArgumentException | NoSuchFieldException
-        | SecurityException ex) {
+        | SecurityException | InvocationTargetException ex) {
       throw new IOException("Exception when trying to resolve PID", ex);
     }
     return pid;
@@ -135,99 +145,40 @@ public class ProcessExecutionHandler
   {
     this.process = process;
     installShutdownHook();
-    final StringBuffer stdoutBuf = new StringBuffer();
-    final StringBuffer stderrBuf = new StringBuffer();
-    // Every PERIOD_PUB seconds, publish the String data
-    timer.scheduleTask(new TimerTaskImpl(stdoutBuf, stderrBuf), 0, PERIOD_PUB, TimeUnit.MILLISECONDS, false);
-    long pid;
-    try {
-      pid = ProcessExecutionHandler.getProcessPid(process);
-    } catch (IOException ex) {
-      pid = -1;
-    }
-    stdoutReader = createReaderThread(stdoutBuf, new BufferedReader(new InputStreamReader(
-        process.getInputStream())), "STDOUT_" + pid);
-    stderrReader = createReaderThread(stderrBuf, new BufferedReader(new InputStreamReader(
-        process.getErrorStream())), "STDERR_" + pid);
-    stdoutReader.start();
-    stderrReader.start();
-    new Thread(() -> {
-      try {
-        int exitCode = process.waitFor();
-        if (cb != null) {
-          cb.processStopped(objId, exitCode);
-        }
-      } catch (InterruptedException ex) {
-        // Thread interrupted, pretend the application exited succesfully
-        if (cb != null) {
-          cb.processStopped(objId, 0);
-        }
-      }
-    }).start();
+    // The output is read and published by threads shared by all the processes
+    ProcessOutputCollector.getInstance().register(this, process);
   }
 
-  private Thread createReaderThread(final StringBuffer buf, final BufferedReader br, final String name)
+  /**
+   * Publishes a chunk of the output of the process.
+   *
+   * @param stdout Complete lines of stdout data, or null if there are none
+   * @param stderr Complete lines of stderr data, or null if there are none
+   */
+  void flush(final String stdout, final String stderr)
   {
-    return new Thread()
-    {
-      @Override
-      public void run()
-      {
-        this.setName("ProcessExecutionHandler_ReaderThread_" + name);
-        try {
-          String line;
-          while ((line = br.readLine()) != null) {
-            buf.append(line);
-            buf.append("\n");
-          }
-        } catch (IOException ex) {
-          LOGGER.log(Level.INFO,
-              "The stream of the process (objId: {0}) has been closed.", new Object[]{
-                objId});
-          close();
-        }
-      }
-    };
-  }
-
-  private class TimerTaskImpl extends Thread
-  {
-
-    private final StringBuffer stdoutBuf;
-    private final StringBuffer stderrBuf;
-
-    public TimerTaskImpl(StringBuffer stdoutBuf, StringBuffer stderrBuf)
-    {
-      this.stdoutBuf = stdoutBuf;
-      this.stderrBuf = stderrBuf;
+    if (cb == null) {
+      return;
     }
-
-    @Override
-    public void run()
-    {
-      String data = getBufferData(stdoutBuf);
-      if (data != null) {
-        cb.flushStdout(objId, data);
-        LOGGER.log(Level.FINE, data);
-      }
-      data = getBufferData(stderrBuf);
-      if (data != null) {
-        cb.flushStderr(objId, data);
-        LOGGER.log(Level.FINE, data);
-      }
-
+    if (stdout != null) {
+      cb.flushStdout(objId, stdout);
+      LOGGER.log(Level.FINE, stdout);
+    }
+    if (stderr != null) {
+      cb.flushStderr(objId, stderr);
+      LOGGER.log(Level.FINE, stderr);
     }
+  }
 
-    private String getBufferData(StringBuffer buffer)
-    {
-      // Change the buffer position
-      int bufSize = buffer.length();
-      if (bufSize != 0) {
-        String dataToPropagate = buffer.substring(0, bufSize);
-        buffer.delete(0, bufSize);
-        return dataToPropagate;
-      }
-      return null;
+  /**
+   * Called once the process exited and its remaining output was published.
+   *
+   * @param exitCode Application exit code
+   */
+  void stopped(final int exitCode)
+  {
+    if (cb != null) {
+      cb.processStopped(objId, exitCode);
     }
   }
 
@@ -0,0 +1,304 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-size ring buffer holding the output of a process stream until it is
+ * published. The memory used per stream does not depend on how much the
+ * process writes.
+ *
+ * With the SPILL policy, the spill file is rotated once it holds spillLimit
+ * bytes: the previous one is kept with the ".1" suffix, so the disk used per
+ * stream is bounded as well.
+ */
+final class ProcessOutputBuffer
+{
+
+  /**
+   * What happens when the process writes faster than the output is published.
+   */
+  enum Overflow
+  {
+    /**
+     * The stream is not read while the buffer is full, so the process blocks
+     * on its next write once the pipe is full.
+     */
+    BLOCK,
+    /**
+     * The oldest bytes are dropped.
+     */
+    DROP,
+    /**
+     * The oldest bytes are appended to a file instead of being published. The
+     * file is rotated when it is full.
+     */
+    SPILL
+  }
+
+  private static final Logger LOGGER = Logger.getLogger(ProcessOutputBuffer.class.getName());
+
+  private final byte[] ring;
+  private final Overflow overflow;
+  private final File spillFile;
+  private final long spillLimit;
+  private OutputStream spill = null;
+  private long spilled = 0; // Bytes in the current spill file
+  private int head = 0; // Index of the oldest byte
+  private int size = 0;
+  private long discarded = 0; // Since the last drain
+
+  /**
+   * Constructor.
+   *
+   * @param capacity The size of the buffer in bytes.
+   * @param overflow The overflow policy.
+   * @param spillFile The file receiving the oldest bytes with the SPILL policy.
+   * @param spillLimit The size in bytes at which the spill file is rotated.
+   */
+  ProcessOutputBuffer(final int capacity, final Overflow overflow, final File spillFile,
+      final long spillLimit)
+  {
+    this.ring = new byte[capacity];
+    this.overflow = overflow;
+    this.spillFile = spillFile;
+    this.spillLimit = spillLimit;
+  }
+
+  /**
+   * Returns the file holding the spill file after its rotation.
+   *
+   * @param spillFile The spill file.
+   * @return The rotated file.
+   */
+  static File rotated(final File spillFile)
+  {
+    return new File(spillFile.getPath() + ".1");
+  }
+
+  /**
+   * Deletes a spill file and its rotated file, if they exist.
+   *
+   * @param spillFile The spill file.
+   */
+  static void deleteSpill(final File spillFile)
+  {
+    for (File file : new File[]{spillFile, rotated(spillFile)}) {
+      if (file.exists() && !file.delete()) {
+        LOGGER.log(Level.WARNING, "The spill file could not be deleted: {0}", file);
+      }
+    }
+  }
+
+  /**
+   * Returns how many bytes can be read from the stream into the buffer.
+   *
+   * @param max The number of bytes available on the stream.
+   * @return The number of bytes to read.
+   */
+  synchronized int acceptable(final int max)
+  {
+    return (overflow == Overflow.BLOCK) ? Math.min(max, ring.length - size) : max;
+  }
+
+  /**
+   * Appends bytes read from the stream. The oldest bytes are discarded if they
+   * do not fit.
+   *
+   * @param src The bytes.
+   * @param off The offset of the first byte.
+   * @param len The number of bytes.
+   */
+  synchronized void write(final byte[] src, final int off, final int len)
+  {
+    int from = off;
+    int count = len;
+
+    if (count > ring.length) { // Only the newest bytes fit
+      discardOldest(size);
+      discard(src, from, count - ring.length);
+      from += count - ring.length;
+      count = ring.length;
+    }
+
+    final int excess = size + count - ring.length;
+
+    if (excess > 0) {
+      discardOldest(excess);
+    }
+
+    final int tail = (head + size) % ring.length;
+    final int first = Math.min(count, ring.length - tail);
+    System.arraycopy(src, from, ring, tail, first);
+    System.arraycopy(src, from + first, ring, 0, count - first);
+    size += count;
+  }
+
+  /**
+   * Removes the complete lines from the buffer. A partial line is kept for the
+   * next drain unless the buffer is full or all is requested.
+   *
+   * @param all True to remove also the last partial line.
+   * @return The removed text or null if there is nothing to publish.
+   */
+  synchronized String drain(final boolean all)
+  {
+    int count = size;
+
+    if (!all && size < ring.length) {
+      count = 0;
+
+      for (int i = size; i > 0; i--) {
+        if (ring[(head + i - 1) % ring.length] == '\n') {
+          count = i;
+          break;
+        }
+      }
+    }
+
+    if (count == 0 && discarded == 0) {
+      return null;
+    }
+
+    final byte[] out = new byte[count];
+    final int first = Math.min(count, ring.length - head);
+    System.arraycopy(ring, head, out, 0, first);
+    System.arraycopy(ring, 0, out, first, count - first);
+    head = (head + count) % ring.length;
+    size -= count;
+
+    final String text = new String(out, Charset.defaultCharset());
+
+    if (discarded == 0) {
+      return text;
+    }
+
+    final String notice;
+
+    if (overflow == Overflow.SPILL) {
+      if (spill != null) { // Null right after a rotation
+        flushSpill();
+      }
+      notice = "[" + discarded + " bytes of output moved to " + spillFile + "]\n";
+    } else {
+      notice = "[" + discarded + " bytes of output dropped]\n";
+    }
+
+    discarded = 0;
+    return notice + text;
+  }
+
+  /**
+   * Closes the spill file, if any.
+   */
+  synchronized void close()
+  {
+    if (spill != null) {
+      try {
+        spill.close();
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "The spill file could not be closed: " + spillFile, ex);
+      }
+      spill = null;
+    }
+  }
+
+  private void discardOldest(final int count)
+  {
+    if (overflow == Overflow.SPILL) {
+      final int first = Math.min(count, ring.length - head);
+      spill(ring, head, first);
+      spill(ring, 0, count - first);
+    }
+
+    head = (head + count) % ring.length;
+    size -= count;
+    discarded += count;
+  }
+
+  private void discard(final byte[] src, final int off, final int len)
+  {
+    if (overflow == Overflow.SPILL) {
+      spill(src, off, len);
+    }
+
+    discarded += len;
+  }
+
+  private void spill(final byte[] src, final int off, final int len)
+  {
+    int from = off;
+    int count = len;
+
+    try {
+      while (count > 0) {
+        if (spill == null) { // A new file replaces the one of a previous process
+          spill = new BufferedOutputStream(new FileOutputStream(spillFile, false));
+          spilled = 0;
+        }
+
+        final int n = (int) Math.min(count, spillLimit - spilled);
+        spill.write(src, from, n);
+        spilled += n;
+        from += n;
+        count -= n;
+
+        if (spilled >= spillLimit) {
+          rotate();
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "The output could not be moved to: " + spillFile, ex);
+    }
+  }
+
+  private void rotate() throws IOException
+  {
+    spill.close();
+    spill = null;
+    final File previous = rotated(spillFile);
+
+    if (previous.exists() && !previous.delete()) {
+      throw new IOException("The previous spill file could not be deleted: " + previous);
+    }
+
+    if (!spillFile.renameTo(previous)) {
+      throw new IOException("The spill file could not be rotated to: " + previous);
+    }
+  }
+
+  private void flushSpill()
+  {
+    try {
+      spill.flush();
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "The spill file could not be flushed: " + spillFile, ex);
+    }
+  }
+}
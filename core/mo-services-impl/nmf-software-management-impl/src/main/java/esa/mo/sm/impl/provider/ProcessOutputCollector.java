@@ -0,0 +1,366 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.misc.TaskScheduler;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the stdout and stderr of all the monitored processes with two
+ * shared threads: one polls the streams of every process into fixed-size
+ * buffers without blocking, the other publishes the complete lines every
+ * PERIOD_PUB. The number of threads and the memory per process are constant.
+ *
+ * The buffers are configured with the properties:
+ * esa.mo.sm.impl.provider.output.buffersize (bytes per stream, default 65536),
+ * esa.mo.sm.impl.provider.output.overflow (block, drop or spill, default drop),
+ * esa.mo.sm.impl.provider.output.spilldir (default java.io.tmpdir) and
+ * esa.mo.sm.impl.provider.output.spillsize (bytes per spill file before it is
+ * rotated, default 1048576). The spill files of a process are deleted when
+ * its handler is closed.
+ *
+ * The poll thread is also the single watcher of the liveness of all the
+ * processes: the handlers and the registered ExitListeners are notified of
+ * their exit. If the output of a process cannot be collected, the process is
+ * destroyed, as it would block once its pipes are full, and its exit is
+ * reported as well.
+ */
+final class ProcessOutputCollector
+{
+
+  static final String PROPERTY_BUFFER_SIZE = "esa.mo.sm.impl.provider.output.buffersize";
+  static final String PROPERTY_OVERFLOW = "esa.mo.sm.impl.provider.output.overflow";
+  static final String PROPERTY_SPILL_DIR = "esa.mo.sm.impl.provider.output.spilldir";
+  static final String PROPERTY_SPILL_SIZE = "esa.mo.sm.impl.provider.output.spillsize";
+  private static final Logger LOGGER = Logger.getLogger(ProcessOutputCollector.class.getName());
+  private static final int PERIOD_POLL = 50; // Poll the streams every 50 milliseconds
+  private static final int PERIOD_PUB = 2 * 1000; // Publish every 2 seconds
+  private static final int CHUNK_SIZE = 8192;
+  private static final CopyOnWriteArrayList<ExitListener> EXIT_LISTENERS
+      = new CopyOnWriteArrayList<>();
+  private static ProcessOutputCollector instance = null;
+
+  private final TaskScheduler timer = new TaskScheduler(2);
+  private final List<Monitored> monitored = new CopyOnWriteArrayList<>();
+  private final byte[] chunk = new byte[CHUNK_SIZE]; // Only used by the poll thread
+  private final int bufferSize;
+  private final ProcessOutputBuffer.Overflow overflow;
+  private final File spillDir;
+  private final long spillSize;
+
+  private ProcessOutputCollector()
+  {
+    bufferSize = Integer.parseInt(System.getProperty(PROPERTY_BUFFER_SIZE, "65536"));
+    overflow = ProcessOutputBuffer.Overflow.valueOf(
+        System.getProperty(PROPERTY_OVERFLOW, "drop").toUpperCase(Locale.ENGLISH));
+    spillDir = new File(System.getProperty(PROPERTY_SPILL_DIR,
+        System.getProperty("java.io.tmpdir")));
+    spillSize = Long.parseLong(System.getProperty(PROPERTY_SPILL_SIZE, "1048576"));
+    timer.scheduleTask(new PollTask(), PERIOD_POLL, PERIOD_POLL, TimeUnit.MILLISECONDS, false);
+    timer.scheduleTask(new PublishTask(), PERIOD_PUB, PERIOD_PUB, TimeUnit.MILLISECONDS, false);
+  }
+
+  static synchronized ProcessOutputCollector getInstance()
+  {
+    if (instance == null) {
+      instance = new ProcessOutputCollector();
+    }
+
+    return instance;
+  }
+
+  /**
+   * Starts collecting the output of a process. The handler is notified of the
+   * output and, after the remaining output, of the exit of the process.
+   *
+   * @param handler The handler of the process.
+   * @param process The process.
+   */
+  void register(final ProcessExecutionHandler handler, final Process process)
+  {
+    monitored.add(new Monitored(handler, process));
+  }
+
+  /**
+   * Deletes the spill files of a process. The files are deleted again once the
+   * process exits if its output is still being collected.
+   *
+   * @param handler The handler of the process.
+   */
+  void release(final ProcessExecutionHandler handler)
+  {
+    for (Monitored m : monitored) {
+      if (m.handler == handler) {
+        m.released = true;
+      }
+    }
+
+    deleteSpills(handler);
+  }
+
+  /**
+   * Adds a listener notified of the exit of every monitored process. The
+   * listeners are kept even if no process was started yet.
+   *
+   * @param listener The listener.
+   */
+  static void addExitListener(final ExitListener listener)
+  {
+    EXIT_LISTENERS.addIfAbsent(listener);
+  }
+
+  static void removeExitListener(final ExitListener listener)
+  {
+    EXIT_LISTENERS.remove(listener);
+  }
+
+  private static void notifyExited(final Long objId, final int exitCode)
+  {
+    for (ExitListener listener : EXIT_LISTENERS) {
+      try {
+        listener.processExited(objId, exitCode);
+      } catch (RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "The exit listener failed.", ex);
+      }
+    }
+  }
+
+  private File spillFile(final ProcessExecutionHandler handler, final String stream)
+  {
+    return new File(spillDir, "process_" + handler.getObjId() + "_" + stream + ".log");
+  }
+
+  private ProcessOutputBuffer newBuffer(final ProcessExecutionHandler handler,
+      final String stream)
+  {
+    return new ProcessOutputBuffer(bufferSize, overflow, spillFile(handler, stream), spillSize);
+  }
+
+  private void deleteSpills(final ProcessExecutionHandler handler)
+  {
+    if (overflow == ProcessOutputBuffer.Overflow.SPILL) {
+      ProcessOutputBuffer.deleteSpill(spillFile(handler, "stdout"));
+      ProcessOutputBuffer.deleteSpill(spillFile(handler, "stderr"));
+    }
+  }
+
+  interface ExitListener
+  {
+
+    /**
+     * Called from the poll thread after the handler of the process.
+     *
+     * @param objId    The object ID of the process handler.
+     * @param exitCode The exit code of the process.
+     */
+    void processExited(Long objId, int exitCode);
+  }
+
+  private final class Monitored
+  {
+
+    private final ProcessExecutionHandler handler;
+    private final Process process;
+    private final InputStream stdout;
+    private final InputStream stderr;
+    private final ProcessOutputBuffer stdoutBuf;
+    private final ProcessOutputBuffer stderrBuf;
+    private boolean stdoutClosed = false;
+    private boolean stderrClosed = false;
+    private volatile boolean failed = false; // The output is not collected anymore
+    private volatile boolean released = false;
+
+    private Monitored(final ProcessExecutionHandler handler, final Process process)
+    {
+      this.handler = handler;
+      this.process = process;
+      this.stdout = process.getInputStream();
+      this.stderr = process.getErrorStream();
+      this.stdoutBuf = newBuffer(handler, "stdout");
+      this.stderrBuf = newBuffer(handler, "stderr");
+    }
+
+    private void poll()
+    {
+      if (failed) { // Only waiting for the exit
+        if (!process.isAlive()) {
+          monitored.remove(this);
+          exited();
+        }
+        return;
+      }
+
+      // Checked first, so that everything written before the exit is read below
+      final boolean exited = !process.isAlive();
+      boolean pending = false;
+
+      if (!stdoutClosed) {
+        pending |= read(stdout, stdoutBuf, true);
+      }
+
+      if (!stderrClosed) {
+        pending |= read(stderr, stderrBuf, false);
+      }
+
+      if (exited && !pending) {
+        monitored.remove(this);
+        publish(true);
+        stdoutBuf.close();
+        stderrBuf.close();
+        exited();
+      }
+    }
+
+    private void exited()
+    {
+      if (released) { // Output spilled after the handler was closed
+        deleteSpills(handler);
+      }
+
+      final int exitCode = process.exitValue();
+      handler.stopped(exitCode);
+      notifyExited(handler.getObjId(), exitCode);
+    }
+
+    /**
+     * Stops collecting the output after an error. The process is destroyed, as
+     * nothing reads its pipes anymore, and its exit is reported once it is
+     * gone.
+     */
+    private void fail()
+    {
+      failed = true;
+      stdoutBuf.close();
+      stderrBuf.close();
+      process.destroyForcibly();
+    }
+
+    /**
+     * Reads the bytes available on a stream without blocking.
+     *
+     * @return True if bytes are left on the stream.
+     */
+    private boolean read(final InputStream in, final ProcessOutputBuffer buffer,
+        final boolean isStdout)
+    {
+      int total = 0;
+
+      try {
+        int available;
+
+        while ((available = in.available()) > 0) {
+          final int len = buffer.acceptable(Math.min(available, CHUNK_SIZE));
+
+          if (len == 0 || total >= bufferSize) {
+            return true; // Continue with the other processes
+          }
+
+          final int n = in.read(chunk, 0, len);
+
+          if (n < 0) {
+            closed(isStdout);
+            return false;
+          }
+
+          buffer.write(chunk, 0, n);
+          total += n;
+        }
+      } catch (IOException ex) {
+        LOGGER.log(Level.INFO, "The stream of the process (objId: {0}) has been closed.",
+            handler.getObjId());
+        closed(isStdout);
+      }
+
+      return false;
+    }
+
+    private void closed(final boolean isStdout)
+    {
+      if (isStdout) {
+        stdoutClosed = true;
+      } else {
+        stderrClosed = true;
+      }
+    }
+
+    private synchronized void publish(final boolean all)
+    {
+      handler.flush(stdoutBuf.drain(all), stderrBuf.drain(all));
+    }
+  }
+
+  private class PollTask extends Thread
+  {
+
+    @Override
+    public void run()
+    {
+      for (Monitored m : monitored) {
+        try {
+          m.poll();
+        } catch (RuntimeException ex) {
+          if (m.failed) {
+            LOGGER.log(Level.SEVERE, "The exit of the process (objId: "
+                + m.handler.getObjId() + ") could not be reported.", ex);
+            monitored.remove(m);
+          } else {
+            LOGGER.log(Level.SEVERE, "The output of the process (objId: "
+                + m.handler.getObjId() + ") could not be collected.", ex);
+            m.fail();
+
+            if (!monitored.contains(m)) { // Failed after its exit, report it again
+              monitored.add(m);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private class PublishTask extends Thread
+  {
+
+    @Override
+    public void run()
+    {
+      for (Monitored m : monitored) {
+        if (m.failed) {
+          continue;
+        }
+
+        try {
+          m.publish(false);
+        } catch (RuntimeException ex) {
+          LOGGER.log(Level.SEVERE, "The output of the process (objId: "
+              + m.handler.getObjId() + ") could not be published.", ex);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.util;
+
+/**
+ * Phi accrual failure detector. Instead of a fixed timeout, it keeps a window
+ * of the last inter-arrival times of the heartbeats and returns the suspicion
+ * level phi that the monitored entity is down: phi = -log10(P(a heartbeat
+ * arrives later than now)), assuming the intervals are normally distributed.
+ * A phi of 1 means a 10% chance of a false suspicion, 2 means 1%, and so on.
+ *
+ * The class is not thread-safe, the callers synchronize the accesses.
+ */
+public class PhiAccrualFailureDetector {
+
+    private final double threshold;
+    private final long minStdDeviation;
+    private final long acceptablePause;
+    private final long[] intervals;
+    private int count = 0;
+    private int next = 0;
+    private double sum = 0;
+    private double squaredSum = 0;
+    private long lastBeat = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param threshold The phi above which the entity is considered down.
+     * @param windowSize The number of intervals kept for the statistics.
+     * @param minStdDeviation The minimum standard deviation of the intervals,
+     * in milliseconds, so that very regular heartbeats do not make the
+     * detector too sensitive.
+     * @param acceptablePause The pause in milliseconds tolerated on top of the
+     * expected interval.
+     */
+    public PhiAccrualFailureDetector(final double threshold, final int windowSize,
+            final long minStdDeviation, final long acceptablePause) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("The window must hold 2 intervals or more.");
+        }
+
+        this.threshold = threshold;
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        this.intervals = new long[windowSize];
+    }
+
+    /**
+     * Forgets the history and seeds the window with an expected interval,
+     * with a standard deviation of a quarter of it.
+     *
+     * @param expectedInterval The expected interval in milliseconds.
+     * @param now The current time in milliseconds, taken as the last
+     * heartbeat.
+     */
+    public void reset(final long expectedInterval, final long now) {
+        count = 0;
+        next = 0;
+        sum = 0;
+        squaredSum = 0;
+        add(expectedInterval - expectedInterval / 4);
+        add(expectedInterval + expectedInterval / 4);
+        lastBeat = now;
+    }
+
+    /**
+     * Records a heartbeat. The interval since the previous heartbeat is not
+     * added to the statistics if the entity was already considered down, so
+     * that an outage does not make the detector slower to react to the next
+     * one.
+     *
+     * @param now The arrival time in milliseconds.
+     */
+    public void heartbeat(final long now) {
+        if (lastBeat >= 0 && isAvailable(now)) {
+            add(now - lastBeat);
+        }
+
+        lastBeat = now;
+    }
+
+    /**
+     * Returns the suspicion level at the given time.
+     *
+     * @param now The current time in milliseconds.
+     * @return The phi value, 0 if no heartbeat was recorded yet.
+     */
+    public double phi(final long now) {
+        if (lastBeat < 0 || count == 0) {
+            return 0;
+        }
+
+        final double mean = sum / count + acceptablePause;
+        final double variance = Math.max(squaredSum / count - (sum / count) * (sum / count), 0);
+        final double stdDeviation = Math.max(Math.sqrt(variance), minStdDeviation);
+        final double y = (now - lastBeat - mean) / stdDeviation;
+        // Logistic approximation of the cumulative normal distribution
+        final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+
+        if (now - lastBeat > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    /**
+     * @param now The current time in milliseconds.
+     * @return True while phi is below the threshold.
+     */
+    public boolean isAvailable(final long now) {
+        return phi(now) < threshold;
+    }
+
+    /**
+     * @return The mean of the recorded intervals in milliseconds.
+     */
+    public double getMeanInterval() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    private void add(final long interval) {
+        if (count == intervals.length) {
+            final long oldest = intervals[next];
+            sum -= oldest;
+            squaredSum -= (double) oldest * oldest;
+        } else {
+            count++;
+        }
+
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        squaredSum += (double) interval * interval;
+    }
+}
@@ -0,0 +1,164 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperMisc;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class AppCgroupsTest
+{
+
+  private static final String[] COMMAND = {"echo", "started"};
+
+  private static File newApp(File root, String cpu, String memory) throws Exception
+  {
+    File appFolder = Files.createTempDirectory("app").toFile();
+    StringBuilder props = new StringBuilder();
+    if (cpu != null) {
+      props.append(HelperMisc.APP_CPU_LIMIT).append('=').append(cpu).append('\n');
+    }
+    if (memory != null) {
+      props.append(HelperMisc.APP_MEMORY_LIMIT).append('=').append(memory).append('\n');
+    }
+    Files.write(new File(appFolder, HelperMisc.PROVIDER_PROPERTIES_FILE).toPath(),
+        props.toString().getBytes(StandardCharsets.US_ASCII));
+    return appFolder;
+  }
+
+  private static String read(File file) throws Exception
+  {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+  }
+
+  private static String readAll(InputStream in) throws Exception
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[256];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII).trim();
+  }
+
+  @Test
+  public void testLimitsAreWritten() throws Exception
+  {
+    File root = Files.createTempDirectory("cgroup").toFile();
+    String[] wrapped = new AppCgroups(root).wrap("app", newApp(root, "50", "64m"), COMMAND);
+
+    File group = new File(root, "app");
+    assertEquals("50000 100000", read(new File(group, "cpu.max")));
+    assertEquals("64M", read(new File(group, "memory.max")));
+    assertEquals("/bin/sh", wrapped[0]);
+    assertEquals("-c", wrapped[1]);
+    assertTrue(wrapped[2].contains(new File(group, "cgroup.procs").getAbsolutePath()));
+    assertArrayEquals(COMMAND, new String[]{wrapped[3], wrapped[4]});
+
+    // Only the CPU is limited
+    new AppCgroups(root).wrap("app", newApp(root, null, "1G"), COMMAND);
+    assertEquals("max 100000", read(new File(group, "cpu.max")));
+    assertEquals("1G", read(new File(group, "memory.max")));
+  }
+
+  @Test
+  public void testCommandIsKeptWithoutLimits() throws Exception
+  {
+    File root = Files.createTempDirectory("cgroup").toFile();
+    assertSame(COMMAND, new AppCgroups(null).wrap("app", newApp(root, "50", null), COMMAND));
+    assertSame(COMMAND, new AppCgroups(root).wrap("app", newApp(root, null, null), COMMAND));
+
+    // Invalid limits are not applied
+    assertSame(COMMAND, new AppCgroups(root).wrap("app", newApp(root, "fast", null), COMMAND));
+    assertSame(COMMAND, new AppCgroups(root).wrap("app", newApp(root, null, "12X"), COMMAND));
+  }
+
+  @Test
+  public void testParseCpu()
+  {
+    assertEquals("50000 100000", AppCgroups.parseCpu("50"));
+    assertEquals("250000 100000", AppCgroups.parseCpu(" 250 "));
+    assertEquals("500 100000", AppCgroups.parseCpu("0.5"));
+
+    for (String invalid : new String[]{"0", "-10", "NaN", "Infinity", "abc", ""}) {
+      try {
+        AppCgroups.parseCpu(invalid);
+        fail("Accepted the CPU limit: " + invalid);
+      } catch (IllegalArgumentException ex) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void testParseMemory()
+  {
+    assertEquals("1048576", AppCgroups.parseMemory("1048576"));
+    assertEquals("512K", AppCgroups.parseMemory(" 512k "));
+    assertEquals("64M", AppCgroups.parseMemory("64m"));
+    assertEquals("2G", AppCgroups.parseMemory("2G"));
+
+    for (String invalid : new String[]{"", "M", "-1", "1.5G", "12X", "64 M"}) {
+      try {
+        AppCgroups.parseMemory(invalid);
+        fail("Accepted the memory limit: " + invalid);
+      } catch (IllegalArgumentException ex) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void testLauncherShellMovesItself() throws Exception
+  {
+    File root = Files.createTempDirectory("cgroup").toFile();
+    String[] wrapped = new AppCgroups(root).wrap("app", newApp(root, "50", null), COMMAND);
+
+    Process process = new ProcessBuilder(wrapped).start();
+    assertEquals("started", readAll(process.getInputStream()));
+    assertEquals(0, process.waitFor());
+    assertTrue(read(new File(root, "app/cgroup.procs")).matches("[0-9]+"));
+  }
+
+  @Test
+  public void testFailedMoveDoesNotLaunch() throws Exception
+  {
+    File root = Files.createTempDirectory("cgroup").toFile();
+    String[] wrapped = new AppCgroups(root).wrap("app", newApp(root, "50", null), COMMAND);
+    // The pid cannot be written
+    assertTrue(new File(root, "app/cgroup.procs").mkdir());
+
+    Process process = new ProcessBuilder(wrapped).start();
+    assertEquals("", readAll(process.getInputStream()));
+    assertEquals(AppCgroups.MOVE_FAILED_EXIT_CODE, process.waitFor());
+    assertTrue(readAll(process.getErrorStream()).contains("could not be moved to its cgroup"));
+  }
+}
@@ -0,0 +1,197 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AppLaunchAcceleratorTest
+{
+
+  private static final String JAVA_11 = "openjdk version \"11.0.12\" 2021-07-20\n"
+      + "OpenJDK Runtime Environment (build 11.0.12+7)";
+
+  private static File write(File folder, String name, String... lines) throws Exception
+  {
+    File file = new File(folder, name);
+    Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static AppLaunchAccelerator.JavaCommand java(String versionOutput)
+  {
+    return new AppLaunchAccelerator.JavaCommand(new File("/usr/lib/jvm/bin/java"), 1000L, 2000L,
+        versionOutput);
+  }
+
+  @Test
+  public void testClassListsAreMerged() throws Exception
+  {
+    File folder = Files.createTempDirectory("classlists").toFile();
+    File list1 = write(folder, "app1", "# NOTE: Do not modify this file.",
+        "java/lang/Object id: 0",
+        "esa/mo/nmf/NMFProvider id: 1",
+        "@lambda-proxy java/lang/Runnable",
+        "esa/mo/nmf/apps/App1 id: 2 super: 0 source: /apps/app1/app1.jar",
+        "");
+    File list2 = write(folder, "app2", "java/lang/Object",
+        "org/ccsds/moims/mo/mal/MALContext",
+        "esa/mo/nmf/NMFProvider");
+
+    assertEquals(Arrays.asList("java/lang/Object", "esa/mo/nmf/NMFProvider",
+        "org/ccsds/moims/mo/mal/MALContext"),
+        new ArrayList<>(AppLaunchAccelerator.mergeClassLists(Arrays.asList(list1, list2))));
+    assertTrue(AppLaunchAccelerator.mergeClassLists(new ArrayList<File>()).isEmpty());
+  }
+
+  @Test
+  public void testFingerprint() throws Exception
+  {
+    File libs = Files.createTempDirectory("libs").toFile();
+    File jar = write(libs, "a.jar", "a");
+    write(libs, "b.jar", "b");
+    write(libs, "readme.txt", "ignored");
+
+    String fingerprint = AppLaunchAccelerator.fingerprint(java(JAVA_11), libs);
+    assertEquals(fingerprint, AppLaunchAccelerator.fingerprint(java(JAVA_11), libs));
+
+    // Other files than the jars are ignored
+    write(libs, "readme.txt", "changed");
+    assertEquals(fingerprint, AppLaunchAccelerator.fingerprint(java(JAVA_11), libs));
+
+    // Another java command
+    assertNotEquals(fingerprint, AppLaunchAccelerator.fingerprint(
+        java("openjdk version \"11.0.13\" 2021-10-19"), libs));
+    assertNotEquals(fingerprint, AppLaunchAccelerator.fingerprint(
+        new AppLaunchAccelerator.JavaCommand(new File("/opt/java/bin/java"), 1000L, 2000L, JAVA_11),
+        libs));
+
+    // A jar changed or added
+    jar.setLastModified(jar.lastModified() + 2000);
+    String changed = AppLaunchAccelerator.fingerprint(java(JAVA_11), libs);
+    assertNotEquals(fingerprint, changed);
+    write(libs, "c.jar", "c");
+    assertNotEquals(changed, AppLaunchAccelerator.fingerprint(java(JAVA_11), libs));
+
+    assertNull(AppLaunchAccelerator.fingerprint(java(JAVA_11), new File(libs, "missing")));
+  }
+
+  @Test
+  public void testJavaVersion()
+  {
+    assertEquals(8, AppLaunchAccelerator.parseJavaVersion("java version \"1.8.0_292\""));
+    assertEquals(11, java(JAVA_11).getVersion());
+    assertEquals(17, AppLaunchAccelerator.parseJavaVersion("openjdk version \"17\" 2021-09-14"));
+    assertEquals(21, AppLaunchAccelerator.parseJavaVersion("openjdk version \"21-ea\""));
+    assertEquals(0, AppLaunchAccelerator.parseJavaVersion("sh: java: not found"));
+  }
+
+  @Test
+  public void testLatencyStatistics()
+  {
+    AppLaunchAccelerator.Statistics stats = new AppLaunchAccelerator.Statistics();
+    assertEquals(0, stats.getAverage());
+
+    // Not enough launches yet to detect a regression
+    assertFalse(stats.add(100));
+    assertFalse(stats.add(1000));
+    assertEquals(550, stats.getAverage());
+    assertFalse(stats.add(250));
+    assertEquals(3, stats.getCount());
+    assertEquals(450, stats.getAverage());
+
+    assertFalse(stats.add(900)); // Exactly twice the average
+    assertEquals(562, stats.getAverage());
+    assertTrue(stats.add(1125));
+    assertEquals(5, stats.getCount());
+  }
+
+  @Test
+  public void testReadyRecordsTheLatency() throws Exception
+  {
+    File apps = Files.createTempDirectory("apps").toFile();
+    System.setProperty(AppLaunchAccelerator.PROPERTY_ENABLED, "false");
+    try {
+      AppLaunchAccelerator accelerator = new AppLaunchAccelerator(apps);
+      assertEquals("", accelerator.launched("app1", new File(apps, "app1"), System.nanoTime()));
+      accelerator.ready("app2"); // Not launched
+      assertNull(accelerator.getStatistics("app2"));
+
+      accelerator.ready("app1");
+      assertEquals(1, accelerator.getStatistics("app1").getCount());
+      accelerator.ready("app1"); // Only once per launch
+      assertEquals(1, accelerator.getStatistics("app1").getCount());
+
+      accelerator.launched("app1", new File(apps, "app1"), System.nanoTime());
+      accelerator.stopped("app1");
+      accelerator.ready("app1");
+      assertEquals(1, accelerator.getStatistics("app1").getCount());
+    } finally {
+      System.clearProperty(AppLaunchAccelerator.PROPERTY_ENABLED);
+    }
+  }
+
+  @Test
+  public void testFailedDumpBacksOff() throws Exception
+  {
+    File apps = Files.createTempDirectory("apps").toFile();
+    File cds = Files.createTempDirectory("cds").toFile();
+    System.setProperty(AppLaunchAccelerator.PROPERTY_ENABLED, "false");
+    System.setProperty(AppLaunchAccelerator.PROPERTY_DIR, cds.getAbsolutePath());
+    try {
+      AppLaunchAccelerator accelerator = new AppLaunchAccelerator(apps);
+      long now = System.currentTimeMillis();
+      assertFalse(accelerator.isBackingOff("f1", now));
+
+      accelerator.recordFailedDump("f1");
+      long delay = AppLaunchAccelerator.backoffDelay(1);
+      assertTrue(accelerator.isBackingOff("f1", now));
+      assertFalse(accelerator.isBackingOff("f1", now + delay + 1000));
+      // The jars or the java command changed
+      assertFalse(accelerator.isBackingOff("f2", now));
+
+      // The delay doubles with each failure
+      accelerator.recordFailedDump("f1");
+      assertEquals(2 * delay, AppLaunchAccelerator.backoffDelay(2));
+      assertTrue(accelerator.isBackingOff("f1", now + delay + 1000));
+      assertFalse(accelerator.isBackingOff("f1", now + 2 * delay + 1000));
+      assertEquals(TimeUnit.DAYS.toMillis(1), AppLaunchAccelerator.backoffDelay(100));
+
+      // Another fingerprint starts again
+      accelerator.recordFailedDump("f2");
+      assertFalse(accelerator.isBackingOff("f1", now));
+      assertFalse(accelerator.isBackingOff("f2", now + delay + 1000));
+    } finally {
+      System.clearProperty(AppLaunchAccelerator.PROPERTY_ENABLED);
+      System.clearProperty(AppLaunchAccelerator.PROPERTY_DIR);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperMisc;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AppsRegistryTest
+{
+
+  private static File writeApp(File appsFolder, String name, String version, boolean watch)
+      throws IOException
+  {
+    File folder = new File(appsFolder, name);
+    folder.mkdirs();
+    File props = new File(folder, HelperMisc.PROVIDER_PROPERTIES_FILE);
+    Files.write(props.toPath(), (HelperMisc.APP_VERSION + "=" + version + "\n")
+        .getBytes(Charset.defaultCharset()));
+    if (!watch) {
+      // Make sure that the change is visible in the modification time
+      props.setLastModified(props.lastModified() + 2000);
+    }
+    return props;
+  }
+
+  private static void testRegistry(boolean watch) throws Exception
+  {
+    System.setProperty(AppsRegistry.PROPERTY_WATCH, Boolean.toString(watch));
+    File appsFolder = Files.createTempDirectory("apps").toFile();
+    writeApp(appsFolder, "app1", "1.0", watch);
+    AppsRegistry registry = new AppsRegistry(appsFolder);
+    System.clearProperty(AppsRegistry.PROPERTY_WATCH);
+
+    long generation = registry.refresh();
+    assertEquals(1, registry.getApps().size());
+    assertEquals("1.0", registry.getApps().get(0).getVersion());
+    assertEquals(generation, registry.refresh());
+
+    // A file that is not the descriptor does not change the index
+    Files.write(new File(appsFolder, "app1" + File.separator + "app.log").toPath(),
+        new byte[]{1});
+    assertEquals(generation, waitForChange(registry, generation, false));
+
+    writeApp(appsFolder, "app1", "2.0", watch);
+    generation = waitForChange(registry, generation, true);
+    assertEquals("2.0", registry.getApps().get(0).getVersion());
+
+    if (watch) {
+      // The event is enough, even if the modification time and size did not change
+      File props = new File(appsFolder, "app1" + File.separator
+          + HelperMisc.PROVIDER_PROPERTIES_FILE);
+      long modified = props.lastModified();
+      writeApp(appsFolder, "app1", "3.0", watch).setLastModified(modified);
+      generation = waitForChange(registry, generation, true);
+      assertEquals("3.0", registry.getApps().get(0).getVersion());
+    }
+
+    writeApp(appsFolder, "app2", "1.0", watch);
+    generation = waitForChange(registry, generation, true);
+    assertTrue(registry.contains("app2"));
+
+    Files.delete(new File(appsFolder, "app2" + File.separator
+        + HelperMisc.PROVIDER_PROPERTIES_FILE).toPath());
+    Files.delete(new File(appsFolder, "app2").toPath());
+    if (!watch) {
+      appsFolder.setLastModified(appsFolder.lastModified() + 2000);
+    }
+    waitForChange(registry, generation, true);
+    assertFalse(registry.contains("app2"));
+    assertEquals(1, registry.getApps().size());
+  }
+
+  /**
+   * The watch events are delivered asynchronously, so give them some time.
+   */
+  private static long waitForChange(AppsRegistry registry, long generation, boolean expected)
+      throws Exception
+  {
+    long current = registry.refresh();
+
+    for (int i = 0; i < 50 && current == generation; i++) {
+      Thread.sleep(expected ? 100 : 10);
+      current = registry.refresh();
+    }
+
+    if (expected) {
+      assertNotEquals(generation, current);
+    }
+
+    return current;
+  }
+
+  @Test
+  public void testWatched() throws Exception
+  {
+    testRegistry(true);
+  }
+
+  @Test
+  public void testModificationTimes() throws Exception
+  {
+    testRegistry(false);
+  }
+}
@@ -0,0 +1,156 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HeartbeatProviderServiceImplTest
+{
+
+  private static final long PERIOD = 40;
+  private static final long MAX_PERIOD = 120;
+
+  /**
+   * Records the interval in use at each beat instead of publishing it.
+   */
+  private static final class RecordingProvider extends HeartbeatProviderServiceImpl
+  {
+
+    private final BlockingQueue<Long> beats = new LinkedBlockingQueue<>();
+    private volatile int failures = 0;
+    private volatile CountDownLatch gate;
+
+    RecordingProvider()
+    {
+      period = PERIOD;
+      maxPeriod = MAX_PERIOD;
+    }
+
+    @Override
+    boolean publishHeartbeat()
+    {
+      beats.add(getInterval());
+      final CountDownLatch current = gate;
+      if (current != null) {
+        gate = null;
+        try {
+          current.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (failures > 0) {
+        failures--;
+        return false;
+      }
+      return true;
+    }
+
+    long nextBeat() throws InterruptedException
+    {
+      final Long interval = beats.poll(5, TimeUnit.SECONDS);
+      assertNotNull("No beat was published", interval);
+      return interval;
+    }
+
+    List<Long> nextBeats(final int count) throws InterruptedException
+    {
+      final List<Long> intervals = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        intervals.add(nextBeat());
+      }
+      return intervals;
+    }
+  }
+
+  @Test
+  public void testIntervalGrowsUpToTheMaximum() throws Exception
+  {
+    final RecordingProvider provider = new RecordingProvider();
+    try {
+      provider.startBeating();
+      final List<Long> expected = new ArrayList<>();
+      expected.add(40L);
+      expected.add(60L);
+      expected.add(90L);
+      expected.add(120L);
+      expected.add(120L);
+      assertEquals(expected, provider.nextBeats(5));
+    } finally {
+      provider.close();
+    }
+  }
+
+  @Test
+  public void testFailedPublishBeatsRightAway() throws Exception
+  {
+    final RecordingProvider provider = new RecordingProvider();
+    try {
+      provider.failures = 2;
+      provider.startBeating();
+
+      // The first failure is retried at once, the second one after the base period
+      assertEquals(40L, provider.nextBeat());
+      long start = System.nanoTime();
+      assertEquals(40L, provider.nextBeat());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < PERIOD / 2);
+      start = System.nanoTime();
+      assertEquals(40L, provider.nextBeat());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= PERIOD - 5);
+
+      // Then the interval grows again
+      assertEquals(60L, provider.nextBeat());
+    } finally {
+      provider.close();
+    }
+  }
+
+  @Test
+  public void testLivenessChangedBeatIsNotCancelled() throws Exception
+  {
+    final RecordingProvider provider = new RecordingProvider();
+    try {
+      final CountDownLatch publishing = new CountDownLatch(1);
+      provider.gate = publishing;
+      provider.startBeating();
+      assertEquals(40L, provider.nextBeat());
+
+      // The process exits while the beat is being published
+      provider.livenessChanged();
+      final long start = System.nanoTime();
+      publishing.countDown();
+      assertEquals(40L, provider.nextBeat());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < PERIOD / 2);
+      assertEquals(60L, provider.nextBeat());
+    } finally {
+      provider.close();
+    }
+  }
+}
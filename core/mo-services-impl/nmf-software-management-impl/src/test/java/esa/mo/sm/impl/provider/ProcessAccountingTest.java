@@ -0,0 +1,94 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ProcessAccountingTest
+{
+
+  private static void process(File procRoot, long pid, String comm, long ppid, long utime,
+      int threads, long rss) throws Exception
+  {
+    File folder = new File(procRoot, Long.toString(pid));
+    folder.mkdirs();
+    String stat = pid + " (" + comm + ") S " + ppid + " 0 0 0 -1 0 0 0 0 0 " + utime
+        + " 0 0 0 20 0 " + threads + " 0 0\n";
+    Files.write(new File(folder, "stat").toPath(), stat.getBytes(StandardCharsets.US_ASCII));
+    Files.write(new File(folder, "status").toPath(),
+        ("Name:\t" + comm + "\nVmRSS:\t  " + rss + " kB\n").getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static File newProcRoot() throws Exception
+  {
+    File procRoot = Files.createTempDirectory("proc").toFile();
+    new File(procRoot, "self").mkdir();
+    return procRoot;
+  }
+
+  @Test
+  public void testProcessTreeIsAggregated() throws Exception
+  {
+    File procRoot = newProcRoot();
+    process(procRoot, 100, "sh", 1, 10, 1, 1000);
+    process(procRoot, 101, "java (my app)", 100, 20, 12, 50000);
+    process(procRoot, 102, "helper", 101, 5, 1, 300);
+    process(procRoot, 200, "other", 1, 90, 4, 7000);
+    Files.write(new File(procRoot, "101/io").toPath(),
+        "rchar: 1\nread_bytes: 4096\nwrite_bytes: 8192\n".getBytes(StandardCharsets.US_ASCII));
+
+    ProcessAccounting accounting = new ProcessAccounting(procRoot, 1000);
+    assertTrue(accounting.isAvailable());
+    accounting.track("app", 100);
+    assertNull(accounting.getUsage("app"));
+    accounting.sample();
+
+    ProcessAccounting.Usage usage = accounting.getUsage("app");
+    assertEquals(3, usage.getProcesses());
+    assertEquals(14, usage.getThreads());
+    assertEquals(51300, usage.getRss());
+    assertEquals(4096, usage.getReadBytes());
+    assertEquals(8192, usage.getWriteBytes());
+    assertEquals(0, usage.getCpu(), 0);
+
+    process(procRoot, 101, "java (my app)", 100, 120, 12, 50000);
+    Thread.sleep(20);
+    accounting.sample();
+    assertTrue(accounting.getUsage("app").getCpu() > 0);
+
+    accounting.untrack("app");
+    assertNull(accounting.getUsage("app"));
+  }
+
+  @Test
+  public void testDisabledWithoutProc() throws Exception
+  {
+    File procRoot = newProcRoot();
+    assertTrue(!new ProcessAccounting(procRoot, 0).isAvailable());
+    assertTrue(!new ProcessAccounting(new File(procRoot, "missing"), 1000).isAvailable());
+  }
+}
@@ -0,0 +1,118 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ProcessOutputBufferTest
+{
+
+  private static void write(ProcessOutputBuffer buffer, String text)
+  {
+    byte[] bytes = text.getBytes(Charset.defaultCharset());
+    buffer.write(bytes, 0, bytes.length);
+  }
+
+  @Test
+  public void testDrainKeepsPartialLine()
+  {
+    ProcessOutputBuffer buffer = new ProcessOutputBuffer(16, ProcessOutputBuffer.Overflow.DROP,
+        null, 1024);
+    write(buffer, "one\ntwo\nthr");
+    assertEquals("one\ntwo\n", buffer.drain(false));
+    assertNull(buffer.drain(false));
+    write(buffer, "ee\n");
+    assertEquals("three\n", buffer.drain(false));
+    write(buffer, "four");
+    assertEquals("four", buffer.drain(true));
+  }
+
+  @Test
+  public void testDropOldest()
+  {
+    ProcessOutputBuffer buffer = new ProcessOutputBuffer(8, ProcessOutputBuffer.Overflow.DROP,
+        null, 1024);
+    write(buffer, "aaaa\nbbbb\ncc\n");
+    assertEquals("[5 bytes of output dropped]\nbbbb\ncc\n", buffer.drain(false));
+    write(buffer, "0123456789\n");
+    assertEquals("[3 bytes of output dropped]\n3456789\n", buffer.drain(false));
+  }
+
+  @Test
+  public void testBlockLimitsReads()
+  {
+    ProcessOutputBuffer buffer = new ProcessOutputBuffer(8, ProcessOutputBuffer.Overflow.BLOCK,
+        null, 1024);
+    assertEquals(8, buffer.acceptable(100));
+    write(buffer, "abcdef");
+    assertEquals(2, buffer.acceptable(100));
+    write(buffer, "gh");
+    assertEquals(0, buffer.acceptable(100));
+    // A full buffer without a line break is published as is
+    assertEquals("abcdefgh", buffer.drain(false));
+    assertEquals(8, buffer.acceptable(100));
+  }
+
+  @Test
+  public void testSpillOldest() throws Exception
+  {
+    File spillFile = File.createTempFile("process_", "_stdout.log");
+    spillFile.deleteOnExit();
+    ProcessOutputBuffer buffer = new ProcessOutputBuffer(8, ProcessOutputBuffer.Overflow.SPILL,
+        spillFile, 1024);
+    write(buffer, "aaaa\nbbbb\ncc\n");
+    assertEquals("[5 bytes of output moved to " + spillFile + "]\nbbbb\ncc\n",
+        buffer.drain(false));
+    buffer.close();
+    assertEquals("aaaa\n", new String(Files.readAllBytes(spillFile.toPath()),
+        Charset.defaultCharset()));
+  }
+
+  @Test
+  public void testSpillIsRotated() throws Exception
+  {
+    File spillFile = File.createTempFile("process_", "_stdout.log");
+    File rotated = ProcessOutputBuffer.rotated(spillFile);
+    spillFile.deleteOnExit();
+    rotated.deleteOnExit();
+    ProcessOutputBuffer buffer = new ProcessOutputBuffer(4, ProcessOutputBuffer.Overflow.SPILL,
+        spillFile, 6);
+    write(buffer, "aaaa\nbbbb\ncccc\nddd\n");
+    assertEquals("[15 bytes of output moved to " + spillFile + "]\nddd\n",
+        buffer.drain(false));
+    buffer.close();
+    // Only the newest bytes are kept on disk: "aaaa\nb" was dropped
+    assertEquals("bbb\ncc", new String(Files.readAllBytes(rotated.toPath()),
+        Charset.defaultCharset()));
+    assertEquals("cc\n", new String(Files.readAllBytes(spillFile.toPath()),
+        Charset.defaultCharset()));
+
+    ProcessOutputBuffer.deleteSpill(spillFile);
+    assertFalse(spillFile.exists());
+    assertFalse(rotated.exists());
+  }
+}
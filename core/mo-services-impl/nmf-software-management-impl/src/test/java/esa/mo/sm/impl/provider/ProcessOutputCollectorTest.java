@@ -0,0 +1,158 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.provider;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ProcessOutputCollectorTest
+{
+
+  /**
+   * A running process whose stdout cannot be read.
+   */
+  private static final class BrokenProcess extends Process
+  {
+
+    private volatile boolean alive = true;
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+      return new OutputStream()
+      {
+        @Override
+        public void write(int b)
+        {
+        }
+      };
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+      return new InputStream()
+      {
+        @Override
+        public int read()
+        {
+          throw new IllegalStateException("Broken stream");
+        }
+
+        @Override
+        public int available()
+        {
+          throw new IllegalStateException("Broken stream");
+        }
+      };
+    }
+
+    @Override
+    public InputStream getErrorStream()
+    {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor()
+    {
+      return exitValue();
+    }
+
+    @Override
+    public int exitValue()
+    {
+      if (alive) {
+        throw new IllegalThreadStateException("Still running");
+      }
+      return 137;
+    }
+
+    @Override
+    public void destroy()
+    {
+      alive = false;
+    }
+
+    @Override
+    public Process destroyForcibly()
+    {
+      alive = false;
+      return this;
+    }
+
+    @Override
+    public boolean isAlive()
+    {
+      return alive;
+    }
+  }
+
+  @Test
+  public void testExitIsReportedWhenTheOutputCannotBeCollected() throws Exception
+  {
+    final BrokenProcess process = new BrokenProcess();
+    final CompletableFuture<Integer> stopped = new CompletableFuture<>();
+    final CompletableFuture<Integer> exited = new CompletableFuture<>();
+    final ProcessOutputCollector.ExitListener listener = (objId, exitCode) -> {
+      if (objId == 42L) {
+        exited.complete(exitCode);
+      }
+    };
+    final ProcessExecutionHandler handler = new ProcessExecutionHandler(
+        new ProcessExecutionHandler.Callbacks()
+    {
+      @Override
+      public void flushStdout(Long objId, String data)
+      {
+      }
+
+      @Override
+      public void flushStderr(Long objId, String data)
+      {
+      }
+
+      @Override
+      public void processStopped(Long objId, int exitCode)
+      {
+        stopped.complete(exitCode);
+      }
+    }, 42L);
+
+    ProcessOutputCollector.addExitListener(listener);
+
+    try {
+      ProcessOutputCollector.getInstance().register(handler, process);
+      // The process is destroyed, as nothing reads its output anymore
+      assertEquals(137, (int) stopped.get(5, TimeUnit.SECONDS));
+      assertEquals(137, (int) exited.get(5, TimeUnit.SECONDS));
+      assertTrue(!process.isAlive());
+    } finally {
+      ProcessOutputCollector.removeExitListener(listener);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.sm.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PhiAccrualFailureDetectorTest {
+
+    private static PhiAccrualFailureDetector regularBeats(final long interval, final int beats) {
+        PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(8.0, 10, 100, 0);
+        detector.reset(interval, 0);
+
+        for (int i = 1; i <= beats; i++) {
+            detector.heartbeat(i * interval);
+        }
+
+        return detector;
+    }
+
+    @Test
+    public void testPhiGrowsWithTheDelay() {
+        PhiAccrualFailureDetector detector = regularBeats(1000, 20);
+        long last = 20 * 1000;
+        assertTrue(detector.phi(last + 500) < 0.1);
+        assertTrue(detector.phi(last + 1000) < detector.phi(last + 1200));
+        assertTrue(detector.isAvailable(last + 1200));
+        assertFalse(detector.isAvailable(last + 2000));
+    }
+
+    @Test
+    public void testWindowForgetsOldIntervals() {
+        PhiAccrualFailureDetector detector = regularBeats(1000, 5);
+
+        for (int i = 1; i <= 10; i++) {
+            detector.heartbeat(5000 + i * 1200);
+        }
+
+        assertEquals(1200, detector.getMeanInterval(), 0.001);
+        assertTrue(detector.isAvailable(17000 + 1400));
+    }
+
+    @Test
+    public void testOutageIsNotRecorded() {
+        PhiAccrualFailureDetector detector = regularBeats(1000, 10);
+        detector.heartbeat(60000);
+        assertEquals(1000, detector.getMeanInterval(), 0.001);
+    }
+}
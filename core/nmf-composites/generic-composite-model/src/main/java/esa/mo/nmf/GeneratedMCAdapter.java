@@ -0,0 +1,235 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.mal.provider.MALInteraction;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationDefinitionDetails;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterSet;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterSetList;
+import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdFilter;
+import org.ccsds.moims.mo.mc.structures.AttributeValueList;
+
+/**
+ * Base class of the adapters generated at compile time by the NMF M&C adapter
+ * annotation processor (artifact mc-adapter-processor).
+ *
+ * For every MonitorAndControlNMFAdapter subclass with @Parameter fields or
+ * @Action methods, the processor generates a class named after the binary
+ * name of the app class with '$' replaced by '_' and the suffix
+ * {@value #CLASS_SUFFIX}, in the same package. The generated class registers
+ * the precomputed definitions and accesses the annotated fields and methods
+ * directly, with the parameters and actions addressed by their index in
+ * declaration order. When no generated class is found, the
+ * MonitorAndControlNMFAdapter falls back to reflection.
+ *
+ * @param <T> The app adapter class
+ */
+public abstract class GeneratedMCAdapter<T extends MonitorAndControlNMFAdapter>
+{
+
+  /**
+   * The suffix of the generated class names.
+   */
+  public static final String CLASS_SUFFIX = "_MCAdapter";
+
+  protected static final Logger LOGGER = Logger.getLogger(GeneratedMCAdapter.class.getName());
+
+  /**
+   * Registers the parameters and their aggregations.
+   *
+   * @param adapter The app adapter
+   * @param registration The registration object
+   * @return The object instance identifiers of the parameters, in
+   * declaration order. Null or empty if the app has no parameters.
+   */
+  public abstract LongList registerParameters(T adapter, MCRegistration registration);
+
+  /**
+   * Registers the actions.
+   *
+   * @param adapter The app adapter
+   * @param registration The registration object
+   * @return The object instance identifiers of the actions, in declaration
+   * order. Null or empty if the app has no actions.
+   */
+  public abstract LongList registerActions(T adapter, MCRegistration registration);
+
+  /**
+   * @return The names of the actions, in declaration order
+   */
+  public abstract String[] getActionNames();
+
+  /**
+   * Calls the onGet function of a parameter, if any, and returns its value.
+   *
+   * @param adapter The app adapter
+   * @param index The index of the parameter
+   * @return The value of the parameter. Null if the onGet function failed.
+   * @throws IOException if the index is unknown
+   */
+  public abstract Attribute getValue(T adapter, int index) throws IOException;
+
+  /**
+   * Sets the value of a parameter.
+   *
+   * @param adapter The app adapter
+   * @param index The index of the parameter
+   * @param rawValue The new raw value
+   * @return True if the value was set
+   */
+  public abstract boolean setValue(T adapter, int index, Attribute rawValue);
+
+  /**
+   * @param index The index of the parameter
+   * @return True if the parameter is read-only or final
+   */
+  public abstract boolean isReadOnly(int index);
+
+  /**
+   * Calls the method of an action.
+   *
+   * @param adapter The app adapter
+   * @param index The index of the action
+   * @param arguments The arguments of the action
+   * @param actionInstanceObjId The action instance identifier
+   * @param reportProgress Whether progress shall be reported
+   * @param interaction The MAL interaction
+   * @return The value returned by the action method. UInteger(0) if the call
+   * failed.
+   */
+  public abstract UInteger invokeAction(T adapter, int index, AttributeValueList arguments,
+      Long actionInstanceObjId, boolean reportProgress, MALInteraction interaction);
+
+  /**
+   * Finds and instantiates the generated adapter of an app adapter.
+   *
+   * @param adapter The app adapter
+   * @return The generated adapter. Null if the app was compiled without the
+   * annotation processor.
+   */
+  @SuppressWarnings("unchecked")
+  static GeneratedMCAdapter<MonitorAndControlNMFAdapter> lookup(MonitorAndControlNMFAdapter adapter)
+  {
+    final Class<?> appClass = adapter.getClass();
+    final String name = appClass.getName().replace('$', '_') + CLASS_SUFFIX;
+
+    try {
+      final Class<?> generated = Class.forName(name, true, appClass.getClassLoader());
+
+      if (!GeneratedMCAdapter.class.isAssignableFrom(generated)) {
+        LOGGER.log(Level.WARNING, "The class {0} is not a generated adapter!", name);
+        return null;
+      }
+
+      return (GeneratedMCAdapter<MonitorAndControlNMFAdapter>) generated.getDeclaredConstructor()
+          .newInstance();
+    } catch (ClassNotFoundException ex) {
+      return null;
+    } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+        | InvocationTargetException ex) {
+      LOGGER.log(Level.WARNING, "Unable to instantiate the generated adapter " + name
+          + "! (fallback to reflection)", ex);
+      return null;
+    }
+  }
+
+  /**
+   * @param value The current value of a parameter field
+   * @return The type short form of the MAL attribute of the value
+   */
+  protected static byte rawTypeOf(Object value)
+  {
+    return ((Attribute) HelperAttributes.javaType2Attribute(value)).getTypeShortForm().byteValue();
+  }
+
+  /**
+   * @param attributeName The name of a MAL attribute
+   * @return The type short form of the attribute
+   */
+  protected static byte rawTypeOf(String attributeName)
+  {
+    return HelperAttributes.attributeName2typeShortForm(attributeName).byteValue();
+  }
+
+  /**
+   * @param ids The object instance identifiers of all the parameters
+   * @param indexes The indexes of the selected parameters
+   * @return The identifiers of the selected parameters
+   */
+  protected static LongList select(LongList ids, int... indexes)
+  {
+    final LongList selected = new LongList(indexes.length);
+
+    for (int index : indexes) {
+      selected.add(ids.get(index));
+    }
+
+    return selected;
+  }
+
+  /**
+   * Creates the definition of an @Aggregation with a single parameter set.
+   */
+  protected static AggregationDefinitionDetails aggregation(String description, int category,
+      double reportInterval, boolean sendUnchanged, boolean sendDefinitions, boolean filterEnabled,
+      int filterTimeout, boolean generationEnabled, LongList parameterIds, double sampleInterval,
+      ThresholdFilter filter)
+  {
+    final AggregationParameterSetList parameterSet = new AggregationParameterSetList();
+    parameterSet.add(new AggregationParameterSet(null, parameterIds,
+        new Duration(sampleInterval), filter));
+
+    return new AggregationDefinitionDetails(description, new UOctet((short) category),
+        new Duration(reportInterval), sendUnchanged, sendDefinitions, filterEnabled,
+        new Duration(filterTimeout), generationEnabled, parameterSet);
+  }
+
+  /**
+   * Logs a failed action call and returns the error result.
+   *
+   * @param name The name of the action
+   * @param ex The exception
+   * @param arguments True if the arguments could not be converted
+   * @return UInteger(0)
+   */
+  protected static UInteger actionFailed(String name, Exception ex, boolean arguments)
+  {
+    if (arguments) {
+      LOGGER.log(Level.SEVERE, "Arguments for action {0} are incorrect! {1}",
+          new Object[]{name, ex.toString()});
+    } else {
+      LOGGER.log(Level.SEVERE, "The action Method " + name + " threw an exception!", ex);
+    }
+
+    return new UInteger(0);
+  }
+
+}
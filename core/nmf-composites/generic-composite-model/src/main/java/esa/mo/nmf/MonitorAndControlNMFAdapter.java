@@ -26,16 +26,19 @@ import esa.mo.mc.impl.interfaces.ParameterStatusListener;
 import esa.mo.nmf.annotations.Action;
 import esa.mo.nmf.annotations.ActionParameter;
 import esa.mo.nmf.annotations.Aggregation;
-import esa.mo.nmf.annotations.Aggregations;
 import esa.mo.nmf.annotations.Parameter;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.mal.provider.MALInteraction;
@@ -64,7 +67,6 @@ import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
 import org.ccsds.moims.mo.mc.structures.ArgumentDefinitionDetails;
 import org.ccsds.moims.mo.mc.structures.ArgumentDefinitionDetailsList;
-import org.ccsds.moims.mo.mc.structures.AttributeValue;
 import org.ccsds.moims.mo.mc.structures.AttributeValueList;
 import org.ccsds.moims.mo.mc.structures.ConditionalConversionList;
 import org.ccsds.moims.mo.mc.structures.ParameterExpression;
@@ -77,16 +79,64 @@ import org.ccsds.moims.mo.mc.structures.ParameterExpression;
 public abstract class MonitorAndControlNMFAdapter implements ActionInvocationListener,
     ParameterStatusListener
 {
-  private final HashMap<Long, Field> parameterMapping = new HashMap<>();
-  private final HashMap<Long, Method> actionMapping = new HashMap<>();
-  private final HashMap<String, Long> actionNameMapping = new HashMap<>();
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class,
+      MonitorAndControlNMFAdapter.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class,
+      MonitorAndControlNMFAdapter.class, Object.class);
+  private static final MethodType ON_GET_TYPE = MethodType.methodType(void.class,
+      MonitorAndControlNMFAdapter.class);
+  private static final MethodType ACTION_TYPE = MethodType.methodType(Object.class,
+      MonitorAndControlNMFAdapter.class, Object[].class);
+
+  // Resolved once at registration, then only read
+  private Map<Long, ParameterHandles> parameterHandles = Collections.emptyMap();
+  private Map<String, ActionHandles> actionHandles = Collections.emptyMap();
+  // Used instead of the mappings above when the app was compiled with the annotation processor
+  private GeneratedMCAdapter<MonitorAndControlNMFAdapter> generatedAdapter;
+  private final HashMap<Long, Integer> generatedParameterIndexes = new HashMap<>();
+  private final HashMap<String, Integer> generatedActionIndexes = new HashMap<>();
 
   public void initialRegistrations(MCRegistration registration)
   {
     // Prevent definition updates on consecutive application runs
     registration.setMode(MCRegistration.RegistrationMode.DONT_UPDATE_IF_EXISTS);
-    registerParameters(registration);
-    registerActions(registration);
+    generatedAdapter = GeneratedMCAdapter.lookup(this);
+
+    if (generatedAdapter != null) {
+      registerGenerated(registration);
+    } else {
+      registerParameters(registration);
+      registerActions(registration);
+    }
+  }
+
+  /**
+   * Registers the Parameters, Aggregations and Actions with the adapter generated by the
+   * annotation processor
+   *
+   * @param registration
+   */
+  private void registerGenerated(MCRegistration registration)
+  {
+    Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.INFO,
+        "Registering Parameters, Aggregations and Actions with {0}",
+        generatedAdapter.getClass().getName());
+    LongList parameterIds = generatedAdapter.registerParameters(this, registration);
+
+    if (parameterIds != null) {
+      for (int i = 0; i < parameterIds.size(); i++) {
+        generatedParameterIndexes.put(parameterIds.get(i), i);
+      }
+    }
+
+    LongList actionIds = generatedAdapter.registerActions(this, registration);
+
+    if (actionIds != null) {
+      String[] actionNames = generatedAdapter.getActionNames();
+      for (int i = 0; i < actionIds.size(); i++) {
+        generatedActionIndexes.put(actionNames[i], i);
+      }
+    }
   }
 
   /**
@@ -183,10 +233,16 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
       HashMap<String, LongList> aggregationMapping = new HashMap<>();
 
       LongList idList = registration.registerParameters(parameterNames, definitions);
+      HashMap<Long, ParameterHandles> handles = new HashMap<>();
 
-      // save mapping (id -> Field) in map
+      // save mapping (id -> handles) in map
       for (int i = 0; i < idList.size(); i++) {
-        parameterMapping.put(idList.get(i), parameters.get(i));
+        try {
+          handles.put(idList.get(i), resolveParameter(parameters.get(i)));
+        } catch (IllegalAccessException ex) {
+          Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+              "Unable to access Parameter Field " + parameters.get(i).getName() + "!", ex);
+        }
         for (String aggregation : parameters.get(i).getAnnotation(Parameter.class).aggregations()) {
           if (!aggregationMapping.containsKey(aggregation)) {
             aggregationMapping.put(aggregation, new LongList());
@@ -194,14 +250,15 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
           aggregationMapping.get(aggregation).add(idList.get(i));
         }
       }
+      parameterHandles = Collections.unmodifiableMap(handles);
 
       //------------------------------- register Aggregations ------------------------------------
       Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.INFO,
           "Registering Aggregations:");
 
-      Aggregations[] aggregationList = this.getClass().getAnnotationsByType(Aggregations.class);
-      if (aggregationList != null && aggregationList.length > 0) {
-        Aggregation[] aggregations = aggregationList[0].value();
+      // A single @Aggregation is not wrapped in @Aggregations, get both forms
+      Aggregation[] aggregations = this.getClass().getAnnotationsByType(Aggregation.class);
+      if (aggregations.length > 0) {
 
       IdentifierList aggregationNames = new IdentifierList();
       AggregationDefinitionDetailsList aggregationDetails = new AggregationDefinitionDetailsList();
@@ -381,101 +438,181 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
 
     if (actionNames.size() > 0) {
       LongList idList = registration.registerActions(actionNames, actionDefs);
+      HashMap<String, ActionHandles> handles = new HashMap<>();
 
-      // save mapping (id -> Field) in map
+      // save mapping (name -> handles) in map
       for (int i = 0; i < idList.size(); i++) {
-        actionMapping.put(idList.get(i), actionFunctions.get(i));
-        actionNameMapping.put(actionNames.get(i).getValue(), idList.get(i));
+        try {
+          handles.put(actionNames.get(i).getValue(), new ActionHandles(actionFunctions.get(i)));
+        } catch (IllegalAccessException ex) {
+          Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+              "Cannot access Method! {0}", ex.getMessage());
+        }
+      }
+      actionHandles = Collections.unmodifiableMap(handles);
+    }
+  }
+
+  /**
+   * Resolves the accessors of a @Parameter field
+   *
+   * @param field The accessible field
+   * @return The handles of the parameter
+   * @throws IllegalAccessException if the field cannot be accessed
+   */
+  private ParameterHandles resolveParameter(Field field) throws IllegalAccessException
+  {
+    Parameter annotation = field.getAnnotation(Parameter.class);
+    boolean readOnly = annotation.readOnly() || Modifier.isFinal(field.getModifiers());
+    boolean isStatic = Modifier.isStatic(field.getModifiers());
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    MethodHandle getter = lookup.unreflectGetter(field);
+    if (isStatic) {
+      getter = MethodHandles.dropArguments(getter, 0, MonitorAndControlNMFAdapter.class);
+    }
+
+    MethodHandle setter = null;
+    if (!readOnly) {
+      setter = lookup.unreflectSetter(field);
+      if (isStatic) {
+        setter = MethodHandles.dropArguments(setter, 0, MonitorAndControlNMFAdapter.class);
+      }
+      setter = setter.asType(SETTER_TYPE);
+    }
+
+    MethodHandle onGet = null;
+    boolean onGetMissing = false;
+    String onGetName = annotation.onGetFunction();
+    if (!onGetName.equals("")) {
+      try {
+        Method onGetMethod = this.getClass().getMethod(onGetName);
+        onGetMethod.setAccessible(true);
+        onGet = lookup.unreflect(onGetMethod);
+        if (Modifier.isStatic(onGetMethod.getModifiers())) {
+          onGet = MethodHandles.dropArguments(onGet, 0, MonitorAndControlNMFAdapter.class);
+        }
+        onGet = onGet.asType(ON_GET_TYPE);
+      } catch (NoSuchMethodException | SecurityException ex) {
+        Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+            "Unable to find the onGet Method " + onGetName + "!", ex);
+        onGetMissing = true;
       }
     }
+
+    return new ParameterHandles(field.getType(), getter.asType(GETTER_TYPE), setter, onGet,
+        onGetMissing, readOnly);
   }
 
   @Override
   public UInteger actionArrived(Identifier identifier, AttributeValueList attributeValues,
       Long actionInstanceObjId, boolean reportProgress, MALInteraction interaction)
   {
-    Method actionMethod = actionMapping.get(actionNameMapping.get(identifier.getValue()));
-    try {
-      // add default arguments
-      Object[] arguments = new Object[attributeValues.size() + 3];
-      arguments[0] = actionInstanceObjId;
-      arguments[1] = reportProgress;
-      arguments[2] = interaction;
-
-      // add custom arguments
-      int i = 3;
-      for (AttributeValue attribute : attributeValues) {
-        Class type = actionMethod.getParameters()[i].getType();
-        if (type == double.class) {
-          arguments[i] = HelperAttributes.attribute2double(attribute.getValue());
-        } else if (type == String.class) {
-          arguments[i] = HelperAttributes.attribute2string(attribute.getValue());
-        } else {
-          arguments[i] = HelperAttributes.attribute2JavaType(attribute.getValue());
-        }
-        i++;
+    if (generatedAdapter != null) {
+      Integer index = generatedActionIndexes.get(identifier.getValue());
+      if (index == null) {
+        Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+            "no action with name {0} exists!", identifier);
+        return new UInteger(0);
       }
+      return generatedAdapter.invokeAction(this, index, attributeValues, actionInstanceObjId,
+          reportProgress, interaction);
+    }
 
-      Object result = actionMethod.invoke(this, arguments);
-      if (result == null) {
-        return null;
+    ActionHandles action = actionHandles.get(identifier.getValue());
+    if (action == null) {
+      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+          "no action with name {0} exists!", identifier);
+      return new UInteger(0);
+    }
+
+    int size = (attributeValues == null) ? 0 : attributeValues.size();
+    if (size != action.argumentTypes.length) {
+      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+          "Arguments for action are incorrect! {0} arguments expected, {1} received",
+          new Object[]{action.argumentTypes.length, size});
+      return new UInteger(0);
+    }
+
+    // add default arguments
+    Object[] arguments = new Object[size + 3];
+    arguments[0] = actionInstanceObjId;
+    arguments[1] = reportProgress;
+    arguments[2] = interaction;
+
+    // add custom arguments
+    for (int i = 0; i < size; i++) {
+      Class<?> type = action.argumentTypes[i];
+      Attribute value = attributeValues.get(i).getValue();
+      if (type == double.class) {
+        arguments[i + 3] = HelperAttributes.attribute2double(value);
+      } else if (type == String.class) {
+        arguments[i + 3] = HelperAttributes.attribute2string(value);
       } else {
-        return (UInteger) result;
+        arguments[i + 3] = HelperAttributes.attribute2JavaType(value);
       }
-    } catch (IllegalAccessException ex) {
-      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
-          "Cannot access Method! {0}", ex.getMessage());
-    } catch (IllegalArgumentException ex) {
+    }
+
+    int invalid = action.invalidArgument(arguments);
+    if (invalid != -1) {
       Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
-          "Arguments for action are incorrect! {0}", ex.getMessage());
-    } catch (InvocationTargetException ex) {
+          "Arguments for action are incorrect! Argument {0} is {1}, {2} expected",
+          new Object[]{invalid, (arguments[invalid] == null) ? "null"
+            : arguments[invalid].getClass().getName(), action.parameterTypes[invalid].getName()});
+      return new UInteger(0);
+    }
+
+    // The arguments were checked, so everything thrown here comes from the action Method
+    Object result;
+    try {
+      result = (Object) action.invoker.invokeExact(this, arguments);
+    } catch (Throwable ex) {
       Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
-          "The action Method threw an invocation exception! {0}", (ex.getMessage() != null ? ex.getMessage() :
-                      ex.getTargetException().getMessage()));
+          "The action Method threw an invocation exception! " + ex.getMessage(), ex);
+      return new UInteger(0);
     }
-    return new UInteger(0);
+    return (UInteger) result;
   }
 
   @Override
   public Attribute onGetValue(Long parameterID) throws IOException
   {
+    if (generatedAdapter != null) {
+      Integer index = generatedParameterIndexes.get(parameterID);
+      if (index == null) {
+        Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
+            "no parameter with ID {0} exists!", parameterID);
+        return null;
+      }
+      return generatedAdapter.getValue(this, index);
+    }
 
-    Field field = parameterMapping.get(parameterID);
-    if (field == null) {
+    ParameterHandles param = parameterHandles.get(parameterID);
+    if (param == null) {
       Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
           "no parameter with ID {0} exists!", parameterID);
       return null;
     }
-      Parameter param = field.getAnnotation(Parameter.class);
-    if (param == null) {
-      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
-          "Parameter with ID {0} and name {1} is not Annotated!",
-          new Object[]{parameterID, field.getName()});
+    if (param.onGetMissing) {
+      throw new IOException("Unable to call onGet Method");
+    }
+    if (param.onGet != null) {
+      try {
+        param.onGet.invokeExact(this);
+      } catch (Throwable ex) {
+        Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE, null,
+            ex);
         return null;
-      } else {
-        try {
-        String onGet = param.onGetFunction();
-      if (!onGet.equals("")) {
-        Method onGetMethod = this.getClass().getMethod(onGet);
-        onGetMethod.setAccessible(true);
-        onGetMethod.invoke(this);
       }
-      return (Attribute) HelperAttributes.javaType2Attribute(field.get(
+    }
+    try {
+      return (Attribute) HelperAttributes.javaType2Attribute((Object) param.getter.invokeExact(
           this));
-    } catch (IllegalArgumentException | IllegalAccessException ex) {
+    } catch (Throwable ex) {
       Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE, null,
           ex);
       throw new IOException("Unable to get Parameter Mapping");
-    } catch (NoSuchMethodException | SecurityException ex) {
-      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE, null,
-          ex);
-      throw new IOException("Unable to call onGet Method");
-    } catch (InvocationTargetException ex) {
-      Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE, null,
-          ex);
     }
-    }
-    return null;
   }
 
   @Override
@@ -489,18 +626,23 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
         result = false;
         continue;
       }
-      Field param = parameterMapping.get(newRawValue.getParamInstId());
+      if (generatedAdapter != null) {
+        result &= generatedAdapter.setValue(this,
+            generatedParameterIndexes.get(newRawValue.getParamInstId()), newRawValue.getRawValue());
+        continue;
+      }
+      ParameterHandles param = parameterHandles.get(newRawValue.getParamInstId());
 
-      if (param.getType() == double.class) {
+      if (param.type == double.class) {
         value = HelperAttributes.attribute2double(newRawValue.getRawValue());
-      } else if (param.getType() == String.class) {
+      } else if (param.type == String.class) {
         value = HelperAttributes.attribute2string(newRawValue.getRawValue());
       } else {
         value = HelperAttributes.attribute2JavaType(newRawValue.getRawValue());
       }
       try {
-        param.set(this, value);
-      } catch (IllegalArgumentException | IllegalAccessException ex) {
+        param.setter.invokeExact(this, value);
+      } catch (Throwable ex) {
         Logger.getLogger(MonitorAndControlNMFAdapter.class.getName()).log(Level.SEVERE,
             null, ex);
         result = false;
@@ -512,8 +654,10 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
   @Override
   public boolean isReadOnly(Long parameterID)
   {
-    Field field = parameterMapping.get(parameterID);
-    return field.getAnnotation(Parameter.class).readOnly() || (field.getModifiers() & Modifier.FINAL) == Modifier.FINAL;
+    if (generatedAdapter != null) {
+      return generatedAdapter.isReadOnly(generatedParameterIndexes.get(parameterID));
+    }
+    return parameterHandles.get(parameterID).readOnly;
   }
 
   @Override
@@ -558,4 +702,70 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
     }
   }
 
+  /**
+   * The accessors of a @Parameter field
+   */
+  private static final class ParameterHandles
+  {
+
+    private final Class<?> type;
+    private final MethodHandle getter; // (adapter) -> value
+    private final MethodHandle setter; // (adapter, value) -> void, null if read-only
+    private final MethodHandle onGet; // (adapter) -> void, null if none
+    private final boolean onGetMissing;
+    private final boolean readOnly;
+
+    ParameterHandles(Class<?> type, MethodHandle getter, MethodHandle setter, MethodHandle onGet,
+        boolean onGetMissing, boolean readOnly)
+    {
+      this.type = type;
+      this.getter = getter;
+      this.setter = setter;
+      this.onGet = onGet;
+      this.onGetMissing = onGetMissing;
+      this.readOnly = readOnly;
+    }
+  }
+
+  /**
+   * The invoker of an @Action method
+   */
+  private static final class ActionHandles
+  {
+
+    private final MethodHandle invoker; // (adapter, arguments) -> result
+    private final Class<?>[] parameterTypes; // the types of all the arguments
+    private final Class<?>[] argumentTypes; // the types following the 3 default arguments
+
+    ActionHandles(Method method) throws IllegalAccessException
+    {
+      Class<?>[] types = method.getParameterTypes();
+      MethodHandle handle = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, MonitorAndControlNMFAdapter.class);
+      }
+      this.invoker = handle.asSpreader(Object[].class, types.length).asType(ACTION_TYPE);
+      this.parameterTypes = types;
+      this.argumentTypes = Arrays.copyOfRange(types, 3, types.length);
+    }
+
+    /**
+     * Finds the first argument that cannot be passed to the action Method.
+     *
+     * @param arguments The arguments, including the 3 default ones.
+     * @return The index of the argument, or -1 if all of them can be passed.
+     */
+    int invalidArgument(Object[] arguments)
+    {
+      for (int i = 0; i < parameterTypes.length; i++) {
+        Class<?> type = parameterTypes[i];
+        if (arguments[i] == null ? type.isPrimitive()
+            : !MethodType.methodType(type).wrap().returnType().isInstance(arguments[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
 }
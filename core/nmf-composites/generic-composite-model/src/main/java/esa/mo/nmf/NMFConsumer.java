@@ -314,6 +314,33 @@ public class NMFConsumer {
      */
     public static final ProviderSummaryList retrieveProvidersFromDirectory(final boolean isS2G,
                                                                            final URI directoryURI, final Blob authenticationId, final String localNamePrefix) throws MALException, MalformedURLException, MALInteractionException {
+        return NMFConsumer.lookupProviders(isS2G, directoryURI, authenticationId,
+                localNamePrefix, new Identifier("*"));
+    }
+
+    /**
+     * Retrieves the Providers with a specific name from the Directory service.
+     * It transfers a single provider instead of the complete list.
+     *
+     * @param isS2G If true, then the method will only request for SPP
+     * connections.
+     * @param directoryURI The Directory service URI
+     * @param providerName The name of the provider
+     * @return The list of providers with that name
+     * @throws org.ccsds.moims.mo.mal.MALException if there is a MAL exception.
+     * @throws java.net.MalformedURLException if the URI is incorrect.
+     * @throws org.ccsds.moims.mo.mal.MALInteractionException if it could not
+     * reach the Directory service.
+     */
+    public static final ProviderSummaryList retrieveProviderFromDirectory(final boolean isS2G,
+            final URI directoryURI, final Identifier providerName)
+            throws MALException, MalformedURLException, MALInteractionException {
+        return NMFConsumer.lookupProviders(isS2G, directoryURI, null, null, providerName);
+    }
+
+    private static ProviderSummaryList lookupProviders(final boolean isS2G, final URI directoryURI,
+            final Blob authenticationId, final String localNamePrefix, final Identifier providerName)
+            throws MALException, MalformedURLException, MALInteractionException {
         // Starting the directory service consumer from static method.
         // The whole Common area should be registered to avoid errors during the initHelpers
         if (MALContextFactory.lookupArea(CommonHelper.COMMON_AREA_NAME, CommonHelper.COMMON_AREA_VERSION) == null) {
@@ -348,7 +375,7 @@ public class NMFConsumer {
 
         filter.setServiceKey(new ServiceKey(new UShort((short) 0), new UShort((short) 0), new UOctet((short) 0)));
         filter.setRequiredCapabilities(new UIntegerList());
-        filter.setServiceProviderName(new Identifier("*"));
+        filter.setServiceProviderName(providerName);
 
         ProviderSummaryList summaryList;
         // Do the lookup
@@ -21,6 +21,7 @@
 package esa.mo.nmf;
 
 import esa.mo.com.impl.util.COMServicesProvider;
+import esa.mo.common.impl.provider.ConfigurationProviderServiceImpl;
 import esa.mo.common.impl.provider.DirectoryProviderServiceImpl;
 import esa.mo.helpertools.helpers.HelperAttributes;
 import esa.mo.helpertools.misc.Const;
@@ -68,6 +69,7 @@ public abstract class NMFProvider implements ReconfigurableProvider, NMFInterfac
     protected final COMServicesProvider comServices = new COMServicesProvider();
     protected final HeartbeatProviderServiceImpl heartbeatService = new HeartbeatProviderServiceImpl();
     protected final DirectoryProviderServiceImpl directoryService = new DirectoryProviderServiceImpl();
+    protected final ConfigurationProviderServiceImpl configurationService = new ConfigurationProviderServiceImpl();
     protected MCServicesProviderNMF mcServices;
     protected MPServicesProvider mpServices;
     protected PlatformServicesConsumer platformServices;
@@ -201,13 +203,26 @@ public abstract class NMFProvider implements ReconfigurableProvider, NMFInterfac
         if (mcAdapter != null) {
             mcServices = new MCServicesProviderNMF();
             mcServices.init(comServices, mcAdapter);
-            this.reconfigurableServices.add(mcServices.getActionService());
-            this.reconfigurableServices.add(mcServices.getParameterService());
-            this.reconfigurableServices.add(mcServices.getAggregationService());
-            this.reconfigurableServices.add(mcServices.getAlertService());
+            configurationService.init(comServices);
+            this.addReconfigurableService(mcServices.getActionService());
+            this.addReconfigurableService(mcServices.getParameterService());
+            this.addReconfigurableService(mcServices.getAggregationService());
+            this.addReconfigurableService(mcServices.getAlertService());
         }
     }
 
+    /**
+     * Adds a service to the ones persisted in the provider configuration. Its
+     * configurations are also activated and stored directly by the
+     * Configuration service of the provider.
+     *
+     * @param service The service.
+     */
+    protected void addReconfigurableService(final ReconfigurableService service) {
+        this.reconfigurableServices.add(service);
+        this.configurationService.addReconfigurableService(service);
+    }
+
     public final void startMPServices(MissionPlanningNMFAdapter mpAdapter) throws MALException {
         if (mpAdapter != null) {
             this.mpServices = new MPServicesProvider();
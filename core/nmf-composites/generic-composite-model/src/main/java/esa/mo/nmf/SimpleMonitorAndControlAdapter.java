@@ -54,7 +54,8 @@ public abstract class SimpleMonitorAndControlAdapter extends MonitorAndControlNM
         for (int i = 0; i < attributeValues.size(); i++) {
             AttributeValue attributeValue = attributeValues.get(i);
 
-            if (attributeValue.getValue() instanceof Blob) {
+            if (attributeValue.getValue() instanceof Blob
+                    && HelperAttributes.isSerialObjectBlob((Blob) attributeValue.getValue())) {
                 try {
                     values[i] = HelperAttributes.blobAttribute2serialObject((Blob) attributeValue.getValue());
                 } catch (IOException ex) {
@@ -108,7 +109,7 @@ public abstract class SimpleMonitorAndControlAdapter extends MonitorAndControlNM
         final Attribute value = values.get(0).getRawValue();
         Serializable obj;
         
-        if (value instanceof Blob) {
+        if (value instanceof Blob && HelperAttributes.isSerialObjectBlob((Blob) value)) {
             // Try to unserialize it!
             try {
                 obj = HelperAttributes.blobAttribute2serialObject((Blob) value);
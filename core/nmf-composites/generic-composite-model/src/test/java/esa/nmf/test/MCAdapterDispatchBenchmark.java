@@ -0,0 +1,263 @@
+package esa.nmf.test;
+
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.nmf.MCRegistration;
+import esa.mo.nmf.MonitorAndControlNMFAdapter;
+import esa.mo.nmf.annotations.Action;
+import esa.mo.nmf.annotations.Parameter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import org.ccsds.moims.mo.mal.provider.MALInteraction;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mc.action.structures.ActionDefinitionDetailsList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetailsList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
+import org.ccsds.moims.mo.mc.structures.AttributeValue;
+import org.ccsds.moims.mo.mc.structures.AttributeValueList;
+
+/**
+ * Benchmark of the dispatch of the MonitorAndControlNMFAdapter. Compares the
+ * former reflective calls (annotation and method resolved on every get,
+ * Field.set and Method.invoke) against the MethodHandle table built at
+ * registration.
+ *
+ * Not run by the test suite. Usage:
+ * java esa.nmf.test.MCAdapterDispatchBenchmark [iterations]
+ */
+public class MCAdapterDispatchBenchmark
+{
+
+  public static class BenchmarkAdapter extends MonitorAndControlNMFAdapter
+  {
+
+    @Parameter
+    public int counter = 0;
+
+    @Parameter(onGetFunction = "refresh")
+    public double temperature = 20.5;
+
+    @Parameter
+    public String label = "label";
+
+    public void refresh()
+    {
+      temperature += 0.1;
+    }
+
+    @Action
+    public UInteger move(Long actionInstanceObjId, boolean reportProgress,
+        MALInteraction interaction, double speed, int steps)
+    {
+      counter += steps;
+      return null;
+    }
+  }
+
+  private static class BenchmarkRegistration extends MCRegistration
+  {
+
+    public BenchmarkRegistration()
+    {
+      super(null, null, null, null, null);
+    }
+
+    @Override
+    public LongList registerParameters(final IdentifierList names,
+        final ParameterDefinitionDetailsList definitions)
+    {
+      LongList ids = new LongList(names.size());
+      for (int i = 0; i < names.size(); i++) {
+        ids.add((long) i + 1);
+      }
+      return ids;
+    }
+
+    @Override
+    public LongList registerActions(final IdentifierList names,
+        final ActionDefinitionDetailsList definitions)
+    {
+      LongList ids = new LongList(names.size());
+      for (int i = 0; i < names.size(); i++) {
+        ids.add((long) i + 1);
+      }
+      return ids;
+    }
+  }
+
+  /**
+   * The dispatch as it was done by MonitorAndControlNMFAdapter before.
+   */
+  private static class ReflectiveDispatch
+  {
+
+    private final MonitorAndControlNMFAdapter adapter;
+    private final HashMap<Long, Field> parameterMapping = new HashMap<>();
+    private final HashMap<String, Method> actionMapping = new HashMap<>();
+
+    ReflectiveDispatch(MonitorAndControlNMFAdapter adapter)
+    {
+      this.adapter = adapter;
+      long id = 1;
+      for (Field field : adapter.getClass().getDeclaredFields()) {
+        if (field.getAnnotation(Parameter.class) != null) {
+          field.setAccessible(true);
+          parameterMapping.put(id++, field);
+        }
+      }
+      for (Method method : adapter.getClass().getDeclaredMethods()) {
+        if (method.getAnnotation(Action.class) != null) {
+          method.setAccessible(true);
+          actionMapping.put(method.getName(), method);
+        }
+      }
+    }
+
+    Attribute onGetValue(Long parameterID) throws Exception
+    {
+      Field field = parameterMapping.get(parameterID);
+      Parameter param = field.getAnnotation(Parameter.class);
+      String onGet = param.onGetFunction();
+      if (!onGet.equals("")) {
+        Method onGetMethod = adapter.getClass().getMethod(onGet);
+        onGetMethod.setAccessible(true);
+        onGetMethod.invoke(adapter);
+      }
+      return (Attribute) HelperAttributes.javaType2Attribute(field.get(adapter));
+    }
+
+    void onSetValue(ParameterRawValueList newRawValues) throws Exception
+    {
+      for (ParameterRawValue newRawValue : newRawValues) {
+        Field param = parameterMapping.get(newRawValue.getParamInstId());
+        Object value;
+        if (param.getType() == double.class) {
+          value = HelperAttributes.attribute2double(newRawValue.getRawValue());
+        } else if (param.getType() == String.class) {
+          value = HelperAttributes.attribute2string(newRawValue.getRawValue());
+        } else {
+          value = HelperAttributes.attribute2JavaType(newRawValue.getRawValue());
+        }
+        param.set(adapter, value);
+      }
+    }
+
+    Object actionArrived(Identifier identifier, AttributeValueList attributeValues,
+        Long actionInstanceObjId) throws Exception
+    {
+      Method actionMethod = actionMapping.get(identifier.getValue());
+      Object[] arguments = new Object[attributeValues.size() + 3];
+      arguments[0] = actionInstanceObjId;
+      arguments[1] = false;
+      arguments[2] = null;
+      int i = 3;
+      for (AttributeValue attribute : attributeValues) {
+        Class<?> type = actionMethod.getParameters()[i].getType();
+        if (type == double.class) {
+          arguments[i] = HelperAttributes.attribute2double(attribute.getValue());
+        } else if (type == String.class) {
+          arguments[i] = HelperAttributes.attribute2string(attribute.getValue());
+        } else {
+          arguments[i] = HelperAttributes.attribute2JavaType(attribute.getValue());
+        }
+        i++;
+      }
+      return actionMethod.invoke(adapter, arguments);
+    }
+  }
+
+  private static ParameterRawValueList setList()
+  {
+    ParameterRawValueList setList = new ParameterRawValueList();
+    setList.add(new ParameterRawValue(1L, (Attribute) HelperAttributes.javaType2Attribute(42)));
+    setList.add(new ParameterRawValue(3L, (Attribute) HelperAttributes.javaType2Attribute("new")));
+    return setList;
+  }
+
+  private static AttributeValueList actionArguments()
+  {
+    AttributeValueList arguments = new AttributeValueList();
+    arguments.add(new AttributeValue((Attribute) HelperAttributes.javaType2Attribute(1.5)));
+    arguments.add(new AttributeValue((Attribute) HelperAttributes.javaType2Attribute(2)));
+    return arguments;
+  }
+
+  private static double runReflective(ReflectiveDispatch dispatch, int iterations) throws Exception
+  {
+    ParameterRawValueList setList = setList();
+    AttributeValueList arguments = actionArguments();
+    Identifier move = new Identifier("move");
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      dispatch.onGetValue(1L);
+      dispatch.onGetValue(2L);
+      dispatch.onGetValue(3L);
+      dispatch.onSetValue(setList);
+      dispatch.actionArrived(move, arguments, (long) i);
+    }
+    return (System.nanoTime() - start) / (double) iterations;
+  }
+
+  private static double runHandles(MonitorAndControlNMFAdapter adapter, int iterations)
+      throws Exception
+  {
+    ParameterRawValueList setList = setList();
+    AttributeValueList arguments = actionArguments();
+    Identifier move = new Identifier("move");
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      adapter.onGetValue(1L);
+      adapter.onGetValue(2L);
+      adapter.onGetValue(3L);
+      adapter.onSetValue(setList);
+      adapter.actionArrived(move, arguments, (long) i, false, null);
+    }
+    return (System.nanoTime() - start) / (double) iterations;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    final int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+    BenchmarkAdapter adapter = new BenchmarkAdapter();
+    adapter.initialRegistrations(new BenchmarkRegistration());
+    ReflectiveDispatch reflective = new ReflectiveDispatch(new BenchmarkAdapter());
+
+    // Warm up both paths before measuring
+    runReflective(reflective, iterations / 5);
+    runHandles(adapter, iterations / 5);
+
+    double reflectiveNs = runReflective(reflective, iterations);
+    double handlesNs = runHandles(adapter, iterations);
+
+    System.out.printf("%,d iterations of 3 gets, 1 set of 2 values and 1 action%n", iterations);
+    System.out.printf("reflective calls  : %8.1f ns/iteration%n", reflectiveNs);
+    System.out.printf("MethodHandle table: %8.1f ns/iteration (x%.1f)%n", handlesNs,
+        reflectiveNs / handlesNs);
+  }
+}
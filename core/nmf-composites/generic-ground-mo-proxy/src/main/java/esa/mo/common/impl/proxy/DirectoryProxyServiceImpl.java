@@ -25,8 +25,13 @@ import esa.mo.helpertools.misc.Const;
 import esa.mo.nmf.NMFConsumer;
 import java.net.MalformedURLException;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
 import org.ccsds.moims.mo.com.archive.ArchiveHelper;
+import org.ccsds.moims.mo.common.directory.body.PublishProviderResponse;
 import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
@@ -42,12 +47,38 @@ import org.ccsds.moims.mo.mal.structures.SessionType;
 import org.ccsds.moims.mo.mal.structures.URI;
 import org.ccsds.moims.mo.mc.MCHelper;
 import org.ccsds.moims.mo.mc.action.ActionHelper;
+import org.ccsds.moims.mo.mc.parameter.ParameterHelper;
 
 /**
  *
  */
 public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
 
+    private static final Logger LOGGER = Logger.getLogger(DirectoryProxyServiceImpl.class.getName());
+
+    /**
+     * The local key of each provider, by the key in the remote Central
+     * Directory service.
+     */
+    private final Map<Long, Long> centralKeys = new ConcurrentHashMap<>();
+
+    /**
+     * The URI of the Parameter service of the proxy, or null if the Parameter
+     * requests are routed directly to Space.
+     */
+    private volatile URI parameterProxyURI;
+
+    /**
+     * Routes the Parameter service of the providers published from now on
+     * through the Parameter service of the proxy. Its URI is added as a prefix
+     * to their service URI.
+     *
+     * @param parameterProxyURI The URI of the Parameter service of the proxy.
+     */
+    public void setParameterProxyURI(final URI parameterProxyURI) {
+        this.parameterProxyURI = parameterProxyURI;
+    }
+
     /**
      * Synchronizes the current list of providers existing in the remote Central
      * Directory service with the local one. Returns the list of remote
@@ -69,17 +100,10 @@ public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
         // Clean the current list of provider that are available
         // on the Local Directory service
         this.withdrawAllProviders();
+        centralKeys.clear();
 
         for (ProviderSummary provider : providers) {
-            PublishDetails pub = new PublishDetails();
-            pub.setDomain(provider.getProviderKey().getDomain());
-            pub.setNetwork(new Identifier("not_available"));
-            pub.setProviderDetails(provider.getProviderDetails());
-            pub.setProviderName(provider.getProviderName());
-            pub.setServiceXML(null);
-            pub.setSessionType(SessionType.LIVE);
-            pub.setSourceSessionName(null);
-            this.publishProvider(pub, null);
+            this.publishCentralProvider(provider);
         }
 
         // Make the Ground MO Proxy (itself) also available in the list of providers
@@ -88,6 +112,84 @@ public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
         return providers;
     }
 
+    /**
+     * Synchronizes a single provider of the remote Central Directory service
+     * with the local one, for example after it was published on the remote
+     * side. Only that provider is transferred.
+     *
+     * @param centralDirectoryServiceURI The URI of the Central Directory
+     * service.
+     * @param routedURI The URI of the protocol bridge.
+     * @param providerName The name of the provider.
+     * @return True if the provider was found in the Central Directory service.
+     * @throws MALException if there is a MAL exception.
+     * @throws MalformedURLException if the URI is incorrect.
+     * @throws MALInteractionException if it could not reach the Central
+     * Directory service.
+     */
+    public boolean syncCentralProvider(final URI centralDirectoryServiceURI, final URI routedURI,
+            final Identifier providerName) throws MALException, MalformedURLException, MALInteractionException {
+        ProviderSummaryList providers = NMFConsumer.retrieveProviderFromDirectory(true,
+                centralDirectoryServiceURI, providerName);
+        addProxyPrefix(providers, routedURI.getValue());
+
+        for (ProviderSummary provider : providers) {
+            // A provider with the same name is replaced by the publish operation
+            this.publishCentralProvider(provider);
+        }
+
+        return !providers.isEmpty();
+    }
+
+    /**
+     * Withdraws from the local Directory service a provider that was withdrawn
+     * from the remote Central Directory service.
+     *
+     * @param centralKey The object instance identifier of the ServiceProvider
+     * object in the remote Central Directory service.
+     * @return True if the provider was available locally.
+     */
+    public boolean withdrawCentralProvider(final Long centralKey) {
+        final Long localKey = centralKeys.remove(centralKey);
+
+        if (localKey == null) {
+            return false;
+        }
+
+        synchronized (MUTEX) {
+            if (!providersAvailable.containsKey(localKey)) {
+                return false; // Already replaced by a provider with the same name
+            }
+
+            try {
+                this.withdrawProvider(localKey, null);
+            } catch (MALInteractionException | MALException ex) {
+                LOGGER.log(Level.WARNING, "The provider could not be withdrawn.", ex);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void publishCentralProvider(final ProviderSummary provider)
+            throws MALException, MALInteractionException {
+        if (parameterProxyURI != null) {
+            addParameterProxyPrefix(provider, parameterProxyURI.getValue());
+        }
+
+        PublishDetails pub = new PublishDetails();
+        pub.setDomain(provider.getProviderKey().getDomain());
+        pub.setNetwork(new Identifier("not_available"));
+        pub.setProviderDetails(provider.getProviderDetails());
+        pub.setProviderName(provider.getProviderName());
+        pub.setServiceXML(null);
+        pub.setSessionType(SessionType.LIVE);
+        pub.setSourceSessionName(null);
+        PublishProviderResponse response = this.publishProvider(pub, null);
+        centralKeys.put(provider.getProviderKey().getInstId(), response.getBodyElement0());
+    }
+
     /**
      * Adds the protocol bridge as a prefix to the serviceURI and brokerURI.
      *
@@ -118,6 +220,22 @@ public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
         }
     }
 
+    private static void addParameterProxyPrefix(final ProviderSummary provider,
+            final String parameterProxyURI) {
+        for (ServiceCapability capability : provider.getProviderDetails().getServiceCapabilities()) {
+            ServiceKey key = capability.getServiceKey();
+
+            if (MCHelper._MC_AREA_NUMBER == key.getArea().getValue()
+                    && ParameterHelper._PARAMETER_SERVICE_NUMBER == key.getService().getValue()
+                    && MCHelper._MC_AREA_VERSION == key.getVersion().getValue()) {
+                // The broker stays on the protocol bridge, the proxy only handles the requests
+                for (AddressDetails dets : capability.getServiceAddresses()) {
+                    dets.setServiceURI(new URI(parameterProxyURI + "@" + dets.getServiceURI().getValue()));
+                }
+            }
+        }
+    }
+
     /**
      * Reroutes the Archive service URI of a specific provider to a different
      * URI.
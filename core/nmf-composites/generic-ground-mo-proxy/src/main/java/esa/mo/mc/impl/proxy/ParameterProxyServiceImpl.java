@@ -21,10 +21,13 @@
 package esa.mo.mc.impl.proxy;
 
 import esa.mo.helpertools.connections.ConnectionProvider;
+import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.mc.impl.consumer.ParameterConsumerServiceImpl;
-import esa.mo.nmf.NMFConsumer;
-import java.util.HashMap;
-import java.util.concurrent.Semaphore;
+import esa.mo.nmf.groundmoproxy.SpaceRequestCache;
+import java.net.MalformedURLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
@@ -42,34 +45,43 @@ import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.URI;
 import org.ccsds.moims.mo.mc.MCHelper;
 import org.ccsds.moims.mo.mc.parameter.ParameterHelper;
+import org.ccsds.moims.mo.mc.parameter.consumer.Parameter;
 import org.ccsds.moims.mo.mc.parameter.provider.ParameterInheritanceSkeleton;
 import org.ccsds.moims.mo.mc.parameter.structures.*;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePairList;
 
 /**
- *
+ * Parameter service of the Ground MO Proxy. The service URIs of the providers
+ * on Space are prefixed with the URI of this service in the local Directory
+ * service, so the requests of the ground consumers arrive here. They are
+ * forwarded with one consumer per provider on Space and domain, and the
+ * responses of identical getValue requests are shared. The shared responses of
+ * a provider are dropped when a request changes its values or definitions.
  */
 public class ParameterProxyServiceImpl extends ParameterInheritanceSkeleton {
 
-    private boolean proxyInitialiased = false;
+    private static final Logger LOGGER = Logger.getLogger(ParameterProxyServiceImpl.class.getName());
+
+    /**
+     * The consumers of the providers on Space, by their (routed) URI and domain.
+     */
+    private final Map<ProviderKey, ParameterConsumerServiceImpl> consumers = new ConcurrentHashMap<>();
+    private final SpaceRequestCache<ValuesRequest, ParameterValueDetailsList> valuesCache
+            = new SpaceRequestCache<>("parameter", 1000);
 
-    private ParameterConsumerServiceImpl consumer;
-    private final Semaphore queueSemaphore = new Semaphore(1, true);
-    
     private MALProvider parameterServiceProvider;
     private boolean initialiased = false;
     private boolean running = false;
-    private boolean isRegistered = false;
     private final ConnectionProvider connection = new ConnectionProvider();
 
     /**
-     * creates the MAL objects, the publisher used to create updates and starts
-     * the publishing thread
+     * Starts the Parameter service of the proxy. The consumers of the providers
+     * on Space are created on their first request.
      *
-     * @param adaptersList
+     * @throws MALException On initialisation error.
      */
-    public synchronized void initProxy(HashMap<String, NMFConsumer> adaptersList) throws MALException {
-        if (!proxyInitialiased) {
+    public synchronized void init() throws MALException {
+        if (!initialiased) {
             if (MALContextFactory.lookupArea(MALHelper.MAL_AREA_NAME, MALHelper.MAL_AREA_VERSION) == null) {
                 MALHelper.init(MALContextFactory.getElementFactoryRegistry());
             }
@@ -97,22 +109,8 @@ public class ParameterProxyServiceImpl extends ParameterInheritanceSkeleton {
             {
                 ParameterHelper.init(MALContextFactory.getElementFactoryRegistry());
             }
-
         }
 
-        // One should initialize the Consumer first...
-        // Maybe we can use the Ground MO Adapter and pass it during initialization... ;)
-        this.consumer = adaptersList.get("lalalalla").getMCServices().getParameterService();
-        
-/*
-        publisher = createMonitorValuePublisher(configuration.getDomain(),
-                configuration.getNetwork(),
-                SessionType.LIVE,
-                ConfigurationProviderSingleton.getSourceSessionName(),
-                QoSLevel.BESTEFFORT,
-                null,
-                new UInteger(0));
-*/
         // shut down old service transport
         if (null != parameterServiceProvider) {
             connection.close();
@@ -121,113 +119,229 @@ public class ParameterProxyServiceImpl extends ParameterInheritanceSkeleton {
         parameterServiceProvider = connection.startService(ParameterHelper.PARAMETER_SERVICE_NAME.toString(), ParameterHelper.PARAMETER_SERVICE, this);
 
         running = true;
-
-        proxyInitialiased = true;
-        Logger.getLogger(ParameterProxyServiceImpl.class.getName()).info("Parameter service READY");
-
+        initialiased = true;
+        LOGGER.info("Parameter service READY");
     }
 
-    @Override
-    public ParameterValueDetailsList getValue(LongList ll, MALInteraction interaction) throws MALInteractionException, MALException {
-        // In this case, the object this.consumer represents the connection 
-        // between the consumer part of the proxy to the provider on Space
-        
-        //  Check the interaction object to know to whom the message should be forwarded to...
-        URI uriTo = interaction.getMessageHeader().getURITo();
-
-        // Remove the first part of the uriTo
-        URI uriOfSpaceProvider = this.removePrefix(uriTo);
-
-        // Select the right provider from a List of providers based on the 
-        // uriOfSpaceProvider. If it does not exist, then initialize the 
-        // connection to it.
-        
-        
-        boolean weCareAboutConnectionAvailableToGS = true; // Will be a future property that can be set
-        boolean weHaveQueueing = true;                     // Will be a future property that can be set
-        boolean isConnectionAvailable = true;              // Proxy needs to periodically check the connection for this var
-        boolean isSatelliteInSight = true;                 // This information must be provided OR it can be calculated if the orbit is known
-        int TIME_BETWEEN_COMMANDS = 50;                    // The time between each telecommand in milliseconds
-
-//------------------Check Connection------------------        
-        if (weCareAboutConnectionAvailableToGS) {
-            // Is the connection to the GS available?
-            if (!isConnectionAvailable) {
-                // Publish RECEPTION Event failure back to the consumer
-
-                throw new MALException("The connection to the Ground Station is not available...");
-            }
-        }
-//----------------------------------------------------
+    /**
+     * Closes the consumers of the providers on Space and the service.
+     */
+    public void close() {
+        reset();
 
-        // Publish RECEPTION Event success back to the consumer
-        
-        
         try {
-            if (weHaveQueueing) {
-                queueSemaphore.acquire(); // Put it waiting in the queue list
+            if (null != parameterServiceProvider) {
+                parameterServiceProvider.close();
             }
 
-            // Make each telecommand wait TIME_BETWEEN_COMMANDS milliseconds before the previous
-            Thread.sleep(TIME_BETWEEN_COMMANDS);
-
-        } catch (InterruptedException ex) {
-            Logger.getLogger(ParameterProxyServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+            connection.closeAll();
+            running = false;
+        } catch (MALException ex) {
+            LOGGER.log(Level.WARNING, "Exception during close down of the provider {0}", ex);
         }
-        
-        while (true) {
-            if (isSatelliteInSight) {
-                if (weHaveQueueing) {
-                    // Let the next command in the queue continue its execution
-                    queueSemaphore.release();
-                }
+    }
 
-                // Publish FORWARD Event back to the consumer (runs inside a thread)
-                
-                // Makes a call to the provider on Space
-//                GetValueResponse response = this.consumer.getParameterStub().getValue(lLongList);
+    /**
+     * Closes the consumers of the providers on Space and removes the cached
+     * responses, for example after a restart of the NanoSat MO Supervisor. The
+     * consumers are created again on the next request.
+     */
+    public void reset() {
+        synchronized (consumers) {
+            for (ParameterConsumerServiceImpl consumer : consumers.values()) {
+                consumer.close();
+            }
 
-                // returns the answer to the connected consumer
-//                return response;
-                return null;
-          }
+            consumers.clear();
         }
 
+        valuesCache.invalidate();
+    }
+
+    public ConnectionProvider getConnectionProvider() {
+        return this.connection;
     }
 
     @Override
-    public LongList enableGeneration(final Boolean isGroupIds, final InstanceBooleanPairList enableInstances,
-            final MALInteraction interaction) throws MALException, MALInteractionException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public ParameterValueDetailsList getValue(LongList ll, MALInteraction interaction) throws MALInteractionException, MALException {
+        final ProviderKey provider = providerOf(interaction);
+        final Parameter stub = stubOf(provider);
+
+        // Identical requests from several consumers are forwarded only once
+        final LongList ids = new LongList(ll.size());
+        ids.addAll(ll);
+
+        return valuesCache.get(new ValuesRequest(provider, ids), () -> stub.getValue(ids));
     }
 
-    private URI removePrefix(URI uriTo) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    @Override
+    public LongList enableGeneration(final Boolean isGroupIds, final InstanceBooleanPairList enableInstances,
+            final MALInteraction interaction) throws MALException, MALInteractionException {
+        return stubOf(providerOf(interaction)).enableGeneration(isGroupIds, enableInstances);
     }
 
     @Override
     public void setValue(ParameterRawValueList prvl, MALInteraction mali) throws MALInteractionException, MALException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final ProviderKey provider = providerOf(mali);
+        stubOf(provider).setValue(prvl);
+        invalidate(provider);
     }
 
     @Override
     public ObjectInstancePairList addParameter(ParameterCreationRequestList pcrl, MALInteraction mali) throws MALInteractionException, MALException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final ProviderKey provider = providerOf(mali);
+        final ObjectInstancePairList ids = stubOf(provider).addParameter(pcrl);
+        invalidate(provider);
+        return ids;
     }
 
     @Override
     public void removeParameter(LongList ll, MALInteraction mali) throws MALInteractionException, MALException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final ProviderKey provider = providerOf(mali);
+        stubOf(provider).removeParameter(ll);
+        invalidate(provider);
     }
 
     @Override
     public ObjectInstancePairList listDefinition(IdentifierList il, MALInteraction mali) throws MALInteractionException, MALException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return stubOf(providerOf(mali)).listDefinition(il);
     }
 
     @Override
     public LongList updateDefinition(LongList ll, ParameterDefinitionDetailsList pddl, MALInteraction mali) throws MALInteractionException, MALException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final ProviderKey provider = providerOf(mali);
+        final LongList ids = stubOf(provider).updateDefinition(ll, pddl);
+        invalidate(provider);
+        return ids;
+    }
+
+    /**
+     * Drops the shared getValue responses of a provider on Space, in every
+     * domain, after a request changed its values or definitions.
+     */
+    private void invalidate(final ProviderKey provider) {
+        valuesCache.invalidate(request -> request.provider.uri.equals(provider.uri));
+    }
+
+    private static ProviderKey providerOf(final MALInteraction interaction) {
+        // The URI of the provider on Space follows the URI of the proxy
+        return new ProviderKey(removePrefix(interaction.getMessageHeader().getURITo()),
+                interaction.getMessageHeader().getDomain());
+    }
+
+    /**
+     * Returns the stub of a provider on Space, in the domain of the request.
+     */
+    Parameter stubOf(final ProviderKey provider) throws MALException {
+        return consumerOf(provider).getParameterStub();
+    }
+
+    /**
+     * Returns the consumer of a provider on Space in a domain. It is created on
+     * the first request to that provider in that domain.
+     */
+    private ParameterConsumerServiceImpl consumerOf(final ProviderKey provider) throws MALException {
+        ParameterConsumerServiceImpl consumer = consumers.get(provider);
+
+        if (consumer != null) {
+            return consumer;
+        }
+
+        synchronized (consumers) {
+            consumer = consumers.get(provider);
+
+            if (consumer == null) {
+                SingleConnectionDetails details = new SingleConnectionDetails();
+                details.setProviderURI(provider.uri);
+                details.setDomain(provider.domain);
+
+                try {
+                    consumer = new ParameterConsumerServiceImpl(details, null);
+                } catch (MalformedURLException | MALInteractionException ex) {
+                    throw new MALException("Unable to reach the Parameter service on Space: "
+                            + provider, ex);
+                }
+
+                consumers.put(provider, consumer);
+                LOGGER.log(Level.INFO, "Forwarding the Parameter requests to: {0}", provider);
+            }
+
+            return consumer;
+        }
+    }
+
+    private static URI removePrefix(final URI uriTo) {
+        final String uri = uriTo.getValue();
+        return new URI(uri.substring(uri.indexOf('@') + 1));
+    }
+
+    /**
+     * A provider on Space and the domain of the requests forwarded to it.
+     */
+    static final class ProviderKey {
+
+        private final URI uri;
+        private final IdentifierList domain;
+
+        ProviderKey(final URI uri, final IdentifierList domain) {
+            this.uri = uri;
+            this.domain = domain;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ProviderKey)) {
+                return false;
+            }
+
+            ProviderKey other = (ProviderKey) obj;
+            return uri.equals(other.uri) && Objects.equals(domain, other.domain);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * uri.hashCode() + Objects.hashCode(domain);
+        }
+
+        @Override
+        public String toString() {
+            return uri + " " + domain;
+        }
+    }
+
+    /**
+     * The key of a getValue request: the provider on Space, the domain and the
+     * requested parameters.
+     */
+    private static final class ValuesRequest {
+
+        private final ProviderKey provider;
+        private final LongList ids;
+
+        private ValuesRequest(final ProviderKey provider, final LongList ids) {
+            this.provider = provider;
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ValuesRequest)) {
+                return false;
+            }
+
+            ValuesRequest other = (ValuesRequest) obj;
+            return provider.equals(other.provider) && ids.equals(other.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * provider.hashCode() + ids.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return provider + " " + ids;
+        }
     }
 
 }
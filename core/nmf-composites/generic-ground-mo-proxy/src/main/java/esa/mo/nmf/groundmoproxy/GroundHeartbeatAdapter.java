@@ -23,6 +23,7 @@ package esa.mo.nmf.groundmoproxy;
 import esa.mo.helpertools.helpers.HelperTime;
 import esa.mo.helpertools.misc.TaskScheduler;
 import esa.mo.sm.impl.consumer.HeartbeatConsumerServiceImpl;
+import esa.mo.sm.impl.util.PhiAccrualFailureDetector;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,14 +33,27 @@ import org.ccsds.moims.mo.mal.structures.FineTime;
 import org.ccsds.moims.mo.mal.structures.Time;
 import org.ccsds.moims.mo.softwaremanagement.heartbeat.consumer.HeartbeatAdapter;
 
+/**
+ * Tracks the liveness of the provider from its heartbeats with a phi accrual
+ * failure detector, checked several times per beat period. When the beats
+ * are late, the provider is probed with the getPeriod operation before being
+ * reported as unresponsive: an answer means that it is alive and that its
+ * beat interval may have changed, in which case the detector is reseeded.
+ */
 public class GroundHeartbeatAdapter extends HeartbeatAdapter
 {
 
   private static final Logger LOGGER = Logger.getLogger(GroundHeartbeatAdapter.class.getName());
-  protected static final long DELTA_ERROR = 2 * 1000; // 2 seconds = 2000 milliseconds
-  protected final long period; // In seconds
+  protected static final double PHI_THRESHOLD = 8.0;
+  protected static final int WINDOW_SIZE = 100;
+  protected static final long MIN_STD_DEVIATION = 500; // In milliseconds
+  protected static final long MIN_CHECK_PERIOD = 250; // In milliseconds
+  protected long period; // In milliseconds
   protected long lag; // In milliseconds
+  protected long lagMeasuredAt; // In milliseconds
+  protected boolean responsive = true;
   protected final TaskScheduler timer;
+  protected final PhiAccrualFailureDetector detector;
   protected Time lastBeatAt = HelperTime.getTimestampMillis();
   protected Time lastBeatOBT = null; // Last beat in On-Board timestamp
   protected final GroundMOProxy moProxy;
@@ -52,8 +66,11 @@ public class GroundHeartbeatAdapter extends HeartbeatAdapter
     this.heartbeat = heartbeat;
     long timestamp = System.currentTimeMillis();
     double value = heartbeat.getHeartbeatStub().getPeriod().getValue();
-    lag = System.currentTimeMillis() - timestamp;
+    lagMeasuredAt = System.currentTimeMillis();
+    lag = lagMeasuredAt - timestamp;
     period = (long) (value * 1000);
+    detector = new PhiAccrualFailureDetector(PHI_THRESHOLD, WINDOW_SIZE, MIN_STD_DEVIATION, 0);
+    detector.reset(period, lastBeatAt.getValue());
     LOGGER.log(Level.INFO, "The provider is reachable! Beat period: {0} seconds", value);
     moProxy.setNmsAliveStatus(true);
     timer = new TaskScheduler(1);
@@ -63,7 +80,9 @@ public class GroundHeartbeatAdapter extends HeartbeatAdapter
 
   public void startHeartbeatRefreshTask()
   {
-    timer.scheduleTask(new HeartbeatRefreshTask(moProxy, heartbeat), period, period, TimeUnit.MILLISECONDS, true);
+    final long checkPeriod = Math.max(MIN_CHECK_PERIOD, period / 4);
+    timer.scheduleTask(new HeartbeatRefreshTask(), checkPeriod, checkPeriod,
+        TimeUnit.MILLISECONDS, true);
   }
 
   public void stop()
@@ -81,10 +100,12 @@ public class GroundHeartbeatAdapter extends HeartbeatAdapter
     synchronized (timer) {
       lastBeatAt = HelperTime.getTimestampMillis();
       lastBeatOBT = msgHeader.getTimestamp();
+      detector.heartbeat(lastBeatAt.getValue());
       final long iDiff = lastBeatAt.getValue() - lastBeatOBT.getValue();
       LOGGER.log(Level.INFO,
           "(Clocks diff: {0} ms | Round-Trip Delay time: {1} ms | Last beat received at: {2})",
           new Object[]{iDiff, lag, HelperTime.time2readableString(lastBeatAt)});
+      responsive = true;
       moProxy.setNmsAliveStatus(true);
     }
   }
@@ -99,45 +120,66 @@ public class GroundHeartbeatAdapter extends HeartbeatAdapter
     return HelperTime.timeToFineTime(lastBeatOBT);
   }
 
-  private class HeartbeatRefreshTask extends Thread
+  /**
+   * Requests the current beat period, measuring the lag on the way. The
+   * detector is reseeded if the period changed.
+   *
+   * @return True if the provider answered.
+   */
+  private boolean probe()
   {
+    try {
+      long timestamp = System.currentTimeMillis();
+      double value = heartbeat.getHeartbeatStub().getPeriod().getValue();
+      lagMeasuredAt = System.currentTimeMillis();
+      lag = lagMeasuredAt - timestamp; // Calculate the lag
+      final long newPeriod = (long) (value * 1000);
 
-    private final GroundMOProxy moProxy;
-    private final HeartbeatConsumerServiceImpl heartbeat;
+      if (newPeriod != period) {
+        LOGGER.log(Level.INFO, "The beat period changed to {0} seconds", value);
+        period = newPeriod;
+        detector.reset(period, lastBeatAt.getValue());
+      }
 
-    public HeartbeatRefreshTask(GroundMOProxy moProxy, HeartbeatConsumerServiceImpl heartbeat)
-    {
-      this.moProxy = moProxy;
-      this.heartbeat = heartbeat;
+      return true;
+    } catch (MALInteractionException | MALException ex) {
+      LOGGER.log(Level.SEVERE, null, ex);
+      return false;
     }
-    int tryNumber = 0;
+  }
+
+  private class HeartbeatRefreshTask extends Thread
+  {
 
     @Override
     public void run()
     {
       synchronized (timer) {
-        final Time currentTime = HelperTime.getTimestampMillis();
-        // If the current time has passed the last beat + the beat period + a delta error
-        long threshold = lastBeatAt.getValue() + period + DELTA_ERROR;
-        if (currentTime.getValue() > threshold) {
+        final long now = HelperTime.getTimestampMillis().getValue();
+
+        if (!detector.isAvailable(now)) {
+          if (!responsive) {
+            return; // Already reported, wait for the next beat
+          }
+
+          if (probe()) {
+            if (!detector.isAvailable(now)) {
+              // The provider is alive but its beats are not received
+              LOGGER.log(Level.WARNING,
+                  "The provider answered but its heartbeat is late (phi: {0}).", detector.phi(now));
+              detector.reset(period, now);
+            }
+
+            return;
+          }
+
           // Then the provider is unresponsive
+          responsive = false;
           moProxy.setNmsAliveStatus(false);
           LOGGER.log(Level.INFO, "The heartbeat message from the provider was not received.");
-          // Next time the heartbeat comes, trigger the lag measurement
-          tryNumber = 3;
-        } else {
-          if (tryNumber >= 3) {
-            // Every third try...
-            try {
-              long timestamp = System.currentTimeMillis();
-              heartbeat.getHeartbeatStub().getPeriod();
-              lag = System.currentTimeMillis() - timestamp; // Calculate the lag
-            } catch (MALInteractionException | MALException ex) {
-              LOGGER.log(Level.SEVERE, null, ex);
-            }
-            tryNumber = 0;
-          }
-          tryNumber++;
+        } else if (now - lagMeasuredAt > 3 * period) {
+          // Every third period...
+          probe();
         }
       }
     }
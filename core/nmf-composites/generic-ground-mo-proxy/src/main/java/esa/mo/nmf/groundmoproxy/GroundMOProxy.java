@@ -21,6 +21,10 @@
 package esa.mo.nmf.groundmoproxy;
 
 import esa.mo.com.impl.consumer.ArchiveConsumerServiceImpl;
+import esa.mo.com.impl.consumer.EventConsumerServiceImpl;
+import esa.mo.com.impl.util.EventCOMObject;
+import esa.mo.com.impl.util.EventReceivedListener;
+import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.common.impl.proxy.DirectoryProxyServiceImpl;
 import esa.mo.helpertools.connections.ConnectionConsumer;
@@ -28,6 +32,7 @@ import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.helpertools.helpers.HelperMisc;
 import esa.mo.helpertools.misc.Const;
+import esa.mo.mc.impl.proxy.ParameterProxyServiceImpl;
 import esa.mo.nmf.NMFConsumer;
 import esa.mo.sm.impl.consumer.HeartbeatConsumerServiceImpl;
 import esa.mo.sm.impl.provider.AppsLauncherManager;
@@ -42,9 +47,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMService;
 import org.ccsds.moims.mo.com.archive.ArchiveHelper;
+import org.ccsds.moims.mo.com.archive.body.RetrieveResponse;
 import org.ccsds.moims.mo.com.archive.consumer.ArchiveAdapter;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQueryList;
+import org.ccsds.moims.mo.com.event.EventHelper;
+import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.common.directory.DirectoryHelper;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
@@ -52,6 +60,7 @@ import org.ccsds.moims.mo.common.directory.structures.ServiceFilter;
 import org.ccsds.moims.mo.common.structures.ServiceKey;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.structures.ElementList;
 import org.ccsds.moims.mo.mal.structures.FineTime;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
@@ -77,14 +86,22 @@ public abstract class GroundMOProxy
   private static final Logger LOGGER = Logger.getLogger(GroundMOProxy.class.getName());
   protected final static long HEARTBEAT_PUBLISH_PERIOD = 10000;
   protected final static long DIRECTORY_SCAN_PERIOD = 10000; // 10 seconds
+  // With the Directory events, the scan is kept every 10 periods for the missed events
+  protected final static int DIRECTORY_FALLBACK_SCAN_FACTOR = 10;
+  protected final static long DIRECTORY_EVENT_RETRY_DELAY = 2000; // 2 seconds
+  protected final static int DIRECTORY_EVENT_ATTEMPTS = 3;
   private final AtomicBoolean nmsAliveStatus = new AtomicBoolean(false);
   protected final COMServicesProvider localCOMServices;
   protected final DirectoryProxyServiceImpl localDirectoryService;
+  protected final ParameterProxyServiceImpl localParameterService;
   protected Timer timer;
   protected GroundHeartbeatAdapter providerStatusAdapter;
   private SingleConnectionDetails cdRemoteArchive;
   protected GroundProxyConnectorTask proxyConnectorTask;
   protected DirectoryScanTask directoryScanTask;
+  private ArchiveConsumerServiceImpl remoteArchiveService;
+  private EventConsumerServiceImpl remoteEventService;
+  private volatile boolean directoryEventsActive = false;
 
   public GroundMOProxy()
   {
@@ -95,6 +112,7 @@ public abstract class GroundMOProxy
     NMFConsumer.initHelpers();
     localCOMServices = new COMServicesProvider();
     localDirectoryService = new DirectoryProxyServiceImpl();
+    localParameterService = new ParameterProxyServiceImpl();
   }
 
   public void init(final URI centralDirectoryServiceURI, final URI routedURI)
@@ -102,6 +120,10 @@ public abstract class GroundMOProxy
     try {
       localCOMServices.init();
       localDirectoryService.init(localCOMServices);
+      localParameterService.init();
+      // The Parameter requests of the ground consumers go through the proxy
+      localDirectoryService.setParameterProxyURI(localParameterService.getConnectionProvider()
+          .getPrimaryConnectionDetails().getProviderURI());
     } catch (MALException ex) {
       LOGGER.log(Level.SEVERE, null, ex);
     }
@@ -186,6 +208,11 @@ public abstract class GroundMOProxy
     return localDirectoryService;
   }
 
+  public ParameterProxyServiceImpl getLocalParameterService()
+  {
+    return localParameterService;
+  }
+
   /**
    * @return the nmsAliveStatus
    */
@@ -200,6 +227,180 @@ public abstract class GroundMOProxy
   public void setNmsAliveStatus(Boolean nmsAliveStatus)
   {
     this.nmsAliveStatus.set(nmsAliveStatus);
+
+    if (!nmsAliveStatus) {
+      // The subscription does not survive a restart of the NMS
+      closeDirectoryEvents();
+      localParameterService.reset();
+    }
+  }
+
+  /**
+   * Subscribes to the events of the remote Archive about the ServiceProvider
+   * objects of the Central Directory service. They are stored when a provider
+   * is published and deleted when it is withdrawn, so the local Directory
+   * service can be updated one provider at a time.
+   *
+   * @param centralDirectoryServiceURI The URI of the Central Directory service
+   * @param routedURI The URI of the protocol bridge
+   * @return True if the subscription was done.
+   */
+  private boolean subscribeToDirectoryEvents(final URI centralDirectoryServiceURI,
+      final URI routedURI)
+  {
+    SingleConnectionDetails cdRemoteEvent = cdFromService(EventHelper.EVENT_SERVICE);
+
+    if (cdRemoteEvent == null) {
+      return false;
+    }
+
+    try {
+      remoteEventService = new EventConsumerServiceImpl(cdRemoteEvent);
+    } catch (MALException | MALInteractionException | MalformedURLException ex) {
+      LOGGER.log(Level.WARNING,
+          "The remote Event service is not available. The Central Directory will be scanned.", ex);
+      return false;
+    }
+
+    Subscription subscription = HelperCOM.generateCOMEventSubscriptionBySourceType(
+        "DirectoryEvents", DirectoryHelper.SERVICEPROVIDER_OBJECT_TYPE);
+    remoteEventService.addEventReceivedListener(subscription,
+        new DirectoryEventsListener(centralDirectoryServiceURI, routedURI));
+    directoryEventsActive = true;
+    LOGGER.log(Level.INFO, "Subscribed to the provider events of the Central Directory service");
+    return true;
+  }
+
+  private void closeDirectoryEvents()
+  {
+    directoryEventsActive = false;
+
+    if (remoteEventService != null) {
+      remoteEventService.close();
+      remoteEventService = null;
+    }
+  }
+
+  /**
+   * Updates the local Directory service when a provider is published or
+   * withdrawn on the Central Directory service.
+   */
+  protected class DirectoryEventsListener extends EventReceivedListener
+  {
+    private final URI centralDirectoryServiceURI;
+    private final URI routedURI;
+
+    public DirectoryEventsListener(URI centralDirectoryServiceURI, URI routedURI)
+    {
+      this.centralDirectoryServiceURI = centralDirectoryServiceURI;
+      this.routedURI = routedURI;
+    }
+
+    @Override
+    public void onDataReceived(EventCOMObject eventCOMObject)
+    {
+      final ObjectId source = eventCOMObject.getSource();
+
+      if (source == null) {
+        return;
+      }
+
+      final UShort eventNumber = eventCOMObject.getObjType().getNumber();
+
+      if (ArchiveHelper.OBJECTDELETED_OBJECT_TYPE.getNumber().equals(eventNumber)) {
+        LOGGER.log(Level.INFO, "Provider withdrawn from the Central Directory service: {0}",
+            source.getKey().getInstId());
+
+        if (localDirectoryService.withdrawCentralProvider(source.getKey().getInstId())) {
+          additionalHandling();
+        }
+      } else if (ArchiveHelper.OBJECTSTORED_OBJECT_TYPE.getNumber().equals(eventNumber)) {
+        // Do not block the delivery of the events while the link is used
+        timer.schedule(new ProviderSyncTask(centralDirectoryServiceURI, routedURI, source, 1), 0);
+      }
+    }
+  }
+
+  /**
+   * Transfers a single provider from the Central Directory service. The
+   * ServiceProvider object is stored before the provider becomes available in
+   * the Central Directory service, so the lookup is retried a few times.
+   */
+  protected class ProviderSyncTask extends TimerTask
+  {
+    private final URI centralDirectoryServiceURI;
+    private final URI routedURI;
+    private final ObjectId serviceProvider;
+    private final int attempt;
+    private Identifier providerName;
+
+    public ProviderSyncTask(URI centralDirectoryServiceURI, URI routedURI,
+        ObjectId serviceProvider, int attempt)
+    {
+      this.centralDirectoryServiceURI = centralDirectoryServiceURI;
+      this.routedURI = routedURI;
+      this.serviceProvider = serviceProvider;
+      this.attempt = attempt;
+    }
+
+    @Override
+    public void run()
+    {
+      try {
+        if (providerName == null) {
+          providerName = retrieveProviderName(serviceProvider);
+        }
+
+        if (providerName == null) {
+          LOGGER.log(Level.WARNING, "The name of the published provider could not be retrieved.");
+          return;
+        }
+
+        if (localDirectoryService.syncCentralProvider(centralDirectoryServiceURI, routedURI,
+            providerName)) {
+          LOGGER.log(Level.INFO, "Provider published on the Central Directory service: {0}",
+              providerName);
+          additionalHandling();
+        } else if (attempt < DIRECTORY_EVENT_ATTEMPTS) {
+          ProviderSyncTask retry = new ProviderSyncTask(centralDirectoryServiceURI, routedURI,
+              serviceProvider, attempt + 1);
+          retry.providerName = providerName;
+          timer.schedule(retry, DIRECTORY_EVENT_RETRY_DELAY);
+        }
+      } catch (MALException | MALInteractionException | MalformedURLException ex) {
+        LOGGER.log(Level.SEVERE, "The published provider could not be synchronized.", ex);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the name of a provider, which is the body of its ServiceProvider
+   * object, from the remote Archive.
+   *
+   * @param serviceProvider The ServiceProvider object
+   * @return The name of the provider or null if it was not found
+   * @throws MALException if there is a MAL exception.
+   * @throws MALInteractionException if it could not reach the remote Archive.
+   */
+  private Identifier retrieveProviderName(final ObjectId serviceProvider)
+      throws MALException, MALInteractionException
+  {
+    final ArchiveConsumerServiceImpl archive = remoteArchiveService;
+
+    if (archive == null) {
+      return null;
+    }
+
+    final LongList objIds = new LongList();
+    objIds.add(serviceProvider.getKey().getInstId());
+    final RetrieveResponse response = archive.getArchiveStub().retrieve(
+        DirectoryHelper.SERVICEPROVIDER_OBJECT_TYPE, serviceProvider.getKey().getDomain(),
+        objIds, new ArchiveAdapter()
+    {
+    });
+    final ElementList bodies = response.getBodyElement1();
+
+    return (bodies == null || bodies.isEmpty()) ? null : (Identifier) bodies.get(0);
   }
 
   protected class DirectoryScanTask extends TimerTask
@@ -212,9 +413,9 @@ public abstract class GroundMOProxy
       this.centralDirectoryServiceURI = centralDirectoryServiceURI;
       this.routedURI = routedURI;
     }
-    private boolean firstRun = true;
     private ArchiveConsumerServiceImpl archiveService;
     private FineTime lastTime = new FineTime(0);
+    private int skippedScans = 0;
 
     @Override
     public void run()
@@ -233,11 +434,23 @@ public abstract class GroundMOProxy
       } else if (getNmsAliveStatus() && cdRemoteArchive != null) {
         // If alive and remote Archive connection details are initialised and heartbeat is received
         try {
-          if (firstRun) {
+          if (archiveService == null) {
             archiveService = new ArchiveConsumerServiceImpl(cdRemoteArchive);
-            firstRun = false;
+            remoteArchiveService = archiveService;
           }
 
+          if (directoryEventsActive) {
+            // The changes are pushed by the Event service, the slow scan catches the missed ones
+            if (++skippedScans < DIRECTORY_FALLBACK_SCAN_FACTOR) {
+              return;
+            }
+          } else {
+            // After subscribing, the scan below still covers the changes since the last one
+            subscribeToDirectoryEvents(centralDirectoryServiceURI, routedURI);
+          }
+
+          skippedScans = 0;
+
           // Check the remote COM Archive for new objects! Use On-Board Timestamp.
           FineTime currentOBT = providerStatusAdapter.getLastBeatOBT();
 
@@ -27,6 +27,7 @@ import java.util.logging.Logger;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALStandardError;
 import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.transport.MALEncodedBody;
 import org.ccsds.moims.mo.mal.transport.MALEndpoint;
 import org.ccsds.moims.mo.mal.transport.MALMessage;
 import org.ccsds.moims.mo.mal.transport.MALMessageBody;
@@ -43,11 +44,20 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
     private static final Logger LOGGER = Logger.getLogger(ProtocolBridgeSPP.class.getName());
     public static final String PROPERTY_APID_RANGE_START = "esa.mo.nmf.groundmoproxy.protocolbrige.spp.apid.start";
     public static final String PROPERTY_APID_RANGE_END = "esa.mo.nmf.groundmoproxy.protocolbrige.spp.apid.end";
+    /**
+     * Forwards the encoded body of the messages instead of decoding and
+     * encoding it again. Only the addressing of the header is rewritten. It is
+     * only applied when both transports are configured with the same body
+     * encoding.
+     */
+    public static final String PROPERTY_PASSTHROUGH = "esa.mo.nmf.groundmoproxy.protocolbrige.spp.passthrough";
+    private static final String PROPERTY_ENCODING_PREFIX = "org.ccsds.moims.mo.mal.encoding.protocol.";
     private static final String PROTOCOL_SPP = "malspp";
     private MALTransport transportA;
     private MALTransport transportB;
     private MALEndpoint epB;
     private VirtualSPPURIsManager virtualSPPURI;
+    private boolean passthrough;
 
     public void init(final String protocol, final Map properties) throws Exception {
         transportA = createTransport(PROTOCOL_SPP, properties);
@@ -63,6 +73,16 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
         int apidEnd = Integer.parseInt(System.getProperty(PROPERTY_APID_RANGE_END));
 
         virtualSPPURI = new VirtualSPPURIsManager(apidStart, apidEnd);
+        boolean passthroughEnabled = Boolean.parseBoolean(System.getProperty(PROPERTY_PASSTHROUGH, "false"));
+        passthrough = passthroughEnabled && isSameBodyEncoding(PROTOCOL_SPP, protocol, properties);
+
+        if (passthroughEnabled && !passthrough) {
+            LOGGER.log(Level.WARNING, "The {0} and {1} transports are not configured with the same "
+                    + "body encoding. The messages will be decoded and encoded again.",
+                    new Object[]{PROTOCOL_SPP, protocol});
+        }
+
+        LOGGER.log(Level.INFO, "Passthrough forwarding: {0}", passthrough);
 
         epB = createEndpoint(protocol, transportB);
 
@@ -109,7 +129,7 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
                     String uriTrans = virtualSPPURI.getURI(srcMessage.getHeader().getURITo().getValue());
 
                     // copy source message into destination message format
-                    dMsg = cloneForwardMessageFromSPP(epOther, srcMessage, new URI(uriTrans));
+                    dMsg = cloneForwardMessageFromSPP(epOther, srcMessage, new URI(uriTrans), passthrough);
                     LOGGER.log(Level.FINE, "Injecting message... Ground<-Space");
                     epOther.sendMessage(dMsg);
                 } else {
@@ -127,7 +147,7 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
                         ep.startMessageDelivery();
                     }
 
-                    dMsg = cloneForwardMessageToSPP(ep, srcMessage, virtualURIs);
+                    dMsg = cloneForwardMessageToSPP(ep, srcMessage, virtualURIs, passthrough);
                     LOGGER.log(Level.FINE, "Injecting message... Ground->Space");
                     ep.sendMessage(dMsg);
                 }
@@ -163,19 +183,10 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
     }
 
     protected static MALMessage cloneForwardMessageToSPP(final MALEndpoint destination,
-            final MALMessage srcMessage, final String virtualURI) throws MALException {
+            final MALMessage srcMessage, final String virtualURI, final boolean passthrough)
+            throws MALException {
         MALMessageHeader sourceHdr = srcMessage.getHeader();
-        MALMessageBody body = srcMessage.getBody();
-        int size = body.getElementCount();
-        LOGGER.log(Level.FINER, "Body size: {0}", size);
         LOGGER.log(Level.FINER, "Local URI: {0}", destination.getURI());
-
-        Object[] objList = new Object[size];
-
-        for (int i = 0; i < body.getElementCount(); i++) {
-            objList[i] = body.getBodyElement(i, null);
-        }
-
         LOGGER.log(Level.FINER, "cloneForwardMessage from: {0} to: {1}", new Object[]{sourceHdr.getURIFrom(),
           sourceHdr.getURITo()});
         String endpointUriPart = sourceHdr.getURITo().getValue();
@@ -187,76 +198,157 @@ public class ProtocolBridgeSPP extends ProtocolBridge {
         LOGGER.log(Level.FINER, "cloneForwardMessage from: {0} to: {1}", new Object[]{from,
           to});
 
-        MALMessage destMessage = destination.createMessage(
-                sourceHdr.getAuthenticationId(),
-                to,
-                sourceHdr.getTimestamp(),
-                sourceHdr.getQoSlevel(),
-                sourceHdr.getPriority(),
-                sourceHdr.getDomain(),
-                sourceHdr.getNetworkZone(),
-                sourceHdr.getSession(),
-                sourceHdr.getSessionName(),
-                sourceHdr.getInteractionType(),
-                sourceHdr.getInteractionStage(),
-                sourceHdr.getTransactionId(),
-                sourceHdr.getServiceArea(),
-                sourceHdr.getService(),
-                sourceHdr.getOperation(),
-                sourceHdr.getAreaVersion(),
-                sourceHdr.getIsErrorMessage(),
-                srcMessage.getQoSProperties(),
-                objList);
-
-        destMessage.getHeader().setURIFrom(from);
-
-        return destMessage;
+        return createForwardMessage(destination, srcMessage, to, from, passthrough);
     }
 
     protected static MALMessage cloneForwardMessageFromSPP(final MALEndpoint destination,
-            final MALMessage srcMessage, final URI reverse) throws MALException {
+            final MALMessage srcMessage, final URI reverse, final boolean passthrough)
+            throws MALException {
         MALMessageHeader sourceHdr = srcMessage.getHeader();
-        MALMessageBody body = srcMessage.getBody();
-        int size = body.getElementCount();
-        LOGGER.log(Level.FINER, "Body size: {0}", size);
         LOGGER.log(Level.FINER, "Local URI: {0}", destination.getURI());
-
-        Object[] objList = new Object[size];
-
-        for (int i = 0; i < body.getElementCount(); i++) {
-            objList[i] = body.getBodyElement(i, null);
-        }
-
         LOGGER.log(Level.FINER, "cloneForwardMessage from : {0} to: {1}", new Object[]{sourceHdr.getURIFrom(),
           sourceHdr.getURITo()});
         URI from = new URI(destination.getURI().getValue() + "@" + sourceHdr.getURIFrom().getValue());
 
         LOGGER.log(Level.FINER, "cloneForwardMessage from: {0} to: {1}", new Object[]{from, reverse});
 
-        MALMessage destMessage = destination.createMessage(
-                sourceHdr.getAuthenticationId(),
-                reverse,
-                sourceHdr.getTimestamp(),
-                sourceHdr.getQoSlevel(),
-                sourceHdr.getPriority(),
-                sourceHdr.getDomain(),
-                sourceHdr.getNetworkZone(),
-                sourceHdr.getSession(),
-                sourceHdr.getSessionName(),
-                sourceHdr.getInteractionType(),
-                sourceHdr.getInteractionStage(),
-                sourceHdr.getTransactionId(),
-                sourceHdr.getServiceArea(),
-                sourceHdr.getService(),
-                sourceHdr.getOperation(),
-                sourceHdr.getAreaVersion(),
-                sourceHdr.getIsErrorMessage(),
-                srcMessage.getQoSProperties(),
-                objList);
+        return createForwardMessage(destination, srcMessage, reverse, from, passthrough);
+    }
+
+    /**
+     * Returns the body encoding configured for a transport.
+     *
+     * @param protocol The protocol of the transport.
+     * @param properties The properties of the transport.
+     * @return The class name of the encoding factory or null if none is
+     * configured (the transport uses its default encoding).
+     */
+    static String getBodyEncoding(final String protocol, final Map properties) {
+        final String key = PROPERTY_ENCODING_PREFIX + protocol;
+        Object encoding = (properties != null) ? properties.get(key) : null;
+
+        if (encoding == null) {
+            encoding = System.getProperty(key);
+        }
+
+        return (encoding != null) ? encoding.toString().trim() : null;
+    }
+
+    /**
+     * Checks if the encoded body of a message of one transport can be sent as
+     * it is by the other one. A transport without an explicit encoding uses a
+     * default of its own, so both encodings must be configured and identical.
+     *
+     * @param protocolA The protocol of the first transport.
+     * @param protocolB The protocol of the second transport.
+     * @param properties The properties of the transports.
+     * @return True if both transports use the same body encoding.
+     */
+    static boolean isSameBodyEncoding(final String protocolA, final String protocolB,
+            final Map properties) {
+        final String encodingA = getBodyEncoding(protocolA, properties);
+        return encodingA != null && !encodingA.isEmpty()
+                && encodingA.equals(getBodyEncoding(protocolB, properties));
+    }
+
+    /**
+     * Creates the message to be forwarded. Only the addressing of the header
+     * changes. In passthrough mode, that is when both transports use the same
+     * body encoding, the encoded body of the source message is copied as it
+     * is. Otherwise each body element is decoded to be encoded again by the
+     * destination transport.
+     *
+     * @param destination The endpoint that will send the message.
+     * @param srcMessage The received message.
+     * @param to The URI of the destination.
+     * @param from The URI of the source, as seen by the destination.
+     * @param passthrough True to forward the encoded body. Only valid if both
+     * transports use the same body encoding.
+     * @return The message to be forwarded.
+     * @throws MALException if the message could not be created.
+     */
+    private static MALMessage createForwardMessage(final MALEndpoint destination,
+            final MALMessage srcMessage, final URI to, final URI from,
+            final boolean passthrough) throws MALException {
+        MALMessageHeader sourceHdr = srcMessage.getHeader();
+        MALMessageBody body = srcMessage.getBody();
+        MALEncodedBody encodedBody = passthrough ? getEncodedBody(body) : null;
+        MALMessage destMessage;
+
+        if (encodedBody != null) {
+            LOGGER.log(Level.FINER, "Forwarding the encoded body");
+
+            destMessage = destination.createMessage(
+                    sourceHdr.getAuthenticationId(),
+                    to,
+                    sourceHdr.getTimestamp(),
+                    sourceHdr.getQoSlevel(),
+                    sourceHdr.getPriority(),
+                    sourceHdr.getDomain(),
+                    sourceHdr.getNetworkZone(),
+                    sourceHdr.getSession(),
+                    sourceHdr.getSessionName(),
+                    sourceHdr.getInteractionType(),
+                    sourceHdr.getInteractionStage(),
+                    sourceHdr.getTransactionId(),
+                    sourceHdr.getServiceArea(),
+                    sourceHdr.getService(),
+                    sourceHdr.getOperation(),
+                    sourceHdr.getAreaVersion(),
+                    sourceHdr.getIsErrorMessage(),
+                    srcMessage.getQoSProperties(),
+                    encodedBody);
+        } else {
+            int size = body.getElementCount();
+            LOGGER.log(Level.FINER, "Body size: {0}", size);
+
+            Object[] objList = new Object[size];
+
+            for (int i = 0; i < size; i++) {
+                objList[i] = body.getBodyElement(i, null);
+            }
+
+            destMessage = destination.createMessage(
+                    sourceHdr.getAuthenticationId(),
+                    to,
+                    sourceHdr.getTimestamp(),
+                    sourceHdr.getQoSlevel(),
+                    sourceHdr.getPriority(),
+                    sourceHdr.getDomain(),
+                    sourceHdr.getNetworkZone(),
+                    sourceHdr.getSession(),
+                    sourceHdr.getSessionName(),
+                    sourceHdr.getInteractionType(),
+                    sourceHdr.getInteractionStage(),
+                    sourceHdr.getTransactionId(),
+                    sourceHdr.getServiceArea(),
+                    sourceHdr.getService(),
+                    sourceHdr.getOperation(),
+                    sourceHdr.getAreaVersion(),
+                    sourceHdr.getIsErrorMessage(),
+                    srcMessage.getQoSProperties(),
+                    objList);
+        }
 
         destMessage.getHeader().setURIFrom(from);
 
         return destMessage;
     }
 
+    /**
+     * Returns the encoded body of a message, or null if the transport cannot
+     * provide it. The body is then decoded element by element.
+     *
+     * @param body The body of the message.
+     * @return The encoded body or null.
+     */
+    private static MALEncodedBody getEncodedBody(final MALMessageBody body) {
+        try {
+            return body.getEncodedBody();
+        } catch (MALException | UnsupportedOperationException ex) {
+            LOGGER.log(Level.FINE, "The encoded body is not available, decoding it...", ex);
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,236 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.groundmoproxy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+
+/**
+ * Cache of the responses of requests forwarded to space by the Ground MO Proxy.
+ * A response is reused while it is fresh, and identical requests from several
+ * ground consumers that arrive while one is in flight wait for its response
+ * instead of being forwarded again. The space link is then used once per
+ * unique request.
+ *
+ * The freshness is set per type of request with the property
+ * esa.mo.nmf.groundmoproxy.cache.[type].freshness in milliseconds. A freshness
+ * of 0 disables the caching but keeps the coalescing of in-flight requests.
+ * The expired responses are removed each time a request is forwarded.
+ *
+ * @param <K> The key identifying a request. It must implement equals and
+ * hashCode.
+ * @param <V> The response.
+ */
+public class SpaceRequestCache<K, V>
+{
+
+  private static final Logger LOGGER = Logger.getLogger(SpaceRequestCache.class.getName());
+  public static final String PROPERTY_FRESHNESS_PREFIX = "esa.mo.nmf.groundmoproxy.cache.";
+  public static final String PROPERTY_FRESHNESS_SUFFIX = ".freshness";
+
+  private final String type;
+  private final long freshness; // In milliseconds
+  private final ConcurrentHashMap<K, Response<V>> responses = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong(); // Responses forwarded before are not stored
+
+  /**
+   * Constructor.
+   *
+   * @param type The type of request, used to name the freshness property.
+   * @param defaultFreshness The freshness in milliseconds if the property is
+   * not set.
+   */
+  public SpaceRequestCache(final String type, final long defaultFreshness)
+  {
+    this.type = type;
+    this.freshness = Long.parseLong(System.getProperty(
+        PROPERTY_FRESHNESS_PREFIX + type + PROPERTY_FRESHNESS_SUFFIX,
+        String.valueOf(defaultFreshness)));
+    LOGGER.log(Level.INFO, "Freshness of the cached {0} responses: {1} ms",
+        new Object[]{type, freshness});
+  }
+
+  /**
+   * Returns the response to a request. It is taken from the cache if fresh,
+   * from the identical request in flight if there is one, or otherwise
+   * forwarded to space.
+   *
+   * @param key The key of the request.
+   * @param request Forwards the request to space.
+   * @return The response.
+   * @throws MALInteractionException if the request failed.
+   * @throws MALException if the request failed.
+   */
+  public V get(final K key, final SpaceRequest<V> request)
+      throws MALInteractionException, MALException
+  {
+    final Response<V> cached = responses.get(key);
+
+    if (cached != null) {
+      if (isFresh(cached, System.currentTimeMillis())) {
+        return cached.value;
+      }
+
+      responses.remove(key, cached);
+    }
+
+    final CompletableFuture<V> mine = new CompletableFuture<>();
+    final CompletableFuture<V> pending = inFlight.putIfAbsent(key, mine);
+
+    if (pending != null) {
+      LOGGER.log(Level.FINER, "Coalescing the {0} request: {1}", new Object[]{type, key});
+      return await(pending);
+    }
+
+    final long generation = invalidations.get();
+
+    try {
+      // The response might have been stored since the first check
+      final Response<V> stored = responses.get(key);
+
+      if (stored != null && isFresh(stored, System.currentTimeMillis())) {
+        mine.complete(stored.value);
+        return stored.value;
+      }
+
+      final V value = request.forward();
+
+      // A response forwarded before an invalidation may be outdated
+      if (freshness > 0 && generation == invalidations.get()) {
+        final long now = System.currentTimeMillis();
+        evictExpired(now);
+        final Response<V> response = new Response<>(value, now);
+        responses.put(key, response);
+
+        if (generation != invalidations.get()) {
+          // Invalidated while it was being stored
+          responses.remove(key, response);
+        }
+      }
+
+      mine.complete(value);
+      return value;
+    } catch (Throwable ex) {
+      // Also for Errors, the coalesced requests would otherwise wait forever
+      mine.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Removes all the cached responses.
+   */
+  public void invalidate()
+  {
+    invalidate(key -> true);
+  }
+
+  /**
+   * Removes the cached responses of the requests matching a filter, for example
+   * after a request that changed their results. The identical requests in
+   * flight are not shared anymore, and their responses are not cached.
+   *
+   * @param filter Selects the keys of the requests.
+   */
+  public void invalidate(final Predicate<? super K> filter)
+  {
+    invalidations.incrementAndGet();
+    inFlight.keySet().removeIf(filter);
+    responses.keySet().removeIf(filter);
+  }
+
+  /**
+   * @return The number of cached responses, including the expired ones not
+   * removed yet.
+   */
+  int size()
+  {
+    return responses.size();
+  }
+
+  private boolean isFresh(final Response<V> response, final long now)
+  {
+    return now - response.time < freshness;
+  }
+
+  private void evictExpired(final long now)
+  {
+    // Only called when a request goes to space, which is far slower than the scan
+    responses.values().removeIf(response -> !isFresh(response, now));
+  }
+
+  private V await(final CompletableFuture<V> pending)
+      throws MALInteractionException, MALException
+  {
+    try {
+      return pending.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MALException("Interrupted while waiting for the response from space!", ex);
+    } catch (ExecutionException ex) {
+      final Throwable cause = ex.getCause();
+
+      if (cause instanceof MALInteractionException) {
+        throw (MALInteractionException) cause;
+      }
+
+      if (cause instanceof MALException) {
+        throw (MALException) cause;
+      }
+
+      throw new MALException("The request to space failed!", cause);
+    }
+  }
+
+  /**
+   * A request forwarded to space.
+   *
+   * @param <V> The response.
+   */
+  public interface SpaceRequest<V>
+  {
+
+    V forward() throws MALInteractionException, MALException;
+  }
+
+  private static final class Response<V>
+  {
+
+    private final V value;
+    private final long time;
+
+    private Response(final V value, final long time)
+    {
+      this.value = value;
+      this.time = time;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.proxy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ccsds.moims.mo.mal.provider.MALInteraction;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
+import org.ccsds.moims.mo.mc.parameter.consumer.Parameter;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValueDetails;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValueDetailsList;
+import org.junit.Test;
+
+public class ParameterProxyServiceImplTest
+{
+
+  private static final URI SPACE_URI = new URI("malspp:247/100/2");
+  private static final URI PROXY_URI = new URI("maltcp://ground:1024/Parameter@" + SPACE_URI.getValue());
+  private static final IdentifierList DOMAIN_A = domain("esa", "appA");
+  private static final IdentifierList DOMAIN_B = domain("esa", "appB");
+  private static final Long PARAM_ID = 7L;
+
+  /**
+   * Parameter service on Space, with one stub per provider and domain.
+   */
+  private static final class SpaceProvider
+  {
+
+    private final Map<ParameterProxyServiceImpl.ProviderKey, Attribute> values = new HashMap<>();
+    private final List<ParameterProxyServiceImpl.ProviderKey> stubs = new ArrayList<>();
+    private final AtomicInteger getValueCalls = new AtomicInteger();
+
+    Parameter stub(final ParameterProxyServiceImpl.ProviderKey provider)
+    {
+      stubs.add(provider);
+      return proxy(Parameter.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getValue":
+            getValueCalls.incrementAndGet();
+            ParameterValueDetailsList list = new ParameterValueDetailsList();
+            for (Long id : (LongList) args[0]) {
+              list.add(new ParameterValueDetails(id, 1L, new Time(0),
+                  new ParameterValue(new UOctet((short) 0), values.get(provider), null)));
+            }
+            return list;
+          case "setValue":
+            values.put(provider, ((ParameterRawValueList) args[0]).get(0).getRawValue());
+            return null;
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+    }
+
+    ParameterProxyServiceImpl service()
+    {
+      return new ParameterProxyServiceImpl()
+      {
+        private final Map<ParameterProxyServiceImpl.ProviderKey, Parameter> created = new HashMap<>();
+
+        @Override
+        Parameter stubOf(final ParameterProxyServiceImpl.ProviderKey provider)
+        {
+          return created.computeIfAbsent(provider, key -> stub(key));
+        }
+      };
+    }
+  }
+
+  private static IdentifierList domain(final String... parts)
+  {
+    IdentifierList domain = new IdentifierList();
+    for (String part : parts) {
+      domain.add(new Identifier(part));
+    }
+    return domain;
+  }
+
+  private static MALInteraction interaction(final IdentifierList domain)
+  {
+    final MALMessageHeader header = proxy(MALMessageHeader.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getURITo":
+          return PROXY_URI;
+        case "getDomain":
+          return domain;
+        default:
+          return null;
+      }
+    });
+    return proxy(MALInteraction.class, (proxy, method, args) ->
+        "getMessageHeader".equals(method.getName()) ? header : null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<T> type, final InvocationHandler handler)
+  {
+    return (T) Proxy.newProxyInstance(ParameterProxyServiceImplTest.class.getClassLoader(),
+        new Class<?>[]{type}, handler);
+  }
+
+  private static LongList ids()
+  {
+    LongList ids = new LongList();
+    ids.add(PARAM_ID);
+    return ids;
+  }
+
+  private static void setValue(final ParameterProxyServiceImpl service, final IdentifierList domain,
+      final Attribute value) throws Exception
+  {
+    ParameterRawValueList values = new ParameterRawValueList();
+    values.add(new ParameterRawValue(PARAM_ID, value));
+    service.setValue(values, interaction(domain));
+  }
+
+  private static Attribute getValue(final ParameterProxyServiceImpl service, final IdentifierList domain)
+      throws Exception
+  {
+    return service.getValue(ids(), interaction(domain)).get(0).getValue().getRawValue();
+  }
+
+  @Test
+  public void testSetThenGet() throws Exception
+  {
+    final SpaceProvider space = new SpaceProvider();
+    final ParameterProxyServiceImpl service = space.service();
+
+    setValue(service, DOMAIN_A, new Identifier("first"));
+    assertEquals(new Identifier("first"), getValue(service, DOMAIN_A));
+    assertEquals(new Identifier("first"), getValue(service, DOMAIN_A));
+    assertEquals(1, space.getValueCalls.get());
+
+    // The response cached before the setValue is not served anymore
+    setValue(service, DOMAIN_A, new Identifier("second"));
+    assertEquals(new Identifier("second"), getValue(service, DOMAIN_A));
+    assertEquals(2, space.getValueCalls.get());
+  }
+
+  @Test
+  public void testConsumersPerDomain() throws Exception
+  {
+    final SpaceProvider space = new SpaceProvider();
+    final ParameterProxyServiceImpl service = space.service();
+
+    setValue(service, DOMAIN_A, new Identifier("a"));
+    setValue(service, DOMAIN_B, new Identifier("b"));
+
+    // The requests of each domain go to the provider in that domain
+    assertEquals(new Identifier("a"), getValue(service, DOMAIN_A));
+    assertEquals(new Identifier("b"), getValue(service, DOMAIN_B));
+    assertEquals(2, space.stubs.size());
+    assertEquals(2, space.getValueCalls.get());
+  }
+}
@@ -0,0 +1,214 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.groundmoproxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.transport.MALEncodedBody;
+import org.ccsds.moims.mo.mal.transport.MALEndpoint;
+import org.ccsds.moims.mo.mal.transport.MALMessage;
+import org.ccsds.moims.mo.mal.transport.MALMessageBody;
+import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
+import org.junit.Test;
+
+public class ProtocolBridgeSPPTest
+{
+
+  private static final String FIXED_BINARY = "esa.mo.mal.encoder.binary.fixed.FixedBinaryStreamFactory";
+  private static final String SPLIT_BINARY = "esa.mo.mal.encoder.binary.split.SplitBinaryStreamFactory";
+  private static final URI SPACE_URI = new URI("malspp:247/100/1");
+  private static final URI GROUND_URI = new URI("maltcp://ground:1024/Consumer");
+  private static final URI BRIDGE_URI = new URI("maltcp://ground:1025/ProtocolBridge");
+
+  /**
+   * Message received by the bridge. Its body provides both the encoded body
+   * and the decoded elements, and counts which one was used.
+   */
+  private static final class SourceMessage
+  {
+
+    private final MALEncodedBody encodedBody = new MALEncodedBody(new Blob(new byte[]{1, 2, 3}));
+    private final Object[] elements = new Object[]{"first", 2L};
+    private final AtomicInteger encodedReads = new AtomicInteger();
+    private final AtomicInteger elementReads = new AtomicInteger();
+
+    MALMessage create()
+    {
+      final MALMessageHeader header = header(SPACE_URI, GROUND_URI, new AtomicReference<URI>());
+      final MALMessageBody body = proxy(MALMessageBody.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getEncodedBody":
+            encodedReads.incrementAndGet();
+            return encodedBody;
+          case "getElementCount":
+            return elements.length;
+          case "getBodyElement":
+            elementReads.incrementAndGet();
+            return elements[(Integer) args[0]];
+          default:
+            return defaultValue(method.getReturnType());
+        }
+      });
+
+      return proxy(MALMessage.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getHeader":
+            return header;
+          case "getBody":
+            return body;
+          case "getQoSProperties":
+            return new HashMap<>();
+          default:
+            return defaultValue(method.getReturnType());
+        }
+      });
+    }
+  }
+
+  /**
+   * Endpoint sending the forwarded message. It keeps the body passed when the
+   * message is created and the source URI set afterwards.
+   */
+  private static final class DestinationEndpoint
+  {
+
+    private final AtomicReference<Object> body = new AtomicReference<>();
+    private final AtomicReference<URI> uriFrom = new AtomicReference<>();
+
+    MALEndpoint create()
+    {
+      return proxy(MALEndpoint.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getURI":
+            return BRIDGE_URI;
+          case "createMessage":
+            body.set(args[args.length - 1]);
+            final MALMessageHeader header = header(null, (URI) args[1], uriFrom);
+            return proxy(MALMessage.class, (p, m, a) -> "getHeader".equals(m.getName())
+                ? header : defaultValue(m.getReturnType()));
+          default:
+            return defaultValue(method.getReturnType());
+        }
+      });
+    }
+  }
+
+  private static MALMessageHeader header(final URI from, final URI to, final AtomicReference<URI> newFrom)
+  {
+    return proxy(MALMessageHeader.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getURIFrom":
+          return from;
+        case "getURITo":
+          return to;
+        case "setURIFrom":
+          newFrom.set((URI) args[0]);
+          return null;
+        default:
+          return defaultValue(method.getReturnType());
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<T> type, final InvocationHandler handler)
+  {
+    return (T) Proxy.newProxyInstance(ProtocolBridgeSPPTest.class.getClassLoader(),
+        new Class<?>[]{type}, handler);
+  }
+
+  private static Object defaultValue(final Class<?> type)
+  {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  @Test
+  public void testSameBodyEncoding()
+  {
+    final Map<String, String> properties = new HashMap<>();
+    assertFalse(ProtocolBridgeSPP.isSameBodyEncoding("malspp", "maltcp", properties));
+
+    properties.put("org.ccsds.moims.mo.mal.encoding.protocol.maltcp", FIXED_BINARY);
+    // The SPP transport uses its default encoding
+    assertFalse(ProtocolBridgeSPP.isSameBodyEncoding("malspp", "maltcp", properties));
+
+    properties.put("org.ccsds.moims.mo.mal.encoding.protocol.malspp", SPLIT_BINARY);
+    assertFalse(ProtocolBridgeSPP.isSameBodyEncoding("malspp", "maltcp", properties));
+
+    properties.put("org.ccsds.moims.mo.mal.encoding.protocol.malspp", " " + FIXED_BINARY);
+    assertTrue(ProtocolBridgeSPP.isSameBodyEncoding("malspp", "maltcp", properties));
+    assertEquals(FIXED_BINARY, ProtocolBridgeSPP.getBodyEncoding("malspp", properties));
+  }
+
+  @Test
+  public void testSameEncodingForwardsEncodedBody() throws Exception
+  {
+    final SourceMessage source = new SourceMessage();
+    final DestinationEndpoint destination = new DestinationEndpoint();
+
+    ProtocolBridgeSPP.cloneForwardMessageFromSPP(destination.create(), source.create(),
+        GROUND_URI, true);
+
+    assertSame(source.encodedBody, destination.body.get());
+    assertEquals(1, source.encodedReads.get());
+    assertEquals(0, source.elementReads.get());
+    assertEquals(BRIDGE_URI.getValue() + "@" + SPACE_URI.getValue(),
+        destination.uriFrom.get().getValue());
+  }
+
+  @Test
+  public void testDifferentEncodingsDecodeTheBody() throws Exception
+  {
+    final SourceMessage source = new SourceMessage();
+    final DestinationEndpoint destination = new DestinationEndpoint();
+
+    ProtocolBridgeSPP.cloneForwardMessageFromSPP(destination.create(), source.create(),
+        GROUND_URI, false);
+
+    assertTrue(destination.body.get() instanceof Object[]);
+    assertArrayEquals(source.elements, (Object[]) destination.body.get());
+    assertEquals(0, source.encodedReads.get());
+    assertEquals(2, source.elementReads.get());
+    assertEquals(BRIDGE_URI.getValue() + "@" + SPACE_URI.getValue(),
+        destination.uriFrom.get().getValue());
+  }
+}
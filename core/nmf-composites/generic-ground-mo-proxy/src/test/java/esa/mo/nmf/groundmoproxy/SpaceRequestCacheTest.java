@@ -0,0 +1,254 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.groundmoproxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ccsds.moims.mo.mal.MALException;
+import org.junit.Test;
+
+public class SpaceRequestCacheTest
+{
+
+  private static final int CONSUMERS = 8;
+
+  @Test
+  public void testConcurrentRequestsAreCoalesced() throws Exception
+  {
+    // No caching: only the coalescing of the requests in flight is tested
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-coalescing", 0);
+    final AtomicInteger forwarded = new AtomicInteger();
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Object response = new Object();
+
+    final SpaceRequestCache.SpaceRequest<Object> request = () -> {
+      forwarded.incrementAndGet();
+      inFlight.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException ex) {
+        throw new MALException("Interrupted", ex);
+      }
+      return response;
+    };
+
+    final ExecutorService executor = Executors.newFixedThreadPool(CONSUMERS);
+
+    try {
+      final List<Future<Object>> results = new ArrayList<>();
+      results.add(executor.submit(() -> cache.get("values", request)));
+      assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+      for (int i = 1; i < CONSUMERS; i++) {
+        results.add(executor.submit(() -> cache.get("values", request)));
+      }
+
+      // Let the other consumers reach the request in flight
+      Thread.sleep(200);
+      release.countDown();
+
+      for (Future<Object> result : results) {
+        assertSame(response, result.get(5, TimeUnit.SECONDS));
+      }
+
+      assertEquals(1, forwarded.get());
+
+      // Nothing in flight anymore and nothing cached: forwarded again
+      assertSame(response, cache.get("values", request));
+      assertEquals(2, forwarded.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailureIsNotCached() throws Exception
+  {
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-failure", 10000);
+    final AtomicInteger forwarded = new AtomicInteger();
+
+    try {
+      cache.get("values", () -> {
+        forwarded.incrementAndGet();
+        throw new MALException("No link");
+      });
+      fail("The failure of the request was not reported");
+    } catch (MALException ex) {
+      assertEquals("No link", ex.getMessage());
+    }
+
+    final Object response = new Object();
+    assertSame(response, cache.get("values", () -> {
+      forwarded.incrementAndGet();
+      return response;
+    }));
+    assertEquals(2, forwarded.get());
+  }
+
+  @Test
+  public void testExpiredResponsesAreEvicted() throws Exception
+  {
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-expiry", 100);
+    final AtomicInteger forwarded = new AtomicInteger();
+    final SpaceRequestCache.SpaceRequest<Object> request = () -> {
+      forwarded.incrementAndGet();
+      return new Object();
+    };
+
+    final Object first = cache.get("a", request);
+    assertSame(first, cache.get("a", request));
+    assertEquals(1, forwarded.get());
+    assertEquals(1, cache.size());
+
+    Thread.sleep(150);
+
+    // Forwarding another request removes the expired response
+    cache.get("b", request);
+    assertEquals(2, forwarded.get());
+    assertEquals(1, cache.size());
+
+    // The expired response is not used anymore
+    final Object second = cache.get("a", request);
+    assertTrue(first != second);
+    assertEquals(3, forwarded.get());
+    assertEquals(2, cache.size());
+
+    cache.invalidate();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testErrorReleasesCoalescedRequests() throws Exception
+  {
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-error", 10000);
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      final Future<Object> first = executor.submit(() -> cache.get("values", () -> {
+        inFlight.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          throw new MALException("Interrupted", ex);
+        }
+        throw new StackOverflowError();
+      }));
+      assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+      final Future<Object> coalesced = executor.submit(() -> cache.get("values", () -> {
+        throw new MALException("Not coalesced");
+      }));
+      Thread.sleep(200);
+      release.countDown();
+
+      try {
+        first.get(5, TimeUnit.SECONDS);
+        fail("The error was not reported");
+      } catch (ExecutionException ex) {
+        assertTrue(ex.getCause() instanceof StackOverflowError);
+      }
+
+      try {
+        coalesced.get(5, TimeUnit.SECONDS);
+        fail("The error was not reported to the coalesced request");
+      } catch (ExecutionException ex) {
+        assertTrue(ex.getCause() instanceof MALException);
+        assertTrue(ex.getCause().getCause() instanceof StackOverflowError);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testInvalidateMatchingRequests() throws Exception
+  {
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-invalidate", 10000);
+    final AtomicInteger forwarded = new AtomicInteger();
+    final SpaceRequestCache.SpaceRequest<Object> request = () -> {
+      forwarded.incrementAndGet();
+      return new Object();
+    };
+
+    final Object a = cache.get("provider1 a", request);
+    final Object b = cache.get("provider2 b", request);
+    assertEquals(2, forwarded.get());
+
+    cache.invalidate(key -> key.startsWith("provider1"));
+    assertSame(b, cache.get("provider2 b", request));
+    assertTrue(a != cache.get("provider1 a", request));
+    assertEquals(3, forwarded.get());
+  }
+
+  @Test
+  public void testResponseInFlightDuringInvalidationIsNotCached() throws Exception
+  {
+    final SpaceRequestCache<String, Object> cache = new SpaceRequestCache<>("test-invalidate-in-flight", 10000);
+    final AtomicInteger forwarded = new AtomicInteger();
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Object outdated = new Object();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      final Future<Object> first = executor.submit(() -> cache.get("values", () -> {
+        forwarded.incrementAndGet();
+        inFlight.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          throw new MALException("Interrupted", ex);
+        }
+        return outdated;
+      }));
+      assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+      // For example a setValue while the getValue is on its way
+      cache.invalidate(key -> true);
+      release.countDown();
+      assertSame(outdated, first.get(5, TimeUnit.SECONDS));
+
+      final Object current = new Object();
+      assertSame(current, cache.get("values", () -> {
+        forwarded.incrementAndGet();
+        return current;
+      }));
+      assertEquals(2, forwarded.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
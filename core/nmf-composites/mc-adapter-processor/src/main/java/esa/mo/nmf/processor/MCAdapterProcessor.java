@@ -0,0 +1,848 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates the M&C adapter of every MonitorAndControlNMFAdapter subclass
+ * declaring @Parameter fields or @Action methods.
+ *
+ * The generated class extends esa.mo.nmf.GeneratedMCAdapter. It holds the
+ * parameter, aggregation and action definitions as they are built by the
+ * reflective registration of the MonitorAndControlNMFAdapter, and reads,
+ * writes and calls the annotated members directly, with a switch on their
+ * index. The generated code is compiled in the same package as the app, so
+ * private annotated members are not supported: no adapter is generated for
+ * such apps and they keep using reflection.
+ */
+public class MCAdapterProcessor extends AbstractProcessor
+{
+
+  private static final String ANNOTATIONS = "esa.mo.nmf.annotations.";
+  private static final String PARAMETER = ANNOTATIONS + "Parameter";
+  private static final String ACTION = ANNOTATIONS + "Action";
+  private static final String ACTION_PARAMETER = ANNOTATIONS + "ActionParameter";
+  private static final String AGGREGATION = ANNOTATIONS + "Aggregation";
+  private static final String AGGREGATIONS = ANNOTATIONS + "Aggregations";
+  private static final String ADAPTER = "esa.mo.nmf.MonitorAndControlNMFAdapter";
+  private static final String MAL_INTERACTION = "org.ccsds.moims.mo.mal.provider.MALInteraction";
+  private static final String CLASS_SUFFIX = "_MCAdapter"; // GeneratedMCAdapter.CLASS_SUFFIX
+
+  /**
+   * The attribute names known by HelperAttributes.attributeName2typeShortForm
+   */
+  private static final Set<String> ATTRIBUTE_NAMES = new HashSet<>(Arrays.asList("Blob",
+      "Boolean", "Duration", "Float", "Double", "Identifier", "Octet", "UOctet", "Short", "UShort",
+      "Integer", "UInteger", "Long", "ULong", "String", "Time", "FineTime", "URI",
+      "SerializedObject"));
+
+  private static final String IMPORTS = ""
+      + "import esa.mo.helpertools.helpers.HelperAttributes;\n"
+      + "import esa.mo.nmf.GeneratedMCAdapter;\n"
+      + "import esa.mo.nmf.MCRegistration;\n"
+      + "import java.io.IOException;\n"
+      + "import java.util.logging.Level;\n"
+      + "import org.ccsds.moims.mo.mal.provider.MALInteraction;\n"
+      + "import org.ccsds.moims.mo.mal.structures.Attribute;\n"
+      + "import org.ccsds.moims.mo.mal.structures.Duration;\n"
+      + "import org.ccsds.moims.mo.mal.structures.Identifier;\n"
+      + "import org.ccsds.moims.mo.mal.structures.IdentifierList;\n"
+      + "import org.ccsds.moims.mo.mal.structures.LongList;\n"
+      + "import org.ccsds.moims.mo.mal.structures.UInteger;\n"
+      + "import org.ccsds.moims.mo.mal.structures.UOctet;\n"
+      + "import org.ccsds.moims.mo.mal.structures.UShort;\n"
+      + "import org.ccsds.moims.mo.mc.action.structures.ActionDefinitionDetails;\n"
+      + "import org.ccsds.moims.mo.mc.action.structures.ActionDefinitionDetailsList;\n"
+      + "import org.ccsds.moims.mo.mc.aggregation.structures.AggregationDefinitionDetailsList;\n"
+      + "import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdFilter;\n"
+      + "import org.ccsds.moims.mo.mc.parameter.structures.ParameterConversion;\n"
+      + "import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;\n"
+      + "import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetailsList;\n"
+      + "import org.ccsds.moims.mo.mc.structures.ArgumentDefinitionDetails;\n"
+      + "import org.ccsds.moims.mo.mc.structures.ArgumentDefinitionDetailsList;\n"
+      + "import org.ccsds.moims.mo.mc.structures.AttributeValueList;\n"
+      + "import org.ccsds.moims.mo.mc.structures.ConditionalConversionList;\n"
+      + "import org.ccsds.moims.mo.mc.structures.ParameterExpression;\n";
+
+  /**
+   * Thrown when an app cannot be served by a generated adapter.
+   */
+  private static class UnsupportedAppException extends Exception
+  {
+
+    UnsupportedAppException(String message)
+    {
+      super(message);
+    }
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes()
+  {
+    return new HashSet<>(Arrays.asList(PARAMETER, ACTION));
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+  {
+    final Set<TypeElement> apps = new LinkedHashSet<>();
+
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        final Element enclosing = element.getEnclosingElement();
+        if (enclosing.getKind() == ElementKind.CLASS) {
+          apps.add((TypeElement) enclosing);
+        }
+      }
+    }
+
+    for (TypeElement app : apps) {
+      try {
+        final String source = generate(app);
+        final String name = generatedName(app);
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(name, app);
+
+        try (Writer writer = file.openWriter()) {
+          writer.write(source);
+        }
+      } catch (UnsupportedAppException ex) {
+        note(app, "No M&C adapter generated (fallback to reflection): " + ex.getMessage());
+      } catch (IOException ex) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Unable to write the M&C adapter: " + ex.getMessage(), app);
+      }
+    }
+
+    // The annotations are also read at runtime, do not claim them
+    return false;
+  }
+
+  private String generatedName(TypeElement app)
+  {
+    final String binaryName = processingEnv.getElementUtils().getBinaryName(app).toString();
+    return binaryName.replace('$', '_') + CLASS_SUFFIX;
+  }
+
+  private String generate(TypeElement app) throws UnsupportedAppException
+  {
+    checkApp(app);
+
+    final String appType = app.getQualifiedName().toString();
+    final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(app);
+    final String generatedName = generatedName(app);
+    final String simpleName = generatedName.substring(generatedName.lastIndexOf('.') + 1);
+
+    final List<VariableElement> parameters = new ArrayList<>();
+    for (VariableElement field : ElementFilter.fieldsIn(app.getEnclosedElements())) {
+      if (mirror(field, PARAMETER) != null) {
+        if (field.getModifiers().contains(Modifier.PRIVATE)) {
+          throw new UnsupportedAppException("the @Parameter field " + field + " is private");
+        }
+        parameters.add(field);
+      }
+    }
+
+    final List<ExecutableElement> actions = new ArrayList<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(app.getEnclosedElements())) {
+      if (mirror(method, ACTION) != null) {
+        if (method.getModifiers().contains(Modifier.PRIVATE)) {
+          throw new UnsupportedAppException("the @Action method " + method + " is private");
+        }
+        if (isValidAction(method)) {
+          actions.add(method);
+        }
+      }
+    }
+
+    final StringBuilder out = new StringBuilder();
+
+    if (!pkg.isUnnamed()) {
+      out.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+    }
+
+    out.append(IMPORTS).append("\n");
+    out.append("/**\n * M&C adapter of {@link ").append(appType)
+        .append("}, generated by ").append(MCAdapterProcessor.class.getName())
+        .append(". Do not edit.\n */\n");
+    out.append("public final class ").append(simpleName)
+        .append(" extends GeneratedMCAdapter<").append(appType).append(">\n{\n\n");
+
+    appendConstants(out, parameters, actions);
+    appendRegisterParameters(out, app, appType, parameters);
+    appendRegisterActions(out, app, appType, actions);
+    appendGetValue(out, app, appType, parameters);
+    appendSetValue(out, appType, parameters);
+    appendInvokeAction(out, appType, actions);
+    out.append("}\n");
+
+    return out.toString();
+  }
+
+  private void checkApp(TypeElement app) throws UnsupportedAppException
+  {
+    final TypeElement adapter = processingEnv.getElementUtils().getTypeElement(ADAPTER);
+
+    if (adapter == null || !processingEnv.getTypeUtils().isSubtype(app.asType(), adapter.asType())) {
+      throw new UnsupportedAppException("not a MonitorAndControlNMFAdapter");
+    }
+    if (app.getModifiers().contains(Modifier.ABSTRACT)) {
+      throw new UnsupportedAppException("the class is abstract");
+    }
+    if (!app.getTypeParameters().isEmpty()) {
+      throw new UnsupportedAppException("the class is generic");
+    }
+
+    for (Element type = app; type instanceof TypeElement; type = type.getEnclosingElement()) {
+      final NestingKind nesting = ((TypeElement) type).getNestingKind();
+      if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+        throw new UnsupportedAppException("the class is local or anonymous");
+      }
+      if (type.getModifiers().contains(Modifier.PRIVATE)) {
+        throw new UnsupportedAppException("the class " + type + " is private");
+      }
+    }
+  }
+
+  /**
+   * Same checks as the reflective registration: the first arguments of an
+   * action are Long actionInstanceObjId, boolean reportProgress and
+   * MALInteraction interaction.
+   */
+  private boolean isValidAction(ExecutableElement method)
+  {
+    final List<? extends VariableElement> params = method.getParameters();
+
+    if (params.size() < 3
+        || !isType(params.get(0).asType(), "java.lang.Long")
+        || params.get(1).asType().getKind() != TypeKind.BOOLEAN
+        || !isType(params.get(2).asType(), MAL_INTERACTION)) {
+      warn(method, "Unable to parse action! The first arguments of an action have to be"
+          + " Long actionInstanceObjId, boolean reportProgress, MALInteraction interaction!");
+      return false;
+    }
+
+    return true;
+  }
+
+  private void appendConstants(StringBuilder out, List<VariableElement> parameters,
+      List<ExecutableElement> actions)
+  {
+    out.append("  private static final boolean[] READ_ONLY = {");
+    for (int i = 0; i < parameters.size(); i++) {
+      final VariableElement field = parameters.get(i);
+      final Map<String, Object> values = values(mirror(field, PARAMETER));
+      final boolean readOnly = (Boolean) values.get("readOnly")
+          || field.getModifiers().contains(Modifier.FINAL);
+      out.append(i == 0 ? "" : ", ").append(readOnly);
+    }
+    out.append("};\n");
+
+    out.append("  private static final String[] ACTION_NAMES = {");
+    for (int i = 0; i < actions.size(); i++) {
+      out.append(i == 0 ? "" : ", ").append(literal(actionName(actions.get(i))));
+    }
+    out.append("};\n\n");
+
+    out.append("  @Override\n  public String[] getActionNames()\n  {\n");
+    out.append("    return ACTION_NAMES.clone();\n  }\n\n");
+  }
+
+  private void appendRegisterParameters(StringBuilder out, TypeElement app, String appType,
+      List<VariableElement> parameters)
+  {
+    out.append("  @Override\n");
+    out.append("  public LongList registerParameters(").append(appType)
+        .append(" adapter, MCRegistration registration)\n  {\n");
+
+    if (parameters.isEmpty()) {
+      out.append("    return null;\n  }\n\n");
+      return;
+    }
+
+    out.append("    IdentifierList names = new IdentifierList(").append(parameters.size())
+        .append(");\n");
+    out.append("    ParameterDefinitionDetailsList definitions = new ParameterDefinitionDetailsList(")
+        .append(parameters.size()).append(");\n");
+
+    for (VariableElement field : parameters) {
+      final Map<String, Object> values = values(mirror(field, PARAMETER));
+      final String name = (String) values.get("name");
+      final String malType = (String) values.get("malType");
+      final String rawType;
+
+      if (!malType.isEmpty()) {
+        rawType = "rawTypeOf(" + literal(malType) + ")";
+      } else {
+        final String attributeName = javaType2attributeName(field.asType());
+        rawType = (attributeName != null) ? "rawTypeOf(" + literal(attributeName) + ")"
+            : "rawTypeOf((Object) " + access(field) + ")";
+      }
+
+      out.append("    names.add(new Identifier(")
+          .append(literal(name.isEmpty() ? field.getSimpleName().toString() : name))
+          .append("));\n");
+      out.append("    definitions.add(new ParameterDefinitionDetails(")
+          .append(literal(values.get("description"))).append(", ")
+          .append(rawType).append(", ")
+          .append(literal(values.get("rawUnit"))).append(", ")
+          .append(values.get("generationEnabled")).append(", ")
+          .append("new Duration(").append(literal(values.get("reportIntervalSeconds"))).append("), ")
+          .append(referencedField(app, field, (String) values.get("validityExpressionFieldName"),
+              "ParameterExpression")).append(", ")
+          .append(referencedField(app, field, (String) values.get("conversionFunctionName"),
+              "ParameterConversion")).append("));\n");
+    }
+
+    out.append("    LongList ids = registration.registerParameters(names, definitions);\n");
+    appendAggregations(out, app, parameters);
+    out.append("    return ids;\n  }\n\n");
+  }
+
+  private void appendAggregations(StringBuilder out, TypeElement app,
+      List<VariableElement> parameters)
+  {
+    final List<AnnotationMirror> aggregations = new ArrayList<>();
+    final AnnotationMirror container = mirror(app, AGGREGATIONS);
+
+    if (container != null) {
+      for (Object value : (List<?>) values(container).get("value")) {
+        aggregations.add((AnnotationMirror) ((AnnotationValue) value).getValue());
+      }
+    } else if (mirror(app, AGGREGATION) != null) {
+      aggregations.add(mirror(app, AGGREGATION));
+    }
+
+    final StringBuilder body = new StringBuilder();
+
+    for (AnnotationMirror aggregation : aggregations) {
+      final Map<String, Object> values = values(aggregation);
+      final String id = (String) values.get("id");
+      final StringBuilder indexes = new StringBuilder();
+
+      for (int i = 0; i < parameters.size(); i++) {
+        for (Object value : (List<?>) values(mirror(parameters.get(i), PARAMETER)).get(
+            "aggregations")) {
+          if (id.equals(((AnnotationValue) value).getValue())) {
+            indexes.append(", ").append(i);
+            break;
+          }
+        }
+      }
+
+      if (indexes.length() == 0) {
+        warn(app, "There are no Parameters assigned to Aggregation " + id
+            + "! The Aggregation therefore will not be created!");
+        continue;
+      }
+
+      body.append("    aggregationNames.add(new Identifier(").append(literal(id)).append("));\n");
+      body.append("    aggregations.add(aggregation(")
+          .append(literal(values.get("description"))).append(", ")
+          .append(values.get("category")).append(", ")
+          .append(literal(values.get("reportInterval"))).append(", ")
+          .append(values.get("sendUnchanged")).append(", ")
+          .append(values.get("sendDefinitions")).append(", ")
+          .append(values.get("filterEnabled")).append(", ")
+          .append(values.get("filterTimeout")).append(", ")
+          .append(values.get("generationEnabled")).append(", ")
+          .append("select(ids").append(indexes).append("), ")
+          .append(literal(values.get("sampleInterval"))).append(", ")
+          .append(referencedField(app, app, (String) values.get("thresholdFilterFieldName"),
+              "ThresholdFilter")).append("));\n");
+    }
+
+    if (body.length() > 0) {
+      out.append("    IdentifierList aggregationNames = new IdentifierList();\n");
+      out.append("    AggregationDefinitionDetailsList aggregations = "
+          + "new AggregationDefinitionDetailsList();\n");
+      out.append(body);
+      out.append("    registration.registerAggregations(aggregationNames, aggregations);\n");
+    }
+  }
+
+  private void appendRegisterActions(StringBuilder out, TypeElement app, String appType,
+      List<ExecutableElement> actions)
+  {
+    out.append("  @Override\n");
+    out.append("  public LongList registerActions(").append(appType)
+        .append(" adapter, MCRegistration registration)\n  {\n");
+
+    if (actions.isEmpty()) {
+      out.append("    return null;\n  }\n\n");
+      return;
+    }
+
+    out.append("    IdentifierList names = new IdentifierList(").append(actions.size())
+        .append(");\n");
+    out.append("    ActionDefinitionDetailsList definitions = new ActionDefinitionDetailsList(")
+        .append(actions.size()).append(");\n");
+    out.append("    ArgumentDefinitionDetailsList arguments;\n");
+
+    for (int i = 0; i < actions.size(); i++) {
+      final ExecutableElement method = actions.get(i);
+      final Map<String, Object> values = values(mirror(method, ACTION));
+      final List<? extends VariableElement> params = method.getParameters();
+
+      out.append("    arguments = new ArgumentDefinitionDetailsList();\n");
+
+      for (VariableElement param : params.subList(3, params.size())) {
+        final String attributeName = typeSimpleName2attributeName(param.asType());
+        if (attributeName == null) {
+          warn(param, "Unable to register action Parameter of type " + param.asType()
+              + ". Only MAL Types are allowed!");
+          continue;
+        }
+
+        String identifier = method.getSimpleName() + "_" + param.getSimpleName();
+        String description = null;
+        String rawType = "rawTypeOf(" + literal(attributeName) + ")";
+        String rawUnit = "";
+        String conversions = "null";
+        String convertedType = "null";
+        String convertedUnit = "null";
+        final AnnotationMirror paramMirror = mirror(param, ACTION_PARAMETER);
+
+        if (paramMirror != null) {
+          final Map<String, Object> paramValues = values(paramMirror);
+          if (!((String) paramValues.get("name")).isEmpty()) {
+            identifier = (String) paramValues.get("name");
+          }
+          description = (String) paramValues.get("description");
+          if ((Byte) paramValues.get("rawType") != 0) {
+            rawType = literal(paramValues.get("rawType"));
+          }
+          rawUnit = (String) paramValues.get("rawUnit");
+          final String conversionField = (String) paramValues.get("conditionalConversionFieldName");
+          if (!conversionField.isEmpty()) {
+            conversions = referencedField(app, param, conversionField, "ConditionalConversionList");
+            convertedType = literal(paramValues.get("convertedType"));
+            convertedUnit = literal(paramValues.get("convertedUnit"));
+          }
+        }
+
+        out.append("    arguments.add(new ArgumentDefinitionDetails(new Identifier(")
+            .append(literal(identifier)).append("), ")
+            .append(literal(description)).append(", ")
+            .append(rawType).append(", ")
+            .append(literal(rawUnit)).append(", ")
+            .append(conversions).append(", ")
+            .append(convertedType).append(", ")
+            .append(convertedUnit).append("));\n");
+      }
+
+      out.append("    names.add(new Identifier(ACTION_NAMES[").append(i).append("]));\n");
+      out.append("    definitions.add(new ActionDefinitionDetails(")
+          .append(literal(values.get("description"))).append(", ")
+          .append("new UOctet(").append(literal(values.get("category"))).append("), ")
+          .append("new UShort(").append(values.get("stepCount")).append("), ")
+          .append("arguments));\n");
+    }
+
+    out.append("    return registration.registerActions(names, definitions);\n  }\n\n");
+  }
+
+  private void appendGetValue(StringBuilder out, TypeElement app, String appType,
+      List<VariableElement> parameters)
+  {
+    out.append("  @Override\n");
+    out.append("  public Attribute getValue(").append(appType)
+        .append(" adapter, int index) throws IOException\n  {\n");
+    out.append("    switch (index) {\n");
+
+    for (int i = 0; i < parameters.size(); i++) {
+      final VariableElement field = parameters.get(i);
+      final String onGet = (String) values(mirror(field, PARAMETER)).get("onGetFunction");
+
+      out.append("      case ").append(i).append(":\n");
+
+      if (!onGet.isEmpty()) {
+        final ExecutableElement method = findOnGet(app, onGet);
+        if (method == null) {
+          warn(field, "The onGet function " + onGet + "() is not a non-private method without"
+              + " arguments. Reading the parameter will fail!");
+          out.append("        throw new IOException(\"Unable to call onGet Method\");\n");
+          continue;
+        }
+        out.append("        try {\n");
+        out.append("          ").append(invocationTarget(method)).append(".").append(onGet)
+            .append("();\n");
+        out.append("        } catch (Exception ex) {\n");
+        out.append("          LOGGER.log(Level.SEVERE, null, ex);\n");
+        out.append("          return null;\n");
+        out.append("        }\n");
+      }
+
+      out.append("        return (Attribute) HelperAttributes.javaType2Attribute(")
+          .append(access(field)).append(");\n");
+    }
+
+    out.append("      default:\n");
+    out.append("        throw new IOException(\"Unable to get Parameter Mapping\");\n");
+    out.append("    }\n  }\n\n");
+  }
+
+  private void appendSetValue(StringBuilder out, String appType, List<VariableElement> parameters)
+  {
+    out.append("  @Override\n");
+    out.append("  public boolean setValue(").append(appType)
+        .append(" adapter, int index, Attribute rawValue)\n  {\n");
+    out.append("    if (index < 0 || index >= READ_ONLY.length || READ_ONLY[index]) {\n");
+    out.append("      return false;\n    }\n\n");
+    out.append("    try {\n");
+    out.append("      switch (index) {\n");
+
+    for (int i = 0; i < parameters.size(); i++) {
+      final VariableElement field = parameters.get(i);
+      if (isReadOnly(field)) {
+        continue;
+      }
+      final String target = field.getModifiers().contains(Modifier.STATIC)
+          ? ((TypeElement) field.getEnclosingElement()).getQualifiedName().toString()
+          : "adapter";
+      out.append("        case ").append(i).append(":\n");
+      out.append("          ").append(target).append(".").append(field.getSimpleName())
+          .append(" = ").append(fromAttribute(field.asType(), "rawValue")).append(";\n");
+      out.append("          return true;\n");
+    }
+
+    out.append("        default:\n");
+    out.append("          return false;\n");
+    out.append("      }\n");
+    out.append("    } catch (RuntimeException ex) {\n");
+    out.append("      LOGGER.log(Level.SEVERE, null, ex);\n");
+    out.append("      return false;\n");
+    out.append("    }\n  }\n\n");
+
+    out.append("  @Override\n  public boolean isReadOnly(int index)\n  {\n");
+    out.append("    return READ_ONLY[index];\n  }\n\n");
+  }
+
+  private void appendInvokeAction(StringBuilder out, String appType,
+      List<ExecutableElement> actions)
+  {
+    out.append("  @Override\n");
+    out.append("  public UInteger invokeAction(").append(appType)
+        .append(" adapter, int index, AttributeValueList arguments,\n")
+        .append("      Long actionInstanceObjId, boolean reportProgress, MALInteraction interaction)\n")
+        .append("  {\n");
+    out.append("    switch (index) {\n");
+
+    for (int i = 0; i < actions.size(); i++) {
+      final ExecutableElement method = actions.get(i);
+      final List<? extends VariableElement> params = method.getParameters();
+      final StringBuilder call = new StringBuilder();
+
+      call.append(invocationTarget(method)).append(".").append(method.getSimpleName())
+          .append("(actionInstanceObjId, reportProgress, interaction");
+
+      out.append("      case ").append(i).append(": {\n");
+
+      if (params.size() > 3) {
+        for (int a = 3; a < params.size(); a++) {
+          out.append("        final ").append(typeName(params.get(a).asType()))
+              .append(" a").append(a).append(";\n");
+          call.append(", a").append(a);
+        }
+        out.append("        try {\n");
+        for (int a = 3; a < params.size(); a++) {
+          out.append("          a").append(a).append(" = ")
+              .append(fromAttribute(params.get(a).asType(),
+                  "arguments.get(" + (a - 3) + ").getValue()"))
+              .append(";\n");
+        }
+        out.append("        } catch (RuntimeException ex) {\n");
+        out.append("          return actionFailed(ACTION_NAMES[").append(i)
+            .append("], ex, true);\n");
+        out.append("        }\n");
+      }
+      call.append(")");
+
+      out.append("        try {\n");
+      if (method.getReturnType().getKind() == TypeKind.VOID) {
+        out.append("          ").append(call).append(";\n");
+        out.append("          return null;\n");
+      } else if (isType(method.getReturnType(), "org.ccsds.moims.mo.mal.structures.UInteger")) {
+        out.append("          return ").append(call).append(";\n");
+      } else {
+        out.append("          return (UInteger) (Object) ").append(call).append(";\n");
+      }
+      out.append("        } catch (Exception ex) {\n");
+      out.append("          return actionFailed(ACTION_NAMES[").append(i)
+          .append("], ex, false);\n");
+      out.append("        }\n");
+      out.append("      }\n");
+    }
+
+    out.append("      default:\n");
+    out.append("        return new UInteger(0);\n");
+    out.append("    }\n  }\n\n");
+  }
+
+  /**
+   * @return The conversion from a MAL attribute to the type, as done by the
+   * reflective adapter
+   */
+  private String fromAttribute(TypeMirror type, String attribute)
+  {
+    switch (type.getKind()) {
+      case DOUBLE:
+        return "HelperAttributes.attribute2double(" + attribute + ")";
+      case BOOLEAN:
+        return "(Boolean) HelperAttributes.attribute2JavaType(" + attribute + ")";
+      case CHAR:
+        return "(Character) HelperAttributes.attribute2JavaType(" + attribute + ")";
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+        return "((Number) HelperAttributes.attribute2JavaType(" + attribute + "))."
+            + type.getKind().name().toLowerCase() + "Value()";
+      default:
+        if (isType(type, "java.lang.String")) {
+          return "HelperAttributes.attribute2string(" + attribute + ")";
+        }
+        return "(" + typeName(type) + ") HelperAttributes.attribute2JavaType(" + attribute + ")";
+    }
+  }
+
+  /**
+   * @return The attribute name of the values of a parameter field, as they
+   * are converted by HelperAttributes.javaType2Attribute. Null if it can only
+   * be resolved at runtime.
+   */
+  private String javaType2attributeName(TypeMirror type)
+  {
+    final TypeMirror unboxed;
+
+    if (type.getKind().isPrimitive()) {
+      unboxed = type;
+    } else if (isType(type, "java.lang.String")) {
+      return "String";
+    } else {
+      try {
+        unboxed = processingEnv.getTypeUtils().unboxedType(type);
+      } catch (IllegalArgumentException ex) {
+        return null;
+      }
+    }
+
+    switch (unboxed.getKind()) {
+      case BOOLEAN:
+        return "Boolean";
+      case INT:
+        return "Integer";
+      case LONG:
+        return "Long";
+      case DOUBLE:
+        return "Double";
+      case FLOAT:
+        return "Float";
+      case BYTE:
+        return "Octet";
+      case SHORT:
+        return "Short";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return The attribute name of an action argument type, as resolved by the
+   * reflective adapter. Null if not a MAL type.
+   */
+  private String typeSimpleName2attributeName(TypeMirror type)
+  {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return "Boolean";
+      case FLOAT:
+        return "Float";
+      case DOUBLE:
+        return "Double";
+      case INT:
+        return "Integer";
+      case LONG:
+        return "Long";
+      case DECLARED:
+        final String simpleName = processingEnv.getTypeUtils().asElement(type).getSimpleName()
+            .toString();
+        return ATTRIBUTE_NAMES.contains(simpleName) ? simpleName : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return The expression reading a field named by an annotation, cast to
+   * the expected type. "null" if the field does not exist.
+   */
+  private String referencedField(TypeElement app, Element annotated, String fieldName,
+      String castType)
+  {
+    if (fieldName.isEmpty()) {
+      return "(" + castType + ") null";
+    }
+
+    for (VariableElement field : ElementFilter.fieldsIn(
+        processingEnv.getElementUtils().getAllMembers(app))) {
+      if (field.getSimpleName().contentEquals(fieldName)
+          && !field.getModifiers().contains(Modifier.PRIVATE)) {
+        final Element fieldType = processingEnv.getTypeUtils().asElement(field.asType());
+        final boolean sameType = fieldType != null && fieldType.getSimpleName().contentEquals(castType);
+        return (sameType ? "" : "(" + castType + ") ") + access(field);
+      }
+    }
+
+    warn(annotated, "Could not find the non-private Field \"" + fieldName + "\" (fallback to null)");
+    return "(" + castType + ") null";
+  }
+
+  private ExecutableElement findOnGet(TypeElement app, String name)
+  {
+    for (ExecutableElement method : ElementFilter.methodsIn(
+        processingEnv.getElementUtils().getAllMembers(app))) {
+      if (method.getSimpleName().contentEquals(name) && method.getParameters().isEmpty()
+          && !method.getModifiers().contains(Modifier.PRIVATE)) {
+        return method;
+      }
+    }
+
+    return null;
+  }
+
+  private String access(VariableElement field)
+  {
+    if (field.getModifiers().contains(Modifier.STATIC)) {
+      return ((TypeElement) field.getEnclosingElement()).getQualifiedName() + "."
+          + field.getSimpleName();
+    }
+
+    return "adapter." + field.getSimpleName();
+  }
+
+  private String invocationTarget(ExecutableElement method)
+  {
+    return method.getModifiers().contains(Modifier.STATIC)
+        ? ((TypeElement) method.getEnclosingElement()).getQualifiedName().toString() : "adapter";
+  }
+
+  private boolean isReadOnly(VariableElement field)
+  {
+    return (Boolean) values(mirror(field, PARAMETER)).get("readOnly")
+        || field.getModifiers().contains(Modifier.FINAL);
+  }
+
+  private String actionName(ExecutableElement method)
+  {
+    final String name = (String) values(mirror(method, ACTION)).get("name");
+    return name.isEmpty() ? method.getSimpleName().toString() : name;
+  }
+
+  private String typeName(TypeMirror type)
+  {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private boolean isType(TypeMirror type, String qualifiedName)
+  {
+    return type.getKind() == TypeKind.DECLARED
+        && typeName(type).equals(qualifiedName);
+  }
+
+  private static AnnotationMirror mirror(Element element, String annotation)
+  {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName()
+          .contentEquals(annotation)) {
+        return mirror;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @return The values of an annotation, defaults included, by element name
+   */
+  private Map<String, Object> values(AnnotationMirror mirror)
+  {
+    final Map<String, Object> values = new HashMap<>();
+
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+        : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+      values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+    }
+
+    return Collections.unmodifiableMap(values);
+  }
+
+  private String literal(Object value)
+  {
+    return (value == null) ? "null" : processingEnv.getElementUtils().getConstantExpression(value);
+  }
+
+  private void warn(Element element, String message)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+
+  private void note(Element element, String message)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+  }
+
+}
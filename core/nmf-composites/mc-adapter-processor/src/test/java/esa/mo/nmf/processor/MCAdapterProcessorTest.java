@@ -0,0 +1,164 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.processor;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/**
+ * Runs sample Apps through the processor. The generated adapters are compiled
+ * against the real GeneratedMCAdapter of the composite model.
+ */
+public class MCAdapterProcessorTest
+{
+
+  private static final String SAMPLE_APP = "esa.mo.nmf.apps.SampleApp";
+
+  private static final JavaFileObject SAMPLE = JavaFileObjects.forSourceLines(SAMPLE_APP,
+      "package esa.mo.nmf.apps;",
+      "",
+      "import esa.mo.nmf.MonitorAndControlNMFAdapter;",
+      "import esa.mo.nmf.annotations.Action;",
+      "import esa.mo.nmf.annotations.ActionParameter;",
+      "import esa.mo.nmf.annotations.Aggregation;",
+      "import esa.mo.nmf.annotations.Parameter;",
+      "import org.ccsds.moims.mo.mal.provider.MALInteraction;",
+      "import org.ccsds.moims.mo.mal.structures.UInteger;",
+      "",
+      "@Aggregation(id = \"Stats\", description = \"The statistics\", reportInterval = 5)",
+      "public class SampleApp extends MonitorAndControlNMFAdapter {",
+      "",
+      "  @Parameter(description = \"The temperature\", rawUnit = \"C\", aggregations = {\"Stats\"})",
+      "  public double temperature = 21.5;",
+      "",
+      "  @Parameter(name = \"Mode\", readOnly = true)",
+      "  int mode;",
+      "",
+      "  @Action(description = \"Resets the counters\", stepCount = 1)",
+      "  public UInteger reset(Long actionInstanceObjId, boolean reportProgress,",
+      "      MALInteraction interaction, @ActionParameter(name = \"delay\") Integer delay) {",
+      "    return null;",
+      "  }",
+      "}");
+
+  private static Compilation compile(JavaFileObject... sources)
+  {
+    return Compiler.javac().withProcessors(new MCAdapterProcessor()).compile(sources);
+  }
+
+  @Test
+  public void testGeneratedAdapter()
+  {
+    Compilation compilation = compile(SAMPLE);
+
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation).generatedSourceFile(SAMPLE_APP + "_MCAdapter")
+        .contentsAsUtf8String().contains(
+            "public final class SampleApp_MCAdapter extends GeneratedMCAdapter<esa.mo.nmf.apps.SampleApp>");
+
+    String source = compilation.generatedSourceFile(SAMPLE_APP + "_MCAdapter").get()
+        .getCharContent(true).toString();
+    assertTrue(source.contains("READ_ONLY = {false, true}"));
+    assertTrue(source.contains("ACTION_NAMES = {\"reset\"}"));
+    assertTrue(source.contains("new Identifier(\"temperature\")"));
+    assertTrue(source.contains("new Identifier(\"Mode\")"));
+    assertTrue(source.contains("new Identifier(\"delay\")"));
+    assertTrue(source.contains("aggregationNames.add(new Identifier(\"Stats\"))"));
+    assertTrue(source.contains("return (Attribute) HelperAttributes.javaType2Attribute(adapter.mode);"));
+    assertTrue(source.contains("adapter.temperature = HelperAttributes.attribute2double(rawValue);"));
+    // Read-only parameters are never written
+    assertTrue(!source.contains("adapter.mode ="));
+    assertTrue(source.contains("return adapter.reset(actionInstanceObjId, reportProgress, interaction, a3);"));
+  }
+
+  @Test
+  public void testNestedAppName()
+  {
+    JavaFileObject nested = JavaFileObjects.forSourceLines("esa.mo.nmf.apps.Outer",
+        "package esa.mo.nmf.apps;",
+        "",
+        "import esa.mo.nmf.MonitorAndControlNMFAdapter;",
+        "import esa.mo.nmf.annotations.Parameter;",
+        "",
+        "public class Outer {",
+        "  public static class Inner extends MonitorAndControlNMFAdapter {",
+        "    @Parameter",
+        "    public int counter;",
+        "  }",
+        "}");
+
+    Compilation compilation = compile(nested);
+
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("esa.mo.nmf.apps.Outer_Inner_MCAdapter")
+        .contentsAsUtf8String().contains("extends GeneratedMCAdapter<esa.mo.nmf.apps.Outer.Inner>");
+  }
+
+  @Test
+  public void testPrivateMemberFallsBackToReflection()
+  {
+    JavaFileObject app = JavaFileObjects.forSourceLines("esa.mo.nmf.apps.PrivateApp",
+        "package esa.mo.nmf.apps;",
+        "",
+        "import esa.mo.nmf.MonitorAndControlNMFAdapter;",
+        "import esa.mo.nmf.annotations.Parameter;",
+        "",
+        "public class PrivateApp extends MonitorAndControlNMFAdapter {",
+        "  @Parameter",
+        "  private int hidden;",
+        "}");
+
+    Compilation compilation = compile(app);
+
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadNoteContaining("No M&C adapter generated (fallback to reflection)");
+    assertTrue(compilation.generatedSourceFiles().isEmpty());
+  }
+
+  @Test
+  public void testInvalidActionIsSkipped()
+  {
+    JavaFileObject app = JavaFileObjects.forSourceLines("esa.mo.nmf.apps.InvalidActionApp",
+        "package esa.mo.nmf.apps;",
+        "",
+        "import esa.mo.nmf.MonitorAndControlNMFAdapter;",
+        "import esa.mo.nmf.annotations.Action;",
+        "",
+        "public class InvalidActionApp extends MonitorAndControlNMFAdapter {",
+        "  @Action",
+        "  public void doIt(int value) {",
+        "  }",
+        "}");
+
+    Compilation compilation = compile(app);
+
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining("Unable to parse action!");
+    assertThat(compilation).generatedSourceFile("esa.mo.nmf.apps.InvalidActionApp_MCAdapter")
+        .contentsAsUtf8String().contains("ACTION_NAMES = {}");
+  }
+}
@@ -20,7 +20,9 @@
  */
 package esa.mo.nmf.nanosatmoconnector;
 
+import esa.mo.com.impl.consumer.ArchiveConsumerServiceImpl;
 import esa.mo.com.impl.consumer.EventConsumerServiceImpl;
+import esa.mo.com.impl.provider.SharedArchiveProviderServiceImpl;
 import esa.mo.com.impl.util.COMServicesConsumer;
 import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.common.impl.consumer.DirectoryConsumerServiceImpl;
@@ -47,9 +49,16 @@ import esa.mo.sm.impl.provider.AppsLauncherProviderServiceImpl;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMService;
+import org.ccsds.moims.mo.com.archive.ArchiveHelper;
 import org.ccsds.moims.mo.com.event.EventHelper;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.com.structures.ObjectKey;
@@ -85,6 +94,9 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
     private Long appDirectoryServiceId;
     private EventConsumerServiceImpl serviceCOMEvent;
     private Subscription subscription;
+    private ExecutorService startupExecutor;
+    private Future<DirectoryConsumerServiceImpl> supervisorConnection;
+    private Future<?> directoryRegistration;
 
     /**
      * Initializes the NanoSat MO Connector. The MonitorAndControlAdapter
@@ -97,212 +109,7 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
      */
     @Override
     public void init(final MonitorAndControlNMFAdapter mcAdapter) {
-        super.startTime = System.currentTimeMillis();
-        HelperMisc.loadPropertiesFile(); // Loads: provider.properties; settings.properties; transport.properties
-        ConnectionProvider.resetURILinksFile(); // Resets the providerURIs.properties file
-
-        // Create provider name to be registerd on the Directory service...
-        String appName = "Unknown";
-        try { // Use the folder name
-            appName = (new File((new File("")).getCanonicalPath())).getName();
-            System.setProperty(HelperMisc.PROP_MO_APP_NAME, appName);
-        } catch (IOException ex) {
-            LOGGER.log(Level.SEVERE,
-                    "The NMF App name could not be established.");
-        }
-
-        this.providerName = AppsLauncherProviderServiceImpl.PROVIDER_PREFIX_NAME + appName;
-
-        try {
-            comServices.init();
-            comServices.initArchiveSync();
-        } catch (MALException ex) {
-            LOGGER.log(Level.SEVERE,
-                    "The services could not be initialized. "
-                    + "Perhaps there's something wrong with the Transport Layer.", ex);
-            return;
-        }
-
-        URI centralDirectoryURI = this.readCentralDirectoryServiceURI();
-
-        if (centralDirectoryURI != null && centralDirectoryURI.getValue().startsWith("malspp")) {
-            LOGGER.log(Level.INFO,
-                    "The Central Directory service URI read is selecting 'malspp' as transport. The URI will be discarded."
-                    + " To enable a better IPC communication, please enable the secondary transport protocol flag: "
-                    + HelperMisc.SECONDARY_PROTOCOL
-            );
-
-            centralDirectoryURI = null;
-        }
-
-        DirectoryConsumerServiceImpl centralDirectory = null;
-
-        // Connect to the Central Directory service
-        if (centralDirectoryURI != null) {
-            try {
-                LOGGER.log(Level.INFO,
-                        "Attempting to connect to Central Directory service at: {0}",
-                        centralDirectoryURI.toString());
-
-                // Connect to the Central Directory service...
-                centralDirectory = new DirectoryConsumerServiceImpl(centralDirectoryURI);
-
-                IdentifierList domain = new IdentifierList();
-                domain.add(new Identifier("*"));
-                COMService eventCOM = EventHelper.EVENT_SERVICE; // Filter for the Event service of the Supervisor
-                final ServiceKey serviceKey = new ServiceKey(eventCOM.getArea().getNumber(),
-                        eventCOM.getNumber(), eventCOM.getArea().getVersion());
-                final ServiceFilter sf = new ServiceFilter(
-                        new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
-                        domain, new Identifier("*"), null, new Identifier("*"),
-                        serviceKey, new UIntegerList());
-                final ProviderSummaryList supervisorEventServiceConnectionDetails = centralDirectory.getDirectoryStub().lookupProvider(sf);
-
-                LOGGER.log(Level.INFO,
-                        "The Central Directory service is operational!");
-
-                // Register for CloseApp Events...
-                try {
-                    // Convert provider to connectionDetails...
-                    final SingleConnectionDetails connectionDetails = AppsLauncherManager.getSingleConnectionDetailsFromProviderSummaryList(supervisorEventServiceConnectionDetails);
-                    serviceCOMEvent = new EventConsumerServiceImpl(connectionDetails);
-                } catch (IOException | MALException | MALInteractionException ex) {
-                    LOGGER.log(Level.SEVERE,
-                            "Could not retrieve supervisor COM Event service details from the Central Directory.", ex);
-                }
-                if (serviceCOMEvent != null)
-                {
-                    // Subscribe to all Events
-                    // Select all object numbers from the Apps Launcher service Events
-                    subscription = HelperCOM.generateSubscriptionCOMEvent(
-                            "CloseAppEventListener",
-                            AppsLauncherHelper.APP_OBJECT_TYPE);
-
-                    /* Previous code */
-                    /*
-                    final Long secondEntityKey = 0xFFFFFFFFFF000000L & HelperCOM.generateSubKey(AppsLauncherHelper.APP_OBJECT_TYPE);
-                    final Random random = new Random();
-                    subscription = ConnectionConsumer.subscriptionKeys(
-                            new Identifier("CloseAppEventListener" + random.nextInt()),
-                            new Identifier("*"), secondEntityKey, new Long(0), new Long(0));
-                     */
-                    /* ------------- */
-
-                    // Register with the subscription key provided
-                    serviceCOMEvent.addEventReceivedListener(subscription, new CloseAppEventListener(this));
-                }
-
-                // Lookup for the Platform services on the NanoSat MO Supervisor
-                final ServiceKey sk = new ServiceKey(PlatformHelper.PLATFORM_AREA_NUMBER,
-                        new UShort(0), new UOctet((short) 0));
-                final ServiceFilter sf2 = new ServiceFilter(new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
-                        domain, new Identifier("*"), null, new Identifier("*"), sk, new UIntegerList());
-                final ProviderSummaryList supervisorConnections = centralDirectory.getDirectoryStub().lookupProvider(sf2);
-
-                if (supervisorConnections.size() == 1) { // Platform services found!
-                    // Load all the Platform services' APIs
-                    if (MALContextFactory.lookupArea(PlatformHelper.PLATFORM_AREA_NAME, PlatformHelper.PLATFORM_AREA_VERSION) == null) {
-                        PlatformHelper.deepInit(MALContextFactory.getElementFactoryRegistry());
-                    }
-
-                    // Select the best transport for IPC and convert to a ConnectionConsumer object
-                    final ProviderSummary filteredConnections = HelperCommon.selectBestIPCTransport(supervisorConnections.get(0));
-                    final ConnectionConsumer supervisorCCPlat = HelperCommon.providerSummaryToConnectionConsumer(filteredConnections);
-
-                    // Connect to them...
-                    platformServices = new PlatformServicesConsumer();
-                    COMServicesConsumer comServicesConsumer = new COMServicesConsumer();
-                    comServicesConsumer.init(supervisorCCPlat);
-                    platformServices.init(supervisorCCPlat, comServicesConsumer);
-                    initClockService();
-                    LOGGER.log(Level.INFO,
-                            "Successfully connected to Platform services on: {0}",
-                            supervisorConnections.get(0).getProviderName());
-                } else {
-                    LOGGER.log(Level.SEVERE,
-                            "The NanoSat MO Connector was expecting a single NMF Platform services provider!"
-                            + " Instead it found {0}.", supervisorConnections.size());
-                }
-            } catch (MALException | MalformedURLException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } catch (MALInteractionException ex) {
-                LOGGER.log(Level.SEVERE,
-                        "Could not connect to the Central Directory service! Maybe it is down...");
-            }
-        }
-
-        // Initialize the rest of the services
-        try {
-            this.startMCServices(mcAdapter);
-            directoryService.init(comServices);
-            heartbeatService.init();
-        } catch (MALException ex) {
-            LOGGER.log(Level.SEVERE,
-                    "The services could not be initialized. "
-                    + "Perhaps there's something wrong with the Transport Layer.", ex);
-            return;
-        }
-
-        this.initAdditionalServices();
-
-        // Populate the local Directory service with the entries from the URIs File
-        LOGGER.log(Level.INFO,
-                "Populating local Directory service...");
-        PublishDetails publishDetails = directoryService.loadURIs(this.providerName);
-
-        // Populate the provider list of services in the Central Directory service
-        if (centralDirectoryURI != null) {
-            try {
-                if (centralDirectory != null) {
-                    LOGGER.log(Level.INFO,
-                            "Populating Central Directory service on URI: {0}", centralDirectoryURI.getValue());
-
-                    final PublishProviderResponse response = centralDirectory.getDirectoryStub().publishProvider(publishDetails);
-                    this.appDirectoryServiceId = response.getBodyElement0();
-                    centralDirectory.close(); // Close the connection to the Directory service
-                    LOGGER.log(Level.INFO,
-                            "Populated! And the connection to the Directory service has been successfully closed!");
-                }
-            } catch (MALException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } catch (MALInteractionException ex) {
-                LOGGER.log(Level.SEVERE,
-                        "Could not connect to the Central Directory service! Maybe it is down...");
-            }
-        }
-
-        // Are the dynamic changes enabled?
-        if ("true".equals(System.getProperty(Const.DYNAMIC_CHANGES_PROPERTY))) {
-            LOGGER.log(Level.INFO,
-                    "Loading previous configurations...");
-
-            // Activate the previous configuration
-            final ObjectId confId = new ObjectId(ConfigurationHelper.PROVIDERCONFIGURATION_OBJECT_TYPE,
-                    new ObjectKey(ConfigurationProviderSingleton.getDomain(), DEFAULT_PROVIDER_CONFIGURATION_OBJID));
-
-            super.providerConfiguration = new PersistProviderConfiguration(this, confId, comServices.getArchiveService());
-
-            try {
-                super.providerConfiguration.loadPreviousConfigurations();
-            } catch (IOException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            }
-        }
-
-        if (mcAdapter != null) {
-            MCRegistration registration = new MCRegistration(comServices, mcServices.getParameterService(),
-                    mcServices.getAggregationService(), mcServices.getAlertService(), mcServices.getActionService());
-            mcAdapter.initialRegistrations(registration);
-        }
-
-        LOGGER.log(Level.INFO,
-                "NanoSat MO Connector initialized in "
-                + (((float) (System.currentTimeMillis() - super.startTime)) / 1000)
-                + " seconds!");
-
-        final String uri = directoryService.getConnection().getPrimaryConnectionDetails().getProviderURI().toString();
-        LOGGER.log(Level.INFO,
-                "URI: {0}\n", uri);
+        this.init(mcAdapter, null);
     }
 
     @Override
@@ -323,8 +130,7 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
         this.providerName = AppsLauncherProviderServiceImpl.PROVIDER_PREFIX_NAME + appName;
 
         try {
-            comServices.init();
-            comServices.initArchiveSync();
+            this.initCOMServices(appName);
         } catch (MALException ex) {
             LOGGER.log(Level.SEVERE,
                     "The services could not be initialized. "
@@ -374,11 +180,19 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
                 "NanoSat MO Connector initialized in "
                 + (((float) (System.currentTimeMillis() - super.startTime)) / 1000)
                 + " seconds!");
+        this.logArchiveFootprint();
 
         final String uri = directoryService.getConnection().getPrimaryConnectionDetails().getProviderURI().toString();
         LOGGER.log(Level.INFO, "URI: {0}\n", uri);
     }
 
+    /**
+     * Initializes the NanoSat MO Connector with the Monitor and Control
+     * services and, if an adapter is given, the Mission Planning services.
+     *
+     * @param mcAdapter The Monitor and Control adapter.
+     * @param mpAdapter The Mission Planning adapter, or null.
+     */
     public void init(final MonitorAndControlNMFAdapter mcAdapter, final MissionPlanningNMFAdapter mpAdapter) {
         super.startTime = System.currentTimeMillis();
         HelperMisc.loadPropertiesFile(); // Loads: provider.properties; settings.properties; transport.properties
@@ -397,8 +211,7 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
         this.providerName = AppsLauncherProviderServiceImpl.PROVIDER_PREFIX_NAME + appName;
 
         try {
-            comServices.init();
-            comServices.initArchiveSync();
+            this.initCOMServices(appName);
         } catch (MALException ex) {
             LOGGER.log(Level.SEVERE,
                     "The services could not be initialized. "
@@ -418,105 +231,19 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
             centralDirectoryURI = null;
         }
 
-        DirectoryConsumerServiceImpl centralDirectory = null;
+        final boolean staged = Boolean.parseBoolean(System.getProperty(
+                Const.STAGED_STARTUP_PROPERTY, Const.STAGED_STARTUP_DEFAULT));
+        final StartupPhases phases = new StartupPhases(super.startTime);
+        phases.mark("COM services");
 
-        // Connect to the Central Directory service
+        // Connect to the Central Directory service and to the Supervisor
         if (centralDirectoryURI != null) {
-            try {
-                LOGGER.log(Level.INFO,
-                        "Attempting to connect to Central Directory service at: {0}",
-                        centralDirectoryURI.toString());
-
-                // Connect to the Central Directory service...
-                centralDirectory = new DirectoryConsumerServiceImpl(centralDirectoryURI);
-
-                IdentifierList domain = new IdentifierList();
-                domain.add(new Identifier("*"));
-                COMService eventCOM = EventHelper.EVENT_SERVICE; // Filter for the Event service of the Supervisor
-                final ServiceKey serviceKey = new ServiceKey(eventCOM.getArea().getNumber(),
-                        eventCOM.getNumber(), eventCOM.getArea().getVersion());
-                final ServiceFilter sf = new ServiceFilter(
-                        new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
-                        domain, new Identifier("*"), null, new Identifier("*"),
-                        serviceKey, new UIntegerList());
-                final ProviderSummaryList supervisorEventServiceConnectionDetails = centralDirectory.getDirectoryStub().lookupProvider(sf);
-
-                LOGGER.log(Level.INFO,
-                        "The Central Directory service is operational!");
-
-                // Register for CloseApp Events...
-                try {
-                    // Convert provider to connectionDetails...
-                    final SingleConnectionDetails connectionDetails = AppsLauncherManager.getSingleConnectionDetailsFromProviderSummaryList(supervisorEventServiceConnectionDetails);
-                    serviceCOMEvent = new EventConsumerServiceImpl(connectionDetails);
-                } catch (IOException | MALException | MALInteractionException ex) {
-                    LOGGER.log(Level.SEVERE,
-                            "Could not retrieve supervisor COM Event service details from the Central Directory.", ex);
-                }
-                if (serviceCOMEvent != null)
-                {
-                    // Subscribe to all Events
-                    // Select all object numbers from the Apps Launcher service Events
-                    subscription = HelperCOM.generateSubscriptionCOMEvent(
-                            "CloseAppEventListener",
-                            AppsLauncherHelper.APP_OBJECT_TYPE);
-
-                    /* Previous code */
-                    /*
-                    final Long secondEntityKey = 0xFFFFFFFFFF000000L & HelperCOM.generateSubKey(AppsLauncherHelper.APP_OBJECT_TYPE);
-                    final Random random = new Random();
-                    subscription = ConnectionConsumer.subscriptionKeys(
-                            new Identifier("CloseAppEventListener" + random.nextInt()),
-                            new Identifier("*"), secondEntityKey, new Long(0), new Long(0));
-                     */
-                    /* ------------- */
-
-                    // Register with the subscription key provided
-                    serviceCOMEvent.addEventReceivedListener(subscription, new CloseAppEventListener(this));
-                }
-
-                // Lookup for the Platform services on the NanoSat MO Supervisor
-                final ServiceKey sk = new ServiceKey(PlatformHelper.PLATFORM_AREA_NUMBER,
-                        new UShort(0), new UOctet((short) 0));
-                final ServiceFilter sf2 = new ServiceFilter(new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
-                        domain, new Identifier("*"), null, new Identifier("*"), sk, new UIntegerList());
-                final ProviderSummaryList supervisorConnections = centralDirectory.getDirectoryStub().lookupProvider(sf2);
-
-                if (supervisorConnections.size() == 1) { // Platform services found!
-                    // Load all the Platform services' APIs
-                    if (MALContextFactory.lookupArea(PlatformHelper.PLATFORM_AREA_NAME, PlatformHelper.PLATFORM_AREA_VERSION) == null) {
-                        PlatformHelper.deepInit(MALContextFactory.getElementFactoryRegistry());
-                    }
-
-                    // Select the best transport for IPC and convert to a ConnectionConsumer object
-                    final ProviderSummary filteredConnections =
-                            HelperCommon.selectBestIPCTransport(supervisorConnections.get(0));
-                    final ConnectionConsumer supervisorCCPlat = HelperCommon.providerSummaryToConnectionConsumer(filteredConnections);
-
-                    // Connect to them...
-                    platformServices = new PlatformServicesConsumer();
-                    COMServicesConsumer comServicesConsumer = new COMServicesConsumer();
-                    comServicesConsumer.init(supervisorCCPlat);
-                    platformServices.init(supervisorCCPlat, comServicesConsumer);
-                    initClockService();
-                    LOGGER.log(Level.INFO,
-                            "Successfully connected to Platform services on: {0}",
-                            supervisorConnections.get(0).getProviderName());
-                } else {
-                    LOGGER.log(Level.SEVERE,
-                            "The NanoSat MO Connector was expecting a single NMF Platform services provider!"
-                            + " Instead it found {0}.", supervisorConnections.size());
-                }
-            } catch (MALException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } catch (MalformedURLException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } catch (MALInteractionException ex) {
-                LOGGER.log(Level.SEVERE,
-                        "Could not connect to the Central Directory service! Maybe it is down...");
-            }
+            final URI directoryURI = centralDirectoryURI;
+            supervisorConnection = this.startupTask(staged, () -> this.connectToSupervisor(directoryURI));
         }
 
+        phases.mark("Supervisor connection");
+
         // Initialize the rest of the services
         try {
             this.startMCServices(mcAdapter);
@@ -530,34 +257,36 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
             return;
         }
 
+        phases.mark("provider services");
         this.initAdditionalServices();
+        phases.mark("additional services");
 
         // Populate the local Directory service with the entries from the URIs File
         LOGGER.log(Level.INFO,
                 "Populating local Directory service...");
-        PublishDetails publishDetails = directoryService.loadURIs(this.providerName);
+        final PublishDetails publishDetails = directoryService.loadURIs(this.providerName);
+
+        phases.mark("local Directory");
 
         // Populate the provider list of services in the Central Directory service
-        if (centralDirectoryURI != null) {
-            try {
+        if (supervisorConnection != null) {
+            directoryRegistration = this.startupTask(staged, () -> {
+                final DirectoryConsumerServiceImpl centralDirectory = supervisorConnection.get();
+
                 if (centralDirectory != null) {
-                    LOGGER.log(Level.INFO,
-                            "Populating Central Directory service on URI: {0}", centralDirectoryURI.getValue());
-
-                    final PublishProviderResponse response = centralDirectory.getDirectoryStub().publishProvider(publishDetails);
-                    this.appDirectoryServiceId = response.getBodyElement0();
-                    centralDirectory.close(); // Close the connection to the Directory service
-                    LOGGER.log(Level.INFO,
-                            "Populated! And the connection to the Directory service has been successfully closed!");
+                    this.publishToCentralDirectory(centralDirectory, publishDetails);
                 }
-            } catch (MALException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } catch (MALInteractionException ex) {
-                LOGGER.log(Level.SEVERE,
-                        "Could not connect to the Central Directory service! Maybe it is down...");
-            }
+
+                return null;
+            });
         }
 
+        if (startupExecutor != null) {
+            startupExecutor.shutdown(); // The queued tasks are still executed
+        }
+
+        phases.mark("Central Directory registration");
+
         // Are the dynamic changes enabled?
         if ("true".equals(System.getProperty(Const.DYNAMIC_CHANGES_PROPERTY))) {
             LOGGER.log(Level.INFO,
@@ -576,6 +305,8 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
             }
         }
 
+        phases.mark("configurations");
+
         if (mcAdapter != null) {
             MCRegistration registration = new MCRegistration(comServices, mcServices.getParameterService(),
                     mcServices.getAggregationService(), mcServices.getAlertService(), mcServices.getActionService());
@@ -588,10 +319,15 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
             mpAdapter.initialRegistrations(registration);
         }
 
+        phases.mark("registrations");
+        LOGGER.log(Level.INFO, "Startup phases{0}: {1}",
+                new Object[]{staged ? " (staged)" : "", phases});
+
         LOGGER.log(Level.INFO,
                 "NanoSat MO Connector initialized in "
                 + (((float) (System.currentTimeMillis() - super.startTime)) / 1000)
                 + " seconds!");
+        this.logArchiveFootprint();
 
         final String uri = directoryService.getConnection().getPrimaryConnectionDetails().getProviderURI().toString();
         LOGGER.log(Level.INFO,
@@ -610,9 +346,20 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
      * Directory service.
      */
     public final Long getAppDirectoryId() {
+        this.awaitStartupTask(directoryRegistration);
         return this.appDirectoryServiceId;
     }
 
+    /**
+     * With the staged startup, waits for the connection to the Supervisor
+     * before returning the Platform services.
+     */
+    @Override
+    public PlatformServicesConsumer getPlatformServices() throws NMFException {
+        this.awaitStartupTask(supervisorConnection);
+        return super.getPlatformServices();
+    }
+
     /**
      * It closes the application gracefully.
      *
@@ -623,6 +370,7 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
         try {
             AppShutdownGuard.start();
             long time = System.currentTimeMillis();
+            this.awaitStartupTask(directoryRegistration);
 
             // We can close the connection to the Supervisor
             this.serviceCOMEvent.close();
@@ -713,6 +461,273 @@ public class NanoSatMOConnectorImpl extends NMFProvider {
         // To be overridden
     }
 
+    /**
+     * Connects to the Central Directory service, registers for the CloseApp
+     * Events and connects to the Platform services of the NanoSat MO
+     * Supervisor.
+     *
+     * @param centralDirectoryURI The URI of the Central Directory service.
+     * @return The consumer of the Central Directory service. Null if it could
+     * not be created.
+     */
+    private DirectoryConsumerServiceImpl connectToSupervisor(final URI centralDirectoryURI) {
+        final long start = System.currentTimeMillis();
+        DirectoryConsumerServiceImpl centralDirectory = null;
+
+        try {
+            LOGGER.log(Level.INFO,
+                    "Attempting to connect to Central Directory service at: {0}",
+                    centralDirectoryURI.toString());
+
+            // Connect to the Central Directory service...
+            centralDirectory = new DirectoryConsumerServiceImpl(centralDirectoryURI);
+
+            IdentifierList domain = new IdentifierList();
+            domain.add(new Identifier("*"));
+            COMService eventCOM = EventHelper.EVENT_SERVICE; // Filter for the Event service of the Supervisor
+            final ServiceKey serviceKey = new ServiceKey(eventCOM.getArea().getNumber(),
+                    eventCOM.getNumber(), eventCOM.getArea().getVersion());
+            final ServiceFilter sf = new ServiceFilter(
+                    new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
+                    domain, new Identifier("*"), null, new Identifier("*"),
+                    serviceKey, new UIntegerList());
+            final ProviderSummaryList supervisorEventServiceConnectionDetails = centralDirectory.getDirectoryStub().lookupProvider(sf);
+
+            LOGGER.log(Level.INFO,
+                    "The Central Directory service is operational!");
+
+            // Register for CloseApp Events...
+            try {
+                // Convert provider to connectionDetails...
+                final SingleConnectionDetails connectionDetails = AppsLauncherManager.getSingleConnectionDetailsFromProviderSummaryList(supervisorEventServiceConnectionDetails);
+                serviceCOMEvent = new EventConsumerServiceImpl(connectionDetails);
+            } catch (IOException | MALException | MALInteractionException ex) {
+                LOGGER.log(Level.SEVERE,
+                        "Could not retrieve supervisor COM Event service details from the Central Directory.", ex);
+            }
+            if (serviceCOMEvent != null)
+            {
+                // Subscribe to all Events
+                // Select all object numbers from the Apps Launcher service Events
+                subscription = HelperCOM.generateSubscriptionCOMEvent(
+                        "CloseAppEventListener",
+                        AppsLauncherHelper.APP_OBJECT_TYPE);
+
+                /* Previous code */
+                /*
+                final Long secondEntityKey = 0xFFFFFFFFFF000000L & HelperCOM.generateSubKey(AppsLauncherHelper.APP_OBJECT_TYPE);
+                final Random random = new Random();
+                subscription = ConnectionConsumer.subscriptionKeys(
+                        new Identifier("CloseAppEventListener" + random.nextInt()),
+                        new Identifier("*"), secondEntityKey, new Long(0), new Long(0));
+                 */
+                /* ------------- */
+
+                // Register with the subscription key provided
+                serviceCOMEvent.addEventReceivedListener(subscription, new CloseAppEventListener(this));
+            }
+
+            // Lookup for the Platform services on the NanoSat MO Supervisor
+            final ServiceKey sk = new ServiceKey(PlatformHelper.PLATFORM_AREA_NUMBER,
+                    new UShort(0), new UOctet((short) 0));
+            final ServiceFilter sf2 = new ServiceFilter(new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
+                    domain, new Identifier("*"), null, new Identifier("*"), sk, new UIntegerList());
+            final ProviderSummaryList supervisorConnections = centralDirectory.getDirectoryStub().lookupProvider(sf2);
+
+            if (supervisorConnections.size() == 1) { // Platform services found!
+                // Load all the Platform services' APIs
+                if (MALContextFactory.lookupArea(PlatformHelper.PLATFORM_AREA_NAME, PlatformHelper.PLATFORM_AREA_VERSION) == null) {
+                    PlatformHelper.deepInit(MALContextFactory.getElementFactoryRegistry());
+                }
+
+                // Select the best transport for IPC and convert to a ConnectionConsumer object
+                final ProviderSummary filteredConnections = HelperCommon.selectBestIPCTransport(supervisorConnections.get(0));
+                final ConnectionConsumer supervisorCCPlat = HelperCommon.providerSummaryToConnectionConsumer(filteredConnections);
+
+                // Connect to them...
+                platformServices = new PlatformServicesConsumer();
+                COMServicesConsumer comServicesConsumer = new COMServicesConsumer();
+                comServicesConsumer.init(supervisorCCPlat);
+                platformServices.init(supervisorCCPlat, comServicesConsumer);
+                initClockService();
+                LOGGER.log(Level.INFO,
+                        "Successfully connected to Platform services on: {0}",
+                        supervisorConnections.get(0).getProviderName());
+            } else {
+                LOGGER.log(Level.SEVERE,
+                        "The NanoSat MO Connector was expecting a single NMF Platform services provider!"
+                        + " Instead it found {0}.", supervisorConnections.size());
+            }
+        } catch (MALException | MalformedURLException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } catch (MALInteractionException ex) {
+            LOGGER.log(Level.SEVERE,
+                    "Could not connect to the Central Directory service! Maybe it is down...");
+        }
+
+        LOGGER.log(Level.FINE, "Connected to the Supervisor in {0} ms",
+                System.currentTimeMillis() - start);
+        return centralDirectory;
+    }
+
+    /**
+     * Publishes the provider in the Central Directory service and closes the
+     * connection to it.
+     *
+     * @param centralDirectory The consumer of the Central Directory service.
+     * @param publishDetails The details of the provider.
+     */
+    private void publishToCentralDirectory(final DirectoryConsumerServiceImpl centralDirectory,
+            final PublishDetails publishDetails) {
+        try {
+            LOGGER.log(Level.INFO,
+                    "Populating Central Directory service on URI: {0}", centralDirectory.getProviderURI().getValue());
+
+            final PublishProviderResponse response = centralDirectory.getDirectoryStub().publishProvider(publishDetails);
+            this.appDirectoryServiceId = response.getBodyElement0();
+            centralDirectory.close(); // Close the connection to the Directory service
+            LOGGER.log(Level.INFO,
+                    "Populated! And the connection to the Directory service has been successfully closed!");
+        } catch (MALException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } catch (MALInteractionException ex) {
+            LOGGER.log(Level.SEVERE,
+                    "Could not connect to the Central Directory service! Maybe it is down...");
+        }
+    }
+
+    /**
+     * Runs a startup task. With the staged startup, the task is queued on the
+     * startup thread and the initialization continues with the local services.
+     * Otherwise, the task is run immediately.
+     *
+     * @param staged True if the staged startup is enabled.
+     * @param task The task.
+     * @return The result of the task.
+     */
+    private <T> Future<T> startupTask(final boolean staged, final Callable<T> task) {
+        if (staged) {
+            if (startupExecutor == null) {
+                startupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "NMF_StartupThread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+
+            return startupExecutor.submit(task);
+        }
+
+        final FutureTask<T> future = new FutureTask<>(task);
+        future.run();
+        return future;
+    }
+
+    /**
+     * Waits for a startup task to be finished.
+     *
+     * @param task The task. Can be null.
+     */
+    private void awaitStartupTask(final Future<?> task) {
+        if (task == null) {
+            return;
+        }
+
+        try {
+            task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "A startup task failed!", ex.getCause());
+        }
+    }
+
+    /**
+     * Initializes the COM services. When the shared Archive is enabled, the
+     * COM objects of the app are stored in the Archive of the NanoSat MO
+     * Supervisor instead of a local database. If the shared Archive is not
+     * available, the app falls back to its own local Archive.
+     *
+     * @param appName The name of the app.
+     * @throws MALException if the services could not be initialized.
+     */
+    private void initCOMServices(final String appName) throws MALException {
+        if (Boolean.parseBoolean(System.getProperty(Const.ARCHIVE_SHARED_PROPERTY,
+                Const.ARCHIVE_SHARED_DEFAULT))) {
+            final ArchiveConsumerServiceImpl sharedArchive = this.connectToSharedArchive();
+
+            if (sharedArchive != null) {
+                comServices.init(new SharedArchiveProviderServiceImpl(sharedArchive, appName));
+                return;
+            }
+
+            LOGGER.log(Level.WARNING,
+                    "The shared Archive is not available. A local Archive will be used.");
+        }
+
+        comServices.init();
+        comServices.initArchiveSync();
+    }
+
+    /**
+     * Looks up the Archive service of the NanoSat MO Supervisor in the Central
+     * Directory service and connects to it with the best IPC transport.
+     *
+     * @return The consumer of the Archive service. Null if not available.
+     */
+    private ArchiveConsumerServiceImpl connectToSharedArchive() {
+        final URI centralDirectoryURI = this.readCentralDirectoryServiceURI();
+
+        if (centralDirectoryURI == null || centralDirectoryURI.getValue().startsWith("malspp")) {
+            return null;
+        }
+
+        DirectoryConsumerServiceImpl centralDirectory = null;
+
+        try {
+            centralDirectory = new DirectoryConsumerServiceImpl(centralDirectoryURI);
+
+            IdentifierList domain = new IdentifierList();
+            domain.add(new Identifier("*"));
+            COMService archiveCOM = ArchiveHelper.ARCHIVE_SERVICE;
+            final ServiceKey serviceKey = new ServiceKey(archiveCOM.getArea().getNumber(),
+                    archiveCOM.getNumber(), archiveCOM.getArea().getVersion());
+            final ServiceFilter sf = new ServiceFilter(
+                    new Identifier(Const.NANOSAT_MO_SUPERVISOR_NAME),
+                    domain, new Identifier("*"), null, new Identifier("*"),
+                    serviceKey, new UIntegerList());
+            final ProviderSummaryList supervisorArchive = centralDirectory.getDirectoryStub().lookupProvider(sf);
+
+            final SingleConnectionDetails connectionDetails = AppsLauncherManager.getSingleConnectionDetailsFromProviderSummaryList(supervisorArchive);
+            return new ArchiveConsumerServiceImpl(connectionDetails);
+        } catch (IOException | MALException | MALInteractionException ex) {
+            LOGGER.log(Level.SEVERE,
+                    "Could not connect to the Archive service of the NanoSat MO Supervisor.", ex);
+            return null;
+        } finally {
+            if (centralDirectory != null) {
+                centralDirectory.close();
+            }
+        }
+    }
+
+    /**
+     * Logs the Archive mode with the start-up time, the used heap and the
+     * number of threads after the initialization. The shared and local
+     * Archives are compared on target with these numbers.
+     */
+    private void logArchiveFootprint() {
+        final Runtime runtime = Runtime.getRuntime();
+        final boolean shared = comServices.getArchiveService() instanceof SharedArchiveProviderServiceImpl;
+
+        LOGGER.log(Level.INFO,
+                "Archive: {0} (start-up: {1} ms, used heap: {2} kB, threads: {3})",
+                new Object[]{shared ? "shared" : "local",
+                    System.currentTimeMillis() - super.startTime,
+                    (runtime.totalMemory() - runtime.freeMemory()) / 1024,
+                    Thread.activeCount()});
+    }
+
     private void initClockService() {
         SystemClock.setPlatformClockCallback(new PlatformClockCallback(){
             @Override
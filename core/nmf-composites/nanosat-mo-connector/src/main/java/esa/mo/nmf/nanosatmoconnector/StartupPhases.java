@@ -0,0 +1,60 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nanosatmoconnector;
+
+/**
+ * Measures the duration of the startup phases of the NanoSat MO Connector.
+ * Each phase lasts from the end of the previous one until it is marked.
+ */
+class StartupPhases {
+
+    private final StringBuilder phases = new StringBuilder();
+    private long phaseStart;
+
+    /**
+     * @param startTime The start time of the first phase, in milliseconds.
+     */
+    StartupPhases(final long startTime) {
+        this.phaseStart = startTime;
+    }
+
+    /**
+     * Marks the end of a phase.
+     *
+     * @param name The name of the phase.
+     */
+    void mark(final String name) {
+        final long now = System.currentTimeMillis();
+
+        if (phases.length() != 0) {
+            phases.append(", ");
+        }
+
+        phases.append(name).append(": ").append(now - phaseStart).append(" ms");
+        phaseStart = now;
+    }
+
+    @Override
+    public String toString() {
+        return phases.toString();
+    }
+
+}
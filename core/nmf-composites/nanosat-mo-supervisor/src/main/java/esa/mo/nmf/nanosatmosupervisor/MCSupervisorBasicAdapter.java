@@ -23,6 +23,7 @@ package esa.mo.nmf.nanosatmosupervisor;
 import esa.mo.helpertools.connections.ConnectionConsumer;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
 import java.util.logging.Level;
@@ -42,12 +43,15 @@ import esa.mo.nmf.NMFException;
 import esa.mo.nmf.annotations.Action;
 import esa.mo.nmf.annotations.ActionParameter;
 import esa.mo.nmf.annotations.Parameter;
+import esa.mo.nmf.nanosatmosupervisor.parameter.AppResourceParameters;
 import esa.mo.nmf.nanosatmosupervisor.parameter.OBSWParameterManager;
+import esa.mo.sm.impl.provider.ProcessAccounting;
 import esa.mo.sm.impl.util.OSValidator;
 import esa.mo.sm.impl.util.ShellCommander;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Duration;
 import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.UpdateHeaderList;
 import org.ccsds.moims.mo.platform.autonomousadcs.consumer.AutonomousADCSAdapter;
 import org.ccsds.moims.mo.platform.autonomousadcs.structures.AttitudeModeSunPointing;
@@ -94,6 +98,11 @@ public class MCSupervisorBasicAdapter extends MonitorAndControlNMFAdapter {
    */
   private OBSWParameterManager obswParameterManager;
 
+  /**
+   * Exposes the resources used by the apps
+   */
+  private AppResourceParameters appResourceParameters;
+
   public MCSupervisorBasicAdapter() {
   }
 
@@ -116,6 +125,15 @@ public class MCSupervisorBasicAdapter extends MonitorAndControlNMFAdapter {
     } catch (IOException | JAXBException | XMLStreamException e) {
       LOGGER.log(Level.SEVERE, "Couldn't register OBSW parameters proxies", e);
     }
+
+    /* APPS RESOURCES PARAMETERS */
+    if (nmfSupervisor != null) {
+      ProcessAccounting accounting = nmfSupervisor.getAppsProcessAccounting();
+      if (accounting.isAvailable()) {
+        appResourceParameters = new AppResourceParameters(accounting, registrationObject);
+        accounting.addListener(appResourceParameters);
+      }
+    }
   }
 
   @Override
@@ -127,10 +145,41 @@ public class MCSupervisorBasicAdapter extends MonitorAndControlNMFAdapter {
       }
     }
 
+    if (appResourceParameters != null && appResourceParameters.isAppResourceParameter(parameterID)) {
+      return appResourceParameters.getValue(parameterID);
+    }
+
     // otherwise it's one of the annotated internal parameters
     return super.onGetValue(parameterID);
   }
 
+  @Override
+  public Attribute[] onGetValues(LongList parameterIDs) throws IOException {
+    Attribute[] values = new Attribute[parameterIDs.size()];
+    int[] obswPositions = new int[values.length];
+    int[] obswIndexes = new int[values.length];
+    int obswCount = 0;
+
+    for (int i = 0; i < values.length; i++) {
+      int index = (obswParameterManager == null) ? -1 : obswParameterManager.getIndex(parameterIDs.get(i));
+      if (index != -1) {
+        obswPositions[obswCount] = i;
+        obswIndexes[obswCount++] = index;
+      } else {
+        values[i] = onGetValue(parameterIDs.get(i));
+      }
+    }
+
+    // fetch all the OBSW parameters in one request to the values provider
+    if (obswCount != 0) {
+      Attribute[] obswValues = obswParameterManager.getValues(Arrays.copyOf(obswIndexes, obswCount));
+      for (int i = 0; i < obswCount; i++) {
+        values[obswPositions[i]] = obswValues[i];
+      }
+    }
+    return values;
+  }
+
   public void startAdcsAttitudeMonitoring() {
     try {
       // Subscribe monitorAttitude
@@ -38,6 +38,7 @@ import esa.mo.platform.impl.util.PlatformServicesConsumer;
 import esa.mo.reconfigurable.provider.PersistProviderConfiguration;
 import esa.mo.sm.impl.provider.AppsLauncherProviderServiceImpl;
 import esa.mo.sm.impl.provider.CommandExecutorProviderServiceImpl;
+import esa.mo.sm.impl.provider.ProcessAccounting;
 import esa.mo.sm.impl.util.PMBackend;
 import esa.mo.sm.impl.provider.PackageManagementProviderServiceImpl;
 import java.io.IOException;
@@ -107,7 +108,7 @@ public abstract class NanoSatMOSupervisor extends NMFProvider {
       this.commandExecutorService.init(comServices);
       this.packageManagementService.init(comServices, packageManagementBackend);
       this.comServices.initArchiveSync();
-      super.reconfigurableServices.add(this.appsLauncherService);
+      this.addReconfigurableService(this.appsLauncherService);
       this.appsLauncherService.setStdQuotaPerApp(stdQuota);
       this.comServices.getArchiveSyncService().setStdQuota(stdQuota);
       this.startMCServices(mcAdapter);
@@ -279,6 +280,15 @@ public abstract class NanoSatMOSupervisor extends NMFProvider {
     System.exit(0);
   }
 
+  /**
+   * Returns the accounting of the resources used by the apps launched by the supervisor.
+   *
+   * @return The accounting, available after the initialization of the services.
+   */
+  public ProcessAccounting getAppsProcessAccounting() {
+    return appsLauncherService.getProcessAccounting();
+  }
+
   public abstract void initPlatformServices(COMServicesProvider comServices);
 
   protected abstract void startStatusTracking();
@@ -0,0 +1,180 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nanosatmosupervisor.parameter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetailsList;
+import esa.mo.nmf.MCRegistration;
+import esa.mo.sm.impl.provider.ProcessAccounting;
+
+/**
+ * Exposes the resources used by each app as parameters of the supervisor, named
+ * [app name].[resource]. The parameters of an app are registered the first time it is launched.
+ */
+public class AppResourceParameters implements ProcessAccounting.Listener {
+  /**
+   * The logger
+   */
+  private static final Logger LOGGER = Logger.getLogger(AppResourceParameters.class.getName());
+
+  /**
+   * Default report interval (seconds)
+   */
+  private static final int DEFAULT_REPORT_INTERVAL = 10;
+
+  /**
+   * The resources, in the order of the registration.
+   */
+  private enum Resource {
+    CPU("CPUUsage", "The CPU usage of the app.", "%", Union.FLOAT_SHORT_FORM),
+    RSS("MemoryUsage", "The resident memory of the processes of the app.", "kB",
+        Union.LONG_SHORT_FORM),
+    THREADS("Threads", "The number of threads of the app.", "", Union.INTEGER_SHORT_FORM),
+    PROCESSES("Processes", "The number of processes of the app.", "", Union.INTEGER_SHORT_FORM),
+    READ_BYTES("ReadBytes", "The bytes read from the storage by the app.", "bytes",
+        Union.LONG_SHORT_FORM),
+    WRITE_BYTES("WriteBytes", "The bytes written to the storage by the app.", "bytes",
+        Union.LONG_SHORT_FORM);
+
+    private final String suffix;
+    private final String description;
+    private final String unit;
+    private final Integer type;
+
+    Resource(String suffix, String description, String unit, Integer type) {
+      this.suffix = suffix;
+      this.description = description;
+      this.unit = unit;
+      this.type = type;
+    }
+  }
+
+  /**
+   * The accounting of the apps
+   */
+  private final ProcessAccounting accounting;
+
+  /**
+   * Registers the parameters
+   */
+  private final MCRegistration registration;
+
+  /**
+   * The apps with registered parameters
+   */
+  private final Set<String> registeredApps = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Maps the object instance id of each ParameterIdentity to its app and resource.
+   */
+  private final Map<Long, AppResource> parameters = new ConcurrentHashMap<>();
+
+  public AppResourceParameters(ProcessAccounting accounting, MCRegistration registration) {
+    this.accounting = accounting;
+    this.registration = registration;
+  }
+
+  @Override
+  public void appTracked(String appName) {
+    if (!registeredApps.add(appName)) {
+      return;
+    }
+
+    ParameterDefinitionDetailsList paramDefs = new ParameterDefinitionDetailsList();
+    IdentifierList paramIdentifiers = new IdentifierList();
+
+    for (Resource resource : Resource.values()) {
+      paramDefs.add(new ParameterDefinitionDetails(resource.description,
+          resource.type.byteValue(), resource.unit, false,
+          new Duration(DEFAULT_REPORT_INTERVAL), null, null));
+      paramIdentifiers.add(new Identifier(appName + "." + resource.suffix));
+    }
+
+    LongList ids = registration.registerParameters(paramIdentifiers, paramDefs);
+    if (ids == null || ids.size() != Resource.values().length) {
+      LOGGER.log(Level.SEVERE,
+          "Error while registering the resource parameters of the app {0}", appName);
+      registeredApps.remove(appName);
+      return;
+    }
+    for (int i = 0; i < ids.size(); i++) {
+      parameters.put(ids.get(i), new AppResource(appName, Resource.values()[i]));
+    }
+  }
+
+  /**
+   * @param parameterID The parameter ID to test
+   * @return true if the ID corresponds to one of the parameters registered by this class
+   */
+  public boolean isAppResourceParameter(Long parameterID) {
+    return parameters.containsKey(parameterID);
+  }
+
+  /**
+   * Returns the last sampled value of a resource parameter.
+   *
+   * @param parameterID ID of the parameter
+   * @return The value, or null if the app is not running
+   */
+  public Attribute getValue(Long parameterID) {
+    AppResource appResource = parameters.get(parameterID);
+    ProcessAccounting.Usage usage = accounting.getUsage(appResource.appName);
+    if (usage == null) {
+      return null;
+    }
+
+    switch (appResource.resource) {
+      case CPU:
+        return new Union(usage.getCpu());
+      case RSS:
+        return new Union(usage.getRss());
+      case THREADS:
+        return new Union(usage.getThreads());
+      case PROCESSES:
+        return new Union(usage.getProcesses());
+      case READ_BYTES:
+        return new Union(usage.getReadBytes());
+      default:
+        return new Union(usage.getWriteBytes());
+    }
+  }
+
+  private static final class AppResource {
+    private final String appName;
+    private final Resource resource;
+
+    private AppResource(String appName, Resource resource) {
+      this.appName = appName;
+      this.resource = resource;
+    }
+  }
+}
@@ -51,4 +51,10 @@ public class DummyValuesProvider extends OBSWParameterValuesProvider {
     OBSWParameter param = parameterMap.get(identifier);
     return HelperAttributes.attributeName2Attribute(param.getType());
   }
+
+  /** {@inheritDoc} */
+  @Override
+  public Attribute getValue(int index) {
+    return HelperAttributes.attributeName2Attribute(parameterTable.getParameter(index).getType());
+  }
 }
@@ -22,10 +22,7 @@ package esa.mo.nmf.nanosatmosupervisor.parameter;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Constructor;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -58,39 +55,63 @@ public class OBSWParameterManager {
   private static final int DEFAULT_REPORT_INTERVAL = 5;
 
   /**
-   * Helper to read the OBSW parameter from datapool.
+   * Property holding the class name of the OBSW parameter values provider.
    */
-  private final ParameterLister parameterLister;
+  private static final String VALUES_PROVIDER_PROPERTY =
+      "nmf.supervisor.parameter.valuesprovider.impl";
+
+  /**
+   * The OBSW parameters of the datapool, by index.
+   */
+  private final OBSWParameterTable parameterTable;
 
   /**
    * Maps each parameter proxy (object instance id of the ParameterIdentity in the supervisor) to
-   * the OBSW parameter it represents.
+   * the index of the OBSW parameter it represents in the parameter table.
    */
-  private Map<Long, OBSWParameter> proxyIdsToOBSWParams;
+  private final Map<Long, Integer> proxyIdsToIndexes;
 
   /**
    * Provides the OBSW parameter values
    */
-  private OBSWParameterValuesProvider valuesProvider;
+  private final OBSWParameterValuesProvider valuesProvider;
 
   public OBSWParameterManager(InputStream datapool)
       throws IOException, JAXBException, XMLStreamException {
     // Read from provided inputstreams
-    parameterLister = new ParameterLister(datapool);
+    ParameterLister parameterLister = new ParameterLister(datapool);
 
     // Initialize the parameters proxies to OBSW parameter maps
-    proxyIdsToOBSWParams = new HashMap<>();
+    proxyIdsToIndexes = new HashMap<>();
+
+    // Instantiate the value provider, which compiles the datapool into the parameter table
+    valuesProvider = newValuesProvider(parameterLister.getParameters());
+    parameterTable = valuesProvider.getParameterTable();
+  }
+
+  /**
+   * Instantiates the values provider set by the property, or the dummy values provider if it is
+   * not set or cannot be instantiated.
+   *
+   * @param parameterMap The OBSW parameters, by name
+   * @return The values provider
+   */
+  private static OBSWParameterValuesProvider newValuesProvider(
+      HashMap<Identifier, OBSWParameter> parameterMap) {
+    String valuesProviderClass = System.getProperty(VALUES_PROVIDER_PROPERTY);
+    if (valuesProviderClass == null
+        || valuesProviderClass.equals(DummyValuesProvider.class.getName())) {
+      return new DummyValuesProvider(parameterMap);
+    }
 
-    // Instantiate the value provider
-    HashMap<Identifier, OBSWParameter> parameterMap = parameterLister.getParameters();
-    String valuesProviderClass = System.getProperty("nmf.supervisor.parameter.valuesprovider.impl");
     try {
-      Constructor<?> c = Class.forName(valuesProviderClass).getConstructor(parameterMap.getClass());
-      valuesProvider = (OBSWParameterValuesProvider) c.newInstance(new Object[] {parameterMap});
+      Class<? extends OBSWParameterValuesProvider> clazz =
+          Class.forName(valuesProviderClass).asSubclass(OBSWParameterValuesProvider.class);
+      return clazz.getConstructor(HashMap.class).newInstance(parameterMap);
     } catch (Exception e) {
       LOGGER.log(Level.SEVERE,
           "Error initializing the values provider. Using dummy values provider.", e);
-      valuesProvider = new DummyValuesProvider(parameterMap);
+      return new DummyValuesProvider(parameterMap);
     }
   }
 
@@ -100,31 +121,27 @@ public class OBSWParameterManager {
    * @param registrationObject The registration object
    */
   public void registerParametersProxies(MCRegistration registrationObject) {
-    // Sort parameters by id
-    List<OBSWParameter> parameters =
-            new ArrayList<>(parameterLister.getParameters().values());
-    parameters.sort((OBSWParameter p1, OBSWParameter p2) -> p1.getId().compareTo(p2.getId()));
-
-    // Create the parameter proxies definitions
+    // Create the parameter proxies definitions, the table is sorted by id
     ParameterDefinitionDetailsList paramDefs = new ParameterDefinitionDetailsList();
     IdentifierList paramIdentifiers = new IdentifierList();
 
-    for (OBSWParameter param : parameters) {
+    for (int i = 0; i < parameterTable.size(); i++) {
+      OBSWParameter param = parameterTable.getParameter(i);
       paramDefs.add(new ParameterDefinitionDetails(param.getDescription(),
           HelperAttributes.attributeName2typeShortForm(param.getType()).byteValue(), "", false,
           new Duration(DEFAULT_REPORT_INTERVAL), null, null));
-      paramIdentifiers.add(new Identifier(param.getName()));
+      paramIdentifiers.add(parameterTable.getIdentifier(i));
     }
 
     // Register the parameter proxies
     LongList proxyIds = registrationObject.registerParameters(paramIdentifiers, paramDefs);
-    if (proxyIds == null || proxyIds.size() != parameters.size()) {
+    if (proxyIds == null || proxyIds.size() != parameterTable.size()) {
       LOGGER.log(Level.SEVERE,
           "Error while registering OBSW parameters proxies: returned IDs are null or some are missing");
       return;
     }
     for (int i = 0; i < proxyIds.size(); i++) {
-      proxyIdsToOBSWParams.put(proxyIds.get(i), parameters.get(i));
+      proxyIdsToIndexes.put(proxyIds.get(i), i);
     }
   }
 
@@ -135,26 +152,44 @@ public class OBSWParameterManager {
    * @return The value
    */
   public Attribute getValue(Long parameterID) {
-    Identifier obswParamIdentifier =
-        new Identifier(proxyIdsToOBSWParams.get(parameterID).getName());
-    return getValue(obswParamIdentifier);
+    return valuesProvider.getValue(proxyIdsToIndexes.get(parameterID).intValue());
   }
 
   /**
-   * @param parameterID The parameter ID to test
-   * @return true if the ID corresponds to one of the parameter proxies registered by this class
+   * Returns the values of several OBSW parameters in one request to the values provider.
+   *
+   * @param indexes Indexes of the parameters in the parameter table, see {@link #getIndex(Long)}
+   * @return The values, in the same order as the indexes
    */
-  public boolean isOBSWParameterProxy(Long parameterID) {
-    return proxyIdsToOBSWParams.containsKey(parameterID);
+  public Attribute[] getValues(int[] indexes) {
+    return valuesProvider.getValues(indexes);
   }
 
   /**
-   * Returns a value for the given OBSW parameter.
+   * Returns the index in the parameter table of the OBSW parameter represented by a proxy.
    *
-   * @param identifier Name of the parameter
-   * @return The value
+   * @param parameterID ID of the parameter proxy
+   * @return The index or -1 if the ID does not correspond to a parameter proxy
+   */
+  public int getIndex(Long parameterID) {
+    Integer index = proxyIdsToIndexes.get(parameterID);
+    return (index == null) ? -1 : index;
+  }
+
+  /**
+   * Returns the table of the OBSW parameters of the datapool.
+   *
+   * @return The parameter table
    */
-  private Attribute getValue(Identifier identifier) {
-    return valuesProvider.getValue(identifier);
+  public OBSWParameterTable getParameterTable() {
+    return parameterTable;
+  }
+
+  /**
+   * @param parameterID The parameter ID to test
+   * @return true if the ID corresponds to one of the parameter proxies registered by this class
+   */
+  public boolean isOBSWParameterProxy(Long parameterID) {
+    return proxyIdsToIndexes.containsKey(parameterID);
   }
 }
@@ -0,0 +1,132 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nanosatmosupervisor.parameter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import esa.mo.helpertools.helpers.HelperAttributes;
+
+/**
+ * The OBSW parameters of the datapool compiled into a dense table. Each parameter gets an index,
+ * following the order of the parameter IDs, and its name Identifier and type are resolved once so
+ * that the values can be read without allocating per request.
+ */
+public final class OBSWParameterTable {
+  /**
+   * The parameters, by index.
+   */
+  private final OBSWParameter[] parameters;
+
+  /**
+   * The name Identifiers of the parameters, by index.
+   */
+  private final Identifier[] identifiers;
+
+  /**
+   * The attribute type short forms of the parameters, by index. Null if the type is unknown.
+   */
+  private final Integer[] types;
+
+  /**
+   * The index of each parameter, by name.
+   */
+  private final Map<Identifier, Integer> indexes;
+
+  /**
+   * Creates a new instance of OBSWParameterTable.
+   *
+   * @param parameterMap The OBSW parameters by name, as read from the datapool
+   */
+  public OBSWParameterTable(Map<Identifier, OBSWParameter> parameterMap) {
+    List<OBSWParameter> sorted = new ArrayList<>(parameterMap.values());
+    sorted.sort((OBSWParameter p1, OBSWParameter p2) -> p1.getId().compareTo(p2.getId()));
+
+    int size = sorted.size();
+    parameters = sorted.toArray(new OBSWParameter[size]);
+    identifiers = new Identifier[size];
+    types = new Integer[size];
+    indexes = new HashMap<>(size * 2);
+
+    for (int i = 0; i < size; i++) {
+      identifiers[i] = new Identifier(parameters[i].getName());
+      try {
+        types[i] = HelperAttributes.attributeName2typeShortForm(parameters[i].getType());
+      } catch (IllegalArgumentException e) {
+        types[i] = null;
+      }
+      indexes.put(identifiers[i], i);
+    }
+  }
+
+  /**
+   * Returns the number of parameters.
+   *
+   * @return The number of parameters.
+   */
+  public int size() {
+    return parameters.length;
+  }
+
+  /**
+   * Returns the parameter at the given index.
+   *
+   * @param index The index
+   * @return The parameter.
+   */
+  public OBSWParameter getParameter(int index) {
+    return parameters[index];
+  }
+
+  /**
+   * Returns the name Identifier of the parameter at the given index. The same instance is returned
+   * on every call.
+   *
+   * @param index The index
+   * @return The name Identifier.
+   */
+  public Identifier getIdentifier(int index) {
+    return identifiers[index];
+  }
+
+  /**
+   * Returns the attribute type short form of the parameter at the given index.
+   *
+   * @param index The index
+   * @return The type short form or null if the type is unknown.
+   */
+  public Integer getTypeShortForm(int index) {
+    return types[index];
+  }
+
+  /**
+   * Returns the index of the given parameter.
+   *
+   * @param identifier Name of the parameter
+   * @return The index or -1 if the parameter is not in the datapool.
+   */
+  public int indexOf(Identifier identifier) {
+    Integer index = indexes.get(identifier);
+    return (index == null) ? -1 : index;
+  }
+}
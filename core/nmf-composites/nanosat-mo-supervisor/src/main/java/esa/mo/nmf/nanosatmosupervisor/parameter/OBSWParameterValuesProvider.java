@@ -44,6 +44,12 @@ public abstract class OBSWParameterValuesProvider {
    */
   protected final HashMap<Identifier, OBSWParameter> parameterMap;
 
+  /**
+   * The same OBSW parameters compiled into a dense table. The values can be requested by index in
+   * this table.
+   */
+  protected final OBSWParameterTable parameterTable;
+
   /**
    * Creates a new instance of OBSWParameterValuesProvider.
    * 
@@ -56,6 +62,16 @@ public abstract class OBSWParameterValuesProvider {
       parameterMap = new HashMap<>();
     }
     this.parameterMap = parameterMap;
+    this.parameterTable = new OBSWParameterTable(parameterMap);
+  }
+
+  /**
+   * Returns the table of the OBSW parameters for which we have to provide values for.
+   *
+   * @return The table
+   */
+  public OBSWParameterTable getParameterTable() {
+    return parameterTable;
   }
 
   /**
@@ -65,4 +81,32 @@ public abstract class OBSWParameterValuesProvider {
    * @return The value or null if the parameter name is unknown or a problem happened while fetching the value
    */
   public abstract Attribute getValue(Identifier identifier);
+
+  /**
+   * Returns a value for the parameter at the given index of the parameter table. Implementations
+   * should override it to avoid the lookup by name.
+   *
+   * @param index Index of the parameter in the parameter table
+   * @return The value or null if a problem happened while fetching the value
+   */
+  public Attribute getValue(int index) {
+    return getValue(parameterTable.getIdentifier(index));
+  }
+
+  /**
+   * Returns the values for the parameters at the given indexes of the parameter table. For
+   * example, all the parameters of an OBSW aggregation. Implementations able to fetch several
+   * parameters in one request should override it.
+   *
+   * @param indexes Indexes of the parameters in the parameter table
+   * @return The values, in the same order as the indexes. A value is null if a problem happened
+   *         while fetching it
+   */
+  public Attribute[] getValues(int[] indexes) {
+    Attribute[] values = new Attribute[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      values[i] = getValue(indexes[i]);
+    }
+    return values;
+  }
 }
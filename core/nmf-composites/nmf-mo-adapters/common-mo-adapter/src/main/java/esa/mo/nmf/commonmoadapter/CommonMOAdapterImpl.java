@@ -20,7 +20,11 @@
  */
 package esa.mo.nmf.commonmoadapter;
 
+import esa.mo.com.impl.consumer.EventConsumerServiceImpl;
+import esa.mo.com.impl.util.EventCOMObject;
+import esa.mo.com.impl.util.EventReceivedListener;
 import esa.mo.com.impl.util.HelperArchive;
+import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConnectionConsumer;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.helpertools.helpers.HelperAttributes;
@@ -30,9 +34,16 @@ import esa.mo.nmf.NMFConsumer;
 import esa.mo.nmf.NMFException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
@@ -48,6 +59,7 @@ import org.ccsds.moims.mo.com.structures.ObjectIdList;
 import org.ccsds.moims.mo.com.structures.ObjectKey;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
 import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALHelper;
 import org.ccsds.moims.mo.mal.MALInteractionException;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Blob;
@@ -57,6 +69,8 @@ import org.ccsds.moims.mo.mal.structures.IdentifierList;
 import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.Subscription;
 import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UIntegerList;
 import org.ccsds.moims.mo.mal.structures.UShort;
 import org.ccsds.moims.mo.mal.structures.UpdateHeaderList;
 import org.ccsds.moims.mo.mal.transport.MALMessage;
@@ -74,6 +88,7 @@ import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterValue;
 import org.ccsds.moims.mo.mc.aggregation.structures.AggregationSetValue;
 import org.ccsds.moims.mo.mc.aggregation.structures.AggregationValue;
 import org.ccsds.moims.mo.mc.aggregation.structures.AggregationValueList;
+import org.ccsds.moims.mo.mc.parameter.ParameterHelper;
 import org.ccsds.moims.mo.mc.parameter.consumer.ParameterAdapter;
 import org.ccsds.moims.mo.mc.parameter.consumer.ParameterStub;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterCreationRequest;
@@ -103,6 +118,16 @@ public class CommonMOAdapterImpl extends NMFConsumer implements SimpleCommanding
   private Subscription parameterSubscription = null;
   private Subscription aggregationSubscription = null;
 
+  /* The object instance identifiers of the parameter identities, by name */
+  private final Map<String, Long> parameterIdentities = new ConcurrentHashMap<>();
+  private boolean identityEventsSubscribed = false;
+  private boolean definitionEventsSubscribed = false;
+
+  /* The values waiting for the end of the coalescing window, by name */
+  private final Map<String, Attribute> pendingValues = new LinkedHashMap<>();
+  private long coalescingWindow = 0;
+  private Timer coalescingTimer = null;
+
   /**
    * The constructor of this class
    *
@@ -154,75 +179,317 @@ public class CommonMOAdapterImpl extends NMFConsumer implements SimpleCommanding
   @Override
   public void setParameter(final String parameterName, final Serializable content)
   {
-    // Check if the parameter exists
-    IdentifierList parameters = new IdentifierList(1);
-    parameters.add(new Identifier(parameterName));
+    Attribute rawValue = CommonMOAdapterImpl.toRawValue(content);
+
+    if (rawValue == null) {
+      return;
+    }
+
+    synchronized (pendingValues) {
+      if (coalescingWindow > 0) {
+        // The value is pushed together with the others set in the same window
+        if (pendingValues.isEmpty()) {
+          getCoalescingTimer().schedule(new TimerTask()
+          {
+            @Override
+            public void run()
+            {
+              flushPendingValues();
+            }
+          }, coalescingWindow);
+        }
+
+        pendingValues.put(parameterName, rawValue);
+        return;
+      }
+    }
+
+    this.pushValues(Collections.singletonMap(parameterName, rawValue));
+  }
+
+  @Override
+  public void setParameters(final Map<String, Serializable> parameters)
+  {
+    Map<String, Attribute> values = new LinkedHashMap<>();
+
+    for (Map.Entry<String, Serializable> parameter : parameters.entrySet()) {
+      Attribute rawValue = CommonMOAdapterImpl.toRawValue(parameter.getValue());
 
+      if (rawValue != null) {
+        values.put(parameter.getKey(), rawValue);
+      }
+    }
+
+    if (!values.isEmpty()) {
+      this.pushValues(values);
+    }
+  }
+
+  /**
+   * Sets the time window during which the values passed to setParameter are collected before being
+   * pushed together in a single setValue call. Only the last value of each parameter is pushed. A
+   * window of 0, the default, pushes every value immediately.
+   *
+   * @param windowMillis The time window in milliseconds
+   */
+  public void setCoalescingWindow(final long windowMillis)
+  {
+    synchronized (pendingValues) {
+      this.coalescingWindow = windowMillis;
+    }
+
+    if (windowMillis <= 0) {
+      this.flushPendingValues();
+    }
+  }
+
+  private Timer getCoalescingTimer()
+  {
+    if (coalescingTimer == null) {
+      coalescingTimer = new Timer("CommonMOAdapter_Coalescing", true);
+    }
+
+    return coalescingTimer;
+  }
+
+  private void flushPendingValues()
+  {
+    Map<String, Attribute> values;
+
+    synchronized (pendingValues) {
+      if (pendingValues.isEmpty()) {
+        return;
+      }
+
+      values = new LinkedHashMap<>(pendingValues);
+      pendingValues.clear();
+    }
+
+    this.pushValues(values);
+  }
+
+  /**
+   * Converts the content of a parameter to its raw value. Java types are converted to the
+   * respective MAL Attribute and anything else is serialized inside a Blob.
+   *
+   * @param content The content of the Parameter
+   * @return The raw value or null if the content could not be serialized
+   */
+  private static Attribute toRawValue(final Serializable content)
+  {
     // If it is java type, then convert it to Attribute
     Object midValue = HelperAttributes.javaType2Attribute(content);
-    Attribute rawValue;
 
     if (midValue instanceof Attribute) { // Is the parameter MAL type or something else?
-      rawValue = (Attribute) midValue;
-    } else {
+      return (Attribute) midValue;
+    }
+
+    try {
+      // Well, if it is something else, then it will have to serialize it and put it inside a Blob
+      return HelperAttributes.serialObject2blobAttribute(content);
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, null, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Pushes raw values to the Parameter service in a single setValue call.
+   *
+   * @param values The raw values, by parameter name
+   */
+  private void pushValues(final Map<String, Attribute> values)
+  {
+    ParameterStub parameterService = super.getMCServices().getParameterService().getParameterStub();
+
+    try {
       try {
-        // Well, if it is something else, then it will have to serialize it and put it inside a Blob
-        rawValue = HelperAttributes.serialObject2blobAttribute(content);
-      } catch (IOException ex) {
-        LOGGER.log(Level.SEVERE, null, ex);
-        return;
+        parameterService.setValue(this.toRawValueList(parameterService, values));
+      } catch (MALInteractionException ex) {
+        if (!MALHelper.UNKNOWN_ERROR_NUMBER.equals(ex.getStandardError().getErrorNumber())) {
+          throw ex;
+        }
+
+        // A cached identity was removed from the provider, resolve the names again
+        parameterIdentities.keySet().removeAll(values.keySet());
+        parameterService.setValue(this.toRawValueList(parameterService, values));
       }
+    } catch (MALInteractionException ex) {
+      LOGGER.log(Level.SEVERE, "The parameter could not be set!", ex);
+    } catch (MALException ex) {
+      LOGGER.log(Level.SEVERE, null, ex);
     }
+  }
 
-    ParameterStub parameterService = super.getMCServices().getParameterService().getParameterStub();
+  private ParameterRawValueList toRawValueList(final ParameterStub parameterService,
+      final Map<String, Attribute> values) throws MALInteractionException, MALException
+  {
+    Map<String, Long> identities = this.resolveIdentities(parameterService, values);
+    ParameterRawValueList raws = new ParameterRawValueList(values.size());
+
+    for (Map.Entry<String, Attribute> value : values.entrySet()) {
+      raws.add(new ParameterRawValue(identities.get(value.getKey()), value.getValue()));
+    }
+
+    return raws;
+  }
+
+  /**
+   * Returns the object instance identifiers of the parameter identities. The names that are not
+   * cached yet are listed in a single listDefinition call, and the ones without a definition are
+   * created in a single addParameter call.
+   *
+   * @param parameterService The Parameter service
+   * @param values The raw values, by parameter name
+   * @return The identity of each parameter, by name
+   */
+  private Map<String, Long> resolveIdentities(final ParameterStub parameterService,
+      final Map<String, Attribute> values) throws MALInteractionException, MALException
+  {
+    this.subscribeToDefinitionEvents();
+    Map<String, Long> identities = new HashMap<>();
+    List<String> missing = new ArrayList<>();
+
+    for (String name : values.keySet()) {
+      Long identity = parameterIdentities.get(name);
+
+      if (identity != null) {
+        identities.put(name, identity);
+      } else {
+        missing.add(name);
+      }
+    }
+
+    if (missing.isEmpty()) {
+      return identities;
+    }
+
+    List<String> known = missing;
+    List<String> unknown = new ArrayList<>();
+    ObjectInstancePairList objIds;
 
     try {
-      ObjectInstancePairList objIds = parameterService.listDefinition(parameters);
+      objIds = parameterService.listDefinition(CommonMOAdapterImpl.toIdentifiers(known));
+    } catch (MALInteractionException ex) {
+      Object extraInfo = ex.getStandardError().getExtraInformation();
 
-      if (objIds == null) {
-        return;  // something went wrong... Connection problem?
+      if (!MALHelper.UNKNOWN_ERROR_NUMBER.equals(ex.getStandardError().getErrorNumber())
+          || !(extraInfo instanceof UIntegerList)) {
+        throw ex;
       }
 
-      ObjectInstancePair objId = objIds.get(0);
+      // The names without a definition are reported by their index
+      for (UInteger index : (UIntegerList) extraInfo) {
+        unknown.add(missing.get((int) index.getValue()));
+      }
+
+      known = new ArrayList<>(missing);
+      known.removeAll(unknown);
+      objIds = known.isEmpty() ? new ObjectInstancePairList()
+          : parameterService.listDefinition(CommonMOAdapterImpl.toIdentifiers(known));
+    }
+
+    if (objIds == null) {
+      throw new MALException("The parameter definitions could not be listed!");
+    }
+
+    for (int i = 0; i < known.size(); i++) {
+      ObjectInstancePair objId = (i < objIds.size()) ? objIds.get(i) : null;
 
-      // If the definition does not exist, then create it automatically for the user
       if (objId == null) {
-        // Well, then let's create a new Parameter Definition and add it on the provider...
-        ParameterDefinitionDetails parameterDefinition = new ParameterDefinitionDetails();
-        parameterDefinition.setDescription(
-            "This Definition was automatically generated by: " + CommonMOAdapterImpl.class.getName());
+        unknown.add(known.get(i));
+      } else {
+        identities.put(known.get(i), objId.getObjIdentityInstanceId());
+      }
+    }
 
-        if (rawValue instanceof Attribute) { // Is the parameter MAL type or something else?
-          parameterDefinition.setRawType(((Attribute) midValue).getTypeShortForm().byteValue());
-        } else {
-          parameterDefinition.setRawType(HelperAttributes.SERIAL_OBJECT_RAW_TYPE);
-        }
+    if (!unknown.isEmpty()) {
+      // If the definition does not exist, then create it automatically for the user
+      ParameterCreationRequestList requests = new ParameterCreationRequestList(unknown.size());
+
+      for (String name : unknown) {
+        requests.add(new ParameterCreationRequest(new Identifier(name),
+            CommonMOAdapterImpl.generateDefinition(values.get(name))));
+      }
+
+      // Now, add the definitions to the service provider
+      objIds = parameterService.addParameter(requests);
+
+      for (int i = 0; i < unknown.size(); i++) {
+        identities.put(unknown.get(i), objIds.get(i).getObjIdentityInstanceId());
+      }
+    }
 
-        parameterDefinition.setRawUnit(null);
-        parameterDefinition.setGenerationEnabled(false);
-        parameterDefinition.setReportInterval(new Duration(0));
-        parameterDefinition.setValidityExpression(null);
-        parameterDefinition.setConversion(null);
+    for (String name : missing) {
+      parameterIdentities.put(name, identities.get(name));
+    }
+
+    return identities;
+  }
+
+  private static IdentifierList toIdentifiers(final List<String> names)
+  {
+    IdentifierList identifiers = new IdentifierList(names.size());
 
-        ParameterCreationRequestList request = new ParameterCreationRequestList(1);
-        request.add(new ParameterCreationRequest(new Identifier(parameterName), parameterDefinition));
+    for (String name : names) {
+      identifiers.add(new Identifier(name));
+    }
+
+    return identifiers;
+  }
+
+  private static ParameterDefinitionDetails generateDefinition(final Attribute rawValue)
+  {
+    ParameterDefinitionDetails parameterDefinition = new ParameterDefinitionDetails();
+    parameterDefinition.setDescription(
+        "This Definition was automatically generated by: " + CommonMOAdapterImpl.class.getName());
+    parameterDefinition.setRawType(rawValue.getTypeShortForm().byteValue());
+    parameterDefinition.setRawUnit(null);
+    parameterDefinition.setGenerationEnabled(false);
+    parameterDefinition.setReportInterval(new Duration(0));
+    parameterDefinition.setValidityExpression(null);
+    parameterDefinition.setConversion(null);
+    return parameterDefinition;
+  }
+
+  /**
+   * Clears the cache of parameter identities whenever a parameter definition or identity is
+   * stored, updated or deleted in the COM Archive of the provider. A subscription that failed is
+   * attempted again on the next call.
+   */
+  private void subscribeToDefinitionEvents()
+  {
+    synchronized (parameterIdentities) {
+      if (identityEventsSubscribed && definitionEventsSubscribed) {
+        return;
+      }
 
-        // Now, add the definition to the service provider
-        objIds = parameterService.addParameter(request);
+      if (super.getCOMServices() == null || super.getCOMServices().getEventService() == null) {
+        return;
       }
 
-      // Continues here...
-      ParameterRawValueList raws = new ParameterRawValueList();
-      ParameterRawValue raw = new ParameterRawValue(objIds.get(0).getObjIdentityInstanceId(),
-          rawValue);
-      raws.add(raw);
+      EventReceivedListener listener = new EventReceivedListener()
+      {
+        @Override
+        public void onDataReceived(EventCOMObject eventCOMObject)
+        {
+          parameterIdentities.clear();
+        }
+      };
 
-      // Ok, now, let's finally set the Value!
-      parameterService.setValue(raws);
-    } catch (MALInteractionException ex) {
-      LOGGER.log(Level.SEVERE, "The parameter could not be set!", ex);
-    } catch (MALException ex) {
-      LOGGER.log(Level.SEVERE, null, ex);
+      EventConsumerServiceImpl eventService = super.getCOMServices().getEventService();
+
+      if (!identityEventsSubscribed) {
+        identityEventsSubscribed = eventService.addEventReceivedListener(
+            HelperCOM.generateCOMEventSubscriptionBySourceType("ParameterIdentityEvents",
+                ParameterHelper.PARAMETERIDENTITY_OBJECT_TYPE), listener);
+      }
+
+      if (!definitionEventsSubscribed) {
+        definitionEventsSubscribed = eventService.addEventReceivedListener(
+            HelperCOM.generateCOMEventSubscriptionBySourceType("ParameterDefinitionEvents",
+                ParameterHelper.PARAMETERDEFINITION_OBJECT_TYPE), listener);
+      }
     }
   }
 
@@ -246,9 +513,10 @@ public class CommonMOAdapterImpl extends NMFConsumer implements SimpleCommanding
             Attribute parameterValue = lParameterValueList.get(i).getRawValue();
             Serializable object;
 
-            // Is it a Blob?
-            if (parameterValue instanceof Blob) {
-              // If so, try to unserialize it
+            // Is it a Blob holding a serialized object?
+            if (parameterValue instanceof Blob
+                && HelperAttributes.isSerialObjectBlob((Blob) parameterValue)) {
+              // If so, unserialize it
               try {
                 object = HelperAttributes.blobAttribute2serialObject((Blob) parameterValue);
               } catch (IOException ex) {
@@ -478,6 +746,16 @@ public class CommonMOAdapterImpl extends NMFConsumer implements SimpleCommanding
    */
   public void closeConnections()
   {
+    // Push the values of the current coalescing window
+    this.flushPendingValues();
+
+    synchronized (pendingValues) {
+      if (coalescingTimer != null) {
+        coalescingTimer.cancel();
+        coalescingTimer = null;
+      }
+    }
+
     // Unregister the consumer from the broker
     if (this.parameterSubscription != null) {
       try {
@@ -23,6 +23,7 @@ package esa.mo.nmf.commonmoadapter;
 import esa.mo.nmf.NMFException;
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 import org.ccsds.moims.mo.mc.action.consumer.ActionAdapter;
 import org.ccsds.moims.mo.mc.structures.AttributeValueList;
@@ -48,6 +49,21 @@ public interface SimpleCommandingInterface
    */
   void setParameter(String parameterName, Serializable content);
 
+  /**
+   * The setParameters method sends the values of several parameters to the NanoSat MO Framework
+   * provider. As with setParameter, the missing parameter definitions are created automatically.
+   * The default implementation calls setParameter for each parameter; implementations may send
+   * them in a single request of the Parameter service.
+   *
+   * @param parameters The contents of the Parameters, by name
+   */
+  default void setParameters(Map<String, Serializable> parameters)
+  {
+    for (Map.Entry<String, Serializable> parameter : parameters.entrySet()) {
+      setParameter(parameter.getKey(), parameter.getValue());
+    }
+  }
+
   /**
    * Toggle the generation of the given parameters. Their values can then be received using the
    * addDataReceivedListener() method.
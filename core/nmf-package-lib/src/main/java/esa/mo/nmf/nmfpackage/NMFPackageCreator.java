@@ -21,6 +21,9 @@
 package esa.mo.nmf.nmfpackage;
 
 import esa.mo.helpertools.misc.Const;
+import esa.mo.nmf.nmfpackage.delta.BinaryDelta;
+import esa.mo.nmf.nmfpackage.delta.DeltaDescriptor;
+import esa.mo.nmf.nmfpackage.delta.DeltaFile;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDetails;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDescriptor;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageFile;
@@ -28,16 +31,24 @@ import esa.mo.nmf.nmfpackage.receipt.ReceiptVersion2;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -190,4 +201,137 @@ public class NMFPackageCreator {
         return packageOutputPath;
     }
 
+    /**
+     * Generates a delta NMF Package that upgrades an installed base version of
+     * the package to the new version. Only the files that changed are shipped,
+     * either as binary patches against the base version or in full when the
+     * patch would not be smaller. The files that are no longer part of the
+     * package are removed on installation.
+     *
+     * @param details The details of the new version.
+     * @param basePackagePath The path of the NMF Package of the base version.
+     * @param filesInput The files of the new version.
+     * @param newLocationsInput The locations of the files of the new version.
+     * @param destinationFolder The folder of the generated package, or null
+     * for the current folder.
+     * @return The path of the generated package, or null if it could not be
+     * generated.
+     */
+    public static String nmfDeltaPackageCreator(NMFPackageDetails details,
+            String basePackagePath, ArrayList<String> filesInput,
+            ArrayList<String> newLocationsInput, String destinationFolder) {
+        try (ZipFile base = new ZipFile(basePackagePath)) {
+            final NMFPackageDescriptor baseDescriptor;
+
+            try (InputStream stream = base.getInputStream(
+                    base.getEntry(HelperNMFPackage.RECEIPT_FILENAME))) {
+                baseDescriptor = NMFPackageDescriptor.parseInputStream(stream);
+            }
+
+            final String baseVersion = baseDescriptor.getDetails().getVersion();
+            final HashMap<String, Long> baseFiles = new LinkedHashMap<>();
+
+            for (NMFPackageFile file : baseDescriptor.getFiles()) {
+                baseFiles.put(file.getPath(), file.getCRC());
+            }
+
+            String name = details.getPackageName() + "-" + baseVersion + "-to-"
+                    + details.getVersion() + "." + Const.NMF_PACKAGE_SUFFIX;
+            String packageOutputPath = (destinationFolder == null) ? name
+                    : destinationFolder + File.separator + name;
+
+            NMFPackageDescriptor descriptor = new NMFPackageDescriptor(details);
+            DeltaDescriptor delta = new DeltaDescriptor(baseVersion);
+
+            try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(packageOutputPath)))) {
+                for (int i = 0; i < filesInput.size(); i++) {
+                    String location = newLocationsInput.get(i);
+                    byte[] data = Files.readAllBytes(new File(filesInput.get(i)).toPath());
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    descriptor.addFile(new NMFPackageFile(location, crc.getValue()));
+
+                    Long baseCRC = baseFiles.remove(location);
+
+                    if (baseCRC != null && baseCRC == crc.getValue()) {
+                        continue; // Unchanged, it is kept as installed
+                    }
+
+                    if (baseCRC != null) {
+                        byte[] baseData = readEntry(base, location);
+                        byte[] patch = BinaryDelta.create(baseData, data);
+
+                        if (patch.length < data.length) {
+                            DeltaFile file = new DeltaFile(location,
+                                    DeltaFile.Operation.PATCH, baseCRC);
+                            System.out.println("Patching file: " + location + " ("
+                                    + patch.length + " of " + data.length + " bytes)");
+                            writeEntry(out, file.getPatchEntryName(), patch);
+                            delta.addFile(file);
+                            continue;
+                        }
+                    }
+
+                    System.out.println("Adding file: " + location);
+                    writeEntry(out, location, data);
+                    delta.addFile(new DeltaFile(location, DeltaFile.Operation.ADD, 0));
+                }
+
+                for (String removed : baseFiles.keySet()) {
+                    System.out.println("Removing file: " + removed);
+                    delta.addFile(new DeltaFile(removed, DeltaFile.Operation.REMOVE,
+                            baseFiles.get(removed)));
+                }
+
+                // The receipt of the new version, so that it is tracked as a full install
+                out.putNextEntry(new ZipEntry(HelperNMFPackage.RECEIPT_FILENAME));
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out,
+                        StandardCharsets.UTF_8));
+                bw.write(HelperNMFPackage.NMF_PACKAGE_DESCRIPTOR_VERSION + "2");
+                bw.newLine();
+                ReceiptVersion2.writeReceipt(bw, descriptor);
+                bw.flush();
+
+                out.putNextEntry(new ZipEntry(DeltaDescriptor.DELTA_FILENAME));
+                delta.writeDescriptor(bw);
+                bw.flush();
+            }
+
+            return packageOutputPath;
+        } catch (IOException ex) {
+            Logger.getLogger(NMFPackageCreator.class.getName()).log(Level.SEVERE,
+                    "The delta package could not be generated!", ex);
+        }
+
+        return null;
+    }
+
+    private static byte[] readEntry(ZipFile zipFile, String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+
+        if (entry == null) {
+            throw new IOException("The base package does not contain the file: " + name);
+        }
+
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] data = new byte[BUFFER];
+            int count;
+
+            while ((count = in.read(data, 0, BUFFER)) != -1) {
+                bos.write(data, 0, count);
+            }
+
+            return bos.toByteArray();
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name,
+            byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
 }
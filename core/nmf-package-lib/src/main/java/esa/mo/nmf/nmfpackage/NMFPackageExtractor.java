@@ -0,0 +1,448 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage;
+
+import esa.mo.nmf.nmfpackage.delta.BinaryDelta;
+import esa.mo.nmf.nmfpackage.delta.DeltaDescriptor;
+import esa.mo.nmf.nmfpackage.delta.DeltaFile;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDescriptor;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts the files of an NMF Package in a single pass. The CRC of each file
+ * is calculated while its entry is streamed to a temporary file next to the
+ * final location, so the written files do not need to be read again. The
+ * temporary files are only renamed into place after all of them have been
+ * verified, otherwise they are removed and nothing is installed. The files
+ * that are replaced or removed are kept aside until all the renames succeed,
+ * so that a failure in the middle restores the previous installation. The
+ * receipt of the package, if set, is moved into place last, so it only
+ * changes once the files are installed.
+ */
+public class NMFPackageExtractor {
+
+    private static final String TEMP_ENDING = ".nmfpart";
+
+    private static final String BACKUP_ENDING = ".nmfold";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipFile zipFile;
+
+    private final File destination;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final ArrayList<File> temps = new ArrayList<>();
+
+    private final ArrayList<File> targets = new ArrayList<>();
+
+    private final ArrayList<File> removals = new ArrayList<>();
+
+    private ZipEntry receipt;
+
+    private File receiptFile;
+
+    /**
+     * Constructor.
+     *
+     * @param zipFile The NMF Package.
+     * @param destination The folder where the files are extracted to.
+     */
+    public NMFPackageExtractor(final ZipFile zipFile, final File destination) {
+        this.zipFile = zipFile;
+        this.destination = destination;
+    }
+
+    /**
+     * Sets the receipt to be installed with the files. It is staged like the
+     * files and moved into place after them.
+     *
+     * @param receipt The entry of the receipt in the package.
+     * @param receiptFile The receipt file of the installed package.
+     */
+    public void setReceipt(final ZipEntry receipt, final File receiptFile) {
+        this.receipt = receipt;
+        this.receiptFile = receiptFile;
+    }
+
+    /**
+     * Extracts all the files declared in the descriptor.
+     *
+     * @param descriptor The descriptor of the NMF Package.
+     * @throws IOException if an entry is missing, a CRC does not match or the
+     * files could not be written. In this case, no file is installed.
+     */
+    public void extract(final NMFPackageDescriptor descriptor) throws IOException {
+        try {
+            stageFiles(descriptor);
+            stageReceipt();
+        } catch (IOException ex) {
+            discard();
+            throw ex;
+        }
+
+        commit();
+    }
+
+    /**
+     * Replaces an installed version of the package with all the files of a new
+     * version. The installed files that are not part of the new version are
+     * removed.
+     *
+     * @param descriptor The descriptor of the new version of the package.
+     * @param installed The descriptor of the installed version.
+     * @throws IOException if an entry is missing, a CRC does not match or the
+     * files could not be written. In this case, the installed files are not
+     * changed.
+     */
+    public void extractUpgrade(final NMFPackageDescriptor descriptor,
+            final NMFPackageDescriptor installed) throws IOException {
+        try {
+            stageFiles(descriptor);
+            final HashSet<File> replaced = new HashSet<>(targets);
+
+            for (NMFPackageFile file : installed.getFiles()) {
+                File target = targetFile(file.getPath());
+
+                if (!replaced.contains(target)) {
+                    System.out.println("   >> Removing file on: " + target.getCanonicalPath());
+                    removals.add(target);
+                }
+            }
+
+            stageReceipt();
+        } catch (IOException ex) {
+            discard();
+            throw ex;
+        }
+
+        commit();
+    }
+
+    /**
+     * Applies a delta package to the installed files. The installed files to
+     * be patched or removed must match the CRCs that the delta was generated
+     * against, and the patched files must match the CRCs of the descriptor.
+     *
+     * @param descriptor The descriptor of the new version of the package.
+     * @param delta The delta between the installed and the new version.
+     * @throws IOException if a CRC does not match, the patches are malformed or
+     * the files could not be written. In this case, the installed files are
+     * not changed.
+     */
+    public void extractDelta(final NMFPackageDescriptor descriptor,
+            final DeltaDescriptor delta) throws IOException {
+        final HashMap<String, Long> crcs = new HashMap<>();
+
+        for (NMFPackageFile file : descriptor.getFiles()) {
+            crcs.put(file.getPath(), file.getCRC());
+        }
+
+        try {
+            for (DeltaFile file : delta.getFiles()) {
+                File target = targetFile(file.getPath());
+
+                if (file.getOperation() == DeltaFile.Operation.REMOVE) {
+                    System.out.println("   >> Removing file on: " + target.getCanonicalPath());
+
+                    if (target.exists()) {
+                        try (RandomAccessFile raf = new RandomAccessFile(target, "r")) {
+                            verifyBase(raf, target, file.getBaseCRC());
+                        }
+                    }
+
+                    removals.add(target);
+                    continue;
+                }
+
+                Long expected = crcs.get(file.getPath());
+
+                if (expected == null) {
+                    throw new IOException("The descriptor is incorrect. "
+                            + "The file is not declared: " + file.getPath());
+                }
+
+                final long crc;
+
+                if (file.getOperation() == DeltaFile.Operation.PATCH) {
+                    System.out.println("   >> Patching file on: " + target.getCanonicalPath());
+                    crc = patch(getEntry(file.getPatchEntryName()), target,
+                            file.getBaseCRC(), addTemp(target));
+                } else {
+                    System.out.println("   >> Copying file to: " + target.getCanonicalPath());
+                    crc = stage(getEntry(file.getPath()), addTemp(target));
+                }
+
+                if (expected != crc) {
+                    throw new IOException("The CRC does not match for file: " + file.getPath());
+                }
+            }
+
+            stageReceipt();
+        } catch (IOException ex) {
+            discard();
+            throw ex;
+        }
+
+        commit();
+    }
+
+    private void stageFiles(final NMFPackageDescriptor descriptor) throws IOException {
+        for (NMFPackageFile file : descriptor.getFiles()) {
+            File target = targetFile(file.getPath());
+            System.out.println("   >> Copying file to: " + target.getCanonicalPath());
+            final long crc = stage(getEntry(file.getPath()), addTemp(target));
+
+            if (file.getCRC() != crc) {
+                throw new IOException("The CRC does not match for file: " + file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Stages the receipt as the last file, so it is moved into place after the
+     * files of the package.
+     */
+    private void stageReceipt() throws IOException {
+        if (receipt != null) {
+            stage(receipt, addTemp(receiptFile));
+        }
+    }
+
+    /**
+     * Copies an entry of the package to a file and calculates its CRC on the
+     * way.
+     *
+     * @param entry The entry of the package.
+     * @param file The file to be written.
+     * @return The CRC of the copied bytes.
+     * @throws IOException if the entry could not be read or the file written.
+     */
+    public long stage(final ZipEntry entry, final File file) throws IOException {
+        final CRC32 crc = new CRC32();
+
+        try (InputStream in = zipFile.getInputStream(entry);
+                OutputStream out = openOutput(file)) {
+            int len;
+
+            while ((len = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, len);
+                out.write(buffer, 0, len);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Opens the stream where a file is written to.
+     *
+     * @param file The file.
+     * @return The output stream.
+     * @throws IOException if the file could not be opened.
+     */
+    protected OutputStream openOutput(final File file) throws IOException {
+        return new FileOutputStream(file);
+    }
+
+    private long patch(final ZipEntry entry, final File base, final long baseCRC,
+            final File file) throws IOException {
+        if (!base.exists()) {
+            throw new IOException("The file to be patched does not exist: " + base);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(base, "r")) {
+            verifyBase(raf, base, baseCRC);
+
+            try (InputStream in = zipFile.getInputStream(entry);
+                    OutputStream out = openOutput(file)) {
+                return BinaryDelta.apply(raf, in, out);
+            }
+        }
+    }
+
+    /**
+     * Checks that an installed file is the version that the delta was
+     * generated against.
+     *
+     * @param raf The installed file, read from its current position.
+     * @param file The installed file.
+     * @param baseCRC The CRC of the base version.
+     * @throws IOException if the file could not be read or does not match.
+     */
+    private void verifyBase(final RandomAccessFile raf, final File file, final long baseCRC)
+            throws IOException {
+        final CRC32 crc = new CRC32();
+        int len;
+
+        while ((len = raf.read(buffer)) > 0) {
+            crc.update(buffer, 0, len);
+        }
+
+        if (crc.getValue() != baseCRC) {
+            throw new IOException("The installed file does not match the base "
+                    + "version of the delta: " + file);
+        }
+    }
+
+    private ZipEntry getEntry(final String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+
+        if (entry == null) {
+            throw new IOException("The descriptor is incorrect. "
+                    + "One of the files does not exist: " + name);
+        }
+
+        return entry;
+    }
+
+    private File targetFile(final String path) throws IOException {
+        final String systemPath = path.replace('/', File.separatorChar)
+                .replace('\\', File.separatorChar);
+        return new File(destination.getCanonicalPath() + File.separator + systemPath);
+    }
+
+    private File addTemp(final File target) {
+        File temp = new File(target.getParentFile(), target.getName() + TEMP_ENDING);
+        target.getParentFile().mkdirs();
+        temps.add(temp);
+        targets.add(target);
+        return temp;
+    }
+
+    private void discard() {
+        for (File temp : temps) {
+            delete(temp);
+        }
+
+        temps.clear();
+        targets.clear();
+        removals.clear();
+    }
+
+    /**
+     * Moves the verified files into place. The replaced and removed files are
+     * moved aside first and restored if any of the moves fails.
+     */
+    private void commit() throws IOException {
+        final ArrayList<File> done = new ArrayList<>();
+        final ArrayList<File> backups = new ArrayList<>();
+
+        try {
+            for (File removal : removals) {
+                if (removal.exists()) {
+                    File backup = new File(removal.getPath() + BACKUP_ENDING);
+                    move(removal, backup);
+                    done.add(removal);
+                    backups.add(backup);
+                }
+            }
+
+            // The receipt, if any, is the last one
+            for (int i = 0; i < temps.size(); i++) {
+                File target = targets.get(i);
+                File backup = null;
+
+                if (target.exists()) {
+                    backup = new File(target.getPath() + BACKUP_ENDING);
+                    move(target, backup);
+                }
+
+                done.add(target);
+                backups.add(backup);
+                move(temps.get(i), target);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(NMFPackageExtractor.class.getName()).log(Level.SEVERE,
+                    "The files could not be moved into place. Rolling back...", ex);
+
+            for (int i = done.size() - 1; i >= 0; i--) {
+                File target = done.get(i);
+                File backup = backups.get(i);
+
+                try {
+                    if (backup != null) {
+                        move(backup, target);
+                    } else {
+                        delete(target);
+                    }
+                } catch (IOException ex2) {
+                    Logger.getLogger(NMFPackageExtractor.class.getName()).log(Level.SEVERE,
+                            "The file could not be restored: " + target, ex2);
+                }
+            }
+
+            discard();
+            throw ex;
+        }
+
+        for (File backup : backups) {
+            if (backup != null) {
+                delete(backup);
+            }
+        }
+
+        temps.clear();
+        targets.clear();
+        removals.clear();
+    }
+
+    /**
+     * Moves a file, replacing the destination.
+     *
+     * @param from The file to be moved.
+     * @param to The destination.
+     * @throws IOException if the file could not be moved.
+     */
+    protected void move(final File from, final File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            Logger.getLogger(NMFPackageExtractor.class.getName()).log(Level.WARNING,
+                    "The file could not be deleted: {0}", file);
+        }
+    }
+}
@@ -21,6 +21,7 @@
 package esa.mo.nmf.nmfpackage;
 
 import esa.mo.helpertools.helpers.HelperMisc;
+import esa.mo.nmf.nmfpackage.delta.DeltaDescriptor;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDescriptor;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDetails;
 import esa.mo.nmf.nmfpackage.descriptor.NMFPackageFile;
@@ -85,6 +86,11 @@ public class NMFPackageManager {
             throw new IOException("The parsed descriptor is null.");
         }
 
+        if (zipFile.getEntry(DeltaDescriptor.DELTA_FILENAME) != null) {
+            throw new IOException("This is a delta package. "
+                    + "It can only be used to upgrade an installed package.");
+        }
+
         // Verify integrity of the file: Are all the declared files matching their CRCs?
         System.out.print("Verifying the integrity of the files to be installed...  ");
 
@@ -310,41 +316,36 @@ public class NMFPackageManager {
                 "Upgrading from version: '" + descriptor.getDetails().getVersion() + "'"
                 + "   To version: '" + descriptorFromPackage.getDetails().getVersion() + "'");
 
-        Logger.getLogger(NMFPackageManager.class.getName()).log(Level.INFO,
-                "Removing the previous files...");
+        ZipEntry deltaEntry = zipFile.getEntry(DeltaDescriptor.DELTA_FILENAME);
 
-        removeFiles(descriptor);
+        // The new receipt replaces the installed one only after the files are in place
+        NMFPackageExtractor extractor = new NMFPackageExtractor(zipFile, nmfDir);
+        extractor.setReceipt(receipt, receiptFile);
 
-        if (!receiptFile.delete()) { // The file could not be deleted...
-            Logger.getLogger(NMFPackageManager.class.getName()).log(Level.WARNING,
-                    "The receipt file could not be deleted from: " 
-                            + receiptFile.getCanonicalPath());
-        }
+        if (deltaEntry != null) {
+            // A delta package only carries the changes to the base version
+            final InputStream stream3 = zipFile.getInputStream(deltaEntry);
+            final DeltaDescriptor delta = DeltaDescriptor.parseInputStream(stream3);
+            stream3.close();
 
-        Logger.getLogger(NMFPackageManager.class.getName()).log(Level.INFO,
-                "Copying the new files to the locations...");
-
-        copyFiles(descriptor, zipFile, nmfDir);
+            if (!delta.getBaseVersion().equals(descriptor.getDetails().getVersion())) {
+                throw new IOException("The delta package applies to version: '"
+                        + delta.getBaseVersion() + "' but the installed version is: '"
+                        + descriptor.getDetails().getVersion() + "'");
+            }
 
-        // ---------------------------------------
-        // Store a copy of the receipt to know that it has been installed!
-        //create the file otherwise we get FileNotFoundException
-        new File(receiptFile.getParent()).mkdirs();
-        // -----------------
+            Logger.getLogger(NMFPackageManager.class.getName()).log(Level.INFO,
+                    "Applying the delta to the installed files...");
 
-        final FileOutputStream fos = new FileOutputStream(receiptFile);
-        final InputStream zis = zipFile.getInputStream(receipt);
-        byte[] buffer = new byte[1024];
-        int len;
+            extractor.extractDelta(descriptorFromPackage, delta);
+        } else {
+            // The previous files are only removed once the new ones are verified
+            Logger.getLogger(NMFPackageManager.class.getName()).log(Level.INFO,
+                    "Replacing the previous files with the new ones...");
 
-        while ((len = zis.read(buffer)) > 0) {
-            fos.write(buffer, 0, len);
+            extractor.extractUpgrade(descriptorFromPackage, descriptor);
         }
 
-        fos.close();
-        zis.close();
-        // ---------------------------------------
-
         Logger.getLogger(NMFPackageManager.class.getName()).log(Level.INFO,
                 "Package successfully upgraded from location: " + packageLocation);
         
@@ -487,43 +488,8 @@ public class NMFPackageManager {
 
     private static void copyFiles(final NMFPackageDescriptor descriptor,
             final ZipFile zipFile, File installationFolder) throws IOException {
-        File newFile;
-        byte[] buffer = new byte[1024];
-
-        // Iterate through the files, unpack them into the right folders
-        for (int i = 0; i < descriptor.getFiles().size(); i++) {
-            NMFPackageFile file = descriptor.getFiles().get(i);
-            ZipEntry entry = zipFile.getEntry(file.getPath());
-
-            final String path = generateFilePathForSystem(entry.getName());
-            newFile = new File(installationFolder.getCanonicalPath() + File.separator + path);
-            File parent = new File(newFile.getParent());
-
-            if (!parent.exists()) {
-                new File(newFile.getParent()).mkdirs();
-            }
-
-            System.out.println("   >> Copying file to: " + newFile.getCanonicalPath());
-
-            final FileOutputStream fos = new FileOutputStream(newFile);
-
-            int len;
-            final InputStream zis = zipFile.getInputStream(entry);
-
-            while ((len = zis.read(buffer)) > 0) {
-                fos.write(buffer, 0, len);
-            }
-
-            fos.close();
-
-            final long crc = HelperNMFPackage.calculateCRCFromFile(newFile.getCanonicalPath());
-
-            // We will also need to double check the CRCs again against the real files!
-            // Just to double-check.. better safe than sorry!
-            if (file.getCRC() != crc) {
-                throw new IOException("The CRC does not match!");
-            }
-        }
+        // The CRCs are verified while the files are unpacked into the right folders
+        new NMFPackageExtractor(zipFile, installationFolder).extract(descriptor);
     }
 
     private static void removeFiles(final NMFPackageDescriptor descriptor) throws IOException {
@@ -0,0 +1,244 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage.delta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Binary diff between two versions of a file. The base file is indexed in
+ * blocks and the new file is scanned with a rolling checksum, the same way
+ * rsync does. The patch is a list of instructions to either copy a range of
+ * the base file or to insert literal bytes, so it applies by streaming with
+ * random access on the base file only.
+ */
+public class BinaryDelta {
+
+    private static final int MAGIC = 0x4E4D4644; // "NMFD"
+    private static final byte VERSION = 1;
+    private static final byte OP_END = 0;
+    private static final byte OP_COPY = 1;
+    private static final byte OP_DATA = 2;
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Generates the patch that transforms the base into the target.
+     *
+     * @param base The contents of the base file.
+     * @param target The contents of the new file.
+     * @return The patch.
+     */
+    public static byte[] create(final byte[] base, final byte[] target) {
+        final HashMap<Integer, Integer> blocks = new HashMap<>();
+
+        for (int off = 0; off + BLOCK_SIZE <= base.length; off += BLOCK_SIZE) {
+            Integer key = checksum(base, off);
+
+            if (!blocks.containsKey(key)) {
+                blocks.put(key, off);
+            }
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bos);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(target.length);
+
+            int literal = 0; // Start of the bytes not matched yet
+            int pos = 0;
+            int a = 0;
+            int b = 0;
+            boolean rolling = false;
+
+            while (pos + BLOCK_SIZE <= target.length) {
+                if (!rolling) {
+                    a = 0;
+                    b = 0;
+
+                    for (int i = 0; i < BLOCK_SIZE; i++) {
+                        a += target[pos + i] & 0xFF;
+                        b += (BLOCK_SIZE - i) * (target[pos + i] & 0xFF);
+                    }
+
+                    rolling = true;
+                }
+
+                Integer match = blocks.get((b << 16) ^ (a & 0xFFFF));
+
+                if (match != null && equal(base, match, target, pos, BLOCK_SIZE)) {
+                    int len = BLOCK_SIZE;
+
+                    while (match + len < base.length && pos + len < target.length
+                            && base[match + len] == target[pos + len]) {
+                        len++;
+                    }
+
+                    writeData(out, target, literal, pos - literal);
+                    out.writeByte(OP_COPY);
+                    out.writeLong(match);
+                    out.writeInt(len);
+                    pos += len;
+                    literal = pos;
+                    rolling = false;
+                    continue;
+                }
+
+                if (pos + BLOCK_SIZE < target.length) {
+                    int outgoing = target[pos] & 0xFF;
+                    int incoming = target[pos + BLOCK_SIZE] & 0xFF;
+                    a += incoming - outgoing;
+                    b += a - BLOCK_SIZE * outgoing;
+                }
+
+                pos++;
+            }
+
+            writeData(out, target, literal, target.length - literal);
+            out.writeByte(OP_END);
+            out.flush();
+        } catch (IOException ex) {
+            // Should never happen on a byte array
+            throw new IllegalStateException(ex);
+        }
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * Applies a patch to the base file.
+     *
+     * @param base The base file.
+     * @param patch The stream of the patch.
+     * @param out The stream where the new file is written to.
+     * @return The CRC of the new file.
+     * @throws IOException if the patch is malformed or does not fit the base.
+     */
+    public static long apply(final RandomAccessFile base, final InputStream patch,
+            final OutputStream out) throws IOException {
+        final DataInputStream in = new DataInputStream(patch);
+
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new StreamCorruptedException("The patch is not valid!");
+        }
+
+        final long length = in.readLong();
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        byte op;
+
+        while ((op = in.readByte()) != OP_END) {
+            if (op == OP_COPY) {
+                long offset = in.readLong();
+                int len = in.readInt();
+
+                if (offset < 0 || len < 0 || offset + len > base.length()) {
+                    throw new StreamCorruptedException("The patch does not match the base file!");
+                }
+
+                base.seek(offset);
+
+                while (len > 0) {
+                    int n = Math.min(len, buffer.length);
+                    base.readFully(buffer, 0, n);
+                    crc.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    len -= n;
+                    written += n;
+                }
+            } else if (op == OP_DATA) {
+                int len = in.readInt();
+
+                if (len < 0) {
+                    throw new StreamCorruptedException("The patch is not valid!");
+                }
+
+                while (len > 0) {
+                    int n = in.read(buffer, 0, Math.min(len, buffer.length));
+
+                    if (n < 0) {
+                        throw new EOFException("The patch is truncated!");
+                    }
+
+                    crc.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    len -= n;
+                    written += n;
+                }
+            } else {
+                throw new StreamCorruptedException("Unknown patch instruction: " + op);
+            }
+        }
+
+        if (written != length) {
+            throw new StreamCorruptedException("The patch produced " + written
+                    + " bytes instead of " + length);
+        }
+
+        return crc.getValue();
+    }
+
+    private static void writeData(final DataOutputStream out, final byte[] data,
+            final int off, final int len) throws IOException {
+        if (len > 0) {
+            out.writeByte(OP_DATA);
+            out.writeInt(len);
+            out.write(data, off, len);
+        }
+    }
+
+    private static int checksum(final byte[] data, final int off) {
+        int a = 0;
+        int b = 0;
+
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            a += data[off + i] & 0xFF;
+            b += (BLOCK_SIZE - i) * (data[off + i] & 0xFF);
+        }
+
+        return (b << 16) ^ (a & 0xFFFF);
+    }
+
+    private static boolean equal(final byte[] x, final int xOff, final byte[] y,
+            final int yOff, final int len) {
+        for (int i = 0; i < len; i++) {
+            if (x[xOff + i] != y[yOff + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
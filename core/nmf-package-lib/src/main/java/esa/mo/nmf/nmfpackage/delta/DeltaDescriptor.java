@@ -0,0 +1,134 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage.delta;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * The manifest of a delta NMF Package. It names the version of the package
+ * that the delta applies to and lists the files to be added, patched or
+ * removed together with the CRCs of the files they are applied to. The CRCs
+ * of the resulting files are the ones of the receipt of the delta package.
+ * The files that are not listed are kept as installed.
+ */
+public class DeltaDescriptor {
+
+    public static final String DELTA_FILENAME = "nmfPackage.delta";
+    public static final String PATCH_ENDING = ".nmfpatch";
+
+    private static final String DELTA_VERSION = "NMFDeltaVersion=";
+    private static final String BASE_VERSION = "BaseVersion=";
+    private static final String FILE_PATH = "FilePath=";
+    private static final String FILE_OPERATION = "FileOperation=";
+    private static final String FILE_BASE_CRC = "FileBaseCRC=";
+
+    private final String baseVersion;
+    private final ArrayList<DeltaFile> files;
+
+    public DeltaDescriptor(final String baseVersion) {
+        this.baseVersion = baseVersion;
+        this.files = new ArrayList<>();
+    }
+
+    public String getBaseVersion() {
+        return baseVersion;
+    }
+
+    public ArrayList<DeltaFile> getFiles() {
+        return files;
+    }
+
+    public void addFile(final DeltaFile file) {
+        this.files.add(file);
+    }
+
+    /**
+     * Parses a delta manifest.
+     *
+     * @param stream The input stream of the manifest.
+     * @return The delta descriptor.
+     * @throws IOException if the manifest is malformed.
+     */
+    public static DeltaDescriptor parseInputStream(final InputStream stream) throws IOException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String version = readValue(br, DELTA_VERSION);
+
+        if (!"1".equals(version)) {
+            throw new IOException("Unknown delta version: " + version);
+        }
+
+        final DeltaDescriptor descriptor = new DeltaDescriptor(readValue(br, BASE_VERSION));
+        String line;
+
+        while ((line = br.readLine()) != null) {
+            if (!line.startsWith(FILE_PATH)) {
+                throw new IOException("Could not read the path!");
+            }
+
+            String path = line.substring(FILE_PATH.length());
+            DeltaFile.Operation operation;
+
+            try {
+                operation = DeltaFile.Operation.valueOf(readValue(br, FILE_OPERATION));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Unknown operation for file: " + path, ex);
+            }
+
+            long crc = Long.parseLong(readValue(br, FILE_BASE_CRC));
+            descriptor.addFile(new DeltaFile(path, operation, crc));
+        }
+
+        return descriptor;
+    }
+
+    public void writeDescriptor(final BufferedWriter bw) throws IOException {
+        bw.write(DELTA_VERSION + "1");
+        bw.newLine();
+        bw.write(BASE_VERSION + baseVersion);
+        bw.newLine();
+
+        for (DeltaFile f : files) {
+            bw.write(FILE_PATH + f.getPath());
+            bw.newLine();
+            bw.write(FILE_OPERATION + f.getOperation().name());
+            bw.newLine();
+            bw.write(FILE_BASE_CRC + String.valueOf(f.getBaseCRC()));
+            bw.newLine();
+        }
+    }
+
+    private static String readValue(final BufferedReader br, final String key) throws IOException {
+        String line = br.readLine();
+
+        if (line == null || !line.startsWith(key)) {
+            throw new IOException("Could not read the field: " + key);
+        }
+
+        return line.substring(key.length());
+    }
+
+}
@@ -0,0 +1,82 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage.delta;
+
+/**
+ * A file changed by a delta upgrade.
+ */
+public class DeltaFile {
+
+    /**
+     * How the file is changed.
+     */
+    public enum Operation {
+        /**
+         * The file is new and is shipped in full.
+         */
+        ADD,
+        /**
+         * The file is patched from the installed version.
+         */
+        PATCH,
+        /**
+         * The file is no longer part of the package.
+         */
+        REMOVE
+    }
+
+    private final String path;
+    private final Operation operation;
+    private final long baseCRC;
+
+    public DeltaFile(final String path, final Operation operation, final long baseCRC) {
+        this.path = path;
+        this.operation = operation;
+        this.baseCRC = baseCRC;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The CRC of the installed file that the delta was generated against.
+     *
+     * @return The CRC, or 0 for added files.
+     */
+    public long getBaseCRC() {
+        return baseCRC;
+    }
+
+    /**
+     * The name of the entry holding the patch of the file.
+     *
+     * @return The entry name.
+     */
+    public String getPatchEntryName() {
+        return path + DeltaDescriptor.PATCH_ENDING;
+    }
+
+}
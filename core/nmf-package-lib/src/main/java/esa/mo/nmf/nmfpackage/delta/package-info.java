@@ -0,0 +1,5 @@
+/**
+ * Package containing the NMF Package classes for the delta upgrades between
+ * two versions of a package.
+ */
+package esa.mo.nmf.nmfpackage.delta;
@@ -0,0 +1,224 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage.tests;
+
+import esa.mo.nmf.nmfpackage.HelperNMFPackage;
+import esa.mo.nmf.nmfpackage.NMFPackageCreator;
+import esa.mo.nmf.nmfpackage.NMFPackageExtractor;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDescriptor;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDetails;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageFile;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipFile;
+
+/**
+ * Compares the installation of large NMF Packages on a slow filesystem. The
+ * filesystem is emulated by throttling the streams of the written files to
+ * a fixed throughput. The two-pass installation writes the files and reads
+ * them again to verify their CRCs, the single-pass installation verifies the
+ * CRCs while writing.
+ *
+ * Arguments: [number of files] [size of each file in MB] [throughput in MB/s]
+ */
+public class PackageInstallationBenchmark {
+
+    public static void main(final String[] args) throws IOException {
+        final int nFiles = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        final int sizeMB = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        final int rateMB = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+        final long bytesPerSecond = rateMB * 1024L * 1024L;
+
+        File workDir = Files.createTempDirectory("nmfpackage_benchmark").toFile();
+        ArrayList<String> files = new ArrayList<>();
+        ArrayList<String> newLocations = new ArrayList<>();
+        Random random = new Random(42);
+        byte[] data = new byte[sizeMB * 1024 * 1024];
+
+        for (int i = 0; i < nFiles; i++) {
+            File file = new File(workDir, "file" + i + ".bin");
+            random.nextBytes(data);
+            Files.write(file.toPath(), data);
+            files.add(file.getAbsolutePath());
+            newLocations.add("apps/benchmark/file" + i + ".bin");
+        }
+
+        NMFPackageDetails details = new NMFPackageDetails("benchmark", "1.0",
+                "-", "noclass", "96m");
+        String packagePath = NMFPackageCreator.nmfPackageCreator(details,
+                files, newLocations, workDir.getAbsolutePath());
+
+        try (ZipFile zipFile = new ZipFile(packagePath)) {
+            NMFPackageDescriptor descriptor;
+
+            try (InputStream in = zipFile.getInputStream(
+                    zipFile.getEntry(HelperNMFPackage.RECEIPT_FILENAME))) {
+                descriptor = NMFPackageDescriptor.parseInputStream(in);
+            }
+
+            System.out.println("Installing " + nFiles + " files of " + sizeMB
+                    + " MB at " + rateMB + " MB/s");
+
+            long start = System.nanoTime();
+            installTwoPass(zipFile, descriptor, new File(workDir, "twopass"), bytesPerSecond);
+            long twoPass = System.nanoTime() - start;
+            System.out.println("Two-pass installation:    " + twoPass / 1000000 + " ms");
+
+            start = System.nanoTime();
+            new ThrottledExtractor(zipFile, new File(workDir, "singlepass"),
+                    bytesPerSecond).extract(descriptor);
+            long singlePass = System.nanoTime() - start;
+            System.out.println("Single-pass installation: " + singlePass / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * The previous installation procedure: extract and then read every file
+     * again to calculate its CRC.
+     */
+    private static void installTwoPass(final ZipFile zipFile, final NMFPackageDescriptor descriptor,
+            final File folder, final long bytesPerSecond) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+
+        for (NMFPackageFile file : descriptor.getFiles()) {
+            File target = new File(folder, file.getPath());
+            target.getParentFile().mkdirs();
+
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry(file.getPath()));
+                    OutputStream out = new ThrottledOutputStream(
+                            new FileOutputStream(target), bytesPerSecond)) {
+                int len;
+
+                while ((len = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, len);
+                }
+            }
+
+            CRC32 crc = new CRC32();
+
+            try (InputStream in = new ThrottledInputStream(
+                    new FileInputStream(target), bytesPerSecond)) {
+                int len;
+
+                while ((len = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, len);
+                }
+            }
+
+            if (file.getCRC() != crc.getValue()) {
+                throw new IOException("The CRC does not match!");
+            }
+        }
+    }
+
+    /**
+     * Delays the stream until the transferred bytes match the throughput.
+     */
+    private static class Throttle {
+
+        private final long bytesPerSecond;
+
+        private final long start = System.nanoTime();
+
+        private long bytes = 0;
+
+        public Throttle(final long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        public void transferred(final int len) {
+            bytes += len;
+            long due = start + bytes * 1000000000L / bytesPerSecond;
+            long wait = (due - System.nanoTime()) / 1000000;
+
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static class ThrottledExtractor extends NMFPackageExtractor {
+
+        private final long bytesPerSecond;
+
+        public ThrottledExtractor(final ZipFile zipFile, final File destination,
+                final long bytesPerSecond) {
+            super(zipFile, destination);
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        protected OutputStream openOutput(final File file) throws IOException {
+            return new ThrottledOutputStream(new FileOutputStream(file), bytesPerSecond);
+        }
+    }
+
+    private static class ThrottledOutputStream extends FilterOutputStream {
+
+        private final Throttle throttle;
+
+        public ThrottledOutputStream(final OutputStream out, final long bytesPerSecond) {
+            super(out);
+            this.throttle = new Throttle(bytesPerSecond);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            throttle.transferred(len);
+        }
+    }
+
+    private static class ThrottledInputStream extends FilterInputStream {
+
+        private final Throttle throttle;
+
+        public ThrottledInputStream(final InputStream in, final long bytesPerSecond) {
+            super(in);
+            this.throttle = new Throttle(bytesPerSecond);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            int n = in.read(b, off, len);
+
+            if (n > 0) {
+                throttle.transferred(n);
+            }
+
+            return n;
+        }
+    }
+}
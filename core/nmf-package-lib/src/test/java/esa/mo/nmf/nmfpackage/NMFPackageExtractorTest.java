@@ -0,0 +1,343 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage;
+
+import esa.mo.nmf.nmfpackage.delta.BinaryDelta;
+import esa.mo.nmf.nmfpackage.delta.DeltaDescriptor;
+import esa.mo.nmf.nmfpackage.delta.DeltaFile;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDescriptor;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageDetails;
+import esa.mo.nmf.nmfpackage.descriptor.NMFPackageFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NMFPackageExtractorTest {
+
+    private static final byte[] A_BASE = repeat("a base line\n", 200);
+    private static final byte[] A_NEW = concat(repeat("a base line\n", 100),
+            bytes("a new line\n"), repeat("a base line\n", 100));
+    private static final byte[] B_BASE = bytes("b base");
+    private static final byte[] B_NEW = bytes("b new");
+    private static final byte[] C_BASE = bytes("c base");
+    private static final String RECEIPT = "nmfPackage.receipt";
+    private static final byte[] RECEIPT_BASE = bytes("receipt 1.0");
+    private static final byte[] RECEIPT_NEW = bytes("receipt 2.0");
+
+    private static byte[] bytes(final String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] repeat(final String str, final int times) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < times; i++) {
+            sb.append(str);
+        }
+
+        return bytes(sb.toString());
+    }
+
+    private static byte[] concat(final byte[]... parts) {
+        int length = 0;
+
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+
+        byte[] out = new byte[length];
+        int off = 0;
+
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, out, off, part.length);
+            off += part.length;
+        }
+
+        return out;
+    }
+
+    private static long crc(final byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * Installs the base version: a.txt and c.txt, and b.txt in a subfolder.
+     */
+    private static File install() throws IOException {
+        File folder = Files.createTempDirectory("app").toFile();
+        new File(folder, "lib").mkdirs();
+        Files.write(new File(folder, "a.txt").toPath(), A_BASE);
+        Files.write(new File(folder, "lib/b.txt").toPath(), B_BASE);
+        Files.write(new File(folder, "c.txt").toPath(), C_BASE);
+        return folder;
+    }
+
+    /**
+     * The delta package: a.txt is patched, b.txt replaced and c.txt removed.
+     */
+    private static ZipFile deltaPackage() throws IOException {
+        File file = File.createTempFile("delta", ".nmfpack");
+        file.deleteOnExit();
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("a.txt" + DeltaDescriptor.PATCH_ENDING));
+            out.write(BinaryDelta.create(A_BASE, A_NEW));
+            out.putNextEntry(new ZipEntry("lib/b.txt"));
+            out.write(B_NEW);
+        }
+
+        return new ZipFile(file);
+    }
+
+    /**
+     * The full package of the new version: a.txt and lib/b.txt, with its
+     * receipt. c.txt is not part of it anymore.
+     */
+    private static ZipFile fullPackage(final byte[] bContent) throws IOException {
+        File file = File.createTempFile("full", ".nmfpack");
+        file.deleteOnExit();
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("a.txt"));
+            out.write(A_NEW);
+            out.putNextEntry(new ZipEntry("lib/b.txt"));
+            out.write(bContent);
+            out.putNextEntry(new ZipEntry(RECEIPT));
+            out.write(RECEIPT_NEW);
+        }
+
+        return new ZipFile(file);
+    }
+
+    private static NMFPackageDescriptor installed() {
+        NMFPackageDescriptor descriptor = new NMFPackageDescriptor(
+                new NMFPackageDetails("app", "1.0", "then", "esa.mo.nmf.apps.App", "64m"));
+        descriptor.addFile(new NMFPackageFile("a.txt", crc(A_BASE)));
+        descriptor.addFile(new NMFPackageFile("lib/b.txt", crc(B_BASE)));
+        descriptor.addFile(new NMFPackageFile("c.txt", crc(C_BASE)));
+        return descriptor;
+    }
+
+    private static File installReceipt(final File folder) throws IOException {
+        File receipt = new File(folder, "receipts/app.receipt");
+        receipt.getParentFile().mkdirs();
+        Files.write(receipt.toPath(), RECEIPT_BASE);
+        return receipt;
+    }
+
+    private static DeltaDescriptor delta(final long removedCRC) {
+        DeltaDescriptor delta = new DeltaDescriptor("1.0");
+        delta.addFile(new DeltaFile("a.txt", DeltaFile.Operation.PATCH, crc(A_BASE)));
+        delta.addFile(new DeltaFile("lib/b.txt", DeltaFile.Operation.ADD, 0));
+        delta.addFile(new DeltaFile("c.txt", DeltaFile.Operation.REMOVE, removedCRC));
+        return delta;
+    }
+
+    private static NMFPackageDescriptor descriptor() {
+        NMFPackageDescriptor descriptor = new NMFPackageDescriptor(
+                new NMFPackageDetails("app", "2.0", "now", "esa.mo.nmf.apps.App", "64m"));
+        descriptor.addFile(new NMFPackageFile("a.txt", crc(A_NEW)));
+        descriptor.addFile(new NMFPackageFile("lib/b.txt", crc(B_NEW)));
+        return descriptor;
+    }
+
+    private static void assertBaseInstalled(final File folder) throws IOException {
+        Assert.assertArrayEquals(A_BASE, Files.readAllBytes(new File(folder, "a.txt").toPath()));
+        Assert.assertArrayEquals(B_BASE, Files.readAllBytes(new File(folder, "lib/b.txt").toPath()));
+        Assert.assertArrayEquals(C_BASE, Files.readAllBytes(new File(folder, "c.txt").toPath()));
+        assertNoLeftovers(folder);
+    }
+
+    private static void assertNoLeftovers(final File folder) {
+        for (File dir : new File[]{folder, new File(folder, "lib"), new File(folder, "receipts")}) {
+            if (!dir.exists()) {
+                continue;
+            }
+
+            for (String name : dir.list()) {
+                Assert.assertFalse("Leftover file: " + name,
+                        name.endsWith(".nmfpart") || name.endsWith(".nmfold"));
+            }
+        }
+    }
+
+    @Test
+    public void testExtractDelta() throws IOException {
+        File folder = install();
+
+        try (ZipFile zip = deltaPackage()) {
+            new NMFPackageExtractor(zip, folder).extractDelta(descriptor(), delta(crc(C_BASE)));
+        }
+
+        Assert.assertArrayEquals(A_NEW, Files.readAllBytes(new File(folder, "a.txt").toPath()));
+        Assert.assertArrayEquals(B_NEW, Files.readAllBytes(new File(folder, "lib/b.txt").toPath()));
+        Assert.assertFalse(new File(folder, "c.txt").exists());
+        assertNoLeftovers(folder);
+    }
+
+    @Test
+    public void testExtractDeltaRollsBack() throws IOException {
+        File folder = install();
+        final File failing = new File(folder, "lib/b.txt").getCanonicalFile();
+
+        try (ZipFile zip = deltaPackage()) {
+            // The last move, putting the new b.txt into place, fails
+            NMFPackageExtractor extractor = new NMFPackageExtractor(zip, folder) {
+                @Override
+                protected void move(final File from, final File to) throws IOException {
+                    if (to.getCanonicalFile().equals(failing) && from.getName().endsWith(".nmfpart")) {
+                        throw new IOException("Simulated failure");
+                    }
+
+                    super.move(from, to);
+                }
+            };
+
+            extractor.extractDelta(descriptor(), delta(crc(C_BASE)));
+            Assert.fail("The failure was not reported");
+        } catch (IOException ex) {
+            Assert.assertEquals("Simulated failure", ex.getMessage());
+        }
+
+        // The patched, replaced and removed files are restored
+        assertBaseInstalled(folder);
+    }
+
+    @Test
+    public void testRemovedFileIsVerified() throws IOException {
+        File folder = install();
+
+        try (ZipFile zip = deltaPackage()) {
+            new NMFPackageExtractor(zip, folder).extractDelta(descriptor(), delta(crc(C_BASE) + 1));
+            Assert.fail("A modified file was removed");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("The installed file does not match"));
+        }
+
+        assertBaseInstalled(folder);
+    }
+
+    @Test
+    public void testPatchedFileIsVerified() throws IOException {
+        File folder = install();
+        Files.write(new File(folder, "a.txt").toPath(), bytes("modified"));
+
+        try (ZipFile zip = deltaPackage()) {
+            new NMFPackageExtractor(zip, folder).extractDelta(descriptor(), delta(crc(C_BASE)));
+            Assert.fail("A modified file was patched");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("The installed file does not match"));
+        }
+
+        Assert.assertArrayEquals(bytes("modified"), Files.readAllBytes(new File(folder, "a.txt").toPath()));
+        Assert.assertArrayEquals(B_BASE, Files.readAllBytes(new File(folder, "lib/b.txt").toPath()));
+        assertNoLeftovers(folder);
+    }
+
+    @Test
+    public void testMissingRemovedFileIsIgnored() throws IOException {
+        File folder = install();
+        new File(folder, "c.txt").delete();
+
+        try (ZipFile zip = deltaPackage()) {
+            new NMFPackageExtractor(zip, folder).extractDelta(descriptor(), delta(crc(C_BASE)));
+        }
+
+        Assert.assertArrayEquals(A_NEW, Files.readAllBytes(new File(folder, "a.txt").toPath()));
+        Assert.assertTrue(Arrays.asList(new File(folder, "lib").list()).contains("b.txt"));
+    }
+
+    @Test
+    public void testExtractUpgrade() throws IOException {
+        File folder = install();
+        File receipt = installReceipt(folder);
+
+        try (ZipFile zip = fullPackage(B_NEW)) {
+            NMFPackageExtractor extractor = new NMFPackageExtractor(zip, folder);
+            extractor.setReceipt(zip.getEntry(RECEIPT), receipt);
+            extractor.extractUpgrade(descriptor(), installed());
+        }
+
+        Assert.assertArrayEquals(A_NEW, Files.readAllBytes(new File(folder, "a.txt").toPath()));
+        Assert.assertArrayEquals(B_NEW, Files.readAllBytes(new File(folder, "lib/b.txt").toPath()));
+        Assert.assertFalse(new File(folder, "c.txt").exists());
+        Assert.assertArrayEquals(RECEIPT_NEW, Files.readAllBytes(receipt.toPath()));
+        assertNoLeftovers(folder);
+    }
+
+    @Test
+    public void testFailedUpgradeKeepsTheInstallation() throws IOException {
+        File folder = install();
+        File receipt = installReceipt(folder);
+
+        // The content of b.txt does not match the CRC of the descriptor
+        try (ZipFile zip = fullPackage(bytes("corrupted"))) {
+            NMFPackageExtractor extractor = new NMFPackageExtractor(zip, folder);
+            extractor.setReceipt(zip.getEntry(RECEIPT), receipt);
+            extractor.extractUpgrade(descriptor(), installed());
+            Assert.fail("A corrupted file was installed");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("The CRC does not match"));
+        }
+
+        assertBaseInstalled(folder);
+        Assert.assertArrayEquals(RECEIPT_BASE, Files.readAllBytes(receipt.toPath()));
+    }
+
+    @Test
+    public void testUpgradeRollsBackWhenTheReceiptCannotBeMoved() throws IOException {
+        File folder = install();
+        final File receipt = installReceipt(folder);
+
+        try (ZipFile zip = fullPackage(B_NEW)) {
+            // The receipt is moved last, after all the files
+            NMFPackageExtractor extractor = new NMFPackageExtractor(zip, folder) {
+                @Override
+                protected void move(final File from, final File to) throws IOException {
+                    if (to.equals(receipt) && from.getName().endsWith(".nmfpart")) {
+                        throw new IOException("Simulated failure");
+                    }
+
+                    super.move(from, to);
+                }
+            };
+            extractor.setReceipt(zip.getEntry(RECEIPT), receipt);
+            extractor.extractUpgrade(descriptor(), installed());
+            Assert.fail("The failure was not reported");
+        } catch (IOException ex) {
+            Assert.assertEquals("Simulated failure", ex.getMessage());
+        }
+
+        assertBaseInstalled(folder);
+        Assert.assertArrayEquals(RECEIPT_BASE, Files.readAllBytes(receipt.toPath()));
+    }
+}
@@ -0,0 +1,176 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.nmf.nmfpackage.delta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryDeltaTest {
+
+    private static byte[] random(final int length, final long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] concat(final byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] apply(final byte[] base, final byte[] patch) throws IOException {
+        File file = File.createTempFile("base", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), base);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long crc = BinaryDelta.apply(raf, new ByteArrayInputStream(patch), out);
+            CRC32 expected = new CRC32();
+            expected.update(out.toByteArray());
+            Assert.assertEquals(expected.getValue(), crc);
+        } finally {
+            file.delete();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates the patch, applies it and checks the result.
+     *
+     * @return The size of the patch.
+     */
+    private static int roundTrip(final byte[] base, final byte[] target) throws IOException {
+        byte[] patch = BinaryDelta.create(base, target);
+        Assert.assertArrayEquals(target, apply(base, patch));
+        return patch.length;
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        byte[] base = random(8192, 1);
+        Assert.assertTrue(roundTrip(base, base.clone()) < 64);
+    }
+
+    @Test
+    public void testInsert() throws IOException {
+        byte[] base = random(8192, 2);
+        byte[] inserted = random(100, 3);
+        byte[] target = concat(Arrays.copyOfRange(base, 0, 3000), inserted,
+                Arrays.copyOfRange(base, 3000, base.length));
+        Assert.assertTrue(roundTrip(base, target) < 1200);
+    }
+
+    @Test
+    public void testDelete() throws IOException {
+        byte[] base = random(8192, 4);
+        byte[] target = concat(Arrays.copyOfRange(base, 0, 2000),
+                Arrays.copyOfRange(base, 2700, base.length));
+        Assert.assertTrue(roundTrip(base, target) < 1200);
+    }
+
+    @Test
+    public void testShiftedBlocks() throws IOException {
+        byte[] base = random(8192, 5);
+        // The blocks are moved to other offsets, not aligned to the block size
+        byte[] target = concat(random(7, 6), Arrays.copyOfRange(base, 4096, base.length),
+                Arrays.copyOfRange(base, 0, 4096), random(3, 7));
+        Assert.assertTrue(roundTrip(base, target) < 128);
+    }
+
+    @Test
+    public void testShorterThanBlockSize() throws IOException {
+        byte[] base = random(100, 8);
+        roundTrip(base, random(200, 9));
+        roundTrip(base, Arrays.copyOfRange(base, 0, 50));
+        roundTrip(random(8192, 10), random(300, 11));
+        roundTrip(base, new byte[0]);
+    }
+
+    @Test
+    public void testEmptyBase() throws IOException {
+        roundTrip(new byte[0], random(5000, 12));
+        roundTrip(new byte[0], new byte[0]);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testCorruptHeader() throws IOException {
+        byte[] base = random(2048, 13);
+        byte[] patch = BinaryDelta.create(base, base);
+        patch[0] ^= 0xFF;
+        apply(base, patch);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testUnknownInstruction() throws IOException {
+        byte[] base = random(2048, 14);
+        byte[] patch = BinaryDelta.create(base, base);
+        patch[13] = 42; // The first instruction
+        apply(base, patch);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testWrongLength() throws IOException {
+        byte[] base = random(2048, 15);
+        byte[] patch = BinaryDelta.create(base, base);
+        patch[12]++; // Last byte of the length of the new file
+        apply(base, patch);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testPatchDoesNotFitTheBase() throws IOException {
+        byte[] base = random(8192, 16);
+        byte[] patch = BinaryDelta.create(base, base);
+        apply(Arrays.copyOfRange(base, 0, 4096), patch);
+    }
+
+    @Test
+    public void testTruncatedPatch() throws IOException {
+        byte[] base = random(4096, 17);
+        byte[] target = concat(random(1000, 18), base);
+        byte[] patch = BinaryDelta.create(base, target);
+
+        for (int length : new int[]{0, 3, 12, 100, patch.length - 1}) {
+            try {
+                apply(base, Arrays.copyOf(patch, length));
+                Assert.fail("The truncated patch was applied: " + length + " bytes");
+            } catch (IOException ex) {
+                // Expected
+            }
+        }
+    }
+}
@@ -70,6 +70,13 @@ public class GenerateNMFPackageMojo extends AbstractMojo {
     @Parameter(property = "generate-nmf-package.maxHeap")
     private String maxHeap;
 
+    /**
+     * The NMF Package of a previous version of the App. If set, a delta
+     * package that upgrades that version is generated as well
+     */
+    @Parameter(property = "generate-nmf-package.basePackage")
+    private String basePackage;
+
     /**
      * The set of libraries to be added to the .nmfpack
      */
@@ -133,6 +140,17 @@ public class GenerateNMFPackageMojo extends AbstractMojo {
         NMFPackageDetails details = new NMFPackageDetails(name, version, timestamp, mainClass, maxHeap);
         NMFPackageCreator.nmfPackageCreator(details,
                 inputFiles, locations, "target");
+
+        if (basePackage != null) {
+            getLog().info(">> basePackage = " + basePackage);
+            String delta = NMFPackageCreator.nmfDeltaPackageCreator(details,
+                    basePackage, inputFiles, locations, "target");
+
+            if (delta == null) {
+                throw new MojoExecutionException("The delta package could not be "
+                        + "generated from the base package: " + basePackage);
+            }
+        }
         // Additional libraries?
     }
 